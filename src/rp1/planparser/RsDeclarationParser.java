@@ -24,7 +24,6 @@
 package rp1.planparser;
 
 
-import java.awt.Color;
 import rp1.rossum.*;
 
 public abstract class RsDeclarationParser extends RsParser {
@@ -125,7 +124,7 @@ public abstract class RsDeclarationParser extends RsParser {
          if(token.getType()!=RsToken.TT_IDENTIFIER)
             throw token.gripe("Invalid syntax where color specification expected");
          String s=token.getString();
-         Color color=RsColor.getColorForName(s);
+         RsColor color=RsColor.getColorForName(s);
          if(color==null)
             throw token.gripe("Invalid value where color name expected: \""+s+"\"");
          if(string.equals("color"))
@@ -26,9 +26,13 @@ package rp1.rossum;
 
 /**
 The RsAccelerationParameter class is in transition. At this time
-it is not used. Eventually, it will be used to describe behaviors
-such as the variable acceleration of a DC motor under a constant
-supply voltage.
+it is used to give the limits of a wheel system (see
+RsWheelSystem.setLinearAccelerationLimit()):  the velocity is the
+greatest speed the system can reach and the acceleration is the rate
+at which it gets there (and slows down again).  A value of zero
+for either indicates that there is no limit.  Eventually, it may
+be used to describe behaviors such as the variable acceleration of a
+DC motor under a constant supply voltage.
 */
 
 
@@ -39,7 +39,6 @@ package rp1.rossum;
 
 */
 
-import java.awt.Graphics;
 import java.util.ArrayList;
 
 
@@ -70,14 +69,5 @@ public class RsActuator extends RsBodyPart {
       }
       return partsArray;
    }
-
-   @Override
-public void paint(Graphics g, RsTransform gt){
-     RsBodyPart [] p = getPartsArray();
-     if(p!=null){
-        for(int i=0; i<p.length; i++)
-            p[i].paint(g, gt);
-     }
-   }
 }
 
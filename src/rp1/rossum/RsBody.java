@@ -68,7 +68,6 @@ import rp1.rossum.request.*;
 */
 
 
-import java.awt.*;
 import java.util.ArrayList;
 
 
@@ -94,6 +93,8 @@ public class RsBody extends RsComponent {
 	   public boolean          collision;
 	
 	   private  int            bodyID;
+	   private  int            stateVersion;
+	   private static final RsTransform identityTransform = new RsTransform();
 	
 	   private ArrayList <RsBodyPart>    bodyPartList;
 	   private ArrayList <RsBodyPainter> bodyPainterList;
@@ -101,6 +102,8 @@ public class RsBody extends RsComponent {
 	   private RsBodyPart    []          bodyPartArray;
 	   private RsBodyPainter []          bodyPainterArray;
 	   private RsBodyShape   []          bodyShapeArray;
+	   private transient RsBodyOverlapChecker overlapChecker;
+	   private transient RsTransform          positionTransform;
 
 
    public RsBody(String nameReference){
@@ -117,6 +120,7 @@ public class RsBody extends RsComponent {
       bodyPartArray    = null;
       bodyPainterArray = null;
       bodyShapeArray   = null;
+      overlapChecker   = null;
 
       if(bodyPartList == null)
          bodyPartList = new ArrayList<RsBodyPart>();
@@ -189,6 +193,21 @@ public class RsBody extends RsComponent {
    }
 
 
+   /**
+    * Notes that the state of the body (its motion, placement, or the
+    * state of any of its parts) may have changed.  Copies of the state
+    * data made for rendering compare the version numbers to tell whether
+    * they are out of date.
+    */
+   public void markStateChanged(){
+      stateVersion++;
+   }
+
+   public int getStateVersion(){
+      return stateVersion;
+   }
+
+
    public void copyStateData(RsBody dataSource){
        dataSource.transferStateDataToBody(this);
    }
@@ -211,7 +230,8 @@ public class RsBody extends RsComponent {
       }
 
       receiver.setPlacement(placement);
-      receiver.collision = collision;
+      receiver.collision    = collision;
+      receiver.stateVersion = stateVersion;
 
 
       // TO DO: rather than cloning, we may be able to just advance the time on the
@@ -243,6 +263,83 @@ public class RsBody extends RsComponent {
    }
 
 
+   /**
+    * Stores the changing part of the state of the body in a flat snapshot
+    * (see RsBodyState).  The arrays of the output are reused if they
+    * are already the right size.
+    */
+   public RsBodyState getState(RsBodyState output){
+      if(output==null)
+         output = new RsBodyState();
+      output.bodyID       = getID();
+      output.stateVersion = stateVersion;
+      output.placement    = placement;
+      output.collision    = collision;
+      if(motion!=null && motion.transform!=null){
+         output.setTransform(motion.transform);
+         output.time     = motion.time;
+         output.velocity = motion.getVelocity();
+         output.turnRate = motion.getTurnRate();
+      }else{
+         output.setTransform(identityTransform);
+         output.time     = 0;
+         output.velocity = 0;
+         output.turnRate = 0;
+      }
+
+      RsBodyPart [] part = getBodyPartArray();
+      output.setPartCount(part==null ? 0 : part.length);
+      if(part!=null){
+         for(int i=0; i<part.length; i++){
+            output.hot[i] = part[i].hot;
+            output.bin[i] = part[i].getStateBin();
+         }
+      }
+
+      RsWheel [] wheel = wheelSystem==null ? null : wheelSystem.wheels;
+      output.setWheelCount(wheel==null ? 0 : wheel.length);
+      if(wheel!=null){
+         for(int i=0; i<wheel.length; i++)
+            output.wheelOffset[i] = wheel[i].motionOrientationOffset;
+      }
+      return output;
+   }
+
+   /**
+    * Applies a snapshot taken by getState() to this body, which is
+    * expected to be a clone of the body the snapshot was taken from.
+    * Only the state needed for painting is applied: the body is given
+    * a stationary motion at the snapshot position, and its parts and
+    * wheels their hot flags and orientation offsets.   Used by renderers
+    * that keep one copy of the body geometry and paint it from snapshots.
+    */
+   public void applyState(RsBodyState state){
+      if(!(motion instanceof RsMotionNull))
+         motion = new RsMotionNull(state.time, 0, 0, 0);
+      motion.time  = state.time;
+      motion.time0 = state.time;
+      motion.time1 = state.time;
+      state.getTransform(motion.transform);
+      state.getTransform(motion.transform0);
+
+      placement    = state.placement;
+      collision    = state.collision;
+      stateVersion = state.stateVersion;
+
+      RsBodyPart [] part = getBodyPartArray();
+      if(part!=null && state.hot!=null && state.hot.length==part.length){
+         for(int i=0; i<part.length; i++)
+            part[i].hot = state.hot[i];
+      }
+
+      RsWheel [] wheel = wheelSystem==null ? null : wheelSystem.wheels;
+      if(wheel!=null && state.wheelOffset!=null && state.wheelOffset.length==wheel.length){
+         for(int i=0; i<wheel.length; i++)
+            wheel[i].motionOrientationOffset = state.wheelOffset[i];
+      }
+   }
+
+
    public void resetStateData(){
       RsBodyPart [] p = getBodyPartArray();
       if(p!=null){
@@ -262,14 +359,16 @@ public class RsBody extends RsComponent {
    }
 
    public RsPositionEvent getPositionEvent(double simTime){
-      RsTransform t = motion.getStateAtTime(simTime);
-      if(t==null)
+      if(positionTransform==null)
+         positionTransform = new RsTransform();
+      RsTransform t = positionTransform;
+      if(!motion.getStateAtTime(simTime, t))
          return null;
       double x = t.m13;
       double y = t.m23;
       double orientation=t.getTheta();
-      double velocity = motion.getVelocity();
-      double turnRate = motion.getTurnRate();
+      double velocity = motion.getVelocityAtTime(simTime);
+      double turnRate = motion.getTurnRateAtTime(simTime);
       return new RsPositionEvent(
          simTime,
          x,
@@ -280,17 +379,57 @@ public class RsBody extends RsComponent {
    }
 
    public boolean processSensors(double simTime, RsPlan plan, RsTransform transform){
+      return processSensors(simTime, plan, transform, null);
+   }
+
+   /**
+    * Processes the sensors, allowing those that can to detect the
+    * other bodies in the index (this body is excluded).  Only the
+    * sensors for which a sample is due are evaluated;  the others
+    * are marked as unchanged.  A sensor whose inputs have not changed
+    * keeps its cached state (see RsBodySensor.updateState).
+    */
+   public boolean processSensors(double simTime, RsPlan plan, RsTransform transform, RsBodyIndex bodyIndex){
       boolean stateChange=false;
+      RsBodySensor sensor;
       RsBodyPart bodyPart[] = getBodyPartArray();
       for(int i=0; i<bodyPart.length; i++){
          if(bodyPart[i].isASensor()){
-            if(((RsBodySensor)bodyPart[i]).computeAndSetState(simTime, plan, transform))
+            sensor = (RsBodySensor)bodyPart[i];
+            if(!sensor.isSampleDue(simTime)){
+               sensor.stateChange = false;
+               continue;
+            }
+            if(sensor.updateState(simTime, plan, transform, bodyIndex, this))
                stateChange=true;
+            sensor.setSampleTaken(simTime);
          }
       }
       return stateChange;
    }
 
+   /**
+    * Gets the earliest time after the specified time at which one of
+    * the sensors is due for a sample, or zero if none of the
+    * sensors have a sampling rate.
+    */
+   public double getTimeOfNextSensorSample(double simTime){
+      double t, tMin = 0;
+      RsBodySensor sensor;
+      RsBodyPart bodyPart[] = getBodyPartArray();
+      for(int i=0; i<bodyPart.length; i++){
+         if(bodyPart[i].isASensor()){
+            sensor = (RsBodySensor)bodyPart[i];
+            if(!sensor.isSamplingEnabled() || sensor.getSamplingInterval()<=0)
+               continue;
+            t = sensor.getTimeOfNextSample();
+            if(t>simTime && (tMin==0 || t<tMin))
+               tMin = t;
+         }
+      }
+      return tMin;
+   }
+
    public void computeMotion(double startTime, RsMotionRequest request){
       motion=wheelSystem.computeMotion(motion, startTime, request);
    }
@@ -303,15 +442,6 @@ public class RsBody extends RsComponent {
       return motion;
    }
 
-   public void paint(Graphics g, RsTransform paintTransform){
-      RsBodyPart [] bodyPart = getBodyPartArray();
-      if(bodyPart==null)
-         return;
-
-      for(int i=0; i<bodyPart.length; i++)
-         bodyPart[i].paint(g, paintTransform);
-   }
-
    public void setPlacement(boolean value){
       placement = value;
    }
@@ -366,14 +496,47 @@ public class RsBody extends RsComponent {
 
 
    public boolean checkForOverlap(RsPlan plan, RsTransform transform){
+      return getOverlapChecker().checkForOverlap(plan, transform);
+   }
+
+   /**
+    * Gets the distance from the body's origin to the farthest
+    * vertex of its interactive shapes.  A circle of this radius
+    * contains the body at any orientation.
+    */
+   public double getFootprintRadius(){
+      double r2, x, y, rMax2 = 0;
+      RsSegment [] s;
       RsBodyShape [] shape = getInteractiveBodyShapeArray();
       if(shape!=null){
          for(int i=0; i<shape.length; i++){
-           if(shape[i].checkForOverlap(plan, transform))
-              return true;
+            s = shape[i].getSegmentArray();
+            for(int j=0; j<s.length; j++){
+               x  = s[j].x;
+               y  = s[j].y;
+               r2 = x*x+y*y;
+               if(r2>rMax2)
+                  rMax2=r2;
+               x += s[j].v.x;
+               y += s[j].v.y;
+               r2 = x*x+y*y;
+               if(r2>rMax2)
+                  rMax2=r2;
+            }
          }
       }
-      return false;
+      return Math.sqrt(rMax2);
+   }
+
+   /**
+    * Gets an overlap checker for the interactive body shapes.  The
+    * checker is created on first use and kept until a part is added
+    * to the body.  It is transient, so clones of the body get their own.
+    */
+   public RsBodyOverlapChecker getOverlapChecker(){
+      if(overlapChecker==null)
+         overlapChecker = new RsBodyOverlapChecker(getInteractiveBodyShapeArray());
+      return overlapChecker;
    }
 
 }
@@ -33,8 +33,6 @@ on whether the "fillColor" is set to non-null.
 
 */
 
-import java.awt.Color;
-
 
 
 /**
@@ -68,6 +66,6 @@ public RsBodyArt(double [] pointList, int nPointList){
    RsPoint [] refPoint;
    RsPoint [] point;
 
-   Color      fillColor;
+   RsColor    fillColor;
 }
 
@@ -52,8 +52,6 @@ I will have to revisit this problem later.
 
 
 import java.lang.Math;
-import java.awt.Color;
-import java.awt.Graphics;
 
 
 
@@ -95,38 +93,6 @@ public class RsBodyCircle extends RsBodyShape {
    }
 
 
-   @Override
-public void paint(Graphics g, RsTransform gt){
-
-
-      Color  fc, lc;
-
-      fc = getFillColor();
-      lc = getLineColor();
-
-      if(fc == null && lc == null)
-         return;
-
-      RsPoint p0 = gt.map(refXCenter, refYCenter);
-      RsPoint p1 = gt.map(refXCenter+refRadius, refYCenter);
-      // because the gt adds a rotation, p1 will not necessarily be
-      // at any particular orientation.  to get radius, compute distance |P0-P1|
-      double x = p0.x-p1.x;
-      double y = p0.y-p1.y;
-      double r = Math.sqrt(x*x+y*y);
-      int    ix = (int)(p0.x-r+0.5);
-      int    iy = (int)(p0.y-r+0.5);
-      int    ir = (int)(2*r+0.5);
-      if(fc!=null){
-         g.setColor(fc);
-         g.fillOval(ix, iy, ir, ir);
-      }
-      if(lc!=null){
-         g.setColor(lc);
-         g.drawOval(ix, iy, ir, ir);
-      }
-   }
-
    // elements used for modeling
    protected double        refXCenter;
    protected double        refYCenter;
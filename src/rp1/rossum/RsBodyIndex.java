@@ -0,0 +1,411 @@
+/*  -------------------------------------------------------------
+
+    Rossum's Playhouse  --  a client/server based robot simulator
+    Rossum's Playhouse is also known under the name "RP1".
+    Copyright (C) 1999  G.W. Lucas
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+----------------------------------------------------------------- */
+
+
+package rp1.rossum;
+
+/*
+   RsBodyIndex.java    a spatial index for the bodies in a simulation
+
+   The floor plan never changes, so RsWallIndex and RsSegmentBatch can
+   be built once and shared.  Bodies move, so an index of bodies has
+   to be kept up to date as the simulation runs.  This class does so
+   incrementally:  when a body moves, only that body's entry is
+   touched.
+
+   For each body, the index keeps a packed batch of the body's
+   interactive segments mapped into floor-plan coordinates, along with
+   their bounds.  The entries are placed in a uniform grid laid over
+   the floor plan (bodies that wander outside the plan are kept in the
+   border cells).  When a body is updated, its segments are re-mapped
+   (unless its position hasn't changed at all) and, if the range of cells
+   it covers has changed, it is moved from the old cells to the new.
+   A body that moves within a cell costs nothing more than the mapping.
+   A version number is incremented whenever a body moves or is removed,
+   so that a sensor can tell whether its view of the bodies is stale.
+
+   The queries mirror those of RsSegmentBatch, so that a sensor can test
+   its line of sight against the walls and then against the bodies,
+   using the result of the first query as the limit for the second.
+   Each query names a body to exclude (normally the body that owns the
+   sensor) so that a robot does not detect itself.
+
+   Unlike RsWallIndex, which is used only from the scheduler thread,
+   bodies may be removed when a client disconnects, so the public
+   methods are synchronized.
+*/
+
+
+
+/**
+ * A spatial index giving the current floor-plan segments of a set of bodies.
+ *
+ */
+
+public class RsBodyIndex {
+
+   private static final int MAX_CELLS_PER_SIDE = 256;
+
+   public RsBodyIndex(RsRectangle bounds, double cellSize){
+      if(bounds==null)
+         bounds = new RsRectangle(0, 0, 0, 0);
+      x0 = bounds.x;
+      y0 = bounds.y;
+      double w = Math.max(bounds.width,  1.0e-6);
+      double h = Math.max(bounds.height, 1.0e-6);
+      double minSize = Math.max(w, h)/MAX_CELLS_PER_SIDE;
+      if(!(cellSize>minSize))
+         cellSize = minSize;
+      this.cellSize = cellSize;
+      nCol = Math.max(1, (int)Math.ceil(w/cellSize));
+      nRow = Math.max(1, (int)Math.ceil(h/cellSize));
+
+      cell      = new Entry[nCol*nRow][];
+      cellCount = new int[nCol*nRow];
+      entry     = new Entry[4];
+      nEntry    = 0;
+   }
+
+
+   public synchronized int getBodyCount(){
+      return nEntry;
+   }
+
+   /**
+    * Gets a number which is incremented each time a body in the
+    * index moves or is removed.
+    */
+   public synchronized int getVersion(){
+      return version;
+   }
+
+
+   /**
+    * Sets the position of a body in the index, adding the body
+    * if it is not already present.
+    */
+   public synchronized void update(RsBody body, RsTransform t){
+      Entry e = findEntry(body);
+      if(e==null){
+         if(nEntry==entry.length){
+            Entry [] a = new Entry[nEntry*2];
+            System.arraycopy(entry, 0, a, 0, nEntry);
+            entry = a;
+         }
+         e = new Entry(body);
+         entry[nEntry++] = e;
+      }else if(e.placed
+            && e.m11==t.m11 && e.m12==t.m12 && e.m13==t.m13
+            && e.m21==t.m21 && e.m22==t.m22 && e.m23==t.m23)
+      {
+         return;  // the body hasn't moved
+      }
+
+      version++;
+      e.m11 = t.m11;
+      e.m12 = t.m12;
+      e.m13 = t.m13;
+      e.m21 = t.m21;
+      e.m22 = t.m22;
+      e.m23 = t.m23;
+
+      // re-map the segments and compute their bounds
+      e.batch.clear();
+      double x, y;
+      double xMin =  Double.MAX_VALUE;
+      double yMin =  Double.MAX_VALUE;
+      double xMax = -Double.MAX_VALUE;
+      double yMax = -Double.MAX_VALUE;
+      RsSegment [] s;
+      for(int i=0; i<e.shape.length; i++){
+         s = e.shape[i].getSegmentArray();
+         for(int j=0; j<s.length; j++){
+            e.batch.addMapped(t, s[j]);
+            int k = e.batch.size()-1;
+            x = e.batch.getX(k);
+            y = e.batch.getY(k);
+            if(x<xMin) xMin=x;
+            if(x>xMax) xMax=x;
+            if(y<yMin) yMin=y;
+            if(y>yMax) yMax=y;
+            x += t.m11*s[j].v.x + t.m12*s[j].v.y;
+            y += t.m21*s[j].v.x + t.m22*s[j].v.y;
+            if(x<xMin) xMin=x;
+            if(x>xMax) xMax=x;
+            if(y<yMin) yMin=y;
+            if(y>yMax) yMax=y;
+         }
+      }
+      e.xMin = xMin;
+      e.yMin = yMin;
+      e.xMax = xMax;
+      e.yMax = yMax;
+
+      int col0 = getCol(xMin);
+      int col1 = getCol(xMax);
+      int row0 = getRow(yMin);
+      int row1 = getRow(yMax);
+      if(e.placed && col0==e.col0 && col1==e.col1 && row0==e.row0 && row1==e.row1)
+         return;  // still in the same cells
+
+      if(e.placed)
+         removeFromCells(e);
+      e.col0 = col0;
+      e.col1 = col1;
+      e.row0 = row0;
+      e.row1 = row1;
+      e.placed = e.batch.size()>0;
+      if(e.placed)
+         addToCells(e);
+   }
+
+
+   public synchronized void remove(RsBody body){
+      for(int i=0; i<nEntry; i++){
+         if(entry[i].body==body){
+            if(entry[i].placed)
+               removeFromCells(entry[i]);
+            version++;
+            entry[i] = entry[nEntry-1];
+            entry[nEntry-1] = null;
+            nEntry--;
+            return;
+         }
+      }
+   }
+
+
+   /**
+    * Finds the nearest intersection of the query segment with a body
+    * other than the excluded body, considering only intersections with
+    * parameter t1 strictly less than tLimit.  Returns the body that was
+    * hit and populates result (as in RsSegmentBatch), or returns
+    * null if there is no such intersection.
+    */
+   public synchronized RsBody findNearestIntersection(
+      RsSegment q, RsBody exclude, double tLimit, RsSegSect result)
+   {
+      int n = collect(q.x, q.y, q.x+q.v.x, q.y+q.v.y, exclude);
+      double tMin = tLimit;
+      RsBody hit  = null;
+      for(int i=0; i<n; i++){
+         if(found[i].batch.findNearestIntersection(q, tMin, result)>=0){
+            tMin = result.t1;
+            hit  = found[i].body;
+         }
+      }
+      return hit;
+   }
+
+   /**
+    * Indicates whether the query segment intersects any body
+    * other than the excluded body.
+    */
+   public synchronized boolean checkForIntersection(RsSegment q, RsBody exclude){
+      int n = collect(q.x, q.y, q.x+q.v.x, q.y+q.v.y, exclude);
+      for(int i=0; i<n; i++){
+         if(found[i].batch.checkForIntersection(q))
+            return true;
+      }
+      return false;
+   }
+
+   /**
+    * The body counterpart of RsSegmentBatch.findNearestIntersections().
+    * On input, tResult[k] gives the limit for query k (typically the
+    * result of a query against the walls).  On output, tResult[k] and
+    * bodyResult[k] are replaced for each query with a nearer intersection
+    * with a body;  bodyResult is not modified for the others and may
+    * be null if the caller doesn't need it.
+    */
+   public synchronized void findNearestIntersections(
+      double qx, double qy,
+      double [] qdx, double [] qdy, int nQuery,
+      RsBody exclude, double [] tResult, RsBody [] bodyResult)
+   {
+      double xMin = qx;
+      double yMin = qy;
+      double xMax = qx;
+      double yMax = qy;
+      int i, k;
+      for(k=0; k<nQuery; k++){
+         if(qx+qdx[k]<xMin) xMin=qx+qdx[k];
+         if(qx+qdx[k]>xMax) xMax=qx+qdx[k];
+         if(qy+qdy[k]<yMin) yMin=qy+qdy[k];
+         if(qy+qdy[k]>yMax) yMax=qy+qdy[k];
+      }
+      int n = collect(xMin, yMin, xMax, yMax, exclude);
+      if(n==0)
+         return;
+
+      if(tFan==null || tFan.length<nQuery){
+         tFan = new double[nQuery];
+         iFan = new int[nQuery];
+      }
+      for(i=0; i<n; i++){
+         found[i].batch.findNearestIntersections(qx, qy, qdx, qdy, nQuery, 2.0, tFan, iFan);
+         for(k=0; k<nQuery; k++){
+            if(iFan[k]>=0 && tFan[k]<tResult[k]){
+               tResult[k] = tFan[k];
+               if(bodyResult!=null)
+                  bodyResult[k] = found[i].body;
+            }
+         }
+      }
+   }
+
+
+   // gathers the entries whose bounds overlap the region into found[]
+   private int collect(double xa, double ya, double xb, double yb, RsBody exclude){
+      double xMin = Math.min(xa, xb);
+      double xMax = Math.max(xa, xb);
+      double yMin = Math.min(ya, yb);
+      double yMax = Math.max(ya, yb);
+
+      if(found==null || found.length<nEntry)
+         found = new Entry[Math.max(4, nEntry)];
+
+      queryStamp++;
+      if(queryStamp==0){
+         for(int i=0; i<nEntry; i++)
+            entry[i].stamp=0;
+         queryStamp=1;
+      }
+
+      int col0 = getCol(xMin);
+      int col1 = getCol(xMax);
+      int row0 = getRow(yMin);
+      int row1 = getRow(yMax);
+      int n = 0;
+      int c, k;
+      Entry e;
+      for(int iy=row0; iy<=row1; iy++){
+         for(int ix=col0; ix<=col1; ix++){
+            c = iy*nCol+ix;
+            for(k=0; k<cellCount[c]; k++){
+               e = cell[c][k];
+               if(e.stamp==queryStamp)
+                  continue;
+               e.stamp=queryStamp;
+               if(e.body==exclude)
+                  continue;
+               if(e.xMax<xMin || e.xMin>xMax || e.yMax<yMin || e.yMin>yMax)
+                  continue;
+               found[n++]=e;
+            }
+         }
+      }
+      return n;
+   }
+
+   private Entry findEntry(RsBody body){
+      for(int i=0; i<nEntry; i++)
+         if(entry[i].body==body)
+            return entry[i];
+      return null;
+   }
+
+   private void addToCells(Entry e){
+      int c;
+      for(int iy=e.row0; iy<=e.row1; iy++){
+         for(int ix=e.col0; ix<=e.col1; ix++){
+            c = iy*nCol+ix;
+            if(cell[c]==null)
+               cell[c] = new Entry[2];
+            else if(cellCount[c]==cell[c].length){
+               Entry [] a = new Entry[cellCount[c]*2];
+               System.arraycopy(cell[c], 0, a, 0, cellCount[c]);
+               cell[c] = a;
+            }
+            cell[c][cellCount[c]++] = e;
+         }
+      }
+   }
+
+   private void removeFromCells(Entry e){
+      int c, k;
+      for(int iy=e.row0; iy<=e.row1; iy++){
+         for(int ix=e.col0; ix<=e.col1; ix++){
+            c = iy*nCol+ix;
+            for(k=0; k<cellCount[c]; k++){
+               if(cell[c][k]==e){
+                  cell[c][k] = cell[c][cellCount[c]-1];
+                  cell[c][cellCount[c]-1] = null;
+                  cellCount[c]--;
+                  break;
+               }
+            }
+         }
+      }
+   }
+
+   private int getCol(double x){
+      return clamp((int)Math.floor((x-x0)/cellSize), 0, nCol-1);
+   }
+
+   private int getRow(double y){
+      return clamp((int)Math.floor((y-y0)/cellSize), 0, nRow-1);
+   }
+
+   private static int clamp(int i, int i0, int i1){
+      if(i<i0)
+         return i0;
+      if(i>i1)
+         return i1;
+      return i;
+   }
+
+
+   private static class Entry {
+
+      RsBody          body;
+      RsBodyShape  [] shape;
+      RsSegmentBatch  batch;
+      boolean         placed;
+      double          m11, m12, m13, m21, m22, m23;
+      double          xMin, yMin, xMax, yMax;
+      int             col0, col1, row0, row1;
+      int             stamp;
+
+      Entry(RsBody body){
+         this.body = body;
+         shape = body.getInteractiveBodyShapeArray();
+         if(shape==null)
+            shape = new RsBodyShape[0];
+         batch = new RsSegmentBatch();
+      }
+   }
+
+
+   private double       x0, y0;
+   private double       cellSize;
+   private int          nCol, nRow;
+   private Entry    [][]cell;
+   private int       [] cellCount;
+   private Entry     [] entry;
+   private int          nEntry;
+   private int          version;
+   private Entry     [] found;
+   private int          queryStamp;
+   private double    [] tFan;
+   private int       [] iFan;
+}
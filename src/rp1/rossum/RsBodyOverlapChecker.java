@@ -0,0 +1,374 @@
+/*  -------------------------------------------------------------
+
+    Rossum's Playhouse  --  a client/server based robot simulator
+    Rossum's Playhouse is also known under the name "RP1".
+    Copyright (C) 1999  G.W. Lucas
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+----------------------------------------------------------------- */
+
+
+package rp1.rossum;
+
+/*
+   RsBodyOverlapChecker.java   tests whether body shapes overlap walls
+
+   The overlap test decides whether a body, at a given position and
+   orientation, touches or overlaps any wall in the floor plan.  It is
+   used to validate placements and, for random placements, it may be
+   called many times in a row.  So this class is designed to be created
+   once and reused:  all of the objects it needs (mapped segments,
+   a polygon for each shape, a result array for the wall index) are
+   established the first time they are needed and kept.  After that,
+   a call to checkForOverlap() does not allocate memory.
+
+   For each body shape, the test is the same as it always was:
+
+      a.  does any edge of the shape cross an edge of a wall?
+      b.  does any vertex of the shape lie inside (or within
+          1.0e-4 of) the wall polygon?
+      c.  does any vertex of the wall lie inside (or within
+          1.0e-4 of) the shape polygon?
+
+   but with the following changes:
+
+      1.  Only those walls returned by the plan's wall index
+          for the (padded) bounds of the mapped shape are tested.
+
+      2.  Test (a) uses the wall's packed segment batch.
+
+      3.  For test (c), rather than build a new polygon from the
+          mapped shape every time, we keep a polygon for the shape in
+          body coordinates and map the wall vertices into the body
+          coordinate system using the inverse of the transform.
+
+   The same tests are also used to check one body against another
+   (see checkForOverlap(RsTransform, RsBodyOverlapChecker, RsTransform)),
+   with each body taking its turn as the "wall."  The simulator uses
+   this for robot-to-robot collisions.
+
+   Like RsWallIndex, instances are not synchronized.
+*/
+
+
+
+
+/**
+ * A reusable, allocation-free test for overlap between body shapes
+ * and the walls in a floor plan.
+ *
+ */
+
+public class RsBodyOverlapChecker {
+
+   private static final double PROXIMITY = 1.0e-4;
+
+   public RsBodyOverlapChecker(RsBodyShape [] shapeArray){
+      int i, k, n;
+
+      if(shapeArray==null)
+         shapeArray = new RsBodyShape[0];
+
+      nShape   = 0;
+      refSegment = new RsSegment[shapeArray.length][];
+      mapped     = new RsSegment[shapeArray.length][];
+      refPolygon = new RsPolygon[shapeArray.length];
+      xMin       = new double[shapeArray.length];
+      yMin       = new double[shapeArray.length];
+      xMax       = new double[shapeArray.length];
+      yMax       = new double[shapeArray.length];
+      for(i=0; i<shapeArray.length; i++){
+         RsSegment [] s = shapeArray[i].getSegmentArray();
+         if(s==null || s.length==0)
+            continue;
+         n = s.length;
+         refSegment[nShape] = s;
+         mapped[nShape]     = new RsSegment[n];
+         for(k=0; k<n; k++)
+            mapped[nShape][k] = new RsSegment();
+         if(n>=2){
+            try{
+               refPolygon[nShape] = new RsPolygon(n, s);
+            }catch(RsPolygonException rspe){
+               refPolygon[nShape] = null;
+            }
+         }
+         nShape++;
+      }
+
+      transform = new RsTransform();
+   }
+
+
+   /**
+    * Checks for overlap with the body positioned at (x, y) with
+    * orientation theta.
+    */
+   public boolean checkForOverlap(RsPlan plan, double x, double y, double theta){
+      transform.setTheta(theta);
+      transform.setOffset(x, y);
+      return checkForOverlap(plan, transform);
+   }
+
+
+   public boolean checkForOverlap(RsPlan plan, RsTransform t){
+
+      RsWallIndex index = plan.getWallIndex();
+      if(index==null || index.getWallCount()==0 || nShape==0)
+         return false;
+      if(wallResult==null || wallResult.length<index.getWallCount())
+         wallResult = new RsWall[index.getWallCount()];
+
+      setInverse(t);
+
+      int          iShape, iWall, nWall;
+
+      for(iShape=0; iShape<nShape; iShape++){
+         mapShape(iShape, t);
+
+         // pad the bounds so that walls within the proximity
+         // limit are always included.
+         nWall = index.findWalls(
+                     xMin[iShape]-2*PROXIMITY, yMin[iShape]-2*PROXIMITY,
+                     xMax[iShape]+2*PROXIMITY, yMax[iShape]+2*PROXIMITY,
+                     wallResult);
+
+         for(iWall=0; iWall<nWall; iWall++){
+            if(checkMappedShape(iShape, wallResult[iWall], t))
+               return true;
+         }
+      }
+      return false;
+   }
+
+
+   /**
+    * Checks for overlap between the body, positioned by the transform t,
+    * and a single wall.  The simulator uses this when a wall is added
+    * or moved while the simulation runs, since then only the one wall
+    * needs to be tested.
+    */
+   public boolean checkForOverlap(RsWall wall, RsTransform t){
+      if(nShape==0 || wall.getSegmentBatch()==null)
+         return false;
+      RsRectangle r = wall.getBounds();
+      setInverse(t);
+      for(int iShape=0; iShape<nShape; iShape++){
+         mapShape(iShape, t);
+         if(r!=null
+         && (xMax[iShape]+2*PROXIMITY<r.x || xMin[iShape]-2*PROXIMITY>r.x+r.width
+          || yMax[iShape]+2*PROXIMITY<r.y || yMin[iShape]-2*PROXIMITY>r.y+r.height))
+            continue;
+         if(checkMappedShape(iShape, wall, t))
+            return true;
+      }
+      return false;
+   }
+
+
+   // tests the mapped shape against a single wall using the three tests
+   // described above.  the inverse transform must already be set.
+   private boolean checkMappedShape(int iShape, RsWall wall, RsTransform t){
+      RsSegmentBatch wallBatch = wall.getSegmentBatch();
+      if(wallBatch==null)
+         return false;
+
+      RsSegment [] s        = mapped[iShape];
+      int          nSegment = s.length;
+      int          i, j;
+      double       dx, dy;
+
+      for(i=0; i<nSegment; i++){
+         if(wallBatch.checkForIntersection(s[i]))
+            return true;
+      }
+
+      if(wall.polygon!=null){
+         for(i=0; i<nSegment; i++){
+            if(wall.polygon.checkContainment(s[i].x, s[i].y, PROXIMITY)<=0)
+               return true;
+         }
+      }
+
+      RsPolygon polygon = refPolygon[iShape];
+      if(polygon==null || !invertible)
+         return false;
+
+      RsSegment [] ws = wall.segmentArray;
+      for(j=0; j<ws.length; j++){
+         dx = ws[j].x - t.m13;
+         dy = ws[j].y - t.m23;
+         if(polygon.checkContainment(i11*dx+i12*dy, i21*dx+i22*dy, PROXIMITY)<=0)
+            return true;
+      }
+      return false;
+   }
+
+
+   // sets the inverse of the transform, used for mapping wall vertices
+   // into body coordinates
+   private void setInverse(RsTransform t){
+      double det = t.m11*t.m22-t.m12*t.m21;
+      invertible = (det<-1.0e-12 || det>1.0e-12);
+      if(invertible){
+         i11 =  t.m22/det;
+         i12 = -t.m12/det;
+         i21 = -t.m21/det;
+         i22 =  t.m11/det;
+      }
+   }
+
+
+   /**
+    * Checks for overlap between the shapes of this checker, positioned
+    * by the transform t, and the shapes of another checker (usually
+    * those of another body) positioned by otherTransform.  The same
+    * three tests are used as for walls, with each body taking a turn
+    * as the "wall."  Shapes which come within the proximity limit of
+    * each other are treated as overlapping.
+    */
+   public boolean checkForOverlap(
+      RsTransform t, RsBodyOverlapChecker other, RsTransform otherTransform)
+   {
+      if(nShape==0 || other.nShape==0)
+         return false;
+
+      int i, j;
+      for(i=0; i<nShape; i++)
+         mapShape(i, t);
+      for(j=0; j<other.nShape; j++)
+         other.mapShape(j, otherTransform);
+
+      for(i=0; i<nShape; i++){
+         for(j=0; j<other.nShape; j++){
+            if(xMax[i]+PROXIMITY<other.xMin[j] || xMin[i]-PROXIMITY>other.xMax[j]
+            || yMax[i]+PROXIMITY<other.yMin[j] || yMin[i]-PROXIMITY>other.yMax[j])
+               continue;
+            if(checkMappedShapes(this, i, other, j, otherTransform))
+               return true;
+            if(checkMappedVertices(other, j, this, i, t))
+               return true;
+         }
+      }
+      return false;
+   }
+
+
+   // tests the edges of mapped shape a[i] against those of b[j] and
+   // the vertices of a[i] against the reference polygon of b[j].
+   private static boolean checkMappedShapes(
+      RsBodyOverlapChecker a, int i, RsBodyOverlapChecker b, int j, RsTransform tb)
+   {
+      RsSegment [] sa = a.mapped[i];
+      RsSegmentBatch batch = b.getMappedBatch(j);
+      for(int k=0; k<sa.length; k++){
+         if(batch.checkForIntersection(sa[k]))
+            return true;
+      }
+      return checkMappedVertices(a, i, b, j, tb);
+   }
+
+   // tests the vertices of mapped shape a[i] against the reference
+   // polygon of b[j], mapping them into the coordinate system of b
+   // using the inverse of its transform.
+   private static boolean checkMappedVertices(
+      RsBodyOverlapChecker a, int i, RsBodyOverlapChecker b, int j, RsTransform tb)
+   {
+      RsPolygon polygon = b.refPolygon[j];
+      if(polygon==null)
+         return false;
+      double det = tb.m11*tb.m22-tb.m12*tb.m21;
+      if(-1.0e-12<=det && det<=1.0e-12)
+         return false;
+      double i11 =  tb.m22/det;
+      double i12 = -tb.m12/det;
+      double i21 = -tb.m21/det;
+      double i22 =  tb.m11/det;
+
+      double dx, dy;
+      RsSegment [] sa = a.mapped[i];
+      for(int k=0; k<sa.length; k++){
+         dx = sa[k].x - tb.m13;
+         dy = sa[k].y - tb.m23;
+         if(polygon.checkContainment(i11*dx+i12*dy, i21*dx+i22*dy, PROXIMITY)<=0)
+            return true;
+      }
+      return false;
+   }
+
+
+   // maps the segments of a shape through the transform and
+   // records the bounds of the result.
+   private void mapShape(int iShape, RsTransform t){
+      RsSegment [] s = mapped[iShape];
+      double x, y;
+      double x0 =  Double.MAX_VALUE;
+      double y0 =  Double.MAX_VALUE;
+      double x1 = -Double.MAX_VALUE;
+      double y1 = -Double.MAX_VALUE;
+      for(int i=0; i<s.length; i++){
+         t.map2(refSegment[iShape][i], s[i]);
+         x = s[i].x;
+         y = s[i].y;
+         if(x<x0) x0=x;
+         if(x>x1) x1=x;
+         if(y<y0) y0=y;
+         if(y>y1) y1=y;
+         x += s[i].v.x;
+         y += s[i].v.y;
+         if(x<x0) x0=x;
+         if(x>x1) x1=x;
+         if(y<y0) y0=y;
+         if(y>y1) y1=y;
+      }
+      xMin[iShape] = x0;
+      yMin[iShape] = y0;
+      xMax[iShape] = x1;
+      yMax[iShape] = y1;
+      if(mappedBatch!=null)
+         mappedBatchValid[iShape] = false;
+   }
+
+   // gets a packed batch of the mapped segments of a shape,
+   // the batch is refilled only when the shape has been re-mapped.
+   private RsSegmentBatch getMappedBatch(int iShape){
+      if(mappedBatch==null){
+         mappedBatch      = new RsSegmentBatch[nShape];
+         mappedBatchValid = new boolean[nShape];
+      }
+      if(mappedBatch[iShape]==null)
+         mappedBatch[iShape] = new RsSegmentBatch(mapped[iShape].length);
+      if(!mappedBatchValid[iShape]){
+         mappedBatch[iShape].clear();
+         mappedBatch[iShape].add(mapped[iShape], mapped[iShape].length, null);
+         mappedBatchValid[iShape] = true;
+      }
+      return mappedBatch[iShape];
+   }
+
+
+   private int               nShape;
+   private RsSegment     [][]refSegment;
+   private RsSegment     [][]mapped;
+   private RsPolygon      [] refPolygon;
+   private RsWall         [] wallResult;
+   private RsTransform       transform;
+   private double         [] xMin, yMin, xMax, yMax;
+   private RsSegmentBatch [] mappedBatch;
+   private boolean        [] mappedBatchValid;
+   private boolean           invertible;
+   private double            i11, i12, i21, i22;
+}
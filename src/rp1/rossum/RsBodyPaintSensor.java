@@ -57,8 +57,6 @@ package rp1.rossum;
 
 import rp1.rossum.event.*;
 
-import java.awt.Color;
-
 
 /**
  * A sensor for detecting paint features in the simulated floor plan.
@@ -78,8 +76,8 @@ public class RsBodyPaintSensor extends RsBodySensor {
       name = "Unnamed Paint Sensor";
 
       hot          = false;
-      hotFillColor = Color.orange;
-      hotLineColor = Color.red;
+      hotFillColor = RsColor.orange;
+      hotLineColor = RsColor.red;
 
       xDetector    = _xDetector;
       yDetector    = _yDetector;
@@ -106,7 +104,9 @@ public boolean computeAndSetState(double simTime, RsPlan plan, RsTransform trans
 
 
 
-      mappedPos = transform.map(xDetector, yDetector);
+      if(mappedPos==null)
+         mappedPos = new RsPoint();
+      transform.map(xDetector, yDetector, mappedPos);
 
       objectArray = plan.getObjectArray();
       if(objectArray==null){
@@ -29,8 +29,6 @@
 
 package rp1.rossum;
 
-import java.awt.Color;
-
 
 /**
  * The class that enables the robot to deposit paint trails
@@ -46,7 +44,7 @@ public class RsBodyPainter extends RsBodyShape
 	
    double          minTrailerSegmentLength, minTrailerSegmentLength2;
 
-   Color           paintColor[];
+   RsColor         paintColor[];
    RsPolygon       paintPattern;
    boolean         trailerDefined;
    double          xTrailer, yTrailer;
@@ -125,16 +123,16 @@ public class RsBodyPainter extends RsBodyShape
    }
 
 
-   public void setPaintColor(Color color){
+   public void setPaintColor(RsColor color){
       if(color==null){
          paintColor = null;
       }else{
-         paintColor    = new Color[1];
-         paintColor[0] = new Color(color.getRed(), color.getGreen(), color.getBlue());
+         paintColor    = new RsColor[1];
+         paintColor[0] = color;
       }
    }
 
-   public void setPaintColor(Color color[]){
+   public void setPaintColor(RsColor color[]){
       paintColor = RsColor.copyColorList(color);
    }
 
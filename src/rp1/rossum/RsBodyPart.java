@@ -55,9 +55,6 @@ package rp1.rossum;
 
 */
 
-import java.awt.Color;
-import java.awt.Graphics;
-
 
 
 /**
@@ -97,7 +94,7 @@ import java.awt.Graphics;
  * gaps between them unless you also "draw" their edge lines.
  *
  * By default both the line and fill color values are defined to be
- * Color.lightGray.  If you prefer not to render a particular feature
+ * RsColor.lightGray.  If you prefer not to render a particular feature
  * you may use the RsBodyPart.setFillColor() and RsBodyPart.setLineColor
  * methods to assign null values (which will suppress drawing).  Even if
  * a feature is not assigned a color value (and is not visible) it will
@@ -115,20 +112,20 @@ public abstract class RsBodyPart extends RsComponent {
 
    protected boolean     hot;
 
-   protected Color       fillColor;
-   protected Color       lineColor;
-   protected Color       hotFillColor;
-   protected Color       hotLineColor;
+   protected RsColor     fillColor;
+   protected RsColor     lineColor;
+   protected RsColor     hotFillColor;
+   protected RsColor     hotLineColor;
 
    private   int         partID;
 
    public RsBodyPart(){
       refBounds = null;
       bounds    = null;
-      fillColor    = Color.lightGray;
-      lineColor    = Color.lightGray;
-      hotFillColor = Color.orange;
-      hotLineColor = Color.orange;
+      fillColor    = RsColor.lightGray;
+      lineColor    = RsColor.lightGray;
+      hotFillColor = RsColor.orange;
+      hotLineColor = RsColor.orange;
 
       name         = "Unnamed";
       partID       = nextPartSerialNumber++;
@@ -143,30 +140,30 @@ public abstract class RsBodyPart extends RsComponent {
        nextPartSerialNumber = partID;
    }
 
-   public void  setFillColor(Color colorRef){
+   public void  setFillColor(RsColor colorRef){
       fillColor=colorRef;
    }
 
-   public void  setLineColor(Color colorRef){
+   public void  setLineColor(RsColor colorRef){
       lineColor=colorRef;
    }
 
-   public void setHotFillColor(Color c){
+   public void setHotFillColor(RsColor c){
       hotFillColor = c;
    }
 
-   public void setHotLineColor(Color c){
+   public void setHotLineColor(RsColor c){
       hotLineColor = c;
    }
 
-   public Color getLineColor(){
+   public RsColor getLineColor(){
       if(hot)
          return hotLineColor;
       else
          return lineColor;
    }
 
-   public Color getFillColor(){
+   public RsColor getFillColor(){
       if(hot)
          return hotFillColor;
       else
@@ -181,12 +178,6 @@ public abstract class RsBodyPart extends RsComponent {
       return false;
    }
 
-   public void paint(Graphics g, RsTransform gt){
-     // the RsTransform gt (graphics transform) supplies the
-     // data necessary to map double-valued points to pixel coordinates
-     // it is expected that this method will be overridden.
-   }
-
    public void setName(String nameReference){
       name=nameReference;
    }
@@ -221,6 +212,15 @@ public abstract class RsBodyPart extends RsComponent {
    public boolean getHot(){
       return hot;
    }
+
+   /**
+    * Gets the bin (a small integer summarizing the latest reading) recorded
+    * in a body state snapshot, or -1 for parts that have none.
+    * Overridden by sensors that report bins.
+    */
+   public int getStateBin(){
+      return -1;
+   }
 }
 
 
@@ -65,7 +65,6 @@ package rp1.rossum;
 
 import rp1.rossum.event.*;
 
-import java.awt.Color;
 import java.lang.Math;
 
 
@@ -100,6 +99,7 @@ public class RsBodyRangeSensor extends RsBodySensor {
    protected RsPoint   mappedPos;
    protected int       rBin;
    protected RsObject  objectDetected;
+   protected RsBody    bodyDetected;
 
 
    public RsBodyRangeSensor(
@@ -114,8 +114,8 @@ public class RsBodyRangeSensor extends RsBodySensor {
       name = "Unnamed Range Sensor";
 
       hot          = false;
-      hotFillColor = Color.orange;
-      hotLineColor = Color.red;
+      hotFillColor = RsColor.orange;
+      hotLineColor = RsColor.red;
 
       if(_maxRange>1.0e+6)
          maxRange=1.0e+6;
@@ -137,19 +137,29 @@ public class RsBodyRangeSensor extends RsBodySensor {
       rBin=-1;  // an impossible value
    }
 
+   @Override
+protected boolean detectsBodies(){
+      return true;
+   }
+
    @Override
 public boolean computeAndSetState(double simTime, RsPlan plan, RsTransform transform){
+      return computeAndSetState(simTime, plan, transform, null, null);
+   }
 
-      RsObject     [] objectArray;
-      RsObject     rsObject;
-      RsWall       wall;
+   @Override
+public boolean computeAndSetState(
+      double simTime, RsPlan plan, RsTransform transform,
+      RsBodyIndex bodyIndex, RsBody owner)
+   {
 
-      int          iObject, iSegment;
+      RsObject     [] objectArray;
+      RsSegmentBatch  wallBatch;
 
       boolean      oldState;
       int          oldrBin;
       double       vx, vy, minT;
-      RsObject     minObject;
+      int          iHit;
 
       oldState = hot;
       oldrBin  = rBin;
@@ -161,9 +171,12 @@ public boolean computeAndSetState(double simTime, RsPlan plan, RsTransform trans
       range          = 0;
       rBin           = 0;
       objectDetected = null;
+      bodyDetected   = null;
 
       double       tAngle = transform.getTheta()+sightAngle;
-      mappedPos = transform.map(xDetector, yDetector);
+      if(mappedPos==null)
+         mappedPos = new RsPoint();
+      transform.map(xDetector, yDetector, mappedPos);
       vx = Math.cos(tAngle);
       vy = Math.sin(tAngle);
 
@@ -180,26 +193,26 @@ public boolean computeAndSetState(double simTime, RsPlan plan, RsTransform trans
       segment.v.y=vy*maxRange;
       segment.m=maxRange;
 
+      // all wall segments are tested in a single batch,
+      // the nearest intersection (if any) is the detection
       minT      = 2.0;   // max possible value should be one.
-      minObject = null;
-      for(iObject=0; iObject<objectArray.length; iObject++){
-         rsObject = objectArray[iObject];
-         if(rsObject instanceof RsWall){
-            wall = (RsWall)rsObject;
-            for(iSegment=0; iSegment<wall.segmentArray.length; iSegment++){
-               if(segSect.process(segment, wall.segmentArray[iSegment])){
-                  if(segSect.t1<minT && segSect.t1<=1.0){
-                     minT      = segSect.t1;
-                     minObject = rsObject;
-                  }
-               }
-            }
-         }
+      wallBatch = plan.getWallSegmentBatch();
+      iHit      = wallBatch.findNearestIntersection(segment, minT, segSect);
+      if(iHit>=0)
+         minT = segSect.t1;
+
+      // other bodies are tested with the nearest wall as the limit,
+      // so a body is detected only if it is in front of the wall
+      if(bodyIndex!=null){
+         bodyDetected = bodyIndex.findNearestIntersection(segment, owner, minT, segSect);
+         if(bodyDetected!=null)
+            minT = segSect.t1;
       }
 
       if(minT < 1.0){
          // a detection is within range
-         objectDetected = minObject;
+         if(bodyDetected==null)
+            objectDetected = wallBatch.getOwner(iHit);
          hot = true;
          range=minT*maxRange;
          rBin=(int)Math.floor(nRangeBin*range/maxRange);
@@ -221,7 +234,9 @@ public boolean computeAndSetState(double simTime, RsPlan plan, RsTransform trans
 public RsSensorEvent getSensorEvent(double simTime){
 
       String nameOfObjectDetected = null;
-      if(objectDetected != null)
+      if(bodyDetected != null)
+         nameOfObjectDetected = bodyDetected.getName();
+      else if(objectDetected != null)
          nameOfObjectDetected = objectDetected.getName();
 
       return new RsRangeSensorEvent(
@@ -236,5 +251,9 @@ public RsSensorEvent getSensorEvent(double simTime){
        nameOfObjectDetected);
     }
 
-}
+   @Override
+public int getStateBin(){
+      return rBin;
+   }
 
+}
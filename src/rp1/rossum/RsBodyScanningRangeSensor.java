@@ -0,0 +1,325 @@
+/*  -------------------------------------------------------------
+
+    Rossum's Playhouse  --  a client/server based robot simulator
+    Rossum's Playhouse is also known under the name "RP1".
+    Copyright (C) 1999  G.W. Lucas
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+----------------------------------------------------------------- */
+
+
+
+
+/*
+   A scanning range sensor (a "lidar") measures the range along a number
+   of beams spread evenly over a field of view.  It could be modeled
+   by attaching one RsBodyRangeSensor per beam, but then a 180-beam
+   scanner would mean 180 body parts, 180 calls to computeAndSetState(),
+   and 180 events every time the robot moved.   This class treats
+   the whole scan as a single sensor:  all of the beams are cast in
+   one pass over the plan's wall segments (see
+   RsSegmentBatch.findNearestIntersections()) and then, if the simulator
+   supplies an RsBodyIndex, against the other bodies.  The results are
+   reported in a single RsScanningRangeSensorEvent.
+
+   The present implementation does not test to see whether the contructor
+   parameters are valid specifications.
+
+
+   Some Names and Meanings of Variables
+      (xDetector, yDetector)
+         Coordinates of standard reference (unmapped) position
+         of sensor relative to the robot's coordinate system.
+
+      sightAngle
+         the direction of the center of the field of view, relative
+         to the robot's coordinate system.
+
+      fieldOfView
+         the angular width of the scan.  Beams are spread evenly from
+         sightAngle-fieldOfView/2 to sightAngle+fieldOfView/2.  If
+         the field of view is a full circle, the last beam would
+         duplicate the first, so the beams are spaced fieldOfView/nBeam
+         apart instead.
+
+      nBeam
+         number of beams in the scan.
+
+      range
+         an array giving the range along each beam.  A value of -1
+         indicates that there was no detection along the beam.
+
+       hot
+         boolean indicating if ANY beam had a detection the last time
+         the computeAndSetState() method was invoked.
+
+      stateChange
+         indicates that the last call to computeAndSetState resulted in
+         a change in the range bin of at least one beam.
+
+*/
+
+
+package rp1.rossum;
+
+import rp1.rossum.event.*;
+
+import java.lang.Math;
+
+
+
+/**
+ * A sensor which measures the distance to objects along a number
+ * of beams spread over a field of view.
+ *
+ */
+
+public class RsBodyScanningRangeSensor extends RsBodySensor {
+
+   private static final long serialVersionUID = 1L;
+
+   // elements which describe the sensor
+
+   protected double    xDetector;
+   protected double    yDetector;
+   protected double    sightAngle;
+   protected double    fieldOfView;
+   protected int       nBeam;
+   protected double    maxRange;
+   protected int       nRangeBin;
+
+   // elements which describe the current state.
+   // note that boolean "hot" is defined in a super class
+   // set by computeAndSetState() method.
+   protected RsPoint   mappedPos;
+   protected double    heading;
+   protected double [] range;
+   protected int    [] rBin;
+
+   // "scratch space" for casting the beams, established when first needed.
+   // these are transient because they are not part of the sensor
+   // specification (and are rebuilt by any copy of the sensor).
+   private transient double [] beamCos;
+   private transient double [] beamSin;
+   private transient double [] qdx;
+   private transient double [] qdy;
+   private transient double [] tHit;
+   private transient int    [] iHit;
+
+
+   public RsBodyScanningRangeSensor(
+      double []point,
+      int nPoint,
+      double _xDetector, double _yDetector,
+      double _sightAngle,
+      double _fieldOfView,
+      int    _nBeam,
+      double _maxRange,
+      int    _nRangeBin
+   ){
+      super(point, nPoint);
+      name = "Unnamed Scanning Range Sensor";
+
+      hot          = false;
+      hotFillColor = RsColor.orange;
+      hotLineColor = RsColor.red;
+
+      if(_maxRange>1.0e+6)
+         maxRange=1.0e+6;
+      else
+         maxRange  = _maxRange;
+
+      if(_nRangeBin<1)
+         nRangeBin=1;
+      else
+         nRangeBin = _nRangeBin;
+
+      if(_nBeam<1)
+         nBeam=1;
+      else
+         nBeam = _nBeam;
+
+      xDetector    = _xDetector;
+      yDetector    = _yDetector;
+      sightAngle   = _sightAngle;
+      fieldOfView  = _fieldOfView;
+
+      range = new double[nBeam];
+      rBin  = new int[nBeam];
+      for(int i=0; i<nBeam; i++){
+         range[i] = -1;
+         rBin[i]  = -1;
+      }
+   }
+
+
+   public int getBeamCount(){
+      return nBeam;
+   }
+
+   public double getFieldOfView(){
+      return fieldOfView;
+   }
+
+   public double getMaxRange(){
+      return maxRange;
+   }
+
+   /**
+    * Gets the angle of the specified beam relative to the
+    * robot's coordinate system.
+    */
+   public double getBeamAngle(int index){
+      return sightAngle+getBeamOffset(fieldOfView, nBeam, index);
+   }
+
+   /**
+    * Gets the angle of the specified beam relative to the center of
+    * a field of view with the specified width and number of beams.
+    */
+   public static double getBeamOffset(double fieldOfView, int nBeam, int index){
+      if(nBeam<2)
+         return 0;
+      double spacing;
+      if(fieldOfView>=2*Math.PI-1.0e-9)
+         spacing = fieldOfView/nBeam;
+      else
+         spacing = fieldOfView/(nBeam-1);
+      return -fieldOfView/2+index*spacing;
+   }
+
+
+   @Override
+protected boolean detectsBodies(){
+      return true;
+   }
+
+   @Override
+public boolean computeAndSetState(double simTime, RsPlan plan, RsTransform transform){
+      return computeAndSetState(simTime, plan, transform, null, null);
+   }
+
+   @Override
+public boolean computeAndSetState(
+      double simTime, RsPlan plan, RsTransform transform,
+      RsBodyIndex bodyIndex, RsBody owner)
+   {
+
+      RsSegmentBatch  wallBatch;
+      boolean         oldState;
+      int             i, bin;
+      double          tAngle, c, s;
+
+      if(beamCos==null){
+         beamCos = new double[nBeam];
+         beamSin = new double[nBeam];
+         qdx     = new double[nBeam];
+         qdy     = new double[nBeam];
+         tHit    = new double[nBeam];
+         iHit    = new int[nBeam];
+         for(i=0; i<nBeam; i++){
+            tAngle     = getBeamAngle(i);
+            beamCos[i] = Math.cos(tAngle);
+            beamSin[i] = Math.sin(tAngle);
+         }
+      }
+
+      oldState = hot;
+
+      timeStateComputed = simTime;
+      stateChange       = false;
+      hot               = false;
+
+      heading   = transform.getTheta()+sightAngle;
+      if(mappedPos==null)
+         mappedPos = new RsPoint();
+      transform.map(xDetector, yDetector, mappedPos);
+
+      // rotate the beam directions (established in body coordinates)
+      // by the orientation of the body.  the cosine and sine of the
+      // body orientation are just the first column of the transform.
+      c = transform.m11;
+      s = transform.m21;
+      for(i=0; i<nBeam; i++){
+         qdx[i] = (c*beamCos[i]-s*beamSin[i])*maxRange;
+         qdy[i] = (s*beamCos[i]+c*beamSin[i])*maxRange;
+      }
+
+      wallBatch = plan.getWallSegmentBatch();
+      if(wallBatch!=null){
+         wallBatch.findNearestIntersections(
+               mappedPos.x, mappedPos.y, qdx, qdy, nBeam, 2.0, tHit, iHit);
+      }else{
+         // a plan with no objects, there are no walls to hit
+         for(i=0; i<nBeam; i++){
+            tHit[i] = 2.0;
+            iHit[i] = -1;
+         }
+      }
+      if(bodyIndex!=null){
+         // other bodies are detected only if they are nearer than the walls
+         bodyIndex.findNearestIntersections(
+            mappedPos.x, mappedPos.y, qdx, qdy, nBeam, owner, tHit, null);
+      }
+
+      for(i=0; i<nBeam; i++){
+         if(tHit[i]<1.0){
+            hot      = true;
+            range[i] = tHit[i]*maxRange;
+            bin      = (int)Math.floor(nRangeBin*range[i]/maxRange);
+            if(bin>=nRangeBin)
+               bin=nRangeBin-1;
+         }else{
+            range[i] = -1;
+            bin      = -1;
+         }
+         if(bin!=rBin[i]){
+            rBin[i]     = bin;
+            stateChange = true;
+         }
+      }
+
+      if(hot!=oldState)
+         stateChange = true;
+
+      return stateChange;
+   }
+
+
+   @Override
+public RsSensorEvent getSensorEvent(double simTime){
+
+      double x = 0;
+      double y = 0;
+      if(mappedPos!=null){
+         x = mappedPos.x;
+         y = mappedPos.y;
+      }
+
+      return new RsScanningRangeSensorEvent(
+       simTime,
+       getID(),
+       x,
+       y,
+       heading,
+       fieldOfView,
+       maxRange,
+       hot,
+       range.clone());
+    }
+
+}
+
@@ -35,10 +35,33 @@ import  rp1.rossum.event.RsSensorEvent;
          classes are completed, and so we use the null return as
          a bit of scaffolding until we get the missing pieces completed.
 
-*/
 
+ Sampling
+
+         By default, a sensor is evaluated on every modeling frame of
+         a motion.  A sensor may instead declare a sampling rate
+         (a sonar might run at 10 Hz, a line sensor at 50 Hz) in which case
+         it is evaluated only when a sample is due.  The simulator
+         schedules its modeling frames so that no sample is missed.
+         The simulator may also disable sampling for a sensor
+         that no client is listening to;  such a sensor is brought up
+         to date only when its state is requested.
+
+
+ Caching
+
+         A sensor's state depends only on the position of the body, the
+         floor plan (including which targets are selected) and, for
+         sensors that can detect them, the positions of the other bodies.
+         updateState() records all of these when it computes the state
+         and, if none of them has changed on the next call, it skips the
+         computation.  So a body that is standing still, waiting on its
+         client, costs nothing no matter how often its sensors are polled.
+         The plan and the body index keep version numbers for the purpose.
+         Note that a change made by calling RsObject.setSelected()
+         directly, rather than through the plan, will not be noticed.
 
-import java.awt.Color;
+*/
 
 
 
@@ -53,11 +76,26 @@ public abstract class RsBodySensor extends RsBodyShape {
    
    protected boolean stateChange;
    protected double  timeStateComputed;
+
+   protected double  samplingInterval;   // zero means every frame
+   protected double  timeOfNextSample;
+   protected boolean samplingDisabled;
+
+   // the conditions under which the state was last computed (see "Caching").
+   // these are transient so that a copy of the sensor starts out
+   // with no cached state.
+   private transient boolean     cacheValid;
+   private transient RsPlan      cachePlan;
+   private transient int         cachePlanVersion;
+   private transient int         cacheSelectionVersion;
+   private transient RsBodyIndex cacheBodyIndex;
+   private transient int         cacheBodyIndexVersion;
+   private transient double      c11, c12, c13, c21, c22, c23;
 	   
    public RsBodySensor(double []point, int nPoint){
       super(point, nPoint);
-      hotFillColor = Color.orange;
-      hotLineColor = Color.red;
+      hotFillColor = RsColor.orange;
+      hotLineColor = RsColor.red;
    }
 
    @Override
@@ -73,8 +111,157 @@ public boolean isASensor(){
       return timeStateComputed;
    }
 
+   /**
+    * Sets the number of times per second the sensor is evaluated
+    * while the body is in motion.  A rate of zero (the default)
+    * indicates that the sensor is evaluated on every modeling frame.
+    */
+   public void setSamplingRate(double samplesPerSecond){
+      if(samplesPerSecond>0)
+         samplingInterval = 1.0/samplesPerSecond;
+      else
+         samplingInterval = 0;
+   }
+
+   public double getSamplingRate(){
+      if(samplingInterval>0)
+         return 1.0/samplingInterval;
+      return 0;
+   }
+
+   public void setSamplingInterval(double seconds){
+      if(seconds>0)
+         samplingInterval = seconds;
+      else
+         samplingInterval = 0;
+   }
+
+   public double getSamplingInterval(){
+      return samplingInterval;
+   }
+
+   public void setSamplingEnabled(boolean enabled){
+      samplingDisabled = !enabled;
+   }
+
+   public boolean isSamplingEnabled(){
+      return !samplingDisabled;
+   }
+
+   /**
+    * Indicates whether the sensor should be evaluated at the
+    * specified time.  A small tolerance allows for round-off in
+    * the accumulation of modeling-frame times.
+    */
+   public boolean isSampleDue(double simTime){
+      if(samplingDisabled)
+         return false;
+      if(samplingInterval<=0)
+         return true;
+      return simTime>=timeOfNextSample-1.0e-6*samplingInterval;
+   }
+
+   /**
+    * Gets the time at which the next sample is due.  Meaningful
+    * only if the sensor has a sampling rate.
+    */
+   public double getTimeOfNextSample(){
+      return timeOfNextSample;
+   }
+
+   void setSampleTaken(double simTime){
+      timeOfNextSample = simTime+samplingInterval;
+   }
+
+   /**
+    * Computes the state of the sensor as computeAndSetState() does,
+    * unless nothing on which the state depends has changed since the
+    * last time this method was called (see "Caching").  In that case,
+    * the state is retained and the method returns false.
+    */
+   public boolean updateState(
+      double simTime, RsPlan plan, RsTransform transform,
+      RsBodyIndex bodyIndex, RsBody owner)
+   {
+      if(!detectsBodies())
+         bodyIndex = null;
+
+      if(cacheValid
+         && plan==cachePlan
+         && plan.getVersion()==cachePlanVersion
+         && plan.getSelectionVersion()==cacheSelectionVersion
+         && bodyIndex==cacheBodyIndex
+         && (bodyIndex==null || bodyIndex.getVersion()==cacheBodyIndexVersion)
+         && transform.m11==c11 && transform.m12==c12 && transform.m13==c13
+         && transform.m21==c21 && transform.m22==c22 && transform.m23==c23)
+      {
+         timeStateComputed = simTime;
+         stateChange       = false;
+         return false;
+      }
+
+      // the versions are read before the computation, so that a change made
+      // while it is under way is caught the next time around
+      cachePlan             = plan;
+      cachePlanVersion      = plan.getVersion();
+      cacheSelectionVersion = plan.getSelectionVersion();
+      cacheBodyIndex        = bodyIndex;
+      if(bodyIndex!=null)
+         cacheBodyIndexVersion = bodyIndex.getVersion();
+      c11 = transform.m11;
+      c12 = transform.m12;
+      c13 = transform.m13;
+      c21 = transform.m21;
+      c22 = transform.m22;
+      c23 = transform.m23;
+      cacheValid = true;
+
+      return computeAndSetState(simTime, plan, transform, bodyIndex, owner);
+   }
+
+   /**
+    * Discards the cached state, so that the next call to updateState()
+    * will compute the state of the sensor.
+    */
+   public void invalidateState(){
+      cacheValid = false;
+      cachePlan  = null;
+      cacheBodyIndex = null;
+   }
+
+   /**
+    * Indicates whether the sensor can detect other bodies (and so
+    * must be recomputed when they move).  Derived classes which
+    * override the five-argument form of computeAndSetState() to
+    * use the body index should override this method to return true.
+    */
+   protected boolean detectsBodies(){
+      return false;
+   }
+
+   @Override
+public void resetStateData(){
+      super.resetStateData();
+      invalidateState();
+   }
+
    public abstract boolean computeAndSetState(double simTime, RsPlan plan, RsTransform transform);
 
+   /**
+    * Computes the state of the sensor taking into account the other
+    * bodies in the simulation as well as the floor plan.  The bodyIndex
+    * gives the current positions of the bodies (it may be null) and
+    * owner is the body to which the sensor is attached (which the
+    * sensor must not detect).  Sensors which can't see other bodies
+    * don't need to override this method.
+    */
+   public boolean computeAndSetState(
+      double simTime, RsPlan plan, RsTransform transform,
+      RsBodyIndex bodyIndex, RsBody owner)
+   {
+      return computeAndSetState(simTime, plan, transform);
+   }
+
    public RsSensorEvent  getSensorEvent(double simTime){
       return null;
    }
@@ -37,11 +37,6 @@ package rp1.rossum;
 
 
 
-import java.awt.Color;
-import java.awt.Graphics;
-
-
-
 /**
  * A class for defining physical, interactive body parts for robot bodies.
  *
@@ -123,96 +118,18 @@ public class RsBodyShape extends RsBodyPart
 
 
 
-   @Override
-public void paint(Graphics g, RsTransform gt){
-
-      Color fc, lc;
-
-      fc = getFillColor();
-      lc = getLineColor();
-
-      if(fc==null && lc==null)
-         return;
-
-      if(refSegment==null){
-        // the shape is not depicted and not interactive because
-        // no polygon was ever supplied
-      }
-
-      int      nSegment = refSegment.length;
-
-      double   x, y;
-
-      for(int i=0; i<nSegment; i++){
-         x=refSegment[i].x;
-         y=refSegment[i].y;
-         ix[i] = (int)Math.floor(gt.m11*x + gt.m12*y + gt.m13 + 0.5);
-         iy[i] = (int)Math.floor(gt.m21*x + gt.m22*y + gt.m23 + 0.5);
-      }
-
-      ix[nSegment]=ix[0];
-      iy[nSegment]=iy[0];
-
-      if(fc!=null){
-         g.setColor(fc);
-         g.fillPolygon(ix, iy, nSegment+1);
-      }
-      if(lc!=null){
-         g.setColor(lc);
-         g.drawPolygon(ix, iy, nSegment+1);
-      }
-   }
-
    public boolean checkForOverlap(RsPlan plan, RsTransform transform){
 
       if(refSegment==null || refSegment.length==0)
          return false;
 
-      int            nSegment = refSegment.length;
-      RsSegSect      segSect = new RsSegSect();
-      RsObject    [] objArray;
-      RsWall         wall;
-
-      RsSegment []s = new RsSegment[nSegment];
-      for(int i=0; i<nSegment; i++){
-         s[i] = new RsSegment();
-         transform.map2(refSegment[i], s[i]);
-      }
-
-      objArray = plan.getObjectArray();
-      for(int iObject=0; iObject<objArray.length; iObject++){
-         if(!(objArray[iObject] instanceof RsWall))
-            continue;
-         wall = (RsWall)objArray[iObject];
-         for(int i=0; i<nSegment; i++){
-           for(int j=0; j<wall.segmentArray.length; j++){
-             if(segSect.process(s[i], wall.segmentArray[j]))
-               return true;
-           }
-         }
-
-         if(wall.polygon!=null){
-            for(int i=0; i<nSegment; i++){
-               if(wall.polygon.checkContainment(
-                 s[i].x, s[i].y, 1.0e-4)<=0)
-                 return true;
-            }
-         }
-
-         if(nSegment<2)
-           continue;
-
-         try{
-           RsPolygon polygon = new RsPolygon(nSegment, s);
-           for(int i=0; i<wall.segmentArray.length; i++){
-              if(polygon.checkContainment(
-                 wall.segmentArray[i].x, wall.segmentArray[i].y, 1.0e-4)<=0)
-                 return true;
-           }
-         }catch(RsPolygonException rspe){ }
-      }
-      return false;
+      // the checker keeps all the scratch objects needed for the
+      // test, so that repeated calls do not allocate memory.
+      if(overlapChecker==null)
+         overlapChecker = new RsBodyOverlapChecker(new RsBodyShape[] {this});
+      return overlapChecker.checkForOverlap(plan, transform);
    }
 
+   private transient RsBodyOverlapChecker overlapChecker;
 
 }
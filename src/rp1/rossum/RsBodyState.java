@@ -0,0 +1,154 @@
+/*  -------------------------------------------------------------
+
+    Rossum's Playhouse  --  a client/server based robot simulator
+    Rossum's Playhouse is also known under the name "RP1".
+    Copyright (C) 1999  G.W. Lucas
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+----------------------------------------------------------------- */
+
+
+package rp1.rossum;
+
+
+/*
+
+   RsBodyState.java     a flat snapshot of the state of a body
+
+
+   The renderers used to get their view of the simulation by cloning
+   each body and copying its state data at every frame.  But the
+   only things in a body that change during a simulation are a
+   handful of numbers and flags; the geometry (the shapes, colors,
+   and segment lists of the parts) is fixed once the body is
+   registered.  An RsBodyState holds just the changing part:
+
+        the body ID and its state version
+        the placement and collision flags
+        the position and orientation transform (as six doubles)
+        the time, velocity, and turn rate of the current motion
+        the hot flag of each body part
+        the range bin of each body part (for range sensors)
+        the orientation offset of each wheel
+
+   All values are primitives or arrays of primitives, so a snapshot
+   can be filled in without allocating anything once its arrays are
+   sized, and can be copied with a few calls to System.arraycopy.
+   The part and wheel arrays are in the order given by
+   RsBody.getBodyPartArray() and the wheel system.
+
+   A renderer keeps one clone of each body (its "template") purely
+   for its geometry and calls RsBody.applyState() on it before
+   painting.  The template's motion is replaced by a stationary
+   motion holding the snapshot transform, which is all that
+   painting needs.
+
+*/
+
+
+
+public class RsBodyState {
+
+   public int       bodyID;
+   public int       stateVersion;
+   public boolean   placement;
+   public boolean   collision;
+
+   // the position and orientation transform, see RsTransform
+   public double    m11, m12, m13;
+   public double    m21, m22, m23;
+
+   public double    time;
+   public double    velocity;
+   public double    turnRate;
+
+   public boolean []  hot;
+   public int     []  bin;          // -1 for parts without bins
+   public double  []  wheelOffset;
+
+
+
+   public RsBodyState(){
+      bodyID       = 0;
+      stateVersion = -1;
+   }
+
+   public RsBodyState(RsBodyState source){
+      this();
+      copy(source);
+   }
+
+   public void copy(RsBodyState source){
+      bodyID       = source.bodyID;
+      stateVersion = source.stateVersion;
+      placement    = source.placement;
+      collision    = source.collision;
+      m11 = source.m11; m12 = source.m12; m13 = source.m13;
+      m21 = source.m21; m22 = source.m22; m23 = source.m23;
+      time         = source.time;
+      velocity     = source.velocity;
+      turnRate     = source.turnRate;
+
+      setPartCount(source.hot==null ? 0 : source.hot.length);
+      if(hot!=null){
+         System.arraycopy(source.hot, 0, hot, 0, hot.length);
+         System.arraycopy(source.bin, 0, bin, 0, bin.length);
+      }
+      setWheelCount(source.wheelOffset==null ? 0 : source.wheelOffset.length);
+      if(wheelOffset!=null)
+         System.arraycopy(source.wheelOffset, 0, wheelOffset, 0, wheelOffset.length);
+   }
+
+
+   void setPartCount(int nPart){
+      if(nPart==0){
+         hot = null;
+         bin = null;
+      }else if(hot==null || hot.length!=nPart){
+         hot = new boolean[nPart];
+         bin = new int[nPart];
+      }
+   }
+
+   void setWheelCount(int nWheel){
+      if(nWheel==0)
+         wheelOffset = null;
+      else if(wheelOffset==null || wheelOffset.length!=nWheel)
+         wheelOffset = new double[nWheel];
+   }
+
+   void getTransform(RsTransform output){
+      output.m11 = m11; output.m12 = m12; output.m13 = m13;
+      output.m21 = m21; output.m22 = m22; output.m23 = m23;
+   }
+
+   void setTransform(RsTransform t){
+      m11 = t.m11; m12 = t.m12; m13 = t.m13;
+      m21 = t.m21; m22 = t.m22; m23 = t.m23;
+   }
+
+   public double getX(){
+      return m13;
+   }
+
+   public double getY(){
+      return m23;
+   }
+
+   public double getOrientation(){
+      return Math.atan2(m21, m11);
+   }
+}
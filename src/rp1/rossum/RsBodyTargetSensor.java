@@ -24,7 +24,6 @@
 package rp1.rossum;
 
 import rp1.rossum.event.*;
-import java.awt.Color;
 import java.lang.Math;
 
 
@@ -108,7 +107,6 @@ public class RsBodyTargetSensor extends RsBodySensor {
 
    // objects used as "scratch space" for performing various
    // calculations (established in the constructor)
-   private   RsSegSect segSect;
    private   RsSegment segment;
 
    // elements which describe the current state or detection
@@ -136,8 +134,8 @@ public class RsBodyTargetSensor extends RsBodySensor {
       name = "Unnamed Target Sensor";
 
       hot          = false;
-      hotFillColor = Color.orange;
-      hotLineColor = Color.red;
+      hotFillColor = RsColor.orange;
+      hotLineColor = RsColor.red;
 
       width     = _width;
       maxRange  = _maxRange;
@@ -150,22 +148,33 @@ public class RsBodyTargetSensor extends RsBodySensor {
       halfWidth    = _width/2.0;
       cosHalfWidth = Math.cos(halfWidth);
 
-      segSect      = new RsSegSect();
       segment      = new RsSegment();
    }
 
+   @Override
+protected boolean detectsBodies(){
+      return true;
+   }
+
    @Override
 public boolean computeAndSetState(double simTime, RsPlan plan, RsTransform transform){
+      return computeAndSetState(simTime, plan, transform, null, null);
+   }
+
+   @Override
+public boolean computeAndSetState(
+      double simTime, RsPlan plan, RsTransform transform,
+      RsBodyIndex bodyIndex, RsBody owner)
+   {
 
       RsObject     [] objectArray;
       RsObject     o;
-      RsObject     jo;
       RsTarget     test;
       RsTarget     target=null;
-      RsWall       wall;
+      RsSegmentBatch wallBatch;
       double       minTestRange=1.0e+32;
       double       r, dx, dy, tX, tY, c;
-      int          iObject, jObject, iSegment;
+      int          iObject;
 
       boolean      oldState;
       int          oldrBin, oldwBin;
@@ -189,7 +198,9 @@ public boolean computeAndSetState(double simTime, RsPlan plan, RsTransform trans
       targetDetected = null;
 
       double       tAngle = transform.getTheta()+sightAngle;
-      mappedPos = transform.map(xDetector, yDetector);
+      if(mappedPos==null)
+         mappedPos = new RsPoint();
+      transform.map(xDetector, yDetector, mappedPos);
       vx = Math.cos(tAngle+sightAngle);
       vy = Math.sin(tAngle+sightAngle);
 
@@ -200,13 +211,13 @@ public boolean computeAndSetState(double simTime, RsPlan plan, RsTransform trans
          stateChange=(oldState!=hot);
          return stateChange;
       }
+      wallBatch = plan.getWallSegmentBatch();
 
       // for each floor-plan object that's a target, determine if it falls
       // within the detection range and width of the sensor.  if
       // so, then perform logic to ensure that the line-of-sight
       // to the target is not blocked.   code is written to provide
       // an early exit where possible (to save processing)
-      iObjectLoop:
       for(iObject = 0; iObject<objectArray.length; iObject++){
          o = objectArray[iObject];
          if(o instanceof RsTarget && o.getSelected()){
@@ -247,16 +258,10 @@ public boolean computeAndSetState(double simTime, RsPlan plan, RsTransform trans
                segment.v.x=dx;
                segment.v.y=dy;
                segment.m=r;
-               for(jObject=0; jObject<objectArray.length; jObject++){
-                  jo = objectArray[jObject];
-                  if(jo instanceof RsWall){
-                     wall = (RsWall)jo;
-                     for(iSegment=0; iSegment<wall.segmentArray.length; iSegment++){
-                        if(segSect.process(segment, wall.segmentArray[iSegment]))
-                           continue iObjectLoop;
-                     }
-                  }
-               }
+               if(wallBatch.checkForIntersection(segment))
+                  continue;  // line of sight is blocked by a wall
+               if(bodyIndex!=null && bodyIndex.checkForIntersection(segment, owner))
+                  continue;  // line of sight is blocked by another robot
                xTarget = tX;
                yTarget = tY;
                range   = r;
@@ -93,6 +93,7 @@ public class RsClient extends RsProtocol implements RsRunnable, RsLogInterface
    private double                simTime;
    private int                   timeoutRequestIndex;
    private int                   encoderStatusRequestIndex;
+   private int                   routeRequestIndex;
    private RsHandlerRegistry     handlerRegistry;
    public  RsProperties          rsProperties;
 
@@ -102,6 +103,7 @@ public class RsClient extends RsProtocol implements RsRunnable, RsLogInterface
       simTime         = 0;
       timeoutRequestIndex       = 0;
       encoderStatusRequestIndex = 0;
+      routeRequestIndex         = 0;
    }
 
 
@@ -343,6 +345,28 @@ public class RsClient extends RsProtocol implements RsRunnable, RsLogInterface
 
 
 
+   public synchronized void addScanningRangeSensorEventHandler(
+      RsBodyScanningRangeSensor sensor,
+      RsScanningRangeSensorEventHandler reference)
+   {
+      addSubscribedHandler(RsEvent.EVT_SCANNING_RANGE_SENSOR, sensor.getID(), reference);
+   }
+
+   public synchronized void removeScanningRangeSensorEventHandler(RsBodyScanningRangeSensor sensor){
+      removeSubscribedHandler(RsEvent.EVT_SCANNING_RANGE_SENSOR, sensor.getID(), null);
+   }
+
+   public synchronized void removeScanningRangeSensorEventHandler(
+      RsBodyScanningRangeSensor sensor,
+      RsScanningRangeSensorEventHandler reference)
+   {
+      removeSubscribedHandler(RsEvent.EVT_SCANNING_RANGE_SENSOR, sensor.getID(), reference);
+   }
+
+
+
+
+
 
 
 
@@ -384,6 +408,18 @@ public class RsClient extends RsProtocol implements RsRunnable, RsLogInterface
 
 
 
+   public synchronized void addRouteEventHandler(RsRouteEventHandler reference){
+      handlerRegistry.add(RsEvent.EVT_ROUTE, 0, reference);
+   }
+   public synchronized void removeRouteEventHandler(){
+      handlerRegistry.removeAll(RsEvent.EVT_ROUTE, 0);
+   }
+   public synchronized void removeRouteEventHandler(RsRouteEventHandler reference){
+      handlerRegistry.remove(RsEvent.EVT_ROUTE, 0, reference);
+   }
+
+
+
    public synchronized void addPositionEventHandler(RsPositionEventHandler reference){
       handlerRegistry.add(RsEvent.EVT_POSITION, 0, reference);
    }
@@ -431,6 +467,17 @@ public class RsClient extends RsProtocol implements RsRunnable, RsLogInterface
    }
 
 
+   public synchronized void addPlanChangeEventHandler(RsPlanChangeEventHandler reference){
+      addSubscribedHandler(RsEvent.EVT_PLAN_CHANGE, 0, reference);
+   }
+   public synchronized void removePlanChangeEventHandler(){
+      removeSubscribedHandler(RsEvent.EVT_PLAN_CHANGE, 0, null);
+   }
+   public synchronized void removePlanChangeEventHandler(RsPlanChangeEventHandler reference){
+      removeSubscribedHandler(RsEvent.EVT_PLAN_CHANGE, 0, reference);
+   }
+
+
    public synchronized void addHeartbeatEventHandler(RsHeartbeatEventHandler reference){
       handlerRegistry.add(RsEvent.EVT_HEARTBEAT, 0, reference);
    }
@@ -483,6 +530,31 @@ public class RsClient extends RsProtocol implements RsRunnable, RsLogInterface
       return timeoutRequestIndex;
    }
 
+   /**
+    * Requests a route from the start point to the goal point
+    * (see RsRouteRequest).  The return value will be given
+    * in the routeIndex of the corresponding RsRouteEvent.
+    */
+   public synchronized int sendRouteRequest(double x0, double y0, double x1, double y1){
+      routeRequestIndex++;
+      try{
+         writeHeader(REQUEST);
+         output.writeInt(RsRequest.REQ_ROUTE);
+         output.writeInt(0);
+         output.writeInt(routeRequestIndex);
+         output.writeDouble(x0);
+         output.writeDouble(y0);
+         output.writeDouble(x1);
+         output.writeDouble(y1);
+         output.flush();
+      }catch(IOException e){
+         System.err.println("RsClient shutdown due to IO error");
+         shutdown();
+      }
+
+      return routeRequestIndex;
+   }
+
    public synchronized void sendSensorStatusRequest(RsBodySensor sensor){
       try{
          writeHeader(REQUEST);
@@ -512,6 +584,32 @@ public class RsClient extends RsProtocol implements RsRunnable, RsLogInterface
       }
    }
 
+   /**
+    * Requests a series of motions which the simulator will execute
+    * one after the other without waiting for the client
+    * (see RsTrajectoryRequest).  A single motion-halted event
+    * is issued when the whole trajectory is complete or is halted.
+    */
+   public synchronized void sendTrajectoryRequest(RsTrajectoryRequest r){
+
+      try{
+         writeHeader(REQUEST);
+         output.writeInt(RsRequest.REQ_TRAJECTORY);
+         output.writeInt(0);
+         output.writeInt(r.getSegmentCount());
+         for(int i=0; i<r.getSegmentCount(); i++){
+            RsMotionRequest m = r.getSegment(i);
+            output.writeDouble(m.linearVelocity);
+            output.writeDouble(m.rotationalVelocity);
+            output.writeDouble(m.duration);
+         }
+         output.flush();
+      }catch(IOException e){
+         System.err.println("RsClient shutdown due to IO error");
+         shutdown();
+      }
+   }
+
    public synchronized void sendPositionRequest(){
       try{
          writeHeader(REQUEST);
@@ -607,6 +705,65 @@ public class RsClient extends RsProtocol implements RsRunnable, RsLogInterface
       }
    }
 
+   /**
+    * Requests that an object be added to the floor plan while the
+    * simulation is running.  The object must be a wall, target, placement,
+    * or paint region with a name not already used in the plan.
+    * Clients which have added a plan-change event handler will receive
+    * an event describing the change.
+    */
+   public synchronized void sendAddPlanObjectRequest(RsObject object){
+      if(object instanceof RsNavNode || object instanceof RsNavLink)
+         return;  // the navigation network can't be changed
+      try{
+         writeHeader(REQUEST);
+         output.writeInt(RsRequest.REQ_PLAN_CHANGE);
+         output.writeInt(0);
+         output.writeInt(RsPlanChangeRequest.ADD_OBJECT);
+         RsPlanEncoder.sendObject(this, object);
+         output.flush();
+      }catch(IOException e){
+         System.err.println("RsClient shutdown due to IO error");
+         shutdown();
+      }
+   }
+
+   /**
+    * Requests that the geometry of a floor-plan object be replaced
+    * by the specified geometry (given as in the floor-plan file).
+    */
+   public synchronized void sendMovePlanObjectRequest(String name, double [] geometry){
+      try{
+         writeHeader(REQUEST);
+         output.writeInt(RsRequest.REQ_PLAN_CHANGE);
+         output.writeInt(0);
+         output.writeInt(RsPlanChangeRequest.MOVE_OBJECT);
+         writeString(name);
+         RsPlanEncoder.sendGeometry(output, geometry);
+         output.flush();
+      }catch(IOException e){
+         System.err.println("RsClient shutdown due to IO error");
+         shutdown();
+      }
+   }
+
+   /**
+    * Requests that an object be removed from the floor plan.
+    */
+   public synchronized void sendRemovePlanObjectRequest(String name){
+      try{
+         writeHeader(REQUEST);
+         output.writeInt(RsRequest.REQ_PLAN_CHANGE);
+         output.writeInt(0);
+         output.writeInt(RsPlanChangeRequest.REMOVE_OBJECT);
+         writeString(name);
+         output.flush();
+      }catch(IOException e){
+         System.err.println("RsClient shutdown due to IO error");
+         shutdown();
+      }
+   }
+
    /**
     * Activates the "heartbeat" function in RP1. When activated, the
     * simulator will send an RsHeartbeatEvent back to the client at a
@@ -889,6 +1046,9 @@ public class RsClient extends RsProtocol implements RsRunnable, RsLogInterface
          RsPaintSensorEventHandler       paintSensorEventHandler;
          RsHeartbeatEventHandler         heartbeatEventHandler;
          RsEncoderStatusEventHandler     encoderStatusEventHandler;
+         RsScanningRangeSensorEventHandler scanningRangeSensorEventHandler;
+         RsPlanChangeEventHandler        planChangeEventHandler;
+         RsRouteEventHandler             routeEventHandler;
 
 
          RsTimeoutEvent                timeoutEvent;
@@ -905,6 +1065,9 @@ public class RsClient extends RsProtocol implements RsRunnable, RsLogInterface
          RsPaintSensorEvent            paintSensorEvent;
          RsHeartbeatEvent              heartbeatEvent;
          RsEncoderStatusEvent          encoderStatusEvent;
+         RsScanningRangeSensorEvent    scanningRangeSensorEvent;
+         RsPlanChangeEvent             planChangeEvent;
+         RsRouteEvent                  routeEvent;
 
 
          int            requestIndex;
@@ -936,6 +1099,8 @@ public class RsClient extends RsProtocol implements RsRunnable, RsLogInterface
          boolean        selectionStatus;
 
          RsPlan         floorPlan;
+         int            planChange;
+         RsObject       planObject;
 
          int            region;
          int            heartbeatSequence;
@@ -948,6 +1113,12 @@ public class RsClient extends RsProtocol implements RsRunnable, RsLogInterface
          double         encoderAngle;
          boolean        encoderClearOnRequest;
 
+         double         heading;
+         double         fieldOfView;
+         double         maxRange;
+         int            nBeam;
+         double []      scanRange;
+
          while(true){
 
             transaction=readHeader();
@@ -1267,6 +1438,82 @@ public class RsClient extends RsProtocol implements RsRunnable, RsLogInterface
                   break;
 
 
+               case RsEvent.EVT_SCANNING_RANGE_SENSOR:
+                  x            = input.readDouble();
+                  y            = input.readDouble();
+                  sensorStatus = input.readBoolean();
+                  heading      = input.readDouble();
+                  fieldOfView  = input.readDouble();
+                  maxRange     = input.readDouble();
+                  nBeam        = input.readInt();
+                  if(nBeam<0)
+                     throw new IOException("RsClient received an invalid beam count "+nBeam);
+                  scanRange    = new double[nBeam];
+                  for(int iBeam=0; iBeam<nBeam; iBeam++)
+                     scanRange[iBeam] = input.readDouble();
+
+                  scanningRangeSensorEvent = new RsScanningRangeSensorEvent(
+                     simTime,
+                     eventIndex,
+                     x, y,
+                     heading,
+                     fieldOfView,
+                     maxRange,
+                     sensorStatus,
+                     scanRange);
+
+                  while((handler=getNextEventHandler(scanningRangeSensorEvent))!=null){
+                     scanningRangeSensorEventHandler=(RsScanningRangeSensorEventHandler)handler;
+                     scanningRangeSensorEventHandler.process(scanningRangeSensorEvent);
+                  }
+                  scanningRangeSensorEventHandler=null;
+                  scanningRangeSensorEvent=null;
+                  scanRange=null;
+                  break;
+
+
+               case RsEvent.EVT_PLAN_CHANGE:
+                  planChange = input.readInt();
+                  string     = readString();
+                  if(planChange==RsPlanChangeEvent.OBJECT_REMOVED)
+                     planObject = null;
+                  else
+                     planObject = RsPlanDecoder.receiveObject(this, null);
+                  planChangeEvent = new RsPlanChangeEvent(simTime, planChange, string, planObject);
+                  while((handler=getNextEventHandler(planChangeEvent))!=null){
+                     planChangeEventHandler=(RsPlanChangeEventHandler)handler;
+                     planChangeEventHandler.process(planChangeEvent);
+                  }
+                  planChangeEventHandler=null;
+                  planChangeEvent=null;
+                  planObject=null;
+                  string=null;
+                  break;
+
+               case RsEvent.EVT_ROUTE:
+                  requestIndex  = input.readInt();
+                  valid         = input.readBoolean();
+                  int nWaypoint = input.readInt();
+                  if(nWaypoint<0)
+                     throw new IOException("RsClient received an invalid waypoint count "+nWaypoint);
+                  double [] routeX    = new double[nWaypoint];
+                  double [] routeY    = new double[nWaypoint];
+                  String [] routeNode = new String[nWaypoint];
+                  for(int iWaypoint=0; iWaypoint<nWaypoint; iWaypoint++){
+                     routeX[iWaypoint]    = input.readDouble();
+                     routeY[iWaypoint]    = input.readDouble();
+                     routeNode[iWaypoint] = readString();
+                  }
+                  routeEvent = new RsRouteEvent(simTime, requestIndex, valid, routeX, routeY, routeNode);
+                  while((handler=getNextEventHandler(routeEvent))!=null){
+                     routeEventHandler=(RsRouteEventHandler)handler;
+                     routeEventHandler.process(routeEvent);
+                  }
+                  routeEventHandler=null;
+                  routeEvent=null;
+                  break;
+
+
 
 
                default:
@@ -27,24 +27,113 @@ package rp1.rossum;
    RsColor.java
 
 
-*/
+   An RGB color for the model objects (body parts, floor-plan objects,
+   painters).  The rossum package used to keep its colors as
+   java.awt.Color objects, but merely creating a java.awt.Color loads
+   the AWT native libraries, so a client or a headless simulator paid
+   for AWT even though it never drew anything.  Now the model keeps
+   RsColors, which are plain immutable values, and the rendering code
+   (RsRenderer) translates them to java.awt.Color when it draws.
+
+   The predefined colors and the getRed(), getGreen(), getBlue() and
+   getRGB() methods match those of java.awt.Color, so code written
+   against the older API needs little more than a change of type.
 
+   The class also provides static methods for translating color names
+   and for working with color lists.
+
+*/
 
-import java.awt.Color;
+import java.io.Serializable;
 
 
 
 /**
- * A class providing static methods useful for translating color names.
+ * An immutable RGB color used by the model objects, along with
+ * static methods useful for translating color names.
  *
  */
 
-public class RsColor {
+public class RsColor implements Serializable {
+
+   private static final long serialVersionUID = 2467380920185740471L;
+
+   public static final RsColor white     = new RsColor(255, 255, 255);
+   public static final RsColor lightGray = new RsColor(192, 192, 192);
+   public static final RsColor gray      = new RsColor(128, 128, 128);
+   public static final RsColor darkGray  = new RsColor( 64,  64,  64);
+   public static final RsColor black     = new RsColor(  0,   0,   0);
+   public static final RsColor red       = new RsColor(255,   0,   0);
+   public static final RsColor pink      = new RsColor(255, 175, 175);
+   public static final RsColor orange    = new RsColor(255, 200,   0);
+   public static final RsColor yellow    = new RsColor(255, 255,   0);
+   public static final RsColor green     = new RsColor(  0, 255,   0);
+   public static final RsColor magenta   = new RsColor(255,   0, 255);
+   public static final RsColor cyan      = new RsColor(  0, 255, 255);
+   public static final RsColor blue      = new RsColor(  0,   0, 255);
+
+   private final int  rgb;
+
+   // the corresponding java.awt.Color, created and kept by RsRenderer
+   // (declared as an Object so that this class does not depend on AWT).
+   transient volatile Object  rendering;
+
+
+   public RsColor(int r, int g, int b){
+      if(r<0 || r>255 || g<0 || g>255 || b<0 || b>255)
+         throw new IllegalArgumentException("Color component out of range ["+r+", "+g+", "+b+"]");
+      rgb = (r<<16) | (g<<8) | b;
+   }
+
+   public int getRed(){
+      return (rgb>>16)&0xff;
+   }
+
+   public int getGreen(){
+      return (rgb>>8)&0xff;
+   }
+
+   public int getBlue(){
+      return rgb&0xff;
+   }
+
+   /**
+    * Gets the color as a packed integer with the (opaque) alpha in bits 24-31,
+    * red in bits 16-23, green in bits 8-15 and blue in bits 0-7, the same as
+    * java.awt.Color.getRGB().
+    */
+   public int getRGB(){
+      return 0xff000000 | rgb;
+   }
+
+   @Override
+public boolean equals(Object obj){
+      return (obj instanceof RsColor) && ((RsColor)obj).rgb==rgb;
+   }
 
+   @Override
+public int hashCode(){
+      return rgb;
+   }
 
-   public static Color getColorForName(String name){
+   @Override
+public String toString(){
+      return "RsColor[r="+getRed()+",g="+getGreen()+",b="+getBlue()+"]";
+   }
+
+
+   /**
+    * Converts a string giving an integer (such as "#ff8000" or "0xff8000")
+    * to a color, following the same rules as java.awt.Color.decode().
+    */
+   public static RsColor decode(String name) throws NumberFormatException {
+      int i = Integer.decode(name).intValue();
+      return new RsColor((i>>16)&0xff, (i>>8)&0xff, i&0xff);
+   }
+
+   public static RsColor getColorForName(String name){
       try {
-         Color c = Color.decode(name);
+         RsColor c = decode(name);
          return c;
       }catch(NumberFormatException e){}
 
@@ -60,7 +149,7 @@ public class RsColor {
       return null;
    }
 
-   public static String getNameForColor(Color c){
+   public static String getNameForColor(RsColor c){
       for(int i=0; i<nameList.length;i++){
          if(c.getRed()==colorList[i].getRed() &&
             c.getGreen()==colorList[i].getGreen() &&
@@ -94,7 +183,7 @@ public class RsColor {
    }
 
 
-   public static boolean areColorListsTheSame(Color a[], Color b[]){
+   public static boolean areColorListsTheSame(RsColor a[], RsColor b[]){
          if(a==null || b==null){
             return (a==b);
          }
@@ -120,21 +209,13 @@ public class RsColor {
          return true;
    }
 
-   public static Color [] copyColorList(Color a[]){
+   public static RsColor [] copyColorList(RsColor a[]){
       if(a==null || a[0]==null){
        return null;
       }
 
-      Color [] color = new Color[a.length];
-      for(int i=0; i<a.length; i++){
-         if(a[i]==null)
-            color[i] =null;
-         else
-            color[i] = new Color( a[i].getRed(), a[i].getGreen(), a[i].getBlue());
-
-      }
-
-      return color;
+      // RsColors are immutable, so the elements may be shared
+      return a.clone();
    }
 
 
@@ -155,20 +236,20 @@ public class RsColor {
       "yellow"
    };
 
-   private static final Color [] colorList = {
-      Color.black,
-      Color.blue,
-      Color.cyan,
-      Color.darkGray,
-      Color.gray,
-      Color.green,
-      Color.lightGray,
-      Color.magenta,
-      Color.orange,
-      Color.pink,
-      Color.red,
-      Color.white,
-      Color.yellow
+   private static final RsColor [] colorList = {
+      RsColor.black,
+      RsColor.blue,
+      RsColor.cyan,
+      RsColor.darkGray,
+      RsColor.gray,
+      RsColor.green,
+      RsColor.lightGray,
+      RsColor.magenta,
+      RsColor.orange,
+      RsColor.pink,
+      RsColor.red,
+      RsColor.white,
+      RsColor.yellow
    };
 }
 
@@ -166,7 +166,6 @@ About Client's Registering Event Handlers --------------------------------------
 
 
 import java.io.*;
-import java.awt.Color;
 
 
 /**
@@ -195,6 +194,9 @@ public class RsConnection extends RsProtocol implements Runnable
    RsPainterChangeRequestHandler    painterChangeRequestHandler;
    RsActuatorControlRequestHandler  actuatorControlRequestHandler;
    RsEncoderStatusRequestHandler    encoderStatusRequestHandler;
+   RsPlanChangeRequestHandler       planChangeRequestHandler;
+   RsTrajectoryRequestHandler       trajectoryRequestHandler;
+   RsRouteRequestHandler            routeRequestHandler;
 
    private RsInterlock              interlock;
    private int                      maxInterlockSent;
@@ -407,6 +409,27 @@ public class RsConnection extends RsProtocol implements Runnable
    }
 
 
+   public void sendScanningRangeSensorEvent(RsScanningRangeSensorEvent event){
+      if(output==null)
+         return;
+      try{
+         writeEventHeader(event);
+         output.writeDouble(event.x);
+         output.writeDouble(event.y);
+         output.writeBoolean(event.status);
+         output.writeDouble(event.heading);
+         output.writeDouble(event.fieldOfView);
+         output.writeDouble(event.maxRange);
+         output.writeInt(event.range.length);
+         for(int i=0; i<event.range.length; i++)
+            output.writeDouble(event.range[i]);
+         output.flush();
+      }catch(IOException eio){
+         System.err.println("RsConnection IO error sending event to client\n"+eio.toString());
+      }
+   }
+
+
    public void sendTargetSelectionEvent(RsTargetSelectionEvent targetSelection){
       if(output==null)
          return;
@@ -433,6 +456,40 @@ public class RsConnection extends RsProtocol implements Runnable
       }
    }
 
+   public void sendPlanChangeEvent(RsPlanChangeEvent event){
+      if(output==null)
+         return;
+      try{
+         writeEventHeader(event);
+         output.writeInt(event.change);
+         writeString(event.objectName);
+         if(event.change!=RsPlanChangeEvent.OBJECT_REMOVED)
+            RsPlanEncoder.sendObject(this, (RsObject)(event.object));
+         output.flush();
+      }catch(IOException eio){
+         System.err.println("RsConnection IO error sending event to client\n"+eio.toString());
+      }
+   }
+
+   public void sendRouteEvent(RsRouteEvent event){
+      if(output==null)
+         return;
+      try{
+         writeEventHeader(event);
+         output.writeInt(event.routeIndex);
+         output.writeBoolean(event.valid);
+         output.writeInt(event.x.length);
+         for(int i=0; i<event.x.length; i++){
+            output.writeDouble(event.x[i]);
+            output.writeDouble(event.y[i]);
+            writeString(event.nodeName[i]);
+         }
+         output.flush();
+      }catch(IOException eio){
+         System.err.println("RsConnection IO error sending event to client\n"+eio.toString());
+      }
+   }
+
    public void sendPaintSensorEvent(RsPaintSensorEvent event){
       if(output==null)
          return;
@@ -514,12 +571,18 @@ public class RsConnection extends RsProtocol implements Runnable
          sendContactSensorEvent((RsContactSensorEvent)t);
       else if(t instanceof RsRangeSensorEvent)
          sendRangeSensorEvent((RsRangeSensorEvent)t);
+      else if(t instanceof RsScanningRangeSensorEvent)
+         sendScanningRangeSensorEvent((RsScanningRangeSensorEvent)t);
       else if(t instanceof RsTargetSelectionEvent)
          sendTargetSelectionEvent((RsTargetSelectionEvent)t);
       else if(t instanceof RsPaintSensorEvent)
          sendPaintSensorEvent((RsPaintSensorEvent)t);
       else if(t instanceof RsHeartbeatEvent)
          sendHeartbeatEvent((RsHeartbeatEvent)t);
+      else if(t instanceof RsPlanChangeEvent)
+         sendPlanChangeEvent((RsPlanChangeEvent)t);
+      else if(t instanceof RsRouteEvent)
+         sendRouteEvent((RsRouteEvent)t);
       else{
          throw new Error("RsConnection.sendEvent called with invalid event "+t.toString());
       }
@@ -586,6 +649,18 @@ public class RsConnection extends RsProtocol implements Runnable
       heartbeatRequestHandler = handler;
    }
 
+   public synchronized void setPlanChangeRequestHandler(RsPlanChangeRequestHandler handler){
+      planChangeRequestHandler = handler;
+   }
+
+   public synchronized void setTrajectoryRequestHandler(RsTrajectoryRequestHandler handler){
+      trajectoryRequestHandler = handler;
+   }
+
+   public synchronized void setRouteRequestHandler(RsRouteRequestHandler handler){
+      routeRequestHandler = handler;
+   }
+
 
    public void exchangeIntroductions() throws IOException {
 
@@ -676,7 +751,7 @@ public class RsConnection extends RsProtocol implements Runnable
          double             xTrailer   = 0;
          double             yTrailer   = 0;
          double             wTrailer   = 0;
-         Color []           paintColor = null;
+         RsColor []         paintColor = null;
 
          int                i;
          double             dValue;
@@ -738,7 +813,8 @@ public class RsConnection extends RsProtocol implements Runnable
                   //  reports).   A correctly implemented client should not be subscribing
                   //  to these (see RsClient.java).   To provide a bit of forgiveness
                   //  we ignore requests for subscriptions to these events.
-                  if(eventCode==RsEvent.EVT_TIMEOUT || eventCode==RsEvent.EVT_POSITION || eventCode==RsEvent.EVT_PLACEMENT)
+                  if(eventCode==RsEvent.EVT_TIMEOUT || eventCode==RsEvent.EVT_POSITION || eventCode==RsEvent.EVT_PLACEMENT
+                        || eventCode==RsEvent.EVT_ROUTE)
                      break;  // ignore the request
                   setSubscriptionTableEntry(eventCode, eventIndex, eventEnable);
                   if(subscriptionRequestHandler!=null){
@@ -897,6 +973,58 @@ public class RsConnection extends RsProtocol implements Runnable
                      encoderStatusRequestHandler.process(esr);
                   esr = null;
                   break;
+
+               case RsRequest.REQ_PLAN_CHANGE:
+                  int      planChange   = input.readInt();
+                  RsObject planObject   = null;
+                  double[] planGeometry = null;
+                  if(planChange==RsPlanChangeRequest.ADD_OBJECT){
+                     planObject = RsPlanDecoder.receiveObject(this, null);
+                     string     = planObject.getName();
+                  }else{
+                     string = readString();
+                     if(planChange==RsPlanChangeRequest.MOVE_OBJECT)
+                        planGeometry = RsPlanDecoder.receiveGeometry(input);
+                  }
+
+                  if(verbosity)
+                     verbose("Received plan change request "+planChange+" for "+string);
+                  if(planChangeRequestHandler!=null){
+                     planChangeRequestHandler.process(
+                        new RsPlanChangeRequest(planChange, string, planObject, planGeometry));
+                  }
+                  planObject   = null;
+                  planGeometry = null;
+                  string       = null;
+                  break;
+
+               case RsRequest.REQ_TRAJECTORY:
+                  int nSegment = input.readInt();
+                  if(nSegment<0 || nSegment>RsTrajectoryRequest.MAX_SEGMENT_COUNT)
+                     throw new IOException("RsConnection received an invalid trajectory segment count "+nSegment);
+                  RsMotionRequest [] segment = new RsMotionRequest[nSegment];
+                  for(int iSegment=0; iSegment<nSegment; iSegment++){
+                     linearVelocity     = input.readDouble();
+                     rotationalVelocity = input.readDouble();
+                     duration           = input.readDouble();
+                     segment[iSegment]  = new RsMotionRequest(linearVelocity, rotationalVelocity, duration);
+                  }
+                  if(trajectoryRequestHandler!=null)
+                     trajectoryRequestHandler.process(new RsTrajectoryRequest(segment));
+                  segment = null;
+                  break;
+
+               case RsRequest.REQ_ROUTE:
+                  int    routeIndex = input.readInt();
+                  double routeX0    = input.readDouble();
+                  double routeY0    = input.readDouble();
+                  double routeX1    = input.readDouble();
+                  double routeY1    = input.readDouble();
+                  if(routeRequestHandler!=null){
+                     routeRequestHandler.process(
+                        new RsRouteRequest(routeIndex, routeX0, routeY0, routeX1, routeY1));
+                  }
+                  break;
             }
          }
       }catch(IOException e){
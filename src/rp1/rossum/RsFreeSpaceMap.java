@@ -0,0 +1,331 @@
+/*  -------------------------------------------------------------
+
+    Rossum's Playhouse  --  a client/server based robot simulator
+    Rossum's Playhouse is also known under the name "RP1".
+    Copyright (C) 1999  G.W. Lucas
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+----------------------------------------------------------------- */
+
+
+package rp1.rossum;
+
+/*
+   RsFreeSpaceMap.java    a grid of positions known to be clear of walls
+
+   When a client asks for a random placement, the simulator has to find
+   a position and orientation at which the body doesn't touch any wall.
+   Picking points at random over the whole floor plan and testing each
+   one works well enough for open plans, but in a cluttered plan
+   most of the area is taken up by walls (or is too close to them)
+   and it may take a great many tries to find a good spot.
+
+   This class divides the floor plan into a grid of square cells and
+   marks each cell as "free" if a body of a given footprint radius
+   could be placed anywhere in the cell, at ANY orientation, without
+   touching a wall.  In the language of motion planning, the walls are
+   inflated by the footprint radius to produce obstacles in
+   configuration space;  since the footprint is a circle, orientation
+   doesn't matter.  A cell is free if its center is farther than
+
+          footprint radius  +  half the cell diagonal  +  a small margin
+
+   from every wall (and is not inside a wall).  This is conservative:
+   some cells that are marked blocked could actually hold the body,
+   but a cell marked free is always safe.
+
+   The footprint radius is the distance from the body's origin to the
+   farthest vertex of its interactive shapes (see RsBody.getFootprintRadius).
+
+   Once built, the map may be shared by all bodies with the same
+   footprint radius and used from any thread.  If the walls are changed
+   while a simulation runs, the map is not rebuilt;  instead, update()
+   re-evaluates just the cells near the change.  The new values are
+   worked out on the side and then stored, so a reader in another thread
+   never sees a blocked cell marked free in the meantime.
+
+   Uses:
+
+      selectRandomPosition()   picks a random free cell (uniformly) and a
+                               random point within it.  Any orientation
+                               will be clear at that point.
+
+      isPositionClear()        answers in constant time whether a
+                               position is known to be clear at all
+                               orientations.  A false return does NOT
+                               mean the position is blocked, only that
+                               the map can't vouch for it, so
+                               the caller should fall back on an exact
+                               test (see RsBodyOverlapChecker).
+
+      isCellFree()             gives the status of a cell by column and row,
+                               for planners that work on the grid itself
+                               (see RsGridPlanner).
+*/
+
+
+
+
+/**
+ * A grid marking the positions at which a body with a given footprint
+ * radius is known to be clear of all walls.
+ *
+ */
+
+public class RsFreeSpaceMap {
+
+   private static final int MAX_CELLS_PER_SIDE = 512;
+
+   public RsFreeSpaceMap(RsPlan plan, double footprintRadius){
+      this.footprintRadius = footprintRadius;
+
+      RsRectangle r = plan.getBounds();
+      if(r==null)
+         r = new RsRectangle(0, 0, 0, 0);
+      x0 = r.x;
+      y0 = r.y;
+
+      // we'd like cells about half the footprint radius on a side,
+      // but we limit the size of the grid.
+      double w = Math.max(r.width,  1.0e-6);
+      double h = Math.max(r.height, 1.0e-6);
+      cellSize = footprintRadius/2;
+      double minSize = Math.max(w, h)/MAX_CELLS_PER_SIDE;
+      if(cellSize<minSize)
+         cellSize=minSize;
+      nCol = Math.max(1, (int)Math.ceil(w/cellSize));
+      nRow = Math.max(1, (int)Math.ceil(h/cellSize));
+
+      free = new boolean[nCol*nRow];
+      for(int i=0; i<free.length; i++)
+         free[i]=true;
+
+      threshold = footprintRadius + cellSize*Math.sqrt(0.5) + 1.0e-3;
+      RsObject [] o = plan.getObjectArray();
+      if(o!=null){
+         for(int i=0; i<o.length; i++){
+            if(o[i] instanceof RsWall)
+               markWall((RsWall)o[i], free, 0, nCol-1, 0, nRow-1);
+         }
+      }
+
+      makeFreeCellList();
+   }
+
+   /**
+    * Re-evaluates the cells that could be affected by a change to the
+    * walls within the specified region (for example, the union of
+    * the old and new bounds of a wall that was moved).  The walls
+    * are obtained from the plan's wall index, which must already
+    * reflect the change.
+    */
+   public synchronized void update(RsPlan plan, RsRectangle region){
+      int col0 = Math.max(0,      (int)Math.floor((region.x-threshold-x0)/cellSize));
+      int col1 = Math.min(nCol-1, (int)Math.floor((region.x+region.width+threshold-x0)/cellSize));
+      int row0 = Math.max(0,      (int)Math.floor((region.y-threshold-y0)/cellSize));
+      int row1 = Math.min(nRow-1, (int)Math.floor((region.y+region.height+threshold-y0)/cellSize));
+      if(col0>col1 || row0>row1)
+         return;
+
+      int nc = col1-col0+1;
+      int ix, iy;
+      boolean [] window = new boolean[nc*(row1-row0+1)];
+      for(ix=0; ix<window.length; ix++)
+         window[ix]=true;
+
+      // any wall that blocks one of the cells must come within the
+      // threshold distance of the cell's center.
+      RsWallIndex index = plan.getWallIndex();
+      if(index!=null){
+         RsWall [] w = new RsWall[index.getWallCount()];
+         int n = index.findWalls(
+            x0+col0*cellSize-threshold,     y0+row0*cellSize-threshold,
+            x0+(col1+1)*cellSize+threshold, y0+(row1+1)*cellSize+threshold,
+            w);
+         for(int i=0; i<n; i++)
+            markWall(w[i], window, col0, col1, row0, row1);
+      }
+
+      for(iy=row0; iy<=row1; iy++)
+         for(ix=col0; ix<=col1; ix++)
+            free[iy*nCol+ix] = window[(iy-row0)*nc+ix-col0];
+
+      makeFreeCellList();
+   }
+
+   public double getFootprintRadius(){
+      return footprintRadius;
+   }
+
+   public double getCellSize(){
+      return cellSize;
+   }
+
+   public int getFreeCellCount(){
+      return freeCell.length;
+   }
+
+   /**
+    * Indicates whether the position is known to be clear for
+    * all orientations.  Runs in constant time.
+    */
+   public boolean isPositionClear(double x, double y){
+      int ix = (int)Math.floor((x-x0)/cellSize);
+      int iy = (int)Math.floor((y-y0)/cellSize);
+      if(ix<0 || ix>=nCol || iy<0 || iy>=nRow)
+         return false;
+      return free[iy*nCol+ix];
+   }
+
+   public int getColumnCount(){
+      return nCol;
+   }
+
+   public int getRowCount(){
+      return nRow;
+   }
+
+   /**
+    * Gets the column of the cell containing the specified x coordinate.
+    * The value may be outside the grid.
+    */
+   public int getColumn(double x){
+      return (int)Math.floor((x-x0)/cellSize);
+   }
+
+   /**
+    * Gets the row of the cell containing the specified y coordinate.
+    * The value may be outside the grid.
+    */
+   public int getRow(double y){
+      return (int)Math.floor((y-y0)/cellSize);
+   }
+
+   public double getCellCenterX(int column){
+      return x0+(column+0.5)*cellSize;
+   }
+
+   public double getCellCenterY(int row){
+      return y0+(row+0.5)*cellSize;
+   }
+
+   /**
+    * Indicates whether the specified cell is free.  Cells outside
+    * the grid are not.
+    */
+   public boolean isCellFree(int column, int row){
+      if(column<0 || column>=nCol || row<0 || row>=nRow)
+         return false;
+      return free[row*nCol+column];
+   }
+
+   /**
+    * Selects a random position from the free cells, storing it in
+    * the output point.  Returns false if there are no free cells.
+    */
+   public boolean selectRandomPosition(RsPoint output){
+      int [] list  = freeCell;   // update() may replace the list
+      int    nFree = list.length;
+      if(nFree==0)
+         return false;
+      int k = (int)(Math.random()*nFree);
+      if(k>=nFree)
+         k=nFree-1;
+      int cell = list[k];
+      int ix   = cell%nCol;
+      int iy   = cell/nCol;
+      output.x = x0+(ix+Math.random())*cellSize;
+      output.y = y0+(iy+Math.random())*cellSize;
+      return true;
+   }
+
+
+   private void makeFreeCellList(){
+      int i, n=0;
+      for(i=0; i<free.length; i++)
+         if(free[i])
+            n++;
+      int [] list = new int[n];
+      n=0;
+      for(i=0; i<free.length; i++)
+         if(free[i])
+            list[n++]=i;
+      freeCell = list;
+   }
+
+   // marks all cells within threshold of the wall (or inside it) as blocked.
+   // the flags are given for the block of cells from (c0, r0) to (c1, r1),
+   // and cells outside the block are not tested.
+   private void markWall(RsWall wall, boolean [] flag, int c0, int c1, int r0, int r1){
+      RsSegment [] s = wall.getSegmentArray();
+      RsRectangle  r = wall.getBounds();
+      if(s==null || r==null)
+         return;
+
+      int col0 = Math.max(c0, (int)Math.floor((r.x-threshold-x0)/cellSize));
+      int col1 = Math.min(c1, (int)Math.floor((r.x+r.width+threshold-x0)/cellSize));
+      int row0 = Math.max(r0, (int)Math.floor((r.y-threshold-y0)/cellSize));
+      int row1 = Math.min(r1, (int)Math.floor((r.y+r.height+threshold-y0)/cellSize));
+      int nc   = c1-c0+1;
+
+      double t2 = threshold*threshold;
+      double cx, cy;
+      int    ix, iy, i, k;
+      for(iy=row0; iy<=row1; iy++){
+         cy = y0+(iy+0.5)*cellSize;
+         for(ix=col0; ix<=col1; ix++){
+            k = (iy-r0)*nc+ix-c0;
+            if(!flag[k])
+               continue;
+            cx = x0+(ix+0.5)*cellSize;
+            for(i=0; i<s.length; i++){
+               if(distanceSquared(s[i], cx, cy)<=t2){
+                  flag[k]=false;
+                  break;
+               }
+            }
+            if(flag[k] && wall.polygon!=null && wall.polygon.checkContainment(cx, cy)<=0)
+               flag[k]=false;
+         }
+      }
+   }
+
+   private static double distanceSquared(RsSegment s, double x, double y){
+      double dx = x-s.x;
+      double dy = y-s.y;
+      double a  = s.v.x*s.v.x+s.v.y*s.v.y;
+      double t  = 0;
+      if(a>0){
+         t = (dx*s.v.x+dy*s.v.y)/a;
+         if(t<0)
+            t=0;
+         else if(t>1)
+            t=1;
+      }
+      dx -= t*s.v.x;
+      dy -= t*s.v.y;
+      return dx*dx+dy*dy;
+   }
+
+
+   private double     footprintRadius;
+   private double     x0, y0;
+   private double     cellSize;
+   private double     threshold;
+   private int        nCol, nRow;
+   private boolean [] free;
+   private int     [] freeCell;
+}
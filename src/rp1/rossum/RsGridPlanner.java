@@ -0,0 +1,349 @@
+/*  -------------------------------------------------------------
+
+    Rossum's Playhouse  --  a client/server based robot simulator
+    Rossum's Playhouse is also known under the name "RP1".
+    Copyright (C) 1999  G.W. Lucas
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+----------------------------------------------------------------- */
+
+
+package rp1.rossum;
+
+/*
+   RsGridPlanner.java    path planning over the free-space grid
+
+   Many floor plans have walls but no navigation network, so
+   RsNavPlanner has nothing to work with.  This class plans a path
+   directly over an RsFreeSpaceMap:  the walls of the plan inflated by
+   a body's footprint radius and rasterized into a grid of cells.
+   A cell marked free can hold the body at any orientation, so a path
+   which stays in free cells is clear of the walls.
+
+   The path is found by an A* search over the cells, moving to any of
+   the eight neighbors of a cell (a diagonal move is allowed only if both
+   of the cells it cuts across are free).  The cost of a move is the
+   distance between the cell centers and the estimate of the remaining
+   distance is the "octile" distance, which is exact for a grid with
+   no obstacles.
+
+   A path from cell center to cell center zig-zags, so it is smoothed
+   before it is returned:  starting from the first waypoint, each
+   following waypoint is skipped as long as the straight line from the
+   current one to the waypoint after it passes only through free cells.
+   The result is a short list of waypoints that a robot can follow
+   with straight-line motions.
+
+   A robot which is stopped close to a wall may well be in a cell which
+   is not free (the map is conservative).  In that case, the search begins
+   from the nearest free cell and the first leg of the route, from the
+   start point to that cell, can't be checked against the map.  The same
+   applies to the goal.
+
+   Maps are shared by all bodies with the same footprint radius (see
+   SimSession.getFreeSpaceMap), and the planner keeps no state between
+   searches, so any number of planners may use the same map.
+*/
+
+
+
+
+/**
+ * An A* path planner over the cells of a free-space map.
+ *
+ */
+
+public class RsGridPlanner {
+
+   // how far (in cells) the search for a free cell near the start
+   // or goal will look
+   private static final int MAX_SNAP_DISTANCE = 8;
+
+   public RsGridPlanner(RsFreeSpaceMap map){
+      this.map = map;
+   }
+
+   public RsFreeSpaceMap getFreeSpaceMap(){
+      return map;
+   }
+
+   /**
+    * Finds a route from the start point to the goal point.
+    * The first waypoint is the start point and the last is the goal.
+    * Returns null if there is no route.
+    */
+   public RsNavRoute findRoute(double x0, double y0, double x1, double y1){
+
+      int nCol  = map.getColumnCount();
+      int nRow  = map.getRowCount();
+      int start = findNearestFreeCell(map.getColumn(x0), map.getRow(y0));
+      int goal  = findNearestFreeCell(map.getColumn(x1), map.getRow(y1));
+      if(start<0 || goal<0)
+         return null;
+
+      int [] cellPath = search(start, goal, nCol, nRow);
+      if(cellPath==null)
+         return null;
+
+      // the candidate waypoints are the start point, the centers of the
+      // cells along the path, and the goal point.  the center of the start
+      // (or goal) cell is only needed if the point isn't in the cell.
+      boolean startSnapped = start!=map.getRow(y0)*nCol+map.getColumn(x0)
+                           || !map.isCellFree(map.getColumn(x0), map.getRow(y0));
+      boolean goalSnapped  = goal !=map.getRow(y1)*nCol+map.getColumn(x1)
+                           || !map.isCellFree(map.getColumn(x1), map.getRow(y1));
+      int k0 = startSnapped ? 0 : 1;
+      int k1 = goalSnapped  ? cellPath.length : cellPath.length-1;
+      if(k1<k0)
+         k1 = k0;   // start and goal are in the same cell
+      int       n  = k1-k0+2;
+      double [] px = new double[n];
+      double [] py = new double[n];
+      px[0]   = x0;
+      py[0]   = y0;
+      px[n-1] = x1;
+      py[n-1] = y1;
+      for(int k=k0; k<k1; k++){
+         px[k-k0+1] = map.getCellCenterX(cellPath[k]%nCol);
+         py[k-k0+1] = map.getCellCenterY(cellPath[k]/nCol);
+      }
+
+      // smooth the path.  consecutive waypoints are always kept,
+      // even if the line between them can't be checked.
+      double [] sx = new double[n];
+      double [] sy = new double[n];
+      int       m  = 0;
+      int       i  = 0;
+      int       j;
+      sx[m]   = px[0];
+      sy[m++] = py[0];
+      while(i<n-1){
+         j = i+1;
+         while(j+1<n && isLineClear(px[i], py[i], px[j+1], py[j+1]))
+            j++;
+         sx[m]   = px[j];
+         sy[m++] = py[j];
+         i = j;
+      }
+
+      double [] x = new double[m];
+      double [] y = new double[m];
+      System.arraycopy(sx, 0, x, 0, m);
+      System.arraycopy(sy, 0, y, 0, m);
+      return new RsNavRoute(x, y, null);
+   }
+
+
+   /**
+    * Indicates whether the straight line between two points passes only
+    * through free cells (a line which passes exactly through the corner
+    * of a cell must have both of the cells beside the corner free).
+    */
+   public boolean isLineClear(double xa, double ya, double xb, double yb){
+
+      double size = map.getCellSize();
+      int    c    = map.getColumn(xa);
+      int    r    = map.getRow(ya);
+      int    cEnd = map.getColumn(xb);
+      int    rEnd = map.getRow(yb);
+      double dx   = xb-xa;
+      double dy   = yb-ya;
+      int    sc   = dx>0 ? 1 : -1;
+      int    sr   = dy>0 ? 1 : -1;
+
+      // the parameter t runs from 0 to 1 along the line.  tMaxX is
+      // the value at which the line crosses into the next column and
+      // tDeltaX is the change in t from one column to the next.
+      double tMaxX, tMaxY, tDeltaX, tDeltaY;
+      if(dx==0){
+         tMaxX   = Double.POSITIVE_INFINITY;
+         tDeltaX = 0;
+      }else{
+         tMaxX   = (map.getCellCenterX(c)+sc*size/2-xa)/dx;
+         tDeltaX = size/Math.abs(dx);
+      }
+      if(dy==0){
+         tMaxY   = Double.POSITIVE_INFINITY;
+         tDeltaY = 0;
+      }else{
+         tMaxY   = (map.getCellCenterY(r)+sr*size/2-ya)/dy;
+         tDeltaY = size/Math.abs(dy);
+      }
+
+      int nStep = Math.abs(cEnd-c)+Math.abs(rEnd-r);
+      for(int k=0; k<=nStep; k++){
+         if(!map.isCellFree(c, r))
+            return false;
+         if(c==cEnd && r==rEnd)
+            return true;
+         if(Math.abs(tMaxX-tMaxY)<1.0e-9){
+            if(!map.isCellFree(c+sc, r) || !map.isCellFree(c, r+sr))
+               return false;
+            c += sc;
+            r += sr;
+            tMaxX += tDeltaX;
+            tMaxY += tDeltaY;
+            k++;
+         }else if(tMaxX<tMaxY){
+            c += sc;
+            tMaxX += tDeltaX;
+         }else{
+            r += sr;
+            tMaxY += tDeltaY;
+         }
+      }
+      return map.isCellFree(cEnd, rEnd);
+   }
+
+
+   // finds the free cell nearest the specified one, looking out in
+   // square rings of increasing size.  returns the cell index
+   // (row*nCol+column) or -1 if there's no free cell close enough.
+   private int findNearestFreeCell(int col, int row){
+      int nCol = map.getColumnCount();
+      if(map.isCellFree(col, row))
+         return row*nCol+col;
+      int    best  = -1;
+      double dBest = 0;
+      double d;
+      int    ix, iy;
+      for(int ring=1; ring<=MAX_SNAP_DISTANCE; ring++){
+         for(iy=row-ring; iy<=row+ring; iy++){
+            for(ix=col-ring; ix<=col+ring; ix++){
+               if(Math.abs(ix-col)!=ring && Math.abs(iy-row)!=ring)
+                  continue;   // inside the ring, already checked
+               if(!map.isCellFree(ix, iy))
+                  continue;
+               d = (ix-col)*(ix-col)+(iy-row)*(iy-row);
+               if(best<0 || d<dBest){
+                  best  = iy*nCol+ix;
+                  dBest = d;
+               }
+            }
+         }
+         // a cell in a later ring could be nearer only if it's
+         // nearer than the corner of this one.
+         if(best>=0 && dBest<=(ring+1)*(ring+1))
+            return best;
+      }
+      return best;
+   }
+
+
+   // A* search from the start cell to the goal cell.  returns the
+   // cells along the path, or null if there is none.
+   private int [] search(int start, int goal, int nCol, int nRow){
+
+      int       nCell  = nCol*nRow;
+      double    size   = map.getCellSize();
+      double    diag   = size*Math.sqrt(2.0);
+      double [] g      = new double[nCell];
+      int    [] from   = new int[nCell];
+      boolean[] closed = new boolean[nCell];
+      for(int i=0; i<nCell; i++)
+         g[i] = Double.POSITIVE_INFINITY;
+
+      // the open list is a binary heap in which a cell may appear more
+      // than once (a stale entry is skipped when it comes to the top).
+      double [] heapKey  = new double[256];
+      int    [] heapCell = new int[heapKey.length];
+      int       nHeap    = 0;
+
+      int gCol = goal%nCol;
+      int gRow = goal/nCol;
+
+      g[start]    = 0;
+      from[start] = -1;
+      heapKey[0]  = 0;
+      heapCell[0] = start;
+      nHeap       = 1;
+
+      int     j, col, row, v, ix, iy, dc, dr;
+      double  c;
+      boolean found = false;
+      while(nHeap>0){
+         j = heapCell[0];
+         nHeap--;
+         if(nHeap>0)
+            RsHeap.siftDown(heapKey, heapCell, nHeap, heapKey[nHeap], heapCell[nHeap]);
+         if(closed[j])
+            continue;
+         if(j==goal){
+            found = true;
+            break;
+         }
+         closed[j] = true;
+         col = j%nCol;
+         row = j/nCol;
+         for(dr=-1; dr<=1; dr++){
+            for(dc=-1; dc<=1; dc++){
+               if(dc==0 && dr==0)
+                  continue;
+               ix = col+dc;
+               iy = row+dr;
+               if(!map.isCellFree(ix, iy))
+                  continue;
+               if(dc!=0 && dr!=0){
+                  // no cutting corners
+                  if(!map.isCellFree(col+dc, row) || !map.isCellFree(col, row+dr))
+                     continue;
+                  c = g[j]+diag;
+               }else{
+                  c = g[j]+size;
+               }
+               v = iy*nCol+ix;
+               if(closed[v] || c>=g[v])
+                  continue;
+               g[v]    = c;
+               from[v] = j;
+               if(nHeap==heapKey.length){
+                  double [] a = new double[2*nHeap];
+                  int    [] b = new int[2*nHeap];
+                  System.arraycopy(heapKey,  0, a, 0, nHeap);
+                  System.arraycopy(heapCell, 0, b, 0, nHeap);
+                  heapKey  = a;
+                  heapCell = b;
+               }
+               RsHeap.siftUp(heapKey, heapCell, nHeap++, c+estimate(ix, iy, gCol, gRow, size), v);
+            }
+         }
+      }
+
+      if(!found)
+         return null;
+
+      int n = 1;
+      for(j=goal; j!=start; j=from[j])
+         n++;
+      int [] path = new int[n];
+      for(j=goal; n>0; j=from[j])
+         path[--n] = j;
+      return path;
+   }
+
+   // the octile distance:  diagonal moves as far as possible,
+   // then straight ones.
+   private static double estimate(int col, int row, int gCol, int gRow, double size){
+      int dc = Math.abs(col-gCol);
+      int dr = Math.abs(row-gRow);
+      int lo = Math.min(dc, dr);
+      int hi = Math.max(dc, dr);
+      return (hi+(Math.sqrt(2.0)-1)*lo)*size;
+   }
+
+
+   private final RsFreeSpaceMap map;
+}
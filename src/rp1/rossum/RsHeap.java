@@ -0,0 +1,80 @@
+/*  -------------------------------------------------------------
+
+    Rossum's Playhouse  --  a client/server based robot simulator
+    Rossum's Playhouse is also known under the name "RP1".
+    Copyright (C) 1999  G.W. Lucas
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+----------------------------------------------------------------- */
+
+
+package rp1.rossum;
+
+
+/*
+
+   RsHeap.java     binary-heap helpers for the route planners
+
+
+   RsNavPlanner and RsGridPlanner both keep the open list of their
+   searches as a binary min-heap held in a pair of parallel arrays, a
+   double key and an int value (a node or cell index) for each entry.
+   The arrays belong to the caller, which also keeps the entry count
+   and grows the arrays if it needs to; these methods only move the
+   entries around.  Plain arrays are used rather than a PriorityQueue
+   so that the searches do not box their keys or allocate an object
+   for every entry.
+
+*/
+
+
+class RsHeap {
+
+   private RsHeap(){
+   }
+
+   // inserts an entry into position n of a heap of n entries
+   static void siftUp(double [] key, int [] value, int n, double k, int v){
+      int parent;
+      while(n>0){
+         parent = (n-1)/2;
+         if(key[parent]<=k)
+            break;
+         key[n]   = key[parent];
+         value[n] = value[parent];
+         n = parent;
+      }
+      key[n]   = k;
+      value[n] = v;
+   }
+
+   // replaces the top entry of a heap of n entries
+   static void siftDown(double [] key, int [] value, int n, double k, int v){
+      int i = 0;
+      int child;
+      while((child=2*i+1)<n){
+         if(child+1<n && key[child+1]<key[child])
+            child++;
+         if(k<=key[child])
+            break;
+         key[i]   = key[child];
+         value[i] = value[child];
+         i = child;
+      }
+      key[i]   = k;
+      value[i] = v;
+   }
+}
@@ -107,6 +107,17 @@ package rp1.rossum;
    As such, the new position of the object has nothing to do with the
    old (it is as if it has magically teleported to a new place and time).
 
+   PROFILES
+
+   By default, a motion moves along its path at a constant rate,
+   starting and stopping instantly.  A motion may instead be given an
+   RsMotionProfile, in which case it speeds up and slows down as the
+   profile specifies.  The derived classes work out where the body is,
+   and when it collides with something, in terms of the fraction of
+   the path it has covered.  They convert between that fraction and
+   time using getPathFraction() and getPathTime(), which consult
+   the profile (if any).
+
 */
 
 
@@ -138,6 +149,8 @@ public abstract class RsMotion extends RsComponent {
 
    protected int          continuityID;
    protected int          continuitySeriesID;
+
+   protected RsMotionProfile profile;   // null for a constant rate
    private  static int    serialMotionContinuityID;
 
 
@@ -202,15 +215,119 @@ public abstract class RsMotion extends RsComponent {
    }
 
    protected abstract void        applyTime();
-   protected abstract RsTransform getStateAtTime(double time);
+
+   /**
+    * Stores the transform for the specified time in output.
+    * Times after the end of the motion are treated as the end time.
+    * Returns false (and leaves output unchanged) if the time
+    * is before the start of the motion.
+    */
+   protected abstract boolean     getStateAtTime(double time, RsTransform output);
+
+   protected RsTransform getStateAtTime(double time){
+      RsTransform t = new RsTransform();
+      if(!getStateAtTime(time, t))
+         return null;
+      return t;
+   }
+
+   /**
+    * Gets the transform for the specified time without changing the
+    * state of the motion.  Times before the start of the motion
+    * are treated as the start time.  The returned transform should
+    * be treated as read-only since, for some motions, it is an
+    * internal element.
+    */
+   public RsTransform getTransformAtTime(double simTime){
+      if(simTime<=time0 || time1<=time0)
+         return transform0;
+      return getStateAtTime(simTime);
+   }
+
+   /**
+    * Stores the transform for the specified time in output and returns
+    * it.  This is the same as getTransformAtTime(simTime), but
+    * does not allocate a new transform.
+    */
+   public RsTransform getTransformAtTime(double simTime, RsTransform output){
+      if(simTime<=time0 || time1<=time0)
+         output.copy(transform0);
+      else
+         getStateAtTime(simTime, output);
+      return output;
+   }
+
+   /**
+    * Gets a new motion which starts at the current time and state
+    * of this one and follows the rest of its path.  This is used to
+    * test the remainder of a motion against walls that were added to
+    * the plan after the motion started.  Returns null if no time
+    * remains or if the class does not support the operation.
+    */
+   public RsMotion getRemainingMotion(){
+      return null;
+   }
 
    // TO DO: the scope on the following may want to be protected... find this out.
-   public abstract RsMotionDepiction getMotionDepictionAtBodyPoint(double xBodyPoint, double yBodyPoint);
+   public RsMotionDepiction getMotionDepictionAtBodyPoint(double xBodyPoint, double yBodyPoint){
+      RsMotionDepiction depiction = new RsMotionDepiction();
+      getMotionDepictionAtBodyPoint(xBodyPoint, yBodyPoint, depiction);
+      return depiction;
+   }
+
+   /**
+    * Fills in a depiction of the motion at the specified point on the
+    * body.  The output is overwritten, so a caller that needs a depiction
+    * on each motion step can keep one instance and reuse it.
+    */
+   public abstract void getMotionDepictionAtBodyPoint(
+      double xBodyPoint, double yBodyPoint, RsMotionDepiction output);
 
    public boolean processCollision(RsSegment [] a, int aLen, RsSegment [] b, int bLen){
       return false;
    }
 
+   /**
+    * Tests the body segments against all segments of a wall.  Derived
+    * classes may override this method to take advantage of the
+    * wall's packed segment batch;  by default, it just passes
+    * the wall's segment array to the method above.
+    */
+   public boolean processCollision(RsSegment [] a, int aLen, RsWall wall){
+      RsSegment [] b = wall.getSegmentArray();
+      return processCollision(a, aLen, b, b.length);
+   }
+
+
+   /**
+    * Computes a rectangle that contains every position occupied by the
+    * specified body segments over the course of the motion (the "swept
+    * bounds").  The result is conservative:  it may be larger than the
+    * region actually swept, but never smaller.  It is used to skip the
+    * exact collision tests for walls that cannot be reached.
+    * Returns false if the motion does not support the computation,
+    * in which case the bounds are not modified and the caller must
+    * test everything.
+    */
+   public boolean getSweptBounds(RsSegment [] a, int aLen, RsRectangle bounds){
+      return false;
+   }
+
+   /**
+    * Sets bounds to the specified extrema, padded a bit to make sure
+    * that round-off in the exact collision tests can never place a
+    * contact point just outside the box.
+    */
+   protected static void setSweptBounds(
+      RsRectangle bounds, double xMin, double yMin, double xMax, double yMax)
+   {
+      double pad = Math.max(
+         Math.max(Math.abs(xMin), Math.abs(xMax)),
+         Math.max(Math.abs(yMin), Math.abs(yMax)));
+      pad = 1.0e-6*(1.0+pad);
+      bounds.setBounds(xMin-pad, yMin-pad, xMax-xMin+2*pad, yMax-yMin+2*pad);
+   }
+
 
    public double getTurnRate(){
       return 0;   // overridden in some derived classes
@@ -220,6 +337,122 @@ public abstract class RsMotion extends RsComponent {
       return 0;   // overridden in some derived classes
    }
 
+   /**
+    * Gets the turn rate at the specified time rather than at the
+    * current time of the motion (the two differ only for a motion
+    * with a profile).
+    */
+   public double getTurnRateAtTime(double simTime){
+      return getTurnRate();   // overridden in some derived classes
+   }
+
+   /**
+    * Gets the velocity at the specified time rather than at the
+    * current time of the motion (the two differ only for a motion
+    * with a profile).
+    */
+   public double getVelocityAtTime(double simTime){
+      return getVelocity();   // overridden in some derived classes
+   }
+
+   /**
+    * Gets the distance a point fixed in the body has travelled along
+    * its path between the start of the motion and the specified time
+    * (times outside the motion are treated as its start or end).
+    * The distance is negative if the point moves backward with
+    * respect to the heading of the body.  Because it is worked out from
+    * the path fraction, it follows the profile of the motion (if any),
+    * and it is unaffected by stopMotionAtTime() and truncateForCollision(),
+    * which shorten the path without changing where the body is at
+    * the times that remain.
+    */
+   public double getDistanceAtBodyPoint(double xBodyPoint, double yBodyPoint, double simTime){
+      if(simTime<=time0 || timeTotal<=0)
+         return 0;
+      if(simTime>time1)
+         simTime = time1;
+      return getPathLengthAtBodyPoint(xBodyPoint, yBodyPoint)*getPathFraction(simTime-time0);
+   }
+
+   /**
+    * Gets the length of the whole path followed by a point fixed in the
+    * body, negative if the point moves backward with respect to the
+    * heading of the body (see getDistanceAtBodyPoint()).
+    */
+   protected double getPathLengthAtBodyPoint(double xBodyPoint, double yBodyPoint){
+      return 0;   // overridden in some derived classes
+   }
+
+   /**
+    * Gets the greatest turn rate (in absolute value) reached at any
+    * time during the motion.  For a motion with a constant rate, this
+    * is the same as getTurnRate().
+    */
+   public double getPeakTurnRate(){
+      return Math.abs(getTurnRate());
+   }
+
+   /**
+    * Gets the greatest velocity (in absolute value) reached at any
+    * time during the motion.  For a motion with a constant rate, this
+    * is the same as getVelocity().
+    */
+   public double getPeakVelocity(){
+      return Math.abs(getVelocity());
+   }
+
+   public RsMotionProfile getProfile(){
+      return profile;
+   }
+
+   /**
+    * Gets the fraction of the path covered at the specified time
+    * after the start of the motion.
+    */
+   protected double getPathFraction(double deltaT){
+      if(profile!=null)
+         return profile.getFraction(deltaT);
+      if(timeTotal<=0)
+         return 1;
+      return deltaT/timeTotal;
+   }
+
+   /**
+    * Gets the time after the start of the motion at which the
+    * specified fraction of the path is covered.
+    */
+   protected double getPathTime(double fraction){
+      if(profile!=null)
+         return profile.getTime(fraction);
+      return fraction*timeTotal;
+   }
+
+   /**
+    * Gets the rate (in paths per second) at which the path is
+    * being covered at the specified time after the start of the motion.
+    */
+   protected double getPathRate(double deltaT){
+      if(profile!=null)
+         return profile.getRate(deltaT);
+      if(timeTotal<=0)
+         return 0;
+      return 1/timeTotal;
+   }
+
+   /**
+    * Gets a limit on the fraction of the path for the collision
+    * tests: a collision is of interest only if it occurs at a fraction
+    * less than the limit (the one second of slack matches the
+    * rounding performed by collisionDeltaT).
+    */
+   protected double getCollisionFractionLimit(){
+      if(profile==null)
+         return (collisionTime+1)/timeTotal;
+      if(collisionTime+1>=timeTotal)
+         return 2.0;
+      return profile.getFraction(collisionTime+1);
+   }
+
    public double getTime(){
       return time;
    }
@@ -228,6 +461,10 @@ public abstract class RsMotion extends RsComponent {
       return transform.getOffset();
    }
 
+   public void getPosition(RsPoint output){
+      transform.getOffset(output);
+   }
+
    public double getOrientation(){
       return transform.getTheta();
    }
@@ -23,6 +23,8 @@
 
 package rp1.rossum;
 
+import java.util.IdentityHashMap;
+
 
 /* it is possible that the motion could involve a circular
    arc of MORE than 360 degrees.  The collision test doesn't
@@ -70,6 +72,18 @@ public class RsMotionCircle extends RsMotion {
    double       linearVelocity;
    double       pivotSide;
 
+   // scratch space for processCollision().  these are transient
+   // because they are only meaningful at the inception of the motion
+   // and there is no reason to copy them when the motion is cloned.
+   private transient IdentityHashMap<RsWall, WallTerms> wallTermsCache;
+   private transient WallTerms scratchTerms;
+   private transient double [] bx, by, bvx, bvy, bA, bB, bR2, bSegR2Min, bSegR2Max;
+   private transient double    bodyR2Min, bodyR2Max;
+   private transient boolean   hitFlag;
+
+   // scratch space for getSweptBounds(), {xMin, yMin, xMax, yMax}
+   private transient double [] sweptExtrema;
+
 
    public RsMotionCircle(RsMotion start, double startTime, double duration, RsPoint refPivot, double displacement){
       super(start, startTime, duration);
@@ -109,25 +123,34 @@ public class RsMotionCircle extends RsMotion {
       testTransform.m23 -= pivot.y;
    }
 
+   /**
+    * Constructs a motion which follows the timing of the specified
+    * profile (see RsMotionProfile).  The duration of the motion
+    * is that of the profile.
+    */
+   public RsMotionCircle(RsMotion start, double startTime, RsMotionProfile profile, RsPoint refPivot, double displacement){
+      this(start, startTime, profile.getDuration(), refPivot, displacement);
+      this.profile = profile;
+   }
+
    @Override
 protected void applyTime(){
-      double t = (time-time0)/(time1-time0);
+      double t = getPathFraction(time-time0);
       angle = t*deltaAngle;
       rotateAboutPivot(transform, transform0, pivot.x, pivot.y, angle);
  }
 
    @Override
-protected RsTransform getStateAtTime(double _time){
+protected boolean getStateAtTime(double _time, RsTransform transformAtTime){
       if(_time<time0)
-         return null;
+         return false;
       if(_time>time1)
           _time=time1;
-      double t     = (_time-time0)/(time1-time0);
+      double t     = getPathFraction(_time-time0);
       double angle = t*deltaAngle;
 
-      RsTransform transformAtTime = new RsTransform();
       rotateAboutPivot(transformAtTime, transform0, pivot.x, pivot.y, angle);
-      return transformAtTime;
+      return true;
    }
 
 
@@ -155,42 +178,84 @@ protected RsTransform getStateAtTime(double _time){
 
    @Override
 public double getTurnRate(){
+      return getTurnRateAtTime(time);
+   }
+
+   @Override
+public double getTurnRateAtTime(double simTime){
+      if(profile!=null)
+         return deltaAngle*profile.getRate(simTime-time0);
       return deltaAngle/(time1-time0);  // radians per second
    }
 
+   @Override
+public double getPeakTurnRate(){
+      if(profile!=null)
+         return Math.abs(deltaAngle)*profile.getPeakRate();
+      return Math.abs(getTurnRate());
+   }
+
+   @Override
+public double getPeakVelocity(){
+      return Math.abs(turnRadius)*getPeakTurnRate();
+   }
+
    @Override
 public double getVelocity(){
       return turnRadius*getTurnRate();
    }
 
+   @Override
+public double getVelocityAtTime(double simTime){
+      return turnRadius*getTurnRateAtTime(simTime);
+   }
 
    @Override
-public RsMotionDepiction getMotionDepictionAtBodyPoint(double xBodyPoint, double yBodyPoint){
+protected double getPathLengthAtBodyPoint(double xBodyPoint, double yBodyPoint){
+      // the point moves on a circle about the pivot.  as in
+      // getMotionDepictionAtBodyPoint(), it is moving backward if its
+      // direction of motion is against the heading of the body (which
+      // does not change over the course of a rotation)
+      double aX = transform0.mapX(xBodyPoint, yBodyPoint)-pivot.x;
+      double aY = transform0.mapY(xBodyPoint, yBodyPoint)-pivot.y;
+      double vX = -aY*deltaAngle;
+      double vY =  aX*deltaAngle;
+      double length = Math.sqrt(vX*vX+vY*vY);
+      if(transform0.m11*vX + transform0.m21*vY<0.0)
+         return -length;
+      return length;
+   }
 
-      RsPoint aPoint = transform.map(xBodyPoint, yBodyPoint);
+
+   @Override
+public void getMotionDepictionAtBodyPoint(
+      double xBodyPoint, double yBodyPoint, RsMotionDepiction output)
+   {
+
+      double pX = transform.mapX(xBodyPoint, yBodyPoint);
+      double pY = transform.mapY(xBodyPoint, yBodyPoint);
       if(time>=time1){
          // the motion has completed, so the vector is zero
-         return new RsMotionDepiction(time, aPoint, new RsVector(0.0, 0.0), 0.0, false);
+         output.set(time, pX, pY, 0.0, 0.0, 0.0, false);
+         return;
       }
 
-      double aX = aPoint.x-pivot.x;
-      double aY = aPoint.y-pivot.y;
+      double aX = pX-pivot.x;
+      double aY = pY-pivot.y;
       // (vX,vY) is the perpendicular to (aX,aY) scaled for the
       // rotational velocity.  Note that if the rotational velocity
       // is negative, the direction of the motion vector will be inverted
-      double   vX = -aY*rotationalVelocity;
-      double   vY =  aX*rotationalVelocity;
-      RsVector v  = new RsVector(vX, vY);
-
-      RsVector forward  = transform.mapVector(1.0, 0.0);
-      double   d        = forward.x*v.x + forward.y*v.y;
+      double   omega = rotationalVelocity;
+      if(profile!=null)
+         omega = getTurnRate();
+      double   vX = -aY*omega;
+      double   vY =  aX*omega;
+
+      // the forward vector is just the first column of the transform
+      double   d        = transform.m11*vX + transform.m21*vY;
       boolean  reverse  = (d<0.0);
 
-      return new RsMotionDepiction(
-                           time,
-                           aPoint,
-                           v,
-                           rotationalVelocity, reverse);
+      output.set(time, pX, pY, vX, vY, omega, reverse);
    }
 
 
@@ -198,31 +263,56 @@ public RsMotionDepiction getMotionDepictionAtBodyPoint(double xBodyPoint, double
 
    @Override
 public boolean processCollision(RsSegment []aList, int aCount, RsSegment []bList, int bCount){
+      // the terms for an arbitrary list of segments are not cached,
+      // they go into a scratch object that is reused from call to call
+      if(scratchTerms==null)
+         scratchTerms = new WallTerms();
+      scratchTerms.setSegments(bList, bCount, pivot);
+      return processCollision(aList, aCount, scratchTerms);
+   }
+
+   @Override
+public boolean processCollision(RsSegment []aList, int aCount, RsWall wall){
+      if(wallTermsCache==null)
+         wallTermsCache = new IdentityHashMap<RsWall, WallTerms>();
+      WallTerms w = wallTermsCache.get(wall);
+      if(w==null){
+         RsSegment [] b = wall.getSegmentArray();
+         w = new WallTerms();
+         w.setSegments(b, b.length, pivot);
+         wallTermsCache.put(wall, w);
+      }
+      return processCollision(aList, aCount, w);
+   }
+
+
+   private boolean processCollision(RsSegment []aList, int aCount, WallTerms w){
 
-      boolean   flag    = false;
       int       ia, ib;
-      double    deltaT;
-
-      RsSegment s;
-
-      double   xi, yi, xt, yt, ax, ay;
-      double   a, b, c, cPrime, r2, d;
-      int      n;
-      double   [] t = new double[2];
-      double   theta;
-
-      for(ib=0; ib<bCount; ib++){
-         s=bList[ib];
-         a=s.v.x*s.v.x + s.v.y*s.v.y;
-         ax=s.x-pivot.x;   // treat pivot as origin
-         ay=s.y-pivot.y;
-         b=2*(s.v.x*ax + s.v.y*ay);
-         cPrime = ax*ax+ay*ay;
+      double    xi, yi, ax, ay, vx, vy;
+      double    a, b, c, r2, d;
+
+      hitFlag = false;
+      if(aCount<=0 || w.n==0)
+         return false;
+
+      mapBodySegments(aList, aCount);
+
+      // annulus rejection:  every point on the body stays at a fixed
+      // distance from the pivot as it turns.  If the body's range of
+      // distances doesn't overlap the wall's, they can never meet.
+      if(bodyR2Max<w.r2Min*(1-1.0e-6)-1.0e-9 || bodyR2Min>w.r2Max*(1+1.0e-6)+1.0e-9)
+         return false;
+
+      for(ib=0; ib<w.n; ib++){
+         a  = w.a[ib];
+         b  = w.b[ib];
+         ax = w.ax[ib];
+         ay = w.ay[ib];
+         vx = w.vx[ib];
+         vy = w.vy[ib];
          for(ia=0; ia<aCount; ia++){
-            testTransform.map2(aList[ia], testSegment);  // testTransform treats pivot as origin
-            xi=testSegment.x;
-            yi=testSegment.y;
-            r2 = xi*xi+yi*yi;
+            r2 = bR2[ia];
             if(Math.abs(r2)<1.0e-6){
                // the test point is right on the pivot...  r2==0 would cause
                // calamity in the math below.  fortunately, we can assume that
@@ -231,8 +321,16 @@ public boolean processCollision(RsSegment []aList, int aCount, RsSegment []bList
                // the pivot, it isn't going anywhere now.
                continue;
             }
+            if(r2<w.segR2Min[ib] || r2>w.segR2Max[ib]){
+               // the circle traveled by the point never reaches
+               // the wall segment (this is a cheaper form of the test
+               // on the descriminant below).
+               continue;
+            }
 
-            c = cPrime-r2;
+            xi = bx[ia];
+            yi = by[ia];
+            c = w.cPrime[ib]-r2;
             d = b*b-4*a*c;
             if(d<0){
                // the descriminant is <0 so the descriptive equation has no solution,
@@ -241,107 +339,286 @@ public boolean processCollision(RsSegment []aList, int aCount, RsSegment []bList
             }
 
             if(d==0){
-               n=1;
-               t[0]=-b/(2*a);
+               if(testRoot(-b/(2*a), vx, vy, ax, ay, xi, yi, false))
+                  return true;
             }else{
-               n=2;
                d=Math.sqrt(d);
-               t[0]=(-b+d)/(2*a);
-               t[1]=(-b-d)/(2*a);
-            }
-            while(n>0){
-               n--;
-               if(t[n]<0 || t[n]>1)
-                  continue;   // t is out of range [0,1]
-               xt = t[n]*s.v.x+ax;
-               yt = t[n]*s.v.y+ay;
-               theta = Math.atan2(xi*yt-yi*xt,  xi*xt+yi*yt);
-               if(deltaAngle>0){
-                  if(theta<0)theta+=2*Math.PI;
-                  if(theta>deltaAngle)
-                     continue;
-               }else{
-                  if(theta>0)theta-=2*Math.PI;
-                  if(theta<deltaAngle)
-                     continue;
-               }
-               deltaT = collisionDeltaT(timeTotal*theta/deltaAngle);
-               if(deltaT<=collisionTime){
-                  flag=true;
-                  collision=true;
-                  if(deltaT<=0){
-                     collisionTime=0;
-                     return true;   // we're done early
-                  }
-                  collisionTime=deltaT;
-               }
+               if(testRoot((-b-d)/(2*a), vx, vy, ax, ay, xi, yi, false))
+                  return true;
+               if(testRoot((-b+d)/(2*a), vx, vy, ax, ay, xi, yi, false))
+                  return true;
             }
          }
       }
 
 
       //  Now perform the counter-motion test
-      s=testSegment;
       for(ia=0; ia<aCount; ia++){
-         testTransform.map2(aList[ia], s);  // testTransform treats pivot as origin
-         a=s.v.x*s.v.x + s.v.y*s.v.y;
-         ax=s.x;
-         ay=s.y;
-         b=2*(s.v.x*ax + s.v.y*ay);
-         cPrime = ax*ax+ay*ay;
-         for(ib=0; ib<bCount; ib++){
-            xi=bList[ib].x-pivot.x;
-            yi=bList[ib].y-pivot.y;
-            r2 = xi*xi+yi*yi;
+         a  = bA[ia];
+         b  = bB[ia];
+         ax = bx[ia];
+         ay = by[ia];
+         vx = bvx[ia];
+         vy = bvy[ia];
+         for(ib=0; ib<w.n; ib++){
+            r2 = w.cPrime[ib];    // the wall vertex is the start of the segment
             if(Math.abs(r2)<1.0e-6){
                continue;
             }
-            c = cPrime-r2;
+            if(r2<bSegR2Min[ia] || r2>bSegR2Max[ia])
+               continue;
+            xi = w.ax[ib];
+            yi = w.ay[ib];
+            c = bR2[ia]-r2;
             d = b*b-4*a*c;
             if(d<0){
                continue;
             }
 
             if(d==0){
-               n=1;
-               t[0]=-b/(2*a);
+               if(testRoot(-b/(2*a), vx, vy, ax, ay, xi, yi, true))
+                  return true;
             }else{
-               n=2;
                d=Math.sqrt(d);
-               t[0]=(-b+d)/(2*a);
-               t[1]=(-b-d)/(2*a);
+               if(testRoot((-b-d)/(2*a), vx, vy, ax, ay, xi, yi, true))
+                  return true;
+               if(testRoot((-b+d)/(2*a), vx, vy, ax, ay, xi, yi, true))
+                  return true;
             }
-            while(n>0){
-               n--;
-               if(t[n]<0 || t[n]>1)
-                  continue;   // t is out of range [0,1]
-               xt = t[n]*s.v.x+ax;
-               yt = t[n]*s.v.y+ay;
-               theta = -Math.atan2(xi*yt-yi*xt,  xi*xt+yi*yt);
-               if(deltaAngle>0){
-                  if(theta<0)theta+=2*Math.PI;
-                  if(theta>deltaAngle)
-                     continue;
-               }else{
-                  if(theta>0)theta-=2*Math.PI;
-                  if(theta<deltaAngle)
-                     continue;
-               }
-               deltaT = collisionDeltaT(timeTotal*theta/deltaAngle);
-               if(deltaT<=collisionTime){
-                  flag=true;
-                  collision=true;
-                  if(deltaT<=0){
-                     collisionTime=0;
-                     return true;   // we're done early
-                  }
-                  collisionTime=deltaT;
-               }
+         }
+      }
+
+      return hitFlag;
+   }
+
+
+   // tests a root t of the quadratic, the parameter at which the circle
+   // through (xi,yi) crosses segment (ax,ay)+t*(vx,vy).  If the crossing
+   // falls within the arc of the motion, the collision time is updated.
+   // returns true if the collision time is reduced to zero (we're done early).
+   private boolean testRoot(
+      double t, double vx, double vy, double ax, double ay,
+      double xi, double yi, boolean counterMotion)
+   {
+      if(t<0 || t>1)
+         return false;   // t is out of range [0,1]
+      double xt = t*vx+ax;
+      double yt = t*vy+ay;
+      double theta = Math.atan2(xi*yt-yi*xt,  xi*xt+yi*yt);
+      if(counterMotion)
+         theta = -theta;
+      if(deltaAngle>0){
+         if(theta<0)theta+=2*Math.PI;
+         if(theta>deltaAngle)
+            return false;
+      }else{
+         if(theta>0)theta-=2*Math.PI;
+         if(theta<deltaAngle)
+            return false;
+      }
+      double deltaT = collisionDeltaT(getPathTime(theta/deltaAngle));
+      if(deltaT<=collisionTime){
+         hitFlag=true;
+         collision=true;
+         if(deltaT<=0){
+            collisionTime=0;
+            return true;
+         }
+         collisionTime=deltaT;
+      }
+      return false;
+   }
+
+
+   // maps the body segments into the pivot-centered coordinate system
+   // and computes their quadratic terms and distance ranges.  the
+   // arrays are kept from call to call and grown only as needed.
+   private void mapBodySegments(RsSegment []aList, int aCount){
+      if(bx==null || bx.length<aCount){
+         int n = Math.max(aCount, 16);
+         bx        = new double[n];
+         by        = new double[n];
+         bvx       = new double[n];
+         bvy       = new double[n];
+         bA        = new double[n];
+         bB        = new double[n];
+         bR2       = new double[n];
+         bSegR2Min = new double[n];
+         bSegR2Max = new double[n];
+      }
+
+      RsTransform t = testTransform;  // testTransform treats pivot as origin
+      RsSegment   s;
+      bodyR2Min = Double.MAX_VALUE;
+      bodyR2Max = 0;
+      for(int i=0; i<aCount; i++){
+         s      = aList[i];
+         bx[i]  = t.m11*s.x   + t.m12*s.y    + t.m13;
+         by[i]  = t.m21*s.x   + t.m22*s.y    + t.m23;
+         bvx[i] = t.m11*s.v.x + t.m12*s.v.y;
+         bvy[i] = t.m21*s.v.x + t.m22*s.v.y;
+         bA[i]  = bvx[i]*bvx[i] + bvy[i]*bvy[i];
+         bB[i]  = 2*(bvx[i]*bx[i] + bvy[i]*by[i]);
+         bR2[i] = bx[i]*bx[i]+by[i]*by[i];
+         setRange(bA[i], bB[i], bR2[i], bSegR2Min, bSegR2Max, i);
+         if(bSegR2Min[i]<bodyR2Min)
+            bodyR2Min = bSegR2Min[i];
+         if(bSegR2Max[i]>bodyR2Max)
+            bodyR2Max = bSegR2Max[i];
+      }
+   }
+
+
+   // given the terms for the squared distance from the pivot to a point
+   // on a segment,  a*t*t + b*t + c,  for t in [0,1], stores the
+   // range of values (padded slightly against round-off).
+   private static void setRange(
+      double a, double b, double c, double [] r2Min, double [] r2Max, int i)
+   {
+      double r0 = c;
+      double r1 = a+b+c;
+      double lo = Math.min(r0, r1);
+      double hi = Math.max(r0, r1);
+      if(a>0){
+         double tc = -b/(2*a);
+         if(0<tc && tc<1)
+            lo = Math.min(lo, c-b*b/(4*a));
+      }
+      if(lo<0)
+         lo=0;
+      r2Min[i] = lo*(1-1.0e-6)-1.0e-9;
+      r2Max[i] = hi*(1+1.0e-6)+1.0e-9;
+   }
+
+
+   /**
+    * The quadratic terms and distance ranges for the segments of a wall
+    * with respect to the pivot.   Since the pivot doesn't move during
+    * the motion, these are computed only once for each wall.
+    */
+   private static class WallTerms {
+      int       n;
+      double [] ax, ay, vx, vy;
+      double [] a, b, cPrime;
+      double [] segR2Min, segR2Max;
+      double    r2Min, r2Max;
+
+      void setSegments(RsSegment [] s, int count, RsPoint pivot){
+         if(ax==null || ax.length<count){
+            int size = Math.max(count, 16);
+            ax       = new double[size];
+            ay       = new double[size];
+            vx       = new double[size];
+            vy       = new double[size];
+            a        = new double[size];
+            b        = new double[size];
+            cPrime   = new double[size];
+            segR2Min = new double[size];
+            segR2Max = new double[size];
+         }
+         n     = count;
+         r2Min = Double.MAX_VALUE;
+         r2Max = 0;
+         for(int i=0; i<count; i++){
+            vx[i]     = s[i].v.x;
+            vy[i]     = s[i].v.y;
+            a[i]      = vx[i]*vx[i] + vy[i]*vy[i];
+            ax[i]     = s[i].x-pivot.x;   // treat pivot as origin
+            ay[i]     = s[i].y-pivot.y;
+            b[i]      = 2*(vx[i]*ax[i] + vy[i]*ay[i]);
+            cPrime[i] = ax[i]*ax[i]+ay[i]*ay[i];
+            setRange(a[i], b[i], cPrime[i], segR2Min, segR2Max, i);
+            if(segR2Min[i]<r2Min)
+               r2Min = segR2Min[i];
+            if(segR2Max[i]>r2Max)
+               r2Max = segR2Max[i];
+         }
+      }
+   }
+
+
+   @Override
+public boolean getSweptBounds(RsSegment []aList, int aCount, RsRectangle bounds){
+
+      // the region swept by the body is an annular sector about the
+      // pivot.  rather than bound the sector as a whole, we bound the
+      // arc traveled by each vertex:  at any moment, a point on a body
+      // segment lies between the current positions of the segment's
+      // end points, so it must lie within the union of the boxes
+      // for the end-point arcs.  The box for each arc is given by its
+      // end points and any of the four axis extremes (0, 90, 180, 270
+      // degrees) it passes through.
+
+      if(aCount<=0)
+         return false;
+
+      RsTransform t = testTransform;  // treats pivot as origin
+      RsSegment   s;
+      double      x0, y0;
+      double      xMin, yMin, xMax, yMax;
+      if(sweptExtrema==null)
+         sweptExtrema = new double[4];
+      double []   e = sweptExtrema;
+
+      e[0] = e[1] =  Double.MAX_VALUE;
+      e[2] = e[3] = -Double.MAX_VALUE;
+      for(int i=0; i<aCount; i++){
+         s  = aList[i];
+         x0 = t.m11*s.x + t.m12*s.y + t.m13;
+         y0 = t.m21*s.x + t.m22*s.y + t.m23;
+         insertArcBounds(e, x0, y0);
+         insertArcBounds(e,
+            x0 + t.m11*s.v.x + t.m12*s.v.y,
+            y0 + t.m21*s.v.x + t.m22*s.v.y);
+      }
+
+      xMin = e[0]+pivot.x;
+      yMin = e[1]+pivot.y;
+      xMax = e[2]+pivot.x;
+      yMax = e[3]+pivot.y;
+      setSweptBounds(bounds, xMin, yMin, xMax, yMax);
+      return true;
+   }
+
+   // e[] is {xMin, yMin, xMax, yMax} relative to the pivot
+   private void insertArcBounds(double [] e, double x, double y){
+      double r = Math.sqrt(x*x+y*y);
+      if(Math.abs(deltaAngle)>=2*Math.PI){
+         insertExtrema(e, -r, -r);
+         insertExtrema(e,  r,  r);
+         return;
+      }
+
+      double theta0 = Math.atan2(y, x);
+      double theta1 = theta0+deltaAngle;
+      double lo     = Math.min(theta0, theta1);
+      double hi     = Math.max(theta0, theta1);
+
+      insertExtrema(e, x, y);
+      insertExtrema(e, r*Math.cos(theta1), r*Math.sin(theta1));
+
+      // check each axis direction, phi=k*PI/2, to see if it falls
+      // within the arc [lo, hi] (modulo 2*PI).
+      double phi, m;
+      for(int k=0; k<4; k++){
+         phi = k*Math.PI/2;
+         m   = Math.ceil((lo-phi)/(2*Math.PI));
+         if(phi+m*2*Math.PI<=hi){
+            switch(k){
+               case 0:  insertExtrema(e,  r,  0);  break;
+               case 1:  insertExtrema(e,  0,  r);  break;
+               case 2:  insertExtrema(e, -r,  0);  break;
+               default: insertExtrema(e,  0, -r);  break;
             }
          }
       }
+   }
 
-      return flag;
+   private static void insertExtrema(double [] e, double x, double y){
+      if(x<e[0]) e[0]=x;
+      if(y<e[1]) e[1]=y;
+      if(x>e[2]) e[2]=x;
+      if(y>e[3]) e[3]=y;
    }
 
    @Override
@@ -350,17 +627,34 @@ public void truncateForCollision(){
       if(!collision || timeTotal==0)
          return;
 
-      deltaAngle *= collisionTime/timeTotal;
+      deltaAngle *= getPathFraction(collisionTime);
+      if(profile!=null)
+         profile = profile.getTruncated(collisionTime);
       timeTotal=collisionTime;
       time1=time0+timeTotal;
    }
 
+   @Override
+public RsMotion getRemainingMotion(){
+      if(time>=time1 || timeTotal<=0)
+         return null;
+      if(profile!=null){
+         return new RsMotionCircle(
+            this, time, profile.getRemainder(time-time0), pivot,
+            deltaAngle*(1-getPathFraction(time-time0)));
+      }
+      return new RsMotionCircle(
+            this, time, time1-time, pivot, deltaAngle*(time1-time)/timeTotal);
+   }
+
    @Override
 public void stopMotionAtTime(double simTime){
       setTimeForward(simTime);
       // if there's any time remaining in motion, truncate it
       if(time0<= time && time<time1){
-         deltaAngle *= (time-time0)/timeTotal;
+         deltaAngle *= getPathFraction(time-time0);
+         if(profile!=null)
+            profile = profile.getTruncated(time-time0);
          time1=time;
          timeTotal=time1-time0;
       }
@@ -65,17 +65,27 @@ package rp1.rossum;
  * <li>reverseMotion   indicates that motion is in a reverse direction from robot's perspective
  *
  *</ul>
+ * <p>
+ * Because the wheels obtain a depiction on every motion step, an
+ * instance may also be created once and then refilled by
+ * RsMotion.getMotionDepictionAtBodyPoint(x, y, output).  In that case,
+ * the point and vector are overwritten each time.
  *
  *  @since 0.60
  */
 
 public class RsMotionDepiction{
 
-   final double       time;
+   double             time;
    final RsPoint      point;
    final RsVector     vector;
-   final double       rotationalVelocity;
-   final boolean      reverseMotion;
+   double             rotationalVelocity;
+   boolean            reverseMotion;
+
+   public RsMotionDepiction(){
+      point  = new RsPoint();
+      vector = new RsVector(0.0, 0.0);
+   }
 
    public RsMotionDepiction(
              double   time,
@@ -90,4 +100,22 @@ public class RsMotionDepiction{
       this.rotationalVelocity = rotationalVelocity;
       this.reverseMotion      = reverseMotion;
    }
+
+   void set(
+             double   time,
+             double   x,
+             double   y,
+             double   vx,
+             double   vy,
+             double   rotationalVelocity,
+             boolean  reverseMotion)
+   {
+      this.time               = time;
+      this.point.x            = x;
+      this.point.y            = y;
+      this.vector.x           = vx;
+      this.vector.y           = vy;
+      this.rotationalVelocity = rotationalVelocity;
+      this.reverseMotion      = reverseMotion;
+   }
 }
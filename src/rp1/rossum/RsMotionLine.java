@@ -30,6 +30,7 @@ package rp1.rossum;
         private  RsSegSect  segSect;
         private  RsSegment  segment;
         private  RsSegment  bodySegment;
+        private  RsSegmentBatch bodyBatch;
 
    which are used only in the processCollisions() method and, thus, only
    at the inception of a motion.   Usually, they are nothing more than
@@ -75,35 +76,54 @@ public class RsMotionLine extends RsMotion {
       bodySegment   = new RsSegment();
    }
 
+   /**
+    * Constructs a motion which follows the timing of the specified
+    * profile (see RsMotionProfile).  The duration of the motion
+    * is that of the profile.
+    */
+   public RsMotionLine(RsMotion start, double startTime, RsMotionProfile profile, RsVector vector, double displacement){
+      this(start, startTime, profile.getDuration(), vector, displacement);
+      this.profile = profile;
+   }
+
    @Override
 protected void applyTime(){
-      double t = displacement*(time-time0)/(time1-time0);
+      double t = displacement*getPathFraction(time-time0);
       transform.m13=transform0.m13+t*vector.x;
       transform.m23=transform0.m23+t*vector.y;
    }
 
    @Override
-protected RsTransform getStateAtTime(double _time){
+protected boolean getStateAtTime(double _time, RsTransform tx){
       if(_time<time0)
-         return null;
+         return false;
       if(_time>time1)
          _time=time1;
-      double t = displacement*(_time-time0)/(time1-time0);
-      RsTransform tx = new RsTransform(transform0);
+      double t = displacement*getPathFraction(_time-time0);
+      tx.copy(transform0);
       tx.m13=transform0.m13+t*vector.x;
       tx.m23=transform0.m23+t*vector.y;
-      return tx;
+      return true;
    }
 
    @Override
 public double getVelocity(){
-      double speed = displacement/(time1-time0);
+      return getVelocityAtTime(time);
+   }
+
+   @Override
+public double getVelocityAtTime(double simTime){
+      double speed;
+      if(profile==null)
+         speed = displacement/(time1-time0);
+      else
+         speed = displacement*profile.getRate(simTime-time0);
       // to find if velocity is negative (vector is reverse of robot direction)
       // we find the forward heading vector and take the dot of that with the
       // vector for absolute direction of motion. if the dot is negative, we
       // are moving in reverse of the forward direction.
-      RsVector forward = transform0.mapVector(1.0, 0.0);
-      double   d       = forward.x*vector.x + forward.y*vector.y;
+      // (the forward vector is just the first column of the transform)
+      double   d       = transform0.m11*vector.x + transform0.m21*vector.y;
       if(d<0.0){
          // we are headed in reverse direction of robot
          return -speed;
@@ -112,22 +132,39 @@ public double getVelocity(){
    }
 
    @Override
-public RsMotionDepiction getMotionDepictionAtBodyPoint(double xBodyPoint, double yBodyPoint){
-      RsPoint aPoint = transform.map(xBodyPoint, yBodyPoint);
+public double getPeakVelocity(){
+      if(profile==null)
+         return Math.abs(getVelocity());
+      return displacement*profile.getPeakRate();
+   }
+
+   @Override
+protected double getPathLengthAtBodyPoint(double xBodyPoint, double yBodyPoint){
+      // every point of the body moves the full displacement.  the sign
+      // follows the same rule as getVelocity()
+      double d = transform0.m11*vector.x + transform0.m21*vector.y;
+      if(d<0.0)
+         return -displacement;
+      return displacement;
+   }
+
+   @Override
+public void getMotionDepictionAtBodyPoint(
+      double xBodyPoint, double yBodyPoint, RsMotionDepiction output)
+   {
+      double aX = transform.mapX(xBodyPoint, yBodyPoint);
+      double aY = transform.mapY(xBodyPoint, yBodyPoint);
       if(time>=time1){
          // the motion has completed, so the vector is zero
-         return new RsMotionDepiction(time, aPoint, new RsVector(0.0, 0.0), 0.0, false);
+         output.set(time, aX, aY, 0.0, 0.0, 0.0, false);
+         return;
       }
       double velocity = getVelocity();
       double speed    = Math.abs(velocity);
       double vX       = speed*vector.x;
       double vY       = speed*vector.y;
       boolean reverse = (velocity<0.0);
-      return new RsMotionDepiction(
-                     time,
-                     aPoint,
-                     new RsVector(vX, vY),
-                     0.0, reverse);
+      output.set(time, aX, aY, vX, vY, 0.0, reverse);
    }
 
    @Override
@@ -141,7 +178,7 @@ public boolean processCollision(RsSegment []aList, int aCount, RsSegment []bList
       RsSegment b;
 
 
-      tMin=(collisionTime+1)/timeTotal;
+      tMin=getCollisionFractionLimit();
 
 
       for(ia=0; ia<aCount; ia++){
@@ -156,7 +193,7 @@ public boolean processCollision(RsSegment []aList, int aCount, RsSegment []bList
             segment.m = displacement;
             if(segSect.process(segment, b) && segSect.t1<tMin){
                tMin=segSect.t1;
-               deltaT = collisionDeltaT(tMin*timeTotal);
+               deltaT = collisionDeltaT(getPathTime(tMin));
                if(deltaT<collisionTime){
                   flag=true;
                   collision=true;
@@ -177,7 +214,7 @@ public boolean processCollision(RsSegment []aList, int aCount, RsSegment []bList
             segment.v.y = -vector.y*displacement;
             if(segSect.process(segment, bodySegment) && segSect.t1<tMin){
                tMin=segSect.t1;
-               deltaT = collisionDeltaT(tMin*timeTotal);
+               deltaT = collisionDeltaT(getPathTime(tMin));
                if(deltaT<=collisionTime){
                   flag=true;
                   collision=true;
@@ -194,23 +231,154 @@ public boolean processCollision(RsSegment []aList, int aCount, RsSegment []bList
       return flag;
    }
 
+   @Override
+public boolean processCollision(RsSegment []aList, int aCount, RsWall wall){
+
+      // this is the same computation as the method above, but the
+      // wall segments are tested in a batch.  Since we only care about
+      // the earliest collision, each body vertex needs only the nearest
+      // hit on the wall (and each wall vertex the nearest hit on the body).
+
+      RsSegmentBatch wallBatch = wall.getSegmentBatch();
+      if(wallBatch==null)
+         return false;
+
+      boolean   flag    = false;
+      int       ia, ib;
+      double    deltaT;
+      double    tMin;
+      double    dx = vector.x*displacement;
+      double    dy = vector.y*displacement;
+
+      tMin=getCollisionFractionLimit();
+
+      if(bodyBatch==null)
+         bodyBatch = new RsSegmentBatch(aCount);
+      bodyBatch.clear();
+      for(ia=0; ia<aCount; ia++)
+         bodyBatch.addMapped(transform0, aList[ia]);  // map body part for motion
+
+      // forward motion (moving body vertex onto stationary wall)
+      for(ia=0; ia<aCount; ia++){
+         if(wallBatch.findNearestIntersection(
+               bodyBatch.getX(ia), bodyBatch.getY(ia), dx, dy, tMin, segSect)<0)
+            continue;
+         tMin=segSect.t1;
+         deltaT = collisionDeltaT(getPathTime(tMin));
+         if(deltaT<collisionTime){
+            flag=true;
+            collision=true;
+            if(deltaT<=0){
+               collisionTime=0;
+               return true;   // we're done early
+            }
+            collisionTime=deltaT;
+         }
+      }
+
+      //  now the backwards motion (stationary wall vertex onto moving object)
+      for(ib=0; ib<wallBatch.size(); ib++){
+         if(bodyBatch.findNearestIntersection(
+               wallBatch.getX(ib), wallBatch.getY(ib), -dx, -dy, tMin, segSect)<0)
+            continue;
+         tMin=segSect.t1;
+         deltaT = collisionDeltaT(getPathTime(tMin));
+         if(deltaT<=collisionTime){
+            flag=true;
+            collision=true;
+            if(deltaT<=0){
+               collisionTime=0;
+               return true;   // we're done early
+            }
+            collisionTime=deltaT;
+         }
+      }
+
+      return flag;
+   }
+
+   @Override
+public boolean getSweptBounds(RsSegment []aList, int aCount, RsRectangle bounds){
+
+      // during a linear motion, every point on the body travels the
+      // same vector.  so the region swept by the body is contained in the
+      // union of its boxes at the start and end of the motion.
+
+      if(aCount<=0)
+         return false;
+
+      RsTransform t = transform0;
+      RsSegment   s;
+      double      x0, y0, x1, y1;
+      double      xMin, yMin, xMax, yMax;
+
+      xMin = yMin =  Double.MAX_VALUE;
+      xMax = yMax = -Double.MAX_VALUE;
+      for(int i=0; i<aCount; i++){
+         s  = aList[i];
+         x0 = t.m11*s.x + t.m12*s.y + t.m13;
+         y0 = t.m21*s.x + t.m22*s.y + t.m23;
+         x1 = x0 + t.m11*s.v.x + t.m12*s.v.y;
+         y1 = y0 + t.m21*s.v.x + t.m22*s.v.y;
+         if(x0<xMin) xMin=x0;
+         if(x0>xMax) xMax=x0;
+         if(y0<yMin) yMin=y0;
+         if(y0>yMax) yMax=y0;
+         if(x1<xMin) xMin=x1;
+         if(x1>xMax) xMax=x1;
+         if(y1<yMin) yMin=y1;
+         if(y1>yMax) yMax=y1;
+      }
+
+      double dx = vector.x*displacement;
+      double dy = vector.y*displacement;
+      if(dx<0)
+         xMin+=dx;
+      else
+         xMax+=dx;
+      if(dy<0)
+         yMin+=dy;
+      else
+         yMax+=dy;
+
+      setSweptBounds(bounds, xMin, yMin, xMax, yMax);
+      return true;
+   }
+
    @Override
 public void truncateForCollision(){
 
       if(!collision || timeTotal==0)
          return;
 
-      displacement *= collisionTime/timeTotal;
+      displacement *= getPathFraction(collisionTime);
+      if(profile!=null)
+         profile = profile.getTruncated(collisionTime);
       timeTotal=collisionTime;
       time1=time0+timeTotal;
    }
 
+   @Override
+public RsMotion getRemainingMotion(){
+      if(time>=time1 || timeTotal<=0)
+         return null;
+      if(profile!=null){
+         return new RsMotionLine(
+            this, time, profile.getRemainder(time-time0), vector,
+            displacement*(1-getPathFraction(time-time0)));
+      }
+      return new RsMotionLine(
+            this, time, time1-time, vector, displacement*(time1-time)/timeTotal);
+   }
+
    @Override
 public void stopMotionAtTime(double simTime){
       setTimeForward(simTime);
       // if there's any time remaining in motion, truncate it
       if(time0<= time && time<time1){
-         displacement *= (time-time0)/timeTotal;
+         displacement *= getPathFraction(time-time0);
+         if(profile!=null)
+            profile = profile.getTruncated(time-time0);
          time1=time;
          timeTotal=time1-time0;
       }
@@ -222,6 +390,7 @@ public void stopMotionAtTime(double simTime){
    RsSegSect segSect;
    RsSegment segment;
    RsSegment bodySegment;
+   RsSegmentBatch bodyBatch;  // mapped body segments, built as needed
 }
 
 
@@ -67,6 +67,14 @@ public class RsMotionNull extends RsMotion {
    @Override
 protected void applyTime(){};
 
+   @Override
+protected boolean getStateAtTime(double _time, RsTransform output){
+      if(_time<time0)
+         return false;
+      output.copy(transform0);
+      return true;
+   }
+
    @Override
 protected RsTransform getStateAtTime(double _time){
       if(_time<time0)
@@ -76,11 +84,14 @@ protected RsTransform getStateAtTime(double _time){
 
 
    @Override
-public RsMotionDepiction getMotionDepictionAtBodyPoint(double xBodyPoint, double yBodyPoint){
-        return new RsMotionDepiction(
+public void getMotionDepictionAtBodyPoint(
+      double xBodyPoint, double yBodyPoint, RsMotionDepiction output)
+   {
+        output.set(
                         time,
-                        transform.map(xBodyPoint, yBodyPoint),
-                        new RsVector(0.0, 0.0),
+                        transform.mapX(xBodyPoint, yBodyPoint),
+                        transform.mapY(xBodyPoint, yBodyPoint),
+                        0.0, 0.0,
                         0.0, false);
    }
 }
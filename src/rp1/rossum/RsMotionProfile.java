@@ -0,0 +1,261 @@
+/*  -------------------------------------------------------------
+
+    Rossum's Playhouse  --  a client/server based robot simulator
+    Rossum's Playhouse is also known under the name "RP1".
+    Copyright (C) 1999  G.W. Lucas
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+----------------------------------------------------------------- */
+
+
+package rp1.rossum;
+
+
+/*
+
+   RsMotionProfile.java    the timing of a motion that speeds up and slows down
+
+
+   RsMotionLine and RsMotionCircle each follow a fixed path (a straight
+   segment or an arc about a pivot).  Where the body is along its path
+   at a given time is a separate matter.  Without a profile, a motion moves
+   at a constant rate: the fraction of the path covered is just the fraction
+   of the time elapsed.  A profile gives a different relationship.
+
+   The profile implemented here is the familiar "trapezoidal" one: the
+   body accelerates at a constant rate up to a peak rate, cruises,
+   and decelerates at the same rate to a stop.  If the path is too
+   short to reach the peak, the cruise is omitted and the
+   profile becomes a triangle.  Everything is in closed form:
+
+      fraction covered at time t           (a quadratic, piecewise)
+      rate at time t                       (linear, piecewise)
+      time at which a fraction is covered  (a square root, piecewise)
+
+   The last of these is what makes the collision computations work.
+   The motion classes find the fraction of the path at which a
+   collision occurs from the geometry alone, then ask the profile when
+   the body gets there.  So an accelerating motion is modeled
+   exactly no matter how coarse the modeling frames are.
+
+   Units
+
+   The profile is defined over a path of unit length.  The rate is
+   in "paths per second" and the acceleration in "paths per second squared".
+   The motion classes scale these by the displacement (or turn angle)
+   of the motion.
+
+   Truncation
+
+   When a motion is cut short (by a collision or a halt request), it
+   covers only part of its path, and the motion classes scale down their
+   displacements accordingly.  The profile must then map the
+   shortened motion to the range 0 to 1, but without changing the
+   timing.  So a profile is a "window" on the underlying trapezoid:
+   it starts at some time (and fraction) within it and ends at another.
+   getTruncated() and getRemainder() produce new windows;  a profile
+   is never modified once it is constructed.
+
+*/
+
+
+
+/**
+ * A trapezoidal velocity profile giving the timing of an
+ * accelerating motion along its path.
+ *
+ */
+
+public class RsMotionProfile extends RsComponent {
+
+   private static final long serialVersionUID = 1L;
+
+   // the underlying trapezoid (over a path of unit length)
+   private final double acceleration;
+   private final double rate;       // the peak rate
+   private final double tRamp;      // duration of each ramp
+   private final double tEnd;       // duration of the entire trapezoid
+   private final double sRamp;      // fraction covered by each ramp
+
+   // the window
+   private final double tA, tB;     // start and end times within the trapezoid
+   private final double sA, sB;     // fractions covered at those times
+
+
+   /**
+    * Constructs a profile which accelerates at the specified rate
+    * (in paths per second squared) up to the specified peak rate
+    * (in paths per second) and back down to a stop.  Both values
+    * must be positive.
+    */
+   public RsMotionProfile(double rate, double acceleration){
+      this.acceleration = acceleration;
+      if(rate*rate/acceleration>1.0){
+         // there isn't room to reach the peak rate, the profile
+         // is a triangle with half the path on each side.
+         rate = Math.sqrt(acceleration);
+      }
+      this.rate = rate;
+      tRamp = rate/acceleration;
+      sRamp = 0.5*acceleration*tRamp*tRamp;
+      tEnd  = 2*tRamp+(1-2*sRamp)/rate;
+
+      tA = 0;
+      tB = tEnd;
+      sA = 0;
+      sB = 1;
+   }
+
+   private RsMotionProfile(RsMotionProfile p, double tA, double tB){
+      acceleration = p.acceleration;
+      rate         = p.rate;
+      tRamp        = p.tRamp;
+      tEnd         = p.tEnd;
+      sRamp        = p.sRamp;
+      this.tA      = tA;
+      this.tB      = tB;
+      sA           = getBaseFraction(tA);
+      sB           = getBaseFraction(tB);
+   }
+
+
+   /**
+    * Gets the time from the start to the end of the profile.
+    */
+   public double getDuration(){
+      return tB-tA;
+   }
+
+   /**
+    * Gets the fraction of the path covered at the specified time after
+    * the start of the profile, in the range 0 to 1.
+    */
+   public double getFraction(double deltaT){
+      double ds = sB-sA;
+      if(ds<=0)
+         return 0;
+      double s = (getBaseFraction(tA+deltaT)-sA)/ds;
+      if(s<0)
+         return 0;
+      if(s>1)
+         return 1;
+      return s;
+   }
+
+   /**
+    * Gets the rate (in paths per second) at the specified time after
+    * the start of the profile.
+    */
+   public double getRate(double deltaT){
+      double ds = sB-sA;
+      if(ds<=0)
+         return 0;
+      double t = tA+deltaT;
+      if(t<tA || t>tB)
+         return 0;
+      return getBaseRate(t)/ds;
+   }
+
+   /**
+    * Gets the greatest rate (in paths per second) reached
+    * at any time within the profile.
+    */
+   public double getPeakRate(){
+      double ds = sB-sA;
+      if(ds<=0)
+         return 0;
+      double r = rate;
+      if(tB<tRamp)
+         r = getBaseRate(tB);
+      else if(tA>tEnd-tRamp)
+         r = getBaseRate(tA);
+      return r/ds;
+   }
+
+   /**
+    * Gets the time after the start of the profile at which the
+    * specified fraction of the path has been covered.  This is the inverse
+    * of getFraction().
+    */
+   public double getTime(double fraction){
+      if(fraction<=0)
+         return 0;
+      if(fraction>=1)
+         return tB-tA;
+      double t = getBaseTime(sA+fraction*(sB-sA))-tA;
+      if(t<0)
+         return 0;
+      if(t>tB-tA)
+         return tB-tA;
+      return t;
+   }
+
+   /**
+    * Gets a profile that ends at the specified time after the start
+    * of this one.  It maps the part of the path covered by
+    * that time to the range 0 to 1.
+    */
+   public RsMotionProfile getTruncated(double deltaT){
+      double t = Math.max(tA, Math.min(tB, tA+deltaT));
+      return new RsMotionProfile(this, tA, t);
+   }
+
+   /**
+    * Gets a profile that starts at the specified time after the start
+    * of this one and follows the remainder of its timing.
+    */
+   public RsMotionProfile getRemainder(double deltaT){
+      double t = Math.max(tA, Math.min(tB, tA+deltaT));
+      return new RsMotionProfile(this, t, tB);
+   }
+
+
+
+   private double getBaseFraction(double t){
+      if(t<=0)
+         return 0;
+      if(t>=tEnd)
+         return 1;
+      if(t<tRamp)
+         return 0.5*acceleration*t*t;
+      if(t<=tEnd-tRamp)
+         return sRamp+rate*(t-tRamp);
+      double u = tEnd-t;
+      return 1-0.5*acceleration*u*u;
+   }
+
+   private double getBaseRate(double t){
+      if(t<=0 || t>=tEnd)
+         return 0;
+      if(t<tRamp)
+         return acceleration*t;
+      if(t<=tEnd-tRamp)
+         return rate;
+      return acceleration*(tEnd-t);
+   }
+
+   private double getBaseTime(double s){
+      if(s<=0)
+         return 0;
+      if(s>=1)
+         return tEnd;
+      if(s<sRamp)
+         return Math.sqrt(2*s/acceleration);
+      if(s<=1-sRamp)
+         return tRamp+(s-sRamp)/rate;
+      return tEnd-Math.sqrt(2*(1-s)/acceleration);
+   }
+}
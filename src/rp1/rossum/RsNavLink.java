@@ -23,8 +23,6 @@
 
 package rp1.rossum;
 
-import java.awt.*;
-
 
 
 /**
@@ -39,8 +37,8 @@ public  class RsNavLink extends RsObject {
       super(nameReference, planReference);
       isGeometrySet= false;
       label        = null;
-      fillColor    = Color.cyan;
-      lineColor    = Color.cyan;
+      fillColor    = RsColor.cyan;
+      lineColor    = RsColor.cyan;
       n0=null;
       n1=null;
       visited=false;
@@ -90,38 +88,6 @@ public String getClassName(){
       return className;
    }
 
-   @Override
-public void paint(Graphics g, RsTransform gt){
-
-      int    ix0, iy0, ix1, iy1;
-      RsPoint p0, p1;
-
-      p0 = gt.map(segment.x, segment.y);
-      p1 = gt.map(segment.x+segment.v.x, segment.y+segment.v.y);
-      ix0=(int)(p0.x+0.5);
-      iy0=(int)(p0.y+0.5);
-      ix1=(int)(p1.x+0.5);
-      iy1=(int)(p1.y+0.5);
-
-
-      g.setColor(lineColor);
-
-      g.drawLine(ix0, iy0, ix1, iy1);
-
-
-      /*  Right now, I'm not sure what to do about a label (any at all?)
-          It would be a lot easier using the Java 2D API,
-          maybe I should wait until I convert...
-
-            if(label!=null){
-               FontMetrics fontMetrics = g.getFontMetrics(g.getFont());
-               w=fontMetrics.stringWidth(label);
-               h=fontMetrics.getAscent();
-               g.drawString(label, ix+4, iy+h);
-            }
-      */
-   }
-
 
 
 
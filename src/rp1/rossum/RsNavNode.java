@@ -23,8 +23,6 @@
 
 package rp1.rossum;
 
-import java.awt.*;
-
 
 
 /**
@@ -39,8 +37,8 @@ public  class RsNavNode extends RsObject {
       super(nameReference, planReference);
       isGeometrySet = false;
       label         = null;
-      fillColor     = Color.cyan;
-      lineColor     = Color.cyan;
+      fillColor     = RsColor.cyan;
+      lineColor     = RsColor.cyan;
       link    = null;
       visited = false;
    }
@@ -79,30 +77,6 @@ public String getClassName(){
       return className;
    }
 
-   @Override
-public void paint(Graphics g, RsTransform gt){
-
-
-      int    ix, iy;
-
-
-      RsPoint p0;
-
-      p0 = gt.map(x, y);
-      ix=(int)(p0.x+0.5);
-      iy=(int)(p0.y+0.5);
-
-      g.setColor(lineColor);
-      g.drawRect(ix-1, iy-1, 3, 3);
-
-      if(label!=null){
-         FontMetrics fontMetrics = g.getFontMetrics(g.getFont());
-         //  int w=fontMetrics.stringWidth(label);
-         int h=fontMetrics.getAscent();
-         g.drawString(label, ix+4, iy+h);
-      }
-   }
-
 
       public void addLink(RsNavLink newlink){
       if(link==null){
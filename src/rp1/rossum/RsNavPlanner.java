@@ -0,0 +1,369 @@
+/*  -------------------------------------------------------------
+
+    Rossum's Playhouse  --  a client/server based robot simulator
+    Rossum's Playhouse is also known under the name "RP1".
+    Copyright (C) 1999  G.W. Lucas
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+----------------------------------------------------------------- */
+
+
+package rp1.rossum;
+
+/*
+   RsNavPlanner.java    shortest paths over the navigation network
+
+   A floor plan may declare a navigation network:  nodes (RsNavNode)
+   at path intersections and links (RsNavLink) joining them.  The links
+   may be traversed in either direction and the cost of a link is its
+   length.  This class finds the shortest route between two nodes
+   using the A* search.
+
+   About the Distance Estimates
+
+   A* is only as fast as its estimate of the remaining distance from
+   a node to the goal is good.  The straight-line distance is always
+   a valid estimate, but in a plan where the paths wind around walls
+   it can be a poor one.  So, when the planner is built, it picks a few
+   "landmark" nodes spread out over the network (each one as far as
+   possible from the ones already picked) and works out the distance
+   from each landmark to every node with Dijkstra's algorithm.  By the
+   triangle inequality, the distance from a node n to the goal g is
+   at least
+
+            | d(L, g) - d(L, n) |
+
+   for any landmark L.  The estimate used is the largest of these
+   values and the straight-line distance.  Since all of the estimates
+   are consistent, so is their maximum, and A* never has to revisit
+   a node.  The cost of the tables is one array of distances per
+   landmark, which is a great deal less than all-pairs distances
+   for a large network.
+
+   Nodes which are not connected to each other are recognized at once
+   (the nodes are labeled by connected component when the planner is
+   built), so a request for an impossible route doesn't search the
+   whole network.
+
+   The navigation network can't be changed while a simulation runs
+   (see RsPlan.processPlanChangeRequest), so the planner is built once
+   and cached by the plan (see RsPlan.getNavPlanner).  It is not
+   modified after it is built, and each search uses its own working
+   storage, so it may be used from any thread.
+*/
+
+
+
+
+/**
+ * An A* path planner for the navigation network of a floor plan.
+ *
+ */
+
+public class RsNavPlanner {
+
+   private static final int MAX_LANDMARKS = 8;
+
+   public RsNavPlanner(RsNavNode [] nodeArray, RsNavLink [] linkArray){
+
+      int i, j, k, n;
+
+      node  = nodeArray==null ? new RsNavNode[0] : nodeArray.clone();
+      nNode = node.length;
+
+      // the links are stored as adjacency lists packed into arrays.
+      // a node's neighbors are adjNode[adjStart[i]] to adjNode[adjStart[i+1]-1].
+      int [] degree = new int[nNode];
+      int [] n0     = null;
+      int [] n1     = null;
+      int    nLink  = 0;
+      if(linkArray!=null){
+         n0 = new int[linkArray.length];
+         n1 = new int[linkArray.length];
+         for(i=0; i<linkArray.length; i++){
+            j = indexOf(linkArray[i].n0);
+            k = indexOf(linkArray[i].n1);
+            if(j<0 || k<0 || j==k)
+               continue;
+            n0[nLink]   = j;
+            n1[nLink++] = k;
+            degree[j]++;
+            degree[k]++;
+         }
+      }
+      adjStart = new int[nNode+1];
+      for(i=0; i<nNode; i++)
+         adjStart[i+1] = adjStart[i]+degree[i];
+      adjNode = new int[adjStart[nNode]];
+      adjCost = new double[adjStart[nNode]];
+      for(i=0; i<nNode; i++)
+         degree[i] = adjStart[i];
+      for(i=0; i<nLink; i++){
+         double d = distance(n0[i], n1[i]);
+         adjNode[degree[n0[i]]]   = n1[i];
+         adjCost[degree[n0[i]]++] = d;
+         adjNode[degree[n1[i]]]   = n0[i];
+         adjCost[degree[n1[i]]++] = d;
+      }
+
+      // label the connected components
+      component = new int[nNode];
+      for(i=0; i<nNode; i++)
+         component[i] = -1;
+      int [] stack = new int[nNode];
+      int    nComponent = 0;
+      for(i=0; i<nNode; i++){
+         if(component[i]>=0)
+            continue;
+         component[i] = nComponent;
+         n = 0;
+         stack[n++] = i;
+         while(n>0){
+            j = stack[--n];
+            for(k=adjStart[j]; k<adjStart[j+1]; k++){
+               if(component[adjNode[k]]<0){
+                  component[adjNode[k]] = nComponent;
+                  stack[n++] = adjNode[k];
+               }
+            }
+         }
+         nComponent++;
+      }
+
+      // select the landmarks.  the first is the node farthest from
+      // node zero;  each of the others is the node farthest from all of
+      // the landmarks selected so far.  nodes which can't be reached
+      // from any landmark are treated as the farthest of all, so that
+      // each component gets a landmark of its own.
+      int nMax = Math.min(MAX_LANDMARKS, nNode);
+      landmarkDistance = new double[nMax][];
+      nLandmark = 0;
+      if(nNode>0){
+         double [] nearest = new double[nNode];
+         double [] d0      = new double[nNode];
+         computeDistances(0, d0);
+         int next = farthest(d0);
+         for(i=0; i<nNode; i++)
+            nearest[i] = Double.POSITIVE_INFINITY;
+         while(nLandmark<nMax){
+            double [] d = new double[nNode];
+            computeDistances(next, d);
+            landmarkDistance[nLandmark++] = d;
+            for(i=0; i<nNode; i++)
+               if(d[i]<nearest[i])
+                  nearest[i] = d[i];
+            next = farthest(nearest);
+            if(nearest[next]==0)
+               break;   // every node is a landmark
+         }
+      }
+   }
+
+   public int getNodeCount(){
+      return nNode;
+   }
+
+   public int getLandmarkCount(){
+      return nLandmark;
+   }
+
+   /**
+    * Gets the node nearest to the specified point, or null
+    * if there are no nodes.  Walls are not considered.
+    */
+   public RsNavNode getNearestNode(double x, double y){
+      int    iBest = -1;
+      double dBest = 0;
+      double dx, dy, d;
+      for(int i=0; i<nNode; i++){
+         dx = node[i].x-x;
+         dy = node[i].y-y;
+         d  = dx*dx+dy*dy;
+         if(iBest<0 || d<dBest){
+            iBest = i;
+            dBest = d;
+         }
+      }
+      return iBest<0 ? null : node[iBest];
+   }
+
+   /**
+    * Finds the route from the node nearest the start point to the node
+    * nearest the goal point.  Returns null if there is no such route.
+    */
+   public RsNavRoute findRoute(double x0, double y0, double x1, double y1){
+      RsNavNode start = getNearestNode(x0, y0);
+      RsNavNode goal  = getNearestNode(x1, y1);
+      if(start==null || goal==null)
+         return null;
+      return findRoute(start, goal);
+   }
+
+   /**
+    * Finds the shortest route between two nodes.  Returns null if either
+    * node isn't part of the network or if there is no route.  The first
+    * waypoint of the route is the start node and the last is the goal.
+    */
+   public RsNavRoute findRoute(RsNavNode start, RsNavNode goal){
+
+      int iStart = indexOf(start);
+      int iGoal  = indexOf(goal);
+      if(iStart<0 || iGoal<0 || component[iStart]!=component[iGoal])
+         return null;
+
+      // working storage for the search.  the open list is a binary heap
+      // in which a node may appear more than once (a stale entry
+      // is simply skipped when it comes to the top).  there can't be
+      // more entries than there are link ends, plus the start node.
+      double [] g      = new double[nNode];
+      int    [] from   = new int[nNode];
+      boolean[] closed = new boolean[nNode];
+      for(int i=0; i<nNode; i++){
+         g[i]    = Double.POSITIVE_INFINITY;
+         from[i] = -1;
+      }
+      double [] heapKey  = new double[adjNode.length+1];
+      int    [] heapNode = new int[heapKey.length];
+      int       nHeap    = 0;
+
+      g[iStart] = 0;
+      RsHeap.siftUp(heapKey, heapNode, nHeap++, estimate(iStart, iGoal), iStart);
+
+      int    j, k, v;
+      double c;
+      while(nHeap>0){
+         j = heapNode[0];
+         nHeap--;
+         if(nHeap>0)
+            RsHeap.siftDown(heapKey, heapNode, nHeap, heapKey[nHeap], heapNode[nHeap]);
+         if(closed[j])
+            continue;
+         if(j==iGoal)
+            break;
+         closed[j] = true;
+         for(k=adjStart[j]; k<adjStart[j+1]; k++){
+            v = adjNode[k];
+            if(closed[v])
+               continue;
+            c = g[j]+adjCost[k];
+            if(c<g[v]){
+               g[v]    = c;
+               from[v] = j;
+               RsHeap.siftUp(heapKey, heapNode, nHeap++, c+estimate(v, iGoal), v);
+            }
+         }
+      }
+
+      if(g[iGoal]==Double.POSITIVE_INFINITY)
+         return null;   // should never happen, the component test covers it
+
+      int n = 1;
+      for(j=iGoal; j!=iStart; j=from[j])
+         n++;
+      double    [] x = new double[n];
+      double    [] y = new double[n];
+      RsNavNode [] p = new RsNavNode[n];
+      for(j=iGoal; n>0; j=from[j]){
+         n--;
+         x[n] = node[j].x;
+         y[n] = node[j].y;
+         p[n] = node[j];
+      }
+      return new RsNavRoute(x, y, p);
+   }
+
+
+   // a lower bound on the distance from node i to node goal
+   private double estimate(int i, int goal){
+      double h = distance(i, goal);
+      double a, b;
+      for(int k=0; k<nLandmark; k++){
+         a = landmarkDistance[k][i];
+         b = landmarkDistance[k][goal];
+         if(a==Double.POSITIVE_INFINITY || b==Double.POSITIVE_INFINITY)
+            continue;   // the landmark is in another component
+         if(a-b>h)
+            h = a-b;
+         else if(b-a>h)
+            h = b-a;
+      }
+      return h;
+   }
+
+   private double distance(int i, int j){
+      double dx = node[i].x-node[j].x;
+      double dy = node[i].y-node[j].y;
+      return Math.sqrt(dx*dx+dy*dy);
+   }
+
+   private int indexOf(RsNavNode n){
+      // the networks in floor plans are small enough that a linear
+      // search costs less than the search for the route
+      for(int i=0; i<nNode; i++)
+         if(node[i]==n)
+            return i;
+      return -1;
+   }
+
+   private static int farthest(double [] d){
+      int k = 0;
+      for(int i=1; i<d.length; i++)
+         if(d[i]>d[k])
+            k = i;
+      return k;
+   }
+
+   // Dijkstra's algorithm from the specified node.  unreachable
+   // nodes are given a distance of positive infinity.
+   private void computeDistances(int source, double [] d){
+      boolean [] done = new boolean[nNode];
+      for(int i=0; i<nNode; i++)
+         d[i] = Double.POSITIVE_INFINITY;
+      double [] heapKey  = new double[adjNode.length+1];
+      int    [] heapNode = new int[heapKey.length];
+      int       nHeap    = 0;
+      d[source] = 0;
+      RsHeap.siftUp(heapKey, heapNode, nHeap++, 0, source);
+      int    j, k;
+      double c;
+      while(nHeap>0){
+         j = heapNode[0];
+         nHeap--;
+         if(nHeap>0)
+            RsHeap.siftDown(heapKey, heapNode, nHeap, heapKey[nHeap], heapNode[nHeap]);
+         if(done[j])
+            continue;
+         done[j] = true;
+         for(k=adjStart[j]; k<adjStart[j+1]; k++){
+            c = d[j]+adjCost[k];
+            if(c<d[adjNode[k]]){
+               d[adjNode[k]] = c;
+               RsHeap.siftUp(heapKey, heapNode, nHeap++, c, adjNode[k]);
+            }
+         }
+      }
+   }
+
+
+   private final RsNavNode [] node;
+   private final int          nNode;
+   private final int       [] adjStart;
+   private final int       [] adjNode;
+   private final double    [] adjCost;
+   private final int       [] component;
+   private final double [][]  landmarkDistance;
+   private int                nLandmark;
+}
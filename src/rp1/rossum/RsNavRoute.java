@@ -0,0 +1,87 @@
+/*  -------------------------------------------------------------
+
+    Rossum's Playhouse  --  a client/server based robot simulator
+    Rossum's Playhouse is also known under the name "RP1".
+    Copyright (C) 1999  G.W. Lucas
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+----------------------------------------------------------------- */
+
+
+package rp1.rossum;
+
+/*
+   RsNavRoute.java    a path found by one of the path planners
+
+   A route is given as a list of waypoints, starting with the first
+   point the robot should head for and ending with the last.  The route
+   found on the navigation network (see RsNavPlanner) runs from node to
+   node, so each waypoint is also associated with the RsNavNode it
+   came from.  For waypoints which don't come from a node, the node
+   is null.
+
+   The length is the sum of the distances between consecutive waypoints.
+*/
+
+
+
+
+/**
+ * A list of waypoints produced by a path planner.
+ *
+ */
+
+public class RsNavRoute {
+
+   public RsNavRoute(double [] x, double [] y, RsNavNode [] node){
+      this.x    = x;
+      this.y    = y;
+      this.node = node;
+      double s  = 0;
+      for(int i=1; i<x.length; i++)
+         s += Math.sqrt((x[i]-x[i-1])*(x[i]-x[i-1])+(y[i]-y[i-1])*(y[i]-y[i-1]));
+      length = s;
+   }
+
+   public int getWaypointCount(){
+      return x.length;
+   }
+
+   public double getX(int index){
+      return x[index];
+   }
+
+   public double getY(int index){
+      return y[index];
+   }
+
+   /**
+    * Gets the navigation node associated with a waypoint,
+    * or null if the waypoint doesn't come from a node.
+    */
+   public RsNavNode getNode(int index){
+      return node==null ? null : node[index];
+   }
+
+   public double getLength(){
+      return length;
+   }
+
+
+   private final double    [] x, y;
+   private final RsNavNode [] node;
+   private final double       length;
+}
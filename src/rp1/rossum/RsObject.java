@@ -42,15 +42,17 @@ package rp1.rossum;
   different file-output class, it would mean I'd have to change code in
   a lot of different places.
 
-  On the other hand, RsObject and its derived classes DO include a
-  paint method.   Depiction is an important function of the simulator
-  and keeping the paint methods as part of the class definition has
-  obvious advantages.
-
   So, finally, I ripped to extraneous stuff and put it where it belongs.
   It cost me a day's effort.   I hope I can avoid similar wastes of time
   in the future.
 
+  For a while, RsObject and its derived classes DID still include a
+  paint method, since depiction is an important function of the simulator.
+  But that made the whole model depend on java.awt, even in clients and
+  headless simulators that never draw anything.  The paint methods
+  have since gone the same way as the text formatting, into RsRenderer,
+  and the colors are kept as RsColors rather than java.awt.Colors.
+
   Notes:
 
   the setGeometry() method is expected to populate the bounds (bounding rectangle)
@@ -59,10 +61,6 @@ package rp1.rossum;
 */
 
 
-import java.awt.Graphics;
-import java.awt.Color;
-
-
 
 /**
  * The abstract base class for all floor-plan objects.
@@ -101,16 +99,16 @@ public abstract class RsObject extends Object {
       selected = value;
    }
 
-   public void setColor(Color color){
+   public void setColor(RsColor color){
       fillColor = color;
       lineColor = color;
    }
 
-   public void setFillColor(Color color){
+   public void setFillColor(RsColor color){
       fillColor = color;
    }
 
-   public void setLineColor(Color color){
+   public void setLineColor(RsColor color){
       lineColor = color;
    }
 
@@ -123,15 +121,13 @@ public abstract class RsObject extends Object {
    public abstract void setGeometry(double [] a);
    public abstract double [] getGeometry();
 
-   public abstract void paint(Graphics g, RsTransform t);
-
    public    boolean     isGeometrySet;
    private   String      name;
    public    RsPlan      plan;
    private   RsRectangle bounds;
    protected boolean     selected;
-   public    Color       fillColor;
-   public    Color       lineColor;
+   public    RsColor     fillColor;
+   public    RsColor     lineColor;
    public    String      label;
 }
 
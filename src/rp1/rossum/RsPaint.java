@@ -23,8 +23,6 @@
 
 package rp1.rossum;
 
-import java.awt.*;
-
 
 
 /**
@@ -38,8 +36,8 @@ public  class RsPaint extends RsObject {
    public RsPaint(String nameReference, RsPlan planReference){
       super(nameReference, planReference);
       isGeometrySet = false;
-      fillColor     = Color.lightGray;
-      lineColor     = Color.lightGray;
+      fillColor     = RsColor.lightGray;
+      lineColor     = RsColor.lightGray;
    }
 
    @Override
@@ -106,26 +104,6 @@ public String getClassName(){
    }
 
 
-   @Override
-public void paint(Graphics g, RsTransform gt){
-
-      if(segmentArray==null && segmentArray.length<3)
-         return;
-
-      int    n     = segmentArray.length+1;
-      int [] xWall = new int[n];
-      int [] yWall = new int[n];
-
-      gt.iMapArray(n-1, segmentArray, xWall, yWall);
-      xWall[n-1]=xWall[0];
-      yWall[n-1]=yWall[0];
-
-      g.setColor(fillColor);
-      g.fillPolygon(xWall, yWall, n);
-      g.setColor(lineColor);
-      g.drawPolygon(xWall, yWall, n);
-   }
-
 
    public int getRegion(){
       return region;
@@ -23,7 +23,9 @@
 
 package rp1.rossum;
 
+import  rp1.rossum.event.RsPlanChangeEvent;
 import  rp1.rossum.event.RsTargetSelectionEvent;
+import  rp1.rossum.request.RsPlanChangeRequest;
 import  rp1.rossum.request.RsTargetSelectionRequest;
 
 /*
@@ -61,10 +63,28 @@ method is NOT synchronized and the same reference is shared by all objects
 that obtain the array. If a faulty method modifies the object array,
 it will damage it everywhere in the application.
 
+
+About Changes at Run Time
+
+The plan is no longer quite so static:  a simulation may add, move, or
+remove walls and other obstacles while it runs (a door swinging shut,
+a pallet dropped in an aisle).  See processPlanChangeRequest().  Such
+changes are handled incrementally.  Once the object array has been
+built, it is never modified;  a change replaces it with a new array,
+so that a thread which is in the middle of looping over the old one
+(the display, for instance) isn't disturbed.  The wall-segment batch
+and the wall index are only used by the simulator's scheduler thread,
+which is also the thread that makes the changes, so they are updated
+in place.  The protocol encoding of each object is cached for use in
+plan events, and only the encoding of a changed object is discarded.
+The version number is incremented with each change so that anything
+derived from the plan can tell whether it is out of date.
+
 */
 
 
 
+import java.io.IOException;
 import java.util.*;
 
 
@@ -83,8 +103,14 @@ public class RsPlan
    private RsObject    []               objectArray;
    private RsNavLink   []               linkArray;
    private RsNavNode   []               nodeArray;
-   
+   private RsSegmentBatch               wallSegmentBatch;
+   private RsWallIndex                  wallIndex;
+   private RsNavPlanner                 navPlanner;
+   private IdentityHashMap <RsObject, byte[]> encodingTable;
+
    private int            serialNumber;
+   private int            version;
+   private int            selectionVersion;
 
    private RsUnits        units;
    private String         caption;
@@ -158,13 +184,110 @@ public class RsPlan
    public void addObject(RsObject object){
          objectList.add(object);
          identifierTable.put(object.getName(), object);
-         // the old arrays are no longer correct reflections
-         // of what's in the object Vector...  nulling them out
-         // will force their recalculation when the various
-         // "get" methods are called.
-         objectArray = null;
-         linkArray=null;
-         nodeArray=null;
+         version++;
+         // if the arrays haven't been built yet (as when the plan
+         // is being loaded), they'll be built from the object list
+         // when the various "get" methods are called.  otherwise,
+         // they are brought up to date (see "About Changes at Run Time").
+         if(objectArray!=null){
+            RsObject [] a = new RsObject[objectArray.length+1];
+            System.arraycopy(objectArray, 0, a, 0, objectArray.length);
+            a[objectArray.length] = object;
+            objectArray = a;
+            if(object instanceof RsNavNode || object instanceof RsNavLink)
+               makeNavArrays();
+         }
+         if(object instanceof RsWall){
+            RsWall wall = (RsWall)object;
+            if(wallSegmentBatch!=null && wall.segmentArray!=null)
+               wallSegmentBatch.add(wall.segmentArray, wall.segmentArray.length, wall);
+            if(wallIndex!=null)
+               wallIndex.addWall(wall);
+         }
+   }
+
+   /**
+    * Removes an object from the plan.  Returns false if the object
+    * is not in the plan, or if it is a navigation node that is
+    * still used by a link.
+    */
+   public boolean removeObject(RsObject object){
+      if(identifierTable.get(object.getName())!=object)
+         return false;
+      if(object instanceof RsNavNode){
+         RsNavLink [] link = getNavLinkArray();
+         if(link!=null){
+            for(int i=0; i<link.length; i++)
+               if(link[i].n0==object || link[i].n1==object)
+                  return false;
+         }
+      }
+
+      objectList.remove(object);
+      identifierTable.remove(object.getName());
+      version++;
+      if(objectArray!=null){
+         if(objectList.size()==0){
+            objectArray = null;
+         }else{
+            RsObject [] a = new RsObject[objectArray.length-1];
+            int k=0;
+            for(int i=0; i<objectArray.length; i++)
+               if(objectArray[i]!=object)
+                  a[k++]=objectArray[i];
+            objectArray = a;
+         }
+         if(object instanceof RsNavNode || object instanceof RsNavLink)
+            makeNavArrays();
+      }
+      if(object instanceof RsWall){
+         if(wallSegmentBatch!=null)
+            wallSegmentBatch.removeOwner(object);
+         if(wallIndex!=null)
+            wallIndex.removeWall((RsWall)object);
+      }
+      discardEncodedObject(object);
+      return true;
+   }
+
+   /**
+    * Changes the geometry of an object in the plan (to move a wall,
+    * for example) and brings the wall batch and index up to date.
+    * Returns false if the object is not in the plan.
+    */
+   public boolean setObjectGeometry(RsObject object, double [] geometry){
+      if(identifierTable.get(object.getName())!=object)
+         return false;
+      if(object instanceof RsWall && wallSegmentBatch!=null)
+         wallSegmentBatch.removeOwner(object);
+      object.setGeometry(geometry);
+      version++;
+      if(object instanceof RsWall){
+         RsWall wall = (RsWall)object;
+         if(wallSegmentBatch!=null && wall.segmentArray!=null)
+            wallSegmentBatch.add(wall.segmentArray, wall.segmentArray.length, wall);
+         if(wallIndex!=null)
+            wallIndex.updateWall(wall);
+      }
+      discardEncodedObject(object);
+      return true;
+   }
+
+   /**
+    * Gets a number which is incremented each time an object
+    * is added to, removed from, or changed in the plan.
+    */
+   public int getVersion(){
+      return version;
+   }
+
+   /**
+    * Gets a number which is incremented each time the selection
+    * status of a target is changed through processTargetSelectionRequest()
+    * or applyTargetSelectionEvent().
+    */
+   public int getSelectionVersion(){
+      return selectionVersion;
    }
 
 
@@ -184,6 +307,77 @@ public class RsPlan
    }
 
 
+   /**
+    * Returns the segments of all walls in the plan packed into
+    * a single batch for intersection testing (each segment's owner
+    * is the RsWall it belongs to).  Returns null if the plan is empty.
+    * As with the object array, the same reference is shared by
+    * all callers and must not be modified.
+    */
+   public RsSegmentBatch getWallSegmentBatch(){
+      if(wallSegmentBatch!=null)
+         return wallSegmentBatch;
+      RsObject [] o = getObjectArray();
+      if(o==null)
+         return null;
+      int i, n=0;
+      for(i=0; i<o.length; i++){
+         if(o[i] instanceof RsWall && ((RsWall)o[i]).segmentArray!=null)
+            n+=((RsWall)o[i]).segmentArray.length;
+      }
+      RsSegmentBatch batch = new RsSegmentBatch(n);
+      for(i=0; i<o.length; i++){
+         if(o[i] instanceof RsWall){
+            RsWall wall = (RsWall)o[i];
+            if(wall.segmentArray!=null)
+               batch.add(wall.segmentArray, wall.segmentArray.length, wall);
+         }
+      }
+      wallSegmentBatch = batch;
+      return wallSegmentBatch;
+   }
+
+
+   /**
+    * Returns the planner for routes over the navigation network, or null
+    * if the plan has no navigation nodes.  The planner is built the first
+    * time it is requested and then shared by all callers (see RsNavPlanner).
+    */
+   public synchronized RsNavPlanner getNavPlanner(){
+      if(navPlanner!=null)
+         return navPlanner;
+      RsNavNode [] node = getNavNodeArray();
+      if(node==null)
+         return null;
+      navPlanner = new RsNavPlanner(node, getNavLinkArray());
+      return navPlanner;
+   }
+
+
+   /**
+    * Returns a spatial index of the walls in the plan, or null
+    * if the plan is empty.  See RsWallIndex for usage restrictions.
+    */
+   public RsWallIndex getWallIndex(){
+      if(wallIndex!=null)
+         return wallIndex;
+      RsObject [] o = getObjectArray();
+      if(o==null)
+         return null;
+      int i, n=0;
+      for(i=0; i<o.length; i++)
+         if(o[i] instanceof RsWall)
+            n++;
+      RsWall [] w = new RsWall[n];
+      n=0;
+      for(i=0; i<o.length; i++)
+         if(o[i] instanceof RsWall)
+            w[n++]=(RsWall)o[i];
+      wallIndex = new RsWallIndex(w);
+      return wallIndex;
+   }
+
+
    public RsTargetSelectionEvent []
       processTargetSelectionRequest(double simTime, RsTargetSelectionRequest req){
 
@@ -259,6 +453,7 @@ public class RsPlan
            n++;
       if(n==0)
          return null;
+      selectionVersion++;
 
       RsTargetSelectionEvent [] event = new RsTargetSelectionEvent[n];
 
@@ -273,8 +468,109 @@ public class RsPlan
    public void applyTargetSelectionEvent(RsTargetSelectionEvent event){
 
       RsObject o = getObjectByName(event.targetName);
-      if(o!=null && o instanceof RsTarget)
+      if(o!=null && o instanceof RsTarget){
          o.setSelected(event.status);
+         selectionVersion++;
+      }
+   }
+
+
+   /**
+    * Adds, moves, or removes an object as specified by the request
+    * and returns an event describing the change.  Only walls, targets,
+    * placements, and paint regions may be changed (the navigation
+    * network is not).  Returns null if the request is not valid:  if
+    * the object to be added has the name of one already in the plan,
+    * if the object to be moved or removed is not in the plan,
+    * or if the geometry is not suitable for the object.
+    */
+   public RsPlanChangeEvent
+      processPlanChangeRequest(double simTime, RsPlanChangeRequest req){
+
+      RsObject o;
+
+      if(req.change==RsPlanChangeRequest.ADD_OBJECT){
+         if(!(req.object instanceof RsObject))
+            return null;
+         o = (RsObject)req.object;
+         if(getObjectByName(o.getName())!=null || !isGeometryValid(o, o.getGeometry()))
+            return null;
+         o.plan = this;
+         addObject(o);
+         return new RsPlanChangeEvent(simTime, RsPlanChangeEvent.OBJECT_ADDED, o.getName(), o);
+      }
+
+      o = getObjectByName(req.name);
+      if(o==null || o instanceof RsNavNode || o instanceof RsNavLink)
+         return null;
+
+      if(req.change==RsPlanChangeRequest.MOVE_OBJECT){
+         if(!isGeometryValid(o, req.geometry))
+            return null;
+         setObjectGeometry(o, req.geometry);
+         return new RsPlanChangeEvent(simTime, RsPlanChangeEvent.OBJECT_MOVED, o.getName(), o);
+      }else if(req.change==RsPlanChangeRequest.REMOVE_OBJECT){
+         removeObject(o);
+         return new RsPlanChangeEvent(simTime, RsPlanChangeEvent.OBJECT_REMOVED, o.getName(), null);
+      }
+
+      return null;
+   }
+
+   /**
+    * Applies a change received from the simulator to a client's copy
+    * of the plan.
+    */
+   public void applyPlanChangeEvent(RsPlanChangeEvent event){
+
+      RsObject o = getObjectByName(event.objectName);
+      if(event.change==RsPlanChangeEvent.OBJECT_ADDED){
+         if(o==null && event.object instanceof RsObject){
+            o = (RsObject)event.object;
+            o.plan = this;
+            addObject(o);
+         }
+      }else if(event.change==RsPlanChangeEvent.OBJECT_MOVED){
+         if(o!=null && event.object instanceof RsObject)
+            setObjectGeometry(o, ((RsObject)event.object).getGeometry());
+      }else if(event.change==RsPlanChangeEvent.OBJECT_REMOVED){
+         if(o!=null)
+            removeObject(o);
+      }
+   }
+
+   private static boolean isGeometryValid(RsObject o, double [] g){
+      if(g==null)
+         return false;
+      if(o instanceof RsWall || o instanceof RsPaint)
+         return g.length>=6 && g.length%2==0;
+      if(o instanceof RsTarget)
+         return g.length>=3;
+      if(o instanceof RsPlacement)
+         return g.length>=4;
+      return false;
+   }
+
+
+   /**
+    * Gets the protocol encoding of an object (see RsPlanEncoder).
+    * The encoding is cached until the object is changed, so
+    * sending the plan to several clients only encodes it once.
+    */
+   synchronized byte [] getEncodedObject(RsObject object) throws IOException {
+      if(encodingTable==null)
+         encodingTable = new IdentityHashMap<RsObject, byte[]>();
+      byte [] b = encodingTable.get(object);
+      if(b==null){
+         b = RsPlanEncoder.encodeObject(object);
+         encodingTable.put(object, b);
+      }
+      return b;
+   }
+
+   private synchronized void discardEncodedObject(RsObject object){
+      if(encodingTable!=null)
+         encodingTable.remove(object);
    }
 
 
@@ -290,15 +586,22 @@ public class RsPlan
          return; // nothing to be done...  the floor plan is empty
 
       objectArray = (RsObject []) objectList.toArray(new RsObject[objectList.size()]);
+      makeNavArrays();
+   }
 
+   private void makeNavArrays(){
       int i;
       int nNode=0;
       int nLink=0;
-      for(i=0; i<objectArray.length; i++){
-         if(objectArray[i] instanceof RsNavLink)
-            nLink++;
-         else if(objectArray[i] instanceof RsNavNode)
-            nNode++;
+      RsNavNode [] node = null;
+      RsNavLink [] link = null;
+      if(objectArray!=null){
+         for(i=0; i<objectArray.length; i++){
+            if(objectArray[i] instanceof RsNavLink)
+               nLink++;
+            else if(objectArray[i] instanceof RsNavNode)
+               nNode++;
+         }
       }
 
       // note that if either nLink or nNode are non-zero, then
@@ -306,18 +609,21 @@ public class RsPlan
       // (it's possible to have nodes without links, but not
       // links without nodes)
       if(nNode>0){
-         nodeArray = new RsNavNode[nNode];
+         node = new RsNavNode[nNode];
          if(nLink>0)
-            linkArray = new RsNavLink[nLink];
+            link = new RsNavLink[nLink];
          nLink=0;
          nNode=0;
          for(i=0; i<objectArray.length; i++){
             if(objectArray[i] instanceof RsNavNode)
-               nodeArray[nNode++]=(RsNavNode)objectArray[i];
+               node[nNode++]=(RsNavNode)objectArray[i];
             if(objectArray[i] instanceof RsNavLink)
-               linkArray[nLink++]=(RsNavLink)objectArray[i];
+               link[nLink++]=(RsNavLink)objectArray[i];
          }
       }
+      nodeArray  = node;
+      linkArray  = link;
+      navPlanner = null;
    }
 
    public void maximizeSerialNumber(int value){
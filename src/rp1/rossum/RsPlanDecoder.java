@@ -26,7 +26,6 @@ package rp1.rossum;
 
 
 import java.io.*;
-import java.awt.Color;
 
 class RsPlanDecoder {
 
@@ -34,18 +33,10 @@ class RsPlanDecoder {
 
       DataInputStream   input = protocol.input;   // merely to save me some typing
       RsPlan            plan;
-      RsWall            wall;
-      RsTarget          target;
-      RsPlacement       placement;
-      RsNavNode         navNode;
-      RsNavLink         navLink;
-      RsPaint           paint;
-
 
       String            string;
       int               nObject;
       int               index;
-      String            name;
 
       index = input.readInt();
       if(index==0)
@@ -57,70 +48,97 @@ class RsPlanDecoder {
       plan.setCaption(string);
 
       nObject = input.readInt();
-      for(int i=0; i<nObject; i++){
-         index = input.readInt();
-         name = protocol.readString();
-         if(index == RsProtocol.PLAN_WALL){
-            wall = new RsWall(name, plan);
-            double [] g = receiveGeometry(input);
-            if(g!=null)
-               wall.setGeometry(g);
-            plan.addObject(wall);
-
-         }else if(index == RsProtocol.PLAN_TARGET){
-            target = new RsTarget(name, plan);
-            double [] g = receiveGeometry(input);
-            if(g!=null)
-               target.setGeometry(g);
-            plan.addObject(target);
-
-         }else if(index == RsProtocol.PLAN_PLACEMENT){
-            placement = new RsPlacement(name, plan);
-            double [] g = receiveGeometry(input);
-            if(g!=null)
-               placement.setGeometry(g);
-            plan.addObject(placement);
-
-         }else if(index == RsProtocol.PLAN_NAV_NODE){
-            navNode = new RsNavNode(name, plan);
-            double []nodeCoordinate = new double[2];
-            nodeCoordinate[0] = input.readDouble();
-            nodeCoordinate[1] = input.readDouble();
-            navNode.setGeometry(nodeCoordinate);
-            string = protocol.readString();
-            navNode.setLabel(string);
-            navNode.setColor(receiveColor(input));
-            plan.addObject(navNode);
-
-         }else if(index == RsProtocol.PLAN_NAV_LINK){
-            navLink = new RsNavLink(name, plan);
-            String  name0 = protocol.readString();
-            String  name1 = protocol.readString();
-            RsNavNode node0 = (RsNavNode)plan.getObjectByName(name0);
-            RsNavNode node1 = (RsNavNode)plan.getObjectByName(name1);
-            if(node0==null || node1==null)
-               throw new IOException("Invalid nodes for link "+name+": "+name0+", "+name1);
-            navLink.setNodes(node0, node1);
-            string = protocol.readString();
-            navLink.setLabel(string);
-            navLink.setColor(receiveColor(input));
-            plan.addObject(navLink);
-
-         }else if(index == RsProtocol.PLAN_PAINT){
-            paint = new RsPaint(name, plan);
-            double [] g = receiveGeometry(input);
-            if(g!=null)
-               paint.setGeometry(g);
-            paint.setColor(receiveColor(input));
-            plan.addObject(paint);
-
-         }else{
-            // this will never happen unless somebody makes a coding mistake
-            throw new IOException("Attempt to encode unimplemented plan object");
+      for(int i=0; i<nObject; i++)
+         plan.addObject(receiveObject(protocol, plan));
+
+      return plan;
+   }
+
+
+   /**
+    * Reads the specification for a single object (see RsPlanEncoder).
+    * The object is associated with the specified plan, but is not added
+    * to it.  The plan is needed to find the nodes for a navigation link,
+    * so a link cannot be received if the plan is null.
+    */
+   static RsObject receiveObject(RsProtocol protocol, RsPlan plan) throws IOException {
+
+      DataInputStream   input = protocol.input;
+      RsWall            wall;
+      RsTarget          target;
+      RsPlacement       placement;
+      RsNavNode         navNode;
+      RsNavLink         navLink;
+      RsPaint           paint;
+
+      String            string;
+      int               index;
+      String            name;
+
+      index = input.readInt();
+      name = protocol.readString();
+      if(index == RsProtocol.PLAN_WALL){
+         wall = new RsWall(name, plan);
+         double [] g = receiveGeometry(input);
+         if(g!=null)
+            wall.setGeometry(g);
+         return wall;
+
+      }else if(index == RsProtocol.PLAN_TARGET){
+         target = new RsTarget(name, plan);
+         double [] g = receiveGeometry(input);
+         if(g!=null)
+            target.setGeometry(g);
+         return target;
+
+      }else if(index == RsProtocol.PLAN_PLACEMENT){
+         placement = new RsPlacement(name, plan);
+         double [] g = receiveGeometry(input);
+         if(g!=null)
+            placement.setGeometry(g);
+         return placement;
+
+      }else if(index == RsProtocol.PLAN_NAV_NODE){
+         navNode = new RsNavNode(name, plan);
+         double []nodeCoordinate = new double[2];
+         nodeCoordinate[0] = input.readDouble();
+         nodeCoordinate[1] = input.readDouble();
+         navNode.setGeometry(nodeCoordinate);
+         string = protocol.readString();
+         navNode.setLabel(string);
+         navNode.setColor(receiveColor(input));
+         return navNode;
+
+      }else if(index == RsProtocol.PLAN_NAV_LINK){
+         navLink = new RsNavLink(name, plan);
+         String  name0 = protocol.readString();
+         String  name1 = protocol.readString();
+         RsNavNode node0 = null;
+         RsNavNode node1 = null;
+         if(plan!=null){
+            node0 = (RsNavNode)plan.getObjectByName(name0);
+            node1 = (RsNavNode)plan.getObjectByName(name1);
          }
+         if(node0==null || node1==null)
+            throw new IOException("Invalid nodes for link "+name+": "+name0+", "+name1);
+         navLink.setNodes(node0, node1);
+         string = protocol.readString();
+         navLink.setLabel(string);
+         navLink.setColor(receiveColor(input));
+         return navLink;
+
+      }else if(index == RsProtocol.PLAN_PAINT){
+         paint = new RsPaint(name, plan);
+         double [] g = receiveGeometry(input);
+         if(g!=null)
+            paint.setGeometry(g);
+         paint.setColor(receiveColor(input));
+         return paint;
+
       }
 
-      return plan;
+      // this will never happen unless somebody makes a coding mistake
+      throw new IOException("Attempt to encode unimplemented plan object");
    }
 
 
@@ -135,7 +153,7 @@ class RsPlanDecoder {
       return g;
    }
 
-   static Color receiveColor(DataInputStream input) throws IOException {
+   static RsColor receiveColor(DataInputStream input) throws IOException {
       int index=input.readInt();
       if(index==0){
          return null;
@@ -143,7 +161,7 @@ class RsPlanDecoder {
          int r = input.readInt();
          int g = input.readInt();
          int b = input.readInt();
-         return new Color(r,g,b);
+         return new RsColor(r,g,b);
       }
    }
 }
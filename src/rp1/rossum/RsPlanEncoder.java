@@ -26,7 +26,6 @@ package rp1.rossum;
 
 
 import java.io.*;
-import java.awt.Color;
 
 class RsPlanEncoder {
 
@@ -35,12 +34,6 @@ class RsPlanEncoder {
       DataOutputStream  output = protocol.output;   // merely to save some typing
 
       RsObject  [] object;
-      RsWall       wall;
-      RsTarget     target;
-      RsPlacement  placement;
-      RsNavNode    navNode;
-      RsNavLink    navLink;
-      RsPaint      paint;
 
       if(plan==null){
          output.writeInt(0);
@@ -52,73 +45,118 @@ class RsPlanEncoder {
 
       protocol.writeString(plan.getCaption());
 
-      // send plan object specifications
+      // send plan object specifications.  the encoding of each
+      // object is cached by the plan (see RsPlan.getEncodedObject),
+      // so it only has to be worked out once.
 
       object = plan.getObjectArray();
       if(object == null)
          throw new IOException("Attempt to send an empty plan definition");
 
       output.writeInt(object.length);
-      for(int i=0; i<object.length; i++){
-         // send object-specific elements
-
-         if(object[i] instanceof RsWall){
-            wall = (RsWall)(object[i]);
-            output.writeInt(RsProtocol.PLAN_WALL);
-            protocol.writeString(object[i].getName());
-            sendGeometry(output, wall.getGeometry());
-
-         }else if(object[i] instanceof RsTarget){
-            target = (RsTarget)(object[i]);
-            output.writeInt(RsProtocol.PLAN_TARGET);
-            protocol.writeString(object[i].getName());
-            sendGeometry(output, target.getGeometry());
-
-         }else if(object[i] instanceof RsPlacement){
-            placement = (RsPlacement)(object[i]);
-            output.writeInt(RsProtocol.PLAN_PLACEMENT);
-            protocol.writeString(object[i].getName());
-            sendGeometry(output, placement.getGeometry());
-
-         }else if(object[i] instanceof RsNavNode){
-            navNode = (RsNavNode)(object[i]);
-            output.writeInt(RsProtocol.PLAN_NAV_NODE);
-            protocol.writeString(navNode.getName());
-            output.writeDouble(navNode.x);
-            output.writeDouble(navNode.y);
-            protocol.writeString(navNode.label);
-            sendColor(output, navNode.lineColor);
-
-         }else if(object[i] instanceof RsNavLink){
-            navLink = (RsNavLink)(object[i]);
-            output.writeInt(RsProtocol.PLAN_NAV_LINK);
-            protocol.writeString(navLink.getName());
-            protocol.writeString(navLink.n0.getName());
-            protocol.writeString(navLink.n1.getName());
-            protocol.writeString(navLink.label);
-            sendColor(output, navLink.lineColor);
-
-         }else if(object[i] instanceof RsPaint){
-            paint = (RsPaint)(object[i]);
-            output.writeInt(RsProtocol.PLAN_PAINT);
-            protocol.writeString(object[i].getName());
-            sendGeometry(output, paint.getGeometry());
-            sendColor(output, paint.fillColor);
-         }
-      }
+      for(int i=0; i<object.length; i++)
+         output.write(plan.getEncodedObject(object[i]));
 
 
       output.flush();
    }
 
 
-   private static void sendGeometry(DataOutputStream output, double [] geometry) throws IOException{
+   /**
+    * Sends the specification for a single object, as used in the
+    * plan-change request and event.  The format is the same as
+    * that of the objects sent with the plan.
+    */
+   static void sendObject(RsProtocol protocol, RsObject object) throws IOException {
+      if(object.plan!=null)
+         protocol.output.write(object.plan.getEncodedObject(object));
+      else
+         protocol.output.write(encodeObject(object));
+   }
+
+
+   static byte [] encodeObject(RsObject object) throws IOException {
+
+      ByteArrayOutputStream bytes  = new ByteArrayOutputStream();
+      DataOutputStream      output = new DataOutputStream(bytes);
+
+      RsWall       wall;
+      RsTarget     target;
+      RsPlacement  placement;
+      RsNavNode    navNode;
+      RsNavLink    navLink;
+      RsPaint      paint;
+
+      // send object-specific elements
+
+      if(object instanceof RsWall){
+         wall = (RsWall)(object);
+         output.writeInt(RsProtocol.PLAN_WALL);
+         writeString(output, object.getName());
+         sendGeometry(output, wall.getGeometry());
+
+      }else if(object instanceof RsTarget){
+         target = (RsTarget)(object);
+         output.writeInt(RsProtocol.PLAN_TARGET);
+         writeString(output, object.getName());
+         sendGeometry(output, target.getGeometry());
+
+      }else if(object instanceof RsPlacement){
+         placement = (RsPlacement)(object);
+         output.writeInt(RsProtocol.PLAN_PLACEMENT);
+         writeString(output, object.getName());
+         sendGeometry(output, placement.getGeometry());
+
+      }else if(object instanceof RsNavNode){
+         navNode = (RsNavNode)(object);
+         output.writeInt(RsProtocol.PLAN_NAV_NODE);
+         writeString(output, navNode.getName());
+         output.writeDouble(navNode.x);
+         output.writeDouble(navNode.y);
+         writeString(output, navNode.label);
+         sendColor(output, navNode.lineColor);
+
+      }else if(object instanceof RsNavLink){
+         navLink = (RsNavLink)(object);
+         output.writeInt(RsProtocol.PLAN_NAV_LINK);
+         writeString(output, navLink.getName());
+         writeString(output, navLink.n0.getName());
+         writeString(output, navLink.n1.getName());
+         writeString(output, navLink.label);
+         sendColor(output, navLink.lineColor);
+
+      }else if(object instanceof RsPaint){
+         paint = (RsPaint)(object);
+         output.writeInt(RsProtocol.PLAN_PAINT);
+         writeString(output, object.getName());
+         sendGeometry(output, paint.getGeometry());
+         sendColor(output, paint.fillColor);
+
+      }else{
+         // this will never happen unless somebody makes a coding mistake
+         throw new IOException("Attempt to encode unimplemented plan object");
+      }
+
+      output.flush();
+      return bytes.toByteArray();
+   }
+
+
+   // the same as RsProtocol.writeString(), but for an arbitrary stream
+   private static void writeString(DataOutputStream output, String s) throws IOException {
+      if(s==null || s.length()==0)
+         output.writeShort(0);
+      else
+         output.writeUTF(s);
+   }
+
+   static void sendGeometry(DataOutputStream output, double [] geometry) throws IOException{
        output.writeInt(geometry.length);
        for(int i=0; i<geometry.length; i++)
           output.writeDouble(geometry[i]);
    }
 
-   private static void sendColor(DataOutputStream  output, Color color) throws IOException{
+   private static void sendColor(DataOutputStream  output, RsColor color) throws IOException{
       if(color==null){
          output.writeInt(0);
       }else{
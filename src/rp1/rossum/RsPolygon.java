@@ -150,8 +150,16 @@ public int          nSegment;
       if(nSegment<3)
          throw new RsPolygonException("Insufficient number of points/segments for polygon");
 
+      // the end point of the last segment is computed as x+v.x, which
+      // may differ from the start of the first segment by round-off
+      // even when the caller built a closed loop.  so we test for
+      // closure with a tolerance rather than exact equality.
       RsSegment s = segment[nSegment-1];
-      if(s.x+s.v.x==segment[0].x && s.y+s.v.y==segment[0].y){
+      double    xEnd = s.x+s.v.x;
+      double    yEnd = s.y+s.v.y;
+      double    dx   = xEnd-segment[0].x;
+      double    dy   = yEnd-segment[0].y;
+      if(dx*dx+dy*dy<1.0e-12){
          n = nSegment;  // the input segments close a loop
       }else{
          n = nSegment+1; // add a synthetic segment to close the loop
@@ -162,10 +170,12 @@ public int          nSegment;
       for(int i=0; i<nSegment; i++)
          this.segment[i] = new RsSegment(segment[i]);
       if(n>nSegment){
+         // the synthetic segment runs from the end of the last
+         // segment back to the start of the first
          this.segment[nSegment] =
             new RsSegment(
-               segment[nSegment-1].x, segment[nSegment-1].y,
-               segment[0].x,          segment[0].y);
+               xEnd,          yEnd,
+               segment[0].x,  segment[0].y);
       }
 
       checkConsistency();
@@ -196,7 +196,6 @@ package rp1.rossum;
 
 import java.io.*;
 import java.net.*;
-import java.awt.Color;
 
 
 
@@ -221,7 +220,12 @@ public class RsProtocol implements RsLogInterface {
    protected boolean                   verbosity;
    private   boolean                   loggerIsSet;
 
-   protected static final int VERSION = 0;
+   // the version must be changed whenever the encoding of a message
+   // changes, so that mismatched clients and servers are turned away at
+   // the handshake rather than falling out of step partway through a message.
+   //    1  sensor body parts carry their sampling interval
+   //    2  wheel systems carry their acceleration parameters
+   protected static final int VERSION = 2;
 
    /* general transactions */
    protected static final int MAX_TRANSACTION_CODE   = 6;
@@ -246,6 +250,7 @@ public class RsProtocol implements RsLogInterface {
    protected static final int BODY_RANGE_SENSOR   = 7;
    protected static final int BODY_PAINT_SENSOR   = 8;
    protected static final int BODY_PAINTER        = 9;
+   protected static final int BODY_SCANNING_RANGE_SENSOR = 10;
 
    // floor-plan identification codes
    protected static final int UNDEFINED_PLAN_OBJECT = 0;
@@ -282,7 +287,10 @@ public class RsProtocol implements RsLogInterface {
       "Heartbeat",
       "Painter Change",
       "Actuator Control",
-      "Encoder Status"
+      "Encoder Status",
+      "Plan Change",
+      "Trajectory",
+      "Route"
    };
 
 
@@ -301,7 +309,10 @@ public class RsProtocol implements RsLogInterface {
       "Floor Plan",
       "Paint Sensor",
       "Heartbeat",
-      "Encoder Status"
+      "Encoder Status",
+      "Scanning Range Sensor",
+      "Plan Change",
+      "Route"
    };
 
 
@@ -452,7 +463,7 @@ public class RsProtocol implements RsLogInterface {
    }
 
 
-   protected void writeColor(Color color) throws IOException{
+   protected void writeColor(RsColor color) throws IOException{
       if(color==null){
          output.writeInt(0);
       }else{
@@ -463,7 +474,7 @@ public class RsProtocol implements RsLogInterface {
       }
    }
 
-   protected void writeColorArray(Color [] color) throws IOException {
+   protected void writeColorArray(RsColor [] color) throws IOException {
       if(color==null){
         output.writeInt(0);
       }else{
@@ -473,7 +484,7 @@ public class RsProtocol implements RsLogInterface {
       }
    }
 
-   protected Color readColor() throws IOException {
+   protected RsColor readColor() throws IOException {
       int i = input.readInt();
       if(i==0)
          return null;
@@ -481,14 +492,14 @@ public class RsProtocol implements RsLogInterface {
       r = input.readInt();
       g = input.readInt();
       b = input.readInt();
-      return new Color(r, g, b);
+      return new RsColor(r, g, b);
    }
 
-   protected Color [] readColorArray() throws IOException {
+   protected RsColor [] readColorArray() throws IOException {
       int nColor = input.readInt();
       if(nColor==0)
          return null;
-      Color [] color = new Color[nColor];
+      RsColor [] color = new RsColor[nColor];
       for(int i=0; i<nColor; i++)
         color[i] = readColor();
       return color;
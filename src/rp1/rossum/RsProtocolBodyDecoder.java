@@ -26,7 +26,6 @@ package rp1.rossum;
 
 
 import java.io.*;
-import java.awt.Color;
 
 class RsProtocolBodyDecoder {
 
@@ -111,6 +110,24 @@ class RsProtocolBodyDecoder {
                               xDetector, yDetector, sightAngle,
                               maxRange, nRangeBin);
 
+         }else if(index==RsProtocol.BODY_SCANNING_RANGE_SENSOR){
+            int nCoordinate = input.readInt()*2;
+            double [] c = new double[nCoordinate];
+            for(int j=0; j<nCoordinate; j++)
+               c[j]=input.readDouble();
+            double xDetector   = input.readDouble();
+            double yDetector   = input.readDouble();
+            double sightAngle  = input.readDouble();
+            double fieldOfView = input.readDouble();
+            int    nBeam       = input.readInt();
+            double maxRange    = input.readDouble();
+            int    nRangeBin   = input.readInt();
+            part[i] = new RsBodyScanningRangeSensor(
+                              c, nCoordinate/2,
+                              xDetector, yDetector, sightAngle,
+                              fieldOfView, nBeam,
+                              maxRange, nRangeBin);
+
          }else if(index==RsProtocol.BODY_PAINT_SENSOR){
             RsBodyPaintSensor pSensor;
             int nCoordinate = input.readInt()*2;
@@ -176,6 +193,8 @@ class RsProtocolBodyDecoder {
               if(wEncoderIntervalCount>0)
                    wheel.addEncoder(wEncoderIntervalCount);
             }
+            wheelSystem.setLinearAccelerationLimit(receiveAccelerationParameter(input));
+            wheelSystem.setRotationalAccelerationLimit(receiveAccelerationParameter(input));
 
             part[i] = wheelSystem;
 
@@ -197,6 +216,8 @@ class RsProtocolBodyDecoder {
          part[i].setLineColor(receiveColor(input));
          part[i].hotFillColor=receiveColor(input);
          part[i].hotLineColor=receiveColor(input);
+         if(part[i] instanceof RsBodySensor)
+            ((RsBodySensor)part[i]).setSamplingInterval(input.readDouble());
 
          body.addPart(part[i]);
 
@@ -208,7 +229,15 @@ class RsProtocolBodyDecoder {
       return body;
    }
 
-   static Color receiveColor(DataInputStream input) throws IOException {
+   static RsAccelerationParameter receiveAccelerationParameter(DataInputStream input) throws IOException {
+      if(input.readInt()==0)
+         return null;
+      double velocity     = input.readDouble();
+      double acceleration = input.readDouble();
+      return new RsAccelerationParameter(velocity, acceleration);
+   }
+
+   static RsColor receiveColor(DataInputStream input) throws IOException {
       int index=input.readInt();
       if(index==0){
          return null;
@@ -216,7 +245,7 @@ class RsProtocolBodyDecoder {
          int r = input.readInt();
          int g = input.readInt();
          int b = input.readInt();
-         return new Color(r,g,b);
+         return new RsColor(r,g,b);
       }
    }
 }
@@ -35,7 +35,6 @@ package rp1.rossum;
 
 
 import java.io.*;
-import java.awt.Color;
 
 class RsProtocolBodyEncoder {
 
@@ -58,6 +57,7 @@ class RsProtocolBodyEncoder {
       RsBodyTargetSensor  tSensor;
       RsBodyContactSensor cSensor;
       RsBodyRangeSensor   rSensor;
+      RsBodyScanningRangeSensor sSensor;
       RsBodyPaintSensor   pSensor;
       protocol.writeString(body.name);
 
@@ -111,6 +111,18 @@ class RsProtocolBodyEncoder {
             output.writeDouble(rSensor.maxRange);
             output.writeInt(rSensor.nRangeBin);
 
+         }else if(parts[i] instanceof RsBodyScanningRangeSensor){
+            sSensor = (RsBodyScanningRangeSensor)parts[i];
+            output.writeInt(RsProtocol.BODY_SCANNING_RANGE_SENSOR);
+            sendSegment(output, sSensor.refSegment);
+            output.writeDouble(sSensor.xDetector);
+            output.writeDouble(sSensor.yDetector);
+            output.writeDouble(sSensor.sightAngle);
+            output.writeDouble(sSensor.fieldOfView);
+            output.writeInt(sSensor.nBeam);
+            output.writeDouble(sSensor.maxRange);
+            output.writeInt(sSensor.nRangeBin);
+
          }else if(parts[i] instanceof RsBodyPaintSensor){
             pSensor = (RsBodyPaintSensor)parts[i];
             output.writeInt(RsProtocol.BODY_PAINT_SENSOR);
@@ -168,6 +180,8 @@ class RsProtocolBodyEncoder {
                   output.writeInt(   ws.wheels[iWheel].encoderIntervalCount);
                }
             }
+            sendAccelerationParameter(output, ws.linearLimit);
+            sendAccelerationParameter(output, ws.rotationalLimit);
 
          }else if(parts[i] instanceof RsBodyShape){
             // note that most body parts are derived from RsBodyShape,
@@ -189,13 +203,15 @@ class RsProtocolBodyEncoder {
          sendColor(output, parts[i].lineColor);
          sendColor(output, parts[i].hotFillColor);
          sendColor(output, parts[i].hotLineColor);
+         if(parts[i] instanceof RsBodySensor)
+            output.writeDouble(((RsBodySensor)parts[i]).getSamplingInterval());
       }
 
       output.flush();
    }
 
 
-   private static void sendColor(DataOutputStream  output, Color color) throws IOException{
+   private static void sendColor(DataOutputStream  output, RsColor color) throws IOException{
       if(color==null){
          output.writeInt(0);
       }else{
@@ -206,6 +222,18 @@ class RsProtocolBodyEncoder {
       }
    }
 
+   private static void sendAccelerationParameter(
+      DataOutputStream output, RsAccelerationParameter p) throws IOException
+   {
+      if(p==null){
+         output.writeInt(0);
+      }else{
+         output.writeInt(1);
+         output.writeDouble(p.velocity);
+         output.writeDouble(p.acceleration);
+      }
+   }
+
    private static void sendSegment(DataOutputStream output, RsSegment [] segment) throws IOException {
       if(segment==null){
          output.writeInt(0);
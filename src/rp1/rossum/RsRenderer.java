@@ -0,0 +1,430 @@
+/*  -------------------------------------------------------------
+
+    Rossum's Playhouse  --  a client/server based robot simulator
+    Rossum's Playhouse is also known under the name "RP1".
+    Copyright (C) 1999  G.W. Lucas
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+----------------------------------------------------------------- */
+
+
+package rp1.rossum;
+
+
+/*
+
+   RsRenderer.java    draws bodies and floor-plan objects using java.awt.Graphics
+
+
+   In earlier versions, each body part and floor-plan object had its own
+   paint(Graphics, RsTransform) method.  That was convenient, but it meant
+   that every class in the model depended on java.awt, so even a client
+   or a headless simulator (neither of which ever draws anything) loaded
+   AWT and its native libraries.  Now the drawing code lives here, in much
+   the same way that the encoding code lives in RsPlanEncoder and
+   RsProtocolBodyEncoder, and the model classes keep only the data needed
+   to depict them (geometry and RsColors).  This class, and AWT, are
+   loaded only when something is actually drawn.
+
+   The drawing is selected by the class of the object (the most specific
+   class first).  Body parts and floor-plan objects of classes not known
+   here are not drawn.
+
+   Colors are translated from RsColor to java.awt.Color by getColor(),
+   which keeps the translation with the RsColor so that it is only
+   done once for each color object.
+
+   The graphics transform (gt) supplies the data necessary to map
+   double-valued points to pixel coordinates.
+
+*/
+
+
+import java.awt.Color;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+
+
+
+
+/**
+ * Provides static methods for rendering bodies and floor-plan objects.
+ *
+ */
+
+public class RsRenderer {
+
+   // the outline of the placement symbol in units of its radius.  there's
+   // nothing particularly virtuous about these values, they're mainly just
+   // the result of trial and error.
+   private static final double [] xPlacement = {
+      1,
+      Math.cos(  60*Math.PI/180)*1.2,
+      Math.cos( 135*Math.PI/180)*1.2,
+      Math.cos(-135*Math.PI/180)*1.2,
+      Math.cos( -60*Math.PI/180)*1.2,
+      1
+   };
+   private static final double [] yPlacement = {
+      0,
+      Math.sin(  45*Math.PI/180)*1.2,
+      Math.sin( 135*Math.PI/180)*1.2,
+      Math.sin(-135*Math.PI/180)*1.2,
+      Math.sin( -45*Math.PI/180)*1.2,
+      0
+   };
+
+
+   private RsRenderer(){
+      // static methods only
+   }
+
+
+   /**
+    * Gets the java.awt.Color corresponding to an RsColor.
+    * @param c a valid color, or null
+    * @return the corresponding java.awt.Color, or null if c is null
+    */
+   public static Color getColor(RsColor c){
+      if(c==null)
+         return null;
+      Object r = c.rendering;
+      if(r==null){
+         r = new Color(c.getRed(), c.getGreen(), c.getBlue());
+         c.rendering = r;
+      }
+      return (Color)r;
+   }
+
+
+   public static void paintBody(Graphics g, RsBody body, RsTransform gt){
+      RsBodyPart [] bodyPart = body.getBodyPartArray();
+      if(bodyPart==null)
+         return;
+
+      for(int i=0; i<bodyPart.length; i++)
+         paintBodyPart(g, bodyPart[i], gt);
+   }
+
+
+   public static void paintBodyPart(Graphics g, RsBodyPart part, RsTransform gt){
+      if(part instanceof RsWheelSystem){
+         RsWheel [] wheels = ((RsWheelSystem)part).wheels;
+         if(wheels==null)
+            return;
+         for(int iWheel=0; iWheel<wheels.length; iWheel++)
+            paintBodyPart(g, wheels[iWheel], gt);
+      }else if(part instanceof RsActuator){
+         RsBodyPart [] p = ((RsActuator)part).getPartsArray();
+         if(p!=null){
+            for(int i=0; i<p.length; i++)
+               paintBodyPart(g, p[i], gt);
+         }
+      }else if(part instanceof RsWheel){
+         RsWheel wheel = (RsWheel)part;
+         if(wheel.fillColor==null && wheel.lineColor==null)
+            return;
+         if(wheel.motionOrientationOffset==0)
+            paintShape(g, wheel, gt);
+         else
+            paintShape(g, wheel, wheel.rotateAboutPivot(gt, wheel.x, wheel.y, wheel.motionOrientationOffset));
+      }else if(part instanceof RsBodyCircle){
+         paintCircle(g, (RsBodyCircle)part, gt);
+      }else if(part instanceof RsBodyShape){
+         paintShape(g, (RsBodyShape)part, gt);
+      }
+   }
+
+
+   private static void paintShape(Graphics g, RsBodyShape shape, RsTransform gt){
+
+      Color fc, lc;
+
+      fc = getColor(shape.getFillColor());
+      lc = getColor(shape.getLineColor());
+
+      if(fc==null && lc==null)
+         return;
+
+      RsSegment [] refSegment = shape.refSegment;
+      if(refSegment==null){
+        // the shape is not depicted and not interactive because
+        // no polygon was ever supplied
+        return;
+      }
+
+      int      nSegment = refSegment.length;
+      int   [] ix       = shape.ix;
+      int   [] iy       = shape.iy;
+
+      double   x, y;
+
+      for(int i=0; i<nSegment; i++){
+         x=refSegment[i].x;
+         y=refSegment[i].y;
+         ix[i] = (int)Math.floor(gt.m11*x + gt.m12*y + gt.m13 + 0.5);
+         iy[i] = (int)Math.floor(gt.m21*x + gt.m22*y + gt.m23 + 0.5);
+      }
+
+      ix[nSegment]=ix[0];
+      iy[nSegment]=iy[0];
+
+      if(fc!=null){
+         g.setColor(fc);
+         g.fillPolygon(ix, iy, nSegment+1);
+      }
+      if(lc!=null){
+         g.setColor(lc);
+         g.drawPolygon(ix, iy, nSegment+1);
+      }
+   }
+
+
+   private static void paintCircle(Graphics g, RsBodyCircle circle, RsTransform gt){
+
+      Color  fc, lc;
+
+      fc = getColor(circle.getFillColor());
+      lc = getColor(circle.getLineColor());
+
+      if(fc == null && lc == null)
+         return;
+
+      RsPoint p0 = gt.map(circle.refXCenter, circle.refYCenter);
+      RsPoint p1 = gt.map(circle.refXCenter+circle.refRadius, circle.refYCenter);
+      // because the gt adds a rotation, p1 will not necessarily be
+      // at any particular orientation.  to get radius, compute distance |P0-P1|
+      double x = p0.x-p1.x;
+      double y = p0.y-p1.y;
+      double r = Math.sqrt(x*x+y*y);
+      int    ix = (int)(p0.x-r+0.5);
+      int    iy = (int)(p0.y-r+0.5);
+      int    ir = (int)(2*r+0.5);
+      if(fc!=null){
+         g.setColor(fc);
+         g.fillOval(ix, iy, ir, ir);
+      }
+      if(lc!=null){
+         g.setColor(lc);
+         g.drawOval(ix, iy, ir, ir);
+      }
+   }
+
+
+
+   public static void paintObject(Graphics g, RsObject object, RsTransform gt){
+      if(object instanceof RsWall)
+         paintWall(g, (RsWall)object, gt);
+      else if(object instanceof RsTarget)
+         paintTarget(g, (RsTarget)object, gt);
+      else if(object instanceof RsPlacement)
+         paintPlacement(g, (RsPlacement)object, gt);
+      else if(object instanceof RsNavNode)
+         paintNavNode(g, (RsNavNode)object, gt);
+      else if(object instanceof RsNavLink)
+         paintNavLink(g, (RsNavLink)object, gt);
+      else if(object instanceof RsPaint)
+         paintPaint(g, (RsPaint)object, gt);
+   }
+
+
+   private static void paintWall(Graphics g, RsWall wall, RsTransform gt){
+
+      RsSegment [] segmentArray = wall.segmentArray;
+      if(segmentArray==null || segmentArray.length<3)
+         return;
+
+      int          nPoint = segmentArray.length+1;
+      int          [] xWall = new int[nPoint];
+      int          [] yWall = new int[nPoint];
+
+      gt.iMapArray(segmentArray.length, segmentArray, xWall, yWall);
+      xWall[nPoint-1]=xWall[0];
+      yWall[nPoint-1]=yWall[0];
+      g.setColor(getColor(wall.fillColor));
+      g.fillPolygon(xWall, yWall, nPoint);
+      g.setColor(getColor(wall.lineColor));
+      g.drawPolygon(xWall, yWall, nPoint);
+   }
+
+
+   private static void paintPaint(Graphics g, RsPaint paint, RsTransform gt){
+
+      RsSegment [] segmentArray = paint.segmentArray;
+      if(segmentArray==null || segmentArray.length<3)
+         return;
+
+      int    n     = segmentArray.length+1;
+      int [] xWall = new int[n];
+      int [] yWall = new int[n];
+
+      gt.iMapArray(n-1, segmentArray, xWall, yWall);
+      xWall[n-1]=xWall[0];
+      yWall[n-1]=yWall[0];
+
+      g.setColor(getColor(paint.fillColor));
+      g.fillPolygon(xWall, yWall, n);
+      g.setColor(getColor(paint.lineColor));
+      g.drawPolygon(xWall, yWall, n);
+   }
+
+
+   private static void paintTarget(Graphics g, RsTarget target, RsTransform gt){
+
+      int    ix, iy, iRadius;
+      int    w, h;
+
+      RsPoint p0, p1;
+
+      p0 = gt.map(target.x, target.y);
+      p1 = gt.map(target.x+target.radius, target.y);
+      iRadius=(int)(Math.abs(p1.x-p0.x)+0.5);
+      ix=(int)(p0.x+0.5);
+      iy=(int)(p0.y+0.5);
+
+      g.setColor(getColor(target.lineColor));
+
+      if(iRadius>0){
+         int lineWidth = target.lineWidth;
+         if(lineWidth>=2 && iRadius>4*lineWidth){
+             w=iRadius;
+             g.fillOval(ix-w, iy-w, 2*w, 2*w);
+             g.setColor(Color.white);
+             w=iRadius-lineWidth;
+             g.fillOval(ix-w, iy-w, 2*w, 2*w);
+             g.setColor(getColor(target.fillColor));
+         }else{
+            g.drawOval(ix-iRadius, iy-iRadius, iRadius*2, iRadius*2);
+         }
+      }
+
+      if(target.label==null){
+         g.drawLine(ix, iy-4, ix, iy+4);
+         g.drawLine(ix-4, iy, ix+4, iy);
+      }else{
+         FontMetrics fontMetrics = g.getFontMetrics(g.getFont());
+         w=fontMetrics.stringWidth(target.label);
+         h=fontMetrics.getAscent();
+         g.drawString(target.label, ix-w/2, iy+h/2);
+      }
+   }
+
+
+   private static void paintPlacement(Graphics g, RsPlacement placement, RsTransform gt){
+
+      int    i, j;
+      int    ix, iy, iRadius;
+      int    w, h;
+
+      int          [] xWall = new int[6];
+      int          [] yWall = new int[6];
+
+      double orientation = placement.orientation;
+      int    lineWidth   = placement.lineWidth;
+
+      RsPoint p0, p1;
+      p0=gt.map(placement.x, placement.y);
+      p1=gt.map(placement.x+placement.radius, placement.y);
+      ix=(int)(p0.x+0.5);
+      iy=(int)(p0.y+0.5);
+      iRadius=(int)(Math.abs(p1.x-p0.x)+0.5);
+
+      Color lineColor = getColor(placement.lineColor);
+      g.setColor(lineColor);
+
+      if(iRadius>0){
+         double  ax, ay;  // the "x basis vector"
+         double  bx, by;  // the "y basis vector", negated due to pixel-upside-down factor
+         double  s;
+         s = iRadius;
+         ax =  s*Math.cos(orientation);
+         ay = -s*Math.sin(orientation);
+         bx =  s*Math.cos(orientation+Math.PI/2);
+         by = -s*Math.sin(orientation+Math.PI/2);
+         if(lineWidth>=2 && iRadius>4*lineWidth){
+            for(j=0; j<2; j++){
+               for(i=0; i<6; i++){
+                  xWall[i] = ix+(int)(xPlacement[i]*ax+yPlacement[i]*bx+0.5);
+                  yWall[i] = iy+(int)(xPlacement[i]*ay+yPlacement[i]*by+0.5);
+               }
+               g.fillPolygon(xWall, yWall, 6);
+               g.setColor(Color.white);
+               s  =  iRadius-lineWidth;
+               ax =  s*Math.cos(orientation);
+               ay = -s*Math.sin(orientation);
+               bx =  s*Math.cos(orientation+Math.PI/2);
+               by = -s*Math.sin(orientation+Math.PI/2);
+            }
+         }else{
+            for(i=0; i<6; i++){
+               xWall[i] = ix+(int)(xPlacement[i]*ax+yPlacement[i]*bx+0.5);
+               yWall[i] = iy+(int)(xPlacement[i]*ay+yPlacement[i]*by+0.5);
+            }
+            g.drawPolygon(xWall, yWall, 6);
+         }
+
+         g.setColor(lineColor);
+         if(placement.label==null){
+            g.drawLine(ix,   iy-4, ix,   iy+4);
+            g.drawLine(ix-4, iy,   ix+4, iy);
+         }else{
+            FontMetrics fontMetrics = g.getFontMetrics(g.getFont());
+            w=fontMetrics.stringWidth(placement.label);
+            h=fontMetrics.getAscent();
+            g.drawString(placement.label, ix-w/2, iy+h/2);
+         }
+      }
+   }
+
+
+   private static void paintNavNode(Graphics g, RsNavNode node, RsTransform gt){
+
+      int    ix, iy;
+
+      RsPoint p0;
+
+      p0 = gt.map(node.x, node.y);
+      ix=(int)(p0.x+0.5);
+      iy=(int)(p0.y+0.5);
+
+      g.setColor(getColor(node.lineColor));
+      g.drawRect(ix-1, iy-1, 3, 3);
+
+      if(node.label!=null){
+         FontMetrics fontMetrics = g.getFontMetrics(g.getFont());
+         int h=fontMetrics.getAscent();
+         g.drawString(node.label, ix+4, iy+h);
+      }
+   }
+
+
+   private static void paintNavLink(Graphics g, RsNavLink link, RsTransform gt){
+
+      int    ix0, iy0, ix1, iy1;
+      RsPoint p0, p1;
+      RsSegment segment = link.segment;
+
+      p0 = gt.map(segment.x, segment.y);
+      p1 = gt.map(segment.x+segment.v.x, segment.y+segment.v.y);
+      ix0=(int)(p0.x+0.5);
+      iy0=(int)(p0.y+0.5);
+      ix1=(int)(p1.x+0.5);
+      iy1=(int)(p1.y+0.5);
+
+      g.setColor(getColor(link.lineColor));
+      g.drawLine(ix0, iy0, ix1, iy1);
+   }
+}
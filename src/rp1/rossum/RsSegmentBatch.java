@@ -0,0 +1,457 @@
+/*  -------------------------------------------------------------
+
+    Rossum's Playhouse  --  a client/server based robot simulator
+    Rossum's Playhouse is also known under the name "RP1".
+    Copyright (C) 1999  G.W. Lucas
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+----------------------------------------------------------------- */
+
+
+package rp1.rossum;
+
+/*
+   RsSegmentBatch.java    tests one query segment against many segments
+
+   RsSegSect.process() works on one pair of segments at a time.  In
+   practice, almost every caller uses it the same way:  one "query"
+   segment (a sensor's line of sight, the path of a body vertex during
+   a motion) is tested against every segment of every wall in the
+   floor plan, and the caller keeps only the nearest hit (or stops
+   at the first one).  Each of those calls has to dig the coordinates
+   out of two RsSegment objects and their RsVectors and re-derive
+   the bounding-box limits and the line coefficients of the wall
+   segment, even though the walls never change.
+
+   This class keeps a set of segments packed into parallel arrays of
+   doubles (one array per quantity, rather than one object per segment)
+   along with the values that RsSegSect would otherwise recompute on
+   every call:  the bounding limits of the segment and the right-hand
+   side of its line equation
+
+         c = a*x + b*y    where   a = v.y,  b = -v.x
+
+   The query methods then run a single tight loop over the arrays.
+   The arithmetic is exactly the same as that in RsSegSect.process()
+   (same pre-test, same determinant, same formulas for x, y, t1, t2)
+   so the results are identical to those obtained by calling
+   process() on each pair in turn.  Ties are resolved in favor of the
+   segment that was added first, just as they are in the loops this
+   class replaces.
+
+   A batch can also carry an optional "owner" for each segment (usually
+   the RsWall it came from), so that a caller can find out what was hit.
+
+   A note on vectorization:  the loops are written so that a JIT which
+   supports auto-vectorization has a fair chance at them (no objects
+   dereferenced inside the loop, no method calls), but the source level
+   of this package predates any explicit SIMD support in Java, so
+   there is no hand-vectorized version.
+
+   Like RsSegSect, this class is heavily used and its query methods
+   do not allocate memory.
+*/
+
+import java.io.Serializable;
+
+
+
+/**
+ * A packed collection of line segments supporting fast
+ * nearest-intersection queries.
+ *
+ */
+
+public class RsSegmentBatch implements Serializable {
+
+   private static final long serialVersionUID = 1L;
+
+   public RsSegmentBatch(){
+      this(16);
+   }
+
+   public RsSegmentBatch(int capacity){
+      if(capacity<1)
+         capacity=1;
+      allocate(capacity);
+      nSegment = 0;
+   }
+
+   public void clear(){
+      nSegment = 0;
+      if(owner!=null){
+         for(int i=0; i<owner.length; i++)
+            owner[i]=null;
+      }
+   }
+
+   public int size(){
+      return nSegment;
+   }
+
+   public void add(RsSegment s){
+      add(s.x, s.y, s.v.x, s.v.y, null);
+   }
+
+   public void add(RsSegment s, RsObject segmentOwner){
+      add(s.x, s.y, s.v.x, s.v.y, segmentOwner);
+   }
+
+   public void add(RsSegment [] s, int n, RsObject segmentOwner){
+      for(int i=0; i<n; i++)
+         add(s[i].x, s[i].y, s[i].v.x, s[i].v.y, segmentOwner);
+   }
+
+   /**
+    * Adds a segment after mapping it through the specified transform
+    * (equivalent to transform.map2(s, segment) followed by add(segment)).
+    */
+   public void addMapped(RsTransform t, RsSegment s){
+      add(
+         t.m11*s.x   + t.m12*s.y   + t.m13,
+         t.m21*s.x   + t.m22*s.y   + t.m23,
+         t.m11*s.v.x + t.m12*s.v.y,
+         t.m21*s.v.x + t.m22*s.v.y,
+         null);
+   }
+
+   public void add(double x0, double y0, double dx, double dy, RsObject segmentOwner){
+      if(nSegment==x.length)
+         grow();
+
+      int i = nSegment++;
+      x[i]  = x0;
+      y[i]  = y0;
+      vx[i] = dx;
+      vy[i] = dy;
+
+      if(dx<0){
+         xMin[i] = x0+dx;
+         xMax[i] = x0;
+      }else{
+         xMin[i] = x0;
+         xMax[i] = x0+dx;
+      }
+      if(dy<0){
+         yMin[i] = y0+dy;
+         yMax[i] = y0;
+      }else{
+         yMin[i] = y0;
+         yMax[i] = y0+dy;
+      }
+
+      // the line coefficients as used in RsSegSect:  a=v.y, b=-v.x
+      c[i] = dy*x0 + (-dx)*y0;
+
+      if(segmentOwner!=null){
+         if(owner==null)
+            owner = new RsObject[x.length];
+         owner[i]=segmentOwner;
+      }
+   }
+
+   /**
+    * Removes all segments belonging to the specified owner, preserving
+    * the order of those that remain.  Returns the number removed.
+    */
+   public int removeOwner(RsObject segmentOwner){
+      if(owner==null || segmentOwner==null)
+         return 0;
+      int i, k=0;
+      for(i=0; i<nSegment; i++){
+         if(owner[i]==segmentOwner)
+            continue;
+         if(k<i){
+            x[k]    = x[i];
+            y[k]    = y[i];
+            vx[k]   = vx[i];
+            vy[k]   = vy[i];
+            xMin[k] = xMin[i];
+            xMax[k] = xMax[i];
+            yMin[k] = yMin[i];
+            yMax[k] = yMax[i];
+            c[k]    = c[i];
+            owner[k]= owner[i];
+         }
+         k++;
+      }
+      for(i=k; i<nSegment; i++)
+         owner[i]=null;
+      int nRemoved = nSegment-k;
+      nSegment = k;
+      return nRemoved;
+   }
+
+   public double getX(int index){
+      return x[index];
+   }
+
+   public double getY(int index){
+      return y[index];
+   }
+
+   public RsObject getOwner(int index){
+      if(owner==null)
+         return null;
+      return owner[index];
+   }
+
+
+   /**
+    * Finds the intersection of the query segment with the lowest value of
+    * parameter t1 (the nearest intersection along the query segment).
+    * Only intersections with t1 strictly less than tLimit are considered.
+    * If one is found, its index is returned and the t1, t2, x, and y
+    * elements of result are populated (result may be null if the caller
+    * needs only the index).  Otherwise, -1 is returned and result is
+    * not modified.
+    */
+   public int findNearestIntersection(RsSegment q, double tLimit, RsSegSect result){
+      return findNearestIntersection(q.x, q.y, q.v.x, q.v.y, tLimit, result);
+   }
+
+   public int findNearestIntersection(
+      double qx, double qy, double qdx, double qdy,
+      double tLimit, RsSegSect result)
+   {
+      return scan(qx, qy, qdx, qdy, tLimit, result, false);
+   }
+
+   /**
+    * Indicates whether the query segment intersects any segment
+    * in the batch.  This method quits at the first hit.
+    */
+   public boolean checkForIntersection(RsSegment q){
+      return scan(q.x, q.y, q.v.x, q.v.y, 2.0, null, true)>=0;
+   }
+
+   public boolean checkForIntersection(double qx, double qy, double qdx, double qdy){
+      return scan(qx, qy, qdx, qdy, 2.0, null, true)>=0;
+   }
+
+
+   /**
+    * Finds the nearest intersection for each of a "fan" of query segments
+    * which share the starting point (qx, qy) and have the vectors
+    * (qdx[k], qdy[k]) for k=0 to nQuery-1.  For each query, tResult[k]
+    * is set to the parameter t1 of the nearest intersection (or to
+    * tLimit if there is none) and iResult[k] is set to the index of
+    * the segment hit (or -1).  The results are the same as those
+    * obtained by calling findNearestIntersection() for each query
+    * in turn, but each segment in the batch is loaded once and
+    * segments which lie outside the bounds of the fan as a whole
+    * are rejected once rather than once per query.
+    */
+   public void findNearestIntersections(
+      double qx, double qy,
+      double [] qdx, double [] qdy, int nQuery,
+      double tLimit, double [] tResult, int [] iResult)
+   {
+      int    i, k;
+      double fxMin = qx;
+      double fxMax = qx;
+      double fyMin = qy;
+      double fyMax = qy;
+      for(k=0; k<nQuery; k++){
+         tResult[k] = tLimit;
+         iResult[k] = -1;
+         if(qx+qdx[k]<fxMin) fxMin=qx+qdx[k];
+         if(qx+qdx[k]>fxMax) fxMax=qx+qdx[k];
+         if(qy+qdy[k]<fyMin) fyMin=qy+qdy[k];
+         if(qy+qdy[k]>fyMax) fyMax=qy+qdy[k];
+      }
+
+      double a1, b1, c1, a2, b2, det, sx, sy, t1, t2, ex, ey;
+      int n = nSegment;
+      for(i=0; i<n; i++){
+         if(yMax[i]<fyMin || yMin[i]>fyMax)
+            continue;
+         if(xMax[i]<fxMin || xMin[i]>fxMax)
+            continue;
+
+         a2  =  vy[i];
+         b2  = -vx[i];
+         for(k=0; k<nQuery; k++){
+            // the same pre-test and arithmetic as scan()
+            ex = qx+qdx[k];
+            ey = qy+qdy[k];
+            if(qdy[k]<0){
+               if(yMax[i]<ey || yMin[i]>qy)
+                  continue;
+            }else if(yMax[i]<qy || yMin[i]>ey)
+               continue;
+            if(qdx[k]<0){
+               if(xMax[i]<ex || xMin[i]>qx)
+                  continue;
+            }else if(xMax[i]<qx || xMin[i]>ex)
+               continue;
+
+            a1  =  qdy[k];
+            b1  = -qdx[k];
+            c1  =  a1*qx + b1*qy;
+            det = a1*b2-a2*b1;
+            if(-1.0e-9<det && det<1.0e-9)
+               continue;
+
+            sx = (b2*c1 - b1*c[i])/det;
+            sy = (a1*c[i] - a2*c1)/det;
+
+            if(-1.0e-9<a1 && a1<1.0e-9)
+               t1 = -(sx-qx)/b1;
+            else
+               t1 = (sy-qy)/a1;
+            if(t1<0 || t1>1 || !(t1<tResult[k]))
+               continue;
+
+            if(-1.0e-9<a2 && a2<1.0e-9)
+               t2 = -(sx-x[i])/b2;
+            else
+               t2 = (sy-y[i])/a2;
+            if(t2<0 || t2>1)
+               continue;
+
+            tResult[k] = t1;
+            iResult[k] = i;
+         }
+      }
+   }
+
+
+   private int scan(
+      double qx, double qy, double qdx, double qdy,
+      double tLimit, RsSegSect result, boolean firstHit)
+   {
+      double qxMin, qxMax, qyMin, qyMax;
+      if(qdx<0){
+         qxMin = qx+qdx;
+         qxMax = qx;
+      }else{
+         qxMin = qx;
+         qxMax = qx+qdx;
+      }
+      if(qdy<0){
+         qyMin = qy+qdy;
+         qyMax = qy;
+      }else{
+         qyMin = qy;
+         qyMax = qy+qdy;
+      }
+
+      double a1 =  qdy;
+      double b1 = -qdx;
+      double c1 =  a1*qx + b1*qy;
+      boolean a1Small = (-1.0e-9<a1 && a1<1.0e-9);
+
+      double a2, b2, det, sx, sy, t1, t2;
+      double tMin   = tLimit;
+      double t2Min  = 0;
+      double xMin1  = 0;
+      double yMin1  = 0;
+      int    iMin   = -1;
+
+      int n = nSegment;
+      for(int i=0; i<n; i++){
+         // the bounding-box pre-test (see RsSegSect for a discussion)
+         if(yMax[i]<qyMin || yMin[i]>qyMax)
+            continue;
+         if(xMax[i]<qxMin || xMin[i]>qxMax)
+            continue;
+
+         a2  =  vy[i];
+         b2  = -vx[i];
+         det = a1*b2-a2*b1;
+         if(-1.0e-9<det && det<1.0e-9)
+            continue;
+
+         sx = (b2*c1 - b1*c[i])/det;
+         sy = (a1*c[i] - a2*c1)/det;
+
+         if(a1Small)
+            t1 = -(sx-qx)/b1;
+         else
+            t1 = (sy-qy)/a1;
+         if(t1<0 || t1>1 || !(t1<tMin))
+            continue;
+
+         if(-1.0e-9<a2 && a2<1.0e-9)
+            t2 = -(sx-x[i])/b2;
+         else
+            t2 = (sy-y[i])/a2;
+         if(t2<0 || t2>1)
+            continue;
+
+         tMin  = t1;
+         t2Min = t2;
+         xMin1 = sx;
+         yMin1 = sy;
+         iMin  = i;
+         if(firstHit)
+            break;
+      }
+
+      if(iMin>=0 && result!=null){
+         result.intersection = true;
+         result.t1 = tMin;
+         result.t2 = t2Min;
+         result.x  = xMin1;
+         result.y  = yMin1;
+      }
+      return iMin;
+   }
+
+
+   private void allocate(int capacity){
+      x    = new double[capacity];
+      y    = new double[capacity];
+      vx   = new double[capacity];
+      vy   = new double[capacity];
+      xMin = new double[capacity];
+      xMax = new double[capacity];
+      yMin = new double[capacity];
+      yMax = new double[capacity];
+      c    = new double[capacity];
+   }
+
+   private void grow(){
+      int n = x.length*2;
+      x    = copyOf(x, n);
+      y    = copyOf(y, n);
+      vx   = copyOf(vx, n);
+      vy   = copyOf(vy, n);
+      xMin = copyOf(xMin, n);
+      xMax = copyOf(xMax, n);
+      yMin = copyOf(yMin, n);
+      yMax = copyOf(yMax, n);
+      c    = copyOf(c, n);
+      if(owner!=null){
+         RsObject [] a = new RsObject[n];
+         System.arraycopy(owner, 0, a, 0, owner.length);
+         owner = a;
+      }
+   }
+
+   private static double [] copyOf(double [] a, int n){
+      double [] b = new double[n];
+      System.arraycopy(a, 0, b, 0, a.length);
+      return b;
+   }
+
+   private int          nSegment;
+   private double    [] x, y, vx, vy;
+   private double    [] xMin, xMax, yMin, yMax;
+   private double    [] c;
+   private RsObject  [] owner;
+}
@@ -23,8 +23,6 @@
 
 package rp1.rossum;
 
-import java.awt.*;
-
 
 
 /**
@@ -39,8 +37,8 @@ public  class RsTarget extends RsObject {
       super(nameReference, planReference);
       isGeometrySet=false;
       label=null;
-      lineColor=Color.lightGray;
-      fillColor=Color.lightGray;
+      lineColor=RsColor.lightGray;
+      fillColor=RsColor.lightGray;
       lineWidth=0;
    }
 
@@ -71,46 +69,6 @@ public String getClassName(){
       return className;
    }
 
-   @Override
-public void paint(Graphics g, RsTransform gt){
-
-      int    ix, iy, iRadius;
-      int    w, h;
-
-      RsPoint p0, p1;
-
-      p0 = gt.map(x, y);
-      p1 = gt.map(x+radius, y);
-      iRadius=(int)(Math.abs(p1.x-p0.x)+0.5);
-      ix=(int)(p0.x+0.5);
-      iy=(int)(p0.y+0.5);
-
-      g.setColor(lineColor);
-
-      if(iRadius>0){
-         if(lineWidth>=2 && iRadius>4*lineWidth){
-             w=iRadius;
-             g.fillOval(ix-w, iy-w, 2*w, 2*w);
-             g.setColor(Color.white);
-             w=iRadius-lineWidth;
-             g.fillOval(ix-w, iy-w, 2*w, 2*w);
-             g.setColor(fillColor);
-         }else{
-            g.drawOval(ix-iRadius, iy-iRadius, iRadius*2, iRadius*2);
-         }
-      }
-
-      if(label==null){
-         g.drawLine(ix, iy-4, ix, iy+4);
-         g.drawLine(ix-4, iy, ix+4, iy);
-      }else{
-         FontMetrics fontMetrics = g.getFontMetrics(g.getFont());
-         w=fontMetrics.stringWidth(label);
-         h=fontMetrics.getAscent();
-         g.drawString(label, ix-w/2, iy+h/2);
-      }
-   }
-
 
 
 
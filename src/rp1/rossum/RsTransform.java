@@ -48,6 +48,16 @@ package rp1.rossum;
       Java 2D API.
 
 
+      Note on output parameters ----------------------------
+
+      The methods that return a new RsPoint or RsVector are convenient,
+      but the simulator maps coordinates for every sensor and wheel on
+      every motion step, and the garbage adds up.   So each of them
+      has a counterpart that stores its result in an object supplied
+      by the caller (who usually keeps one around for the purpose)
+      or that returns a single coordinate as a primitive (mapX, mapY).
+
+
 */
 
 
@@ -148,6 +158,11 @@ public RsTransform(){
       return new RsPoint(m13, m23);
    }
 
+   public void getOffset(RsPoint output){
+      output.x = m13;
+      output.y = m23;
+   }
+
    public void setOffset(double xOffset, double yOffset){
        m13 = xOffset;
        m23 = yOffset;
@@ -157,6 +172,11 @@ public RsTransform(){
       return new RsVector(m11*vx+m12*vy, m21*vx+m22*vy);
    }
 
+   public void mapVector(double vx, double vy, RsVector output){
+      output.x = m11*vx + m12*vy;
+      output.y = m21*vx + m22*vy;
+   }
+
    public RsPoint map(RsPoint p){
       return new RsPoint(m11*p.x+m12*p.y+m13, m21*p.x+m22*p.y+m23);
    }
@@ -170,6 +190,14 @@ public RsTransform(){
       output.y = m21*x + m22*y + m23;
    }
 
+   public double mapX(double x, double y){
+      return m11*x + m12*y + m13;
+   }
+
+   public double mapY(double x, double y){
+      return m21*x + m22*y + m23;
+   }
+
 
    public void iMapArray(int nPoint, RsPoint [] point, int [] ix, int []iy){
       double x,y;
@@ -23,8 +23,6 @@
 
 package rp1.rossum;
 
-import java.awt.*;
-
 
 
 /**
@@ -37,8 +35,8 @@ public  class RsWall extends RsObject {
    public RsWall(String nameReference, RsPlan planReference){
       super(nameReference, planReference);
       isGeometrySet=false;
-      fillColor = Color.lightGray;
-      lineColor = Color.darkGray;
+      fillColor = RsColor.lightGray;
+      lineColor = RsColor.darkGray;
    }
 
    @Override
@@ -55,6 +53,7 @@ public void setGeometry(double [] a){
          nSegment = a.length/2;
       }
 
+      segmentBatch = null;
       segmentArray = new RsSegment[nSegment];
       for(i=0; i<nSegment; i++){
          i0 = i*2;
@@ -98,38 +97,30 @@ public String getClassName(){
    }
 
 
-   @Override
-public void paint(Graphics g, RsTransform gt){
-
-      if(segmentArray==null || segmentArray.length<3)
-         return;
-
-      int          [] xWall;
-      int          [] yWall;
-
-      int          nPoint = segmentArray.length+1;
-
-      xWall = new int[nPoint];
-      yWall = new int[nPoint];
-
-      gt.iMapArray(segmentArray.length, segmentArray, xWall, yWall);
-      xWall[nPoint-1]=xWall[0];
-      yWall[nPoint-1]=yWall[0];
-      g.setColor(fillColor);
-      g.fillPolygon(xWall, yWall, nPoint);
-      g.setColor(lineColor);
-      g.drawPolygon(xWall, yWall, nPoint);
-   }
-
 
    public RsSegment [] getSegmentArray(){
       return segmentArray;
    }
 
+   /**
+    * Returns the segments of the wall packed for use in
+    * batch intersection tests.  The batch is built on first use
+    * and shared by all callers, so it must not be modified.
+    */
+   public RsSegmentBatch getSegmentBatch(){
+      if(segmentBatch==null && segmentArray!=null){
+         RsSegmentBatch batch = new RsSegmentBatch(segmentArray.length);
+         batch.add(segmentArray, segmentArray.length, this);
+         segmentBatch = batch;
+      }
+      return segmentBatch;
+   }
+
    private static final String className = "wall";
    protected double x0, y0, x1, y1, thickness;
    protected RsSegment [] segmentArray;
    protected RsPolygon polygon;
+   private   RsSegmentBatch segmentBatch;
 }
 
 
@@ -0,0 +1,359 @@
+/*  -------------------------------------------------------------
+
+    Rossum's Playhouse  --  a client/server based robot simulator
+    Rossum's Playhouse is also known under the name "RP1".
+    Copyright (C) 1999  G.W. Lucas
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+----------------------------------------------------------------- */
+
+
+package rp1.rossum;
+
+/*
+   RsWallIndex.java    a spatial index for the walls in a floor plan
+
+   Most of the geometric questions the simulator asks about a floor plan
+   are local:  "does the robot, placed here, touch any wall?", "which
+   walls could this motion reach?"  Without an index, every one of them
+   is answered by looping over every wall in the plan.  For small plans
+   that hardly matters, but it adds up for large plans and for
+   operations that ask the same question many times (random placement,
+   for example).
+
+   The index is a simple uniform grid laid over the bounds of the walls.
+   Each cell keeps a list of the walls whose bounding rectangles overlap
+   it.  A query for a rectangular region visits only the cells the region
+   covers and returns each wall found there once (a wall that spans
+   several cells is reported only once thanks to a "stamp" kept for
+   each wall).  The walls returned are those whose bounds overlap the
+   query region;  it is up to the caller to perform exact tests.
+
+   The grid dimensions are chosen so that there are roughly two cells
+   per wall, which keeps the per-cell lists short without spending
+   too much memory on empty cells.
+
+   Like the arrays maintained by RsPlan, the index is built on demand and
+   shared by all callers.  Queries are NOT synchronized (they use the
+   stamp array as scratch space), so the index should only be used
+   from one thread at a time.  In the simulator, that is the
+   scheduler thread.
+
+   Walls may be added to, removed from, or moved within a plan while
+   a simulation runs.  When that happens, RsPlan updates the index in
+   place (see addWall, removeWall, and updateWall) rather than building
+   a new one:  only the cells covered by the wall's old and new bounds
+   are touched.  The grid itself is never resized, so a wall placed
+   outside the original bounds is filed in the cells along the edge
+   of the grid.  That costs a little efficiency, but not correctness,
+   since every candidate is checked against the query region.
+*/
+
+
+
+/**
+ * A uniform-grid spatial index for the walls in a floor plan.
+ *
+ */
+
+public class RsWallIndex {
+
+   public RsWallIndex(RsWall [] wallArray){
+      int i, ix, iy;
+      RsRectangle r;
+
+      nWall = wallArray.length;
+      allocate(Math.max(4, nWall));
+      System.arraycopy(wallArray, 0, wall, 0, nWall);
+
+      bounds = new RsRectangle();
+      for(i=0; i<nWall; i++){
+         r = wall[i].getBounds();
+         if(r!=null)
+            bounds.union(r);
+      }
+      if(!bounds.isPopulated())
+         bounds.setBounds(0, 0, 0, 0);
+      extent = new RsRectangle(bounds);
+
+      // pick a grid with roughly 2 cells per wall, keeping the
+      // cells about square.
+      double w = Math.max(bounds.width,  1.0e-6);
+      double h = Math.max(bounds.height, 1.0e-6);
+      double nCell = Math.max(1, 2*nWall);
+      double side  = Math.sqrt(w*h/nCell);
+      nCol = clamp((int)Math.ceil(w/side), 1, 256);
+      nRow = clamp((int)Math.ceil(h/side), 1, 256);
+      cellWidth  = w/nCol;
+      cellHeight = h/nRow;
+
+      // count the entries for each cell so that the lists can be
+      // allocated at their final size, then file the walls.
+      cellCount = new int[nCol*nRow];
+      for(i=0; i<nWall; i++){
+         r = wall[i].getBounds();
+         if(r==null)
+            continue;
+         for(iy=getRow(r.y); iy<=getRow(r.y+r.height); iy++)
+            for(ix=getCol(r.x); ix<=getCol(r.x+r.width); ix++)
+               cellCount[iy*nCol+ix]++;
+      }
+      cell = new int[nCol*nRow][];
+      for(i=0; i<cell.length; i++){
+         cell[i]      = new int[cellCount[i]];
+         cellCount[i] = 0;
+      }
+      for(i=0; i<nWall; i++)
+         fileWall(i);
+   }
+
+   /**
+    * Gets the number of entries in the index.  Entries for walls
+    * that have been removed are not reused until a new wall is added,
+    * so this value may be larger than the number of walls in the plan.
+    * It is, however, the maximum number of walls that could be
+    * returned by findWalls().
+    */
+   public int getWallCount(){
+      return nWall;
+   }
+
+   /**
+    * Gets the wall for the specified entry, or null if the wall
+    * for the entry has been removed.
+    */
+   public RsWall getWall(int index){
+      return wall[index];
+   }
+
+   public RsRectangle getBounds(){
+      return bounds;
+   }
+
+   /**
+    * Adds a wall to the index.
+    */
+   public void addWall(RsWall w){
+      int i;
+      if(nRemoved>0){
+         for(i=0; i<nWall; i++)
+            if(wall[i]==null)
+               break;
+         nRemoved--;
+      }else{
+         if(nWall==wall.length)
+            grow();
+         i = nWall++;
+      }
+      wall[i]  = w;
+      stamp[i] = 0;
+      RsRectangle r = w.getBounds();
+      if(r!=null)
+         extent.union(r);
+      fileWall(i);
+   }
+
+   /**
+    * Removes a wall from the index.  Returns false if the wall
+    * was not in the index.
+    */
+   public boolean removeWall(RsWall w){
+      int i = indexOf(w);
+      if(i<0)
+         return false;
+      unfileWall(i);
+      wall[i] = null;
+      nRemoved++;
+      return true;
+   }
+
+   /**
+    * Refiles a wall after its geometry has been changed.  Since the
+    * index remembers which cells the wall was filed in, this may be
+    * called after the new geometry is set.  Returns false if the wall
+    * was not in the index.
+    */
+   public boolean updateWall(RsWall w){
+      int i = indexOf(w);
+      if(i<0)
+         return false;
+      unfileWall(i);
+      RsRectangle r = w.getBounds();
+      if(r!=null)
+         extent.union(r);
+      fileWall(i);
+      return true;
+   }
+
+   /**
+    * Finds the walls whose bounds intersect the specified region.
+    * The walls are stored in the result array (which must be
+    * dimensioned to at least getWallCount() elements) and
+    * the number found is returned.
+    */
+   public int findWalls(double xMin, double yMin, double xMax, double yMax, RsWall [] result){
+      if(nWall==0)
+         return 0;
+      if(xMax<extent.x || yMax<extent.y
+      || xMin>extent.x+extent.width || yMin>extent.y+extent.height)
+         return 0;
+
+      queryStamp++;
+      if(queryStamp==0){
+         // the stamp wrapped around, reset the stamps
+         for(int i=0; i<stamp.length; i++)
+            stamp[i]=0;
+         queryStamp=1;
+      }
+
+      int col0 = getCol(xMin);
+      int col1 = getCol(xMax);
+      int row0 = getRow(yMin);
+      int row1 = getRow(yMax);
+      int n = 0;
+      int [] list;
+      int i, k, nList;
+      RsRectangle r;
+      for(int iy=row0; iy<=row1; iy++){
+         for(int ix=col0; ix<=col1; ix++){
+            list  = cell[iy*nCol+ix];
+            nList = cellCount[iy*nCol+ix];
+            for(k=0; k<nList; k++){
+               i = list[k];
+               if(stamp[i]==queryStamp)
+                  continue;
+               stamp[i]=queryStamp;
+               r = wall[i].getBounds();
+               if(r.x+r.width<xMin || r.x>xMax || r.y+r.height<yMin || r.y>yMax)
+                  continue;
+               result[n++]=wall[i];
+            }
+         }
+      }
+      return n;
+   }
+
+
+   // adds entry i to the cells covered by its wall's bounds and
+   // records the range of cells so that it can be removed later.
+   private void fileWall(int i){
+      RsRectangle r = wall[i].getBounds();
+      if(r==null){
+         cellRange[i*4] = -1;
+         return;
+      }
+      int col0 = getCol(r.x);
+      int col1 = getCol(r.x+r.width);
+      int row0 = getRow(r.y);
+      int row1 = getRow(r.y+r.height);
+      cellRange[i*4]   = col0;
+      cellRange[i*4+1] = col1;
+      cellRange[i*4+2] = row0;
+      cellRange[i*4+3] = row1;
+      int c, n;
+      for(int iy=row0; iy<=row1; iy++){
+         for(int ix=col0; ix<=col1; ix++){
+            c = iy*nCol+ix;
+            n = cellCount[c];
+            if(n==cell[c].length){
+               int [] a = new int[Math.max(4, 2*n)];
+               System.arraycopy(cell[c], 0, a, 0, n);
+               cell[c] = a;
+            }
+            cell[c][n]   = i;
+            cellCount[c] = n+1;
+         }
+      }
+   }
+
+   private void unfileWall(int i){
+      int col0 = cellRange[i*4];
+      if(col0<0)
+         return;
+      int col1 = cellRange[i*4+1];
+      int row0 = cellRange[i*4+2];
+      int row1 = cellRange[i*4+3];
+      int c, k, n;
+      int [] list;
+      for(int iy=row0; iy<=row1; iy++){
+         for(int ix=col0; ix<=col1; ix++){
+            c    = iy*nCol+ix;
+            list = cell[c];
+            n    = cellCount[c];
+            for(k=0; k<n; k++)
+               if(list[k]==i)
+                  break;
+            if(k==n)
+               continue;
+            System.arraycopy(list, k+1, list, k, n-k-1);
+            cellCount[c] = n-1;
+         }
+      }
+      cellRange[i*4] = -1;
+   }
+
+   private int indexOf(RsWall w){
+      for(int i=0; i<nWall; i++)
+         if(wall[i]==w)
+            return i;
+      return -1;
+   }
+
+   private void allocate(int capacity){
+      wall      = new RsWall[capacity];
+      stamp     = new int[capacity];
+      cellRange = new int[capacity*4];
+   }
+
+   private void grow(){
+      RsWall [] w = wall;
+      int    [] s = stamp;
+      int    [] c = cellRange;
+      allocate(w.length*2);
+      System.arraycopy(w, 0, wall,      0, w.length);
+      System.arraycopy(s, 0, stamp,     0, s.length);
+      System.arraycopy(c, 0, cellRange, 0, c.length);
+   }
+
+   private int getCol(double x){
+      return clamp((int)Math.floor((x-bounds.x)/cellWidth), 0, nCol-1);
+   }
+
+   private int getRow(double y){
+      return clamp((int)Math.floor((y-bounds.y)/cellHeight), 0, nRow-1);
+   }
+
+   private static int clamp(int i, int i0, int i1){
+      if(i<i0)
+         return i0;
+      if(i>i1)
+         return i1;
+      return i;
+   }
+
+   private RsWall      [] wall;
+   private int            nWall;
+   private int            nRemoved;
+   private RsRectangle    bounds;   // the area covered by the grid
+   private RsRectangle    extent;   // the area covered by the walls
+   private int            nCol, nRow;
+   private double         cellWidth, cellHeight;
+   private int        [][]cell;
+   private int         [] cellCount;
+   private int         [] cellRange;
+   private int         [] stamp;
+   private int            queryStamp;
+}
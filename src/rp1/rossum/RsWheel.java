@@ -24,7 +24,6 @@
 package rp1.rossum;
 import  rp1.rossum.event.RsEncoderStatusEvent;
 
-import java.awt.Graphics;
 import java.lang.Math;
 
 
@@ -63,8 +62,12 @@ final double  x;
    protected int    encoderInterval;  // current interval
 
    // state data for computational operations (from previous motion)
-   protected double encoderMotionVelocity;
-   protected double encoderMotionTime;
+   protected RsMotion encoderMotion;
+   protected double   encoderMotionTime;
+
+   // scratch space for applyMotion(), established when first needed.
+   // it is transient because it holds no state of its own.
+   private transient RsMotionDepiction depiction;
 
 
    public RsWheel(double point[], int nPoint, double x, double y, double radius)
@@ -171,7 +174,7 @@ final double  x;
      encoderQuadrature          = 0;
      encoderInterval            = 0;
      encoderAngle               = 0;
-     encoderMotionVelocity      = 0;
+     encoderMotion              = null;
      encoderMotionTime          = 0;
    }
 
@@ -183,9 +186,25 @@ final double  x;
 
 
    protected void applyMotion(RsMotion motion){
-      if(wheelRadius>0 && Math.abs(encoderMotionVelocity)>0){
-         double deltaT       = motion.time - encoderMotionTime;
-         double angle        = encoderAngle+deltaT*encoderMotionVelocity/wheelRadius;
+      // the distance the wheel has rolled since the last call is taken
+      // from the motion's path, so it follows the speed profile (if any)
+      // rather than assuming the speed stays constant between calls.
+      // if a new motion has taken over, the old one ran until the
+      // new one started.
+      double distance;
+      if(motion==encoderMotion){
+         distance = motion.getDistanceAtBodyPoint(x, y, motion.time)
+                  - motion.getDistanceAtBodyPoint(x, y, encoderMotionTime);
+      }else{
+         distance = motion.getDistanceAtBodyPoint(x, y, motion.time);
+         if(encoderMotion!=null){
+            distance += encoderMotion.getDistanceAtBodyPoint(x, y, motion.time0)
+                      - encoderMotion.getDistanceAtBodyPoint(x, y, encoderMotionTime);
+         }
+      }
+
+      if(wheelRadius>0 && distance!=0){
+         double angle        = encoderAngle+distance/wheelRadius;
          int    i            = getEncoderBin(angle);
          int    deltaI       = i-encoderInterval;
          encoderAccumulator += deltaI;
@@ -194,7 +213,7 @@ final double  x;
          else
             encoderAbsoluteAccumulator += deltaI;
 
-         if(encoderMotionVelocity<0)
+         if(distance<0)
             encoderQuadrature = -1;
          else
             encoderQuadrature =  1;
@@ -206,11 +225,20 @@ final double  x;
          }
          encoderInterval = getEncoderBin(encoderAngle);
       }
-      RsMotionDepiction rmd = motion.getMotionDepictionAtBodyPoint(x,y);
-      encoderMotionVelocity = rmd.vector.magnitude();
-      if(rmd.reverseMotion)
-         encoderMotionVelocity=-encoderMotionVelocity;
-      encoderMotionTime     = motion.time;
+      encoderMotion     = motion;
+      encoderMotionTime = motion.time;
+   }
+
+   /**
+    * Gets the depiction of the motion at the wheel's position.  The
+    * depiction is an internal element which is overwritten by the next
+    * call, so it should not be retained.
+    */
+   protected RsMotionDepiction getMotionDepiction(RsMotion motion){
+      if(depiction==null)
+         depiction = new RsMotionDepiction();
+      motion.getMotionDepictionAtBodyPoint(x, y, depiction);
+      return depiction;
    }
 
    protected RsTransform rotateAboutPivot(RsTransform gt, double px, double py, double theta){
@@ -248,19 +276,6 @@ public void copyStateData(RsBodyPart dataSource){
       motionOrientationOffset = ((RsWheel)dataSource).motionOrientationOffset;
    }
 
-   @Override
-public void paint(Graphics g, RsTransform gt){
-      if(fillColor==null && lineColor==null)
-         return;
-
-      if(motionOrientationOffset==0){
-         super.paint(g, gt);
-      }else{
-         RsTransform t = rotateAboutPivot(gt, x, y, motionOrientationOffset);
-         super.paint(g, t);
-      }
-   }
-
 
    /**
     * Returns an encoder-status event giving current state data from wheel encoder.
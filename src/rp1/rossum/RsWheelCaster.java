@@ -79,7 +79,7 @@ public boolean isWheelSteerable(){
 
    @Override
 protected void applyMotion(RsMotion motion){
-      RsMotionDepiction rmd = motion.getMotionDepictionAtBodyPoint(x,y);
+      RsMotionDepiction rmd = getMotionDepiction(motion);
       double  vMag          = rmd.vector.magnitude();
       if(vMag>1.0e-6){
           double absMotionAngle   = Math.atan2(rmd.vector.y, rmd.vector.x);
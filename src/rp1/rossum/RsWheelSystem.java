@@ -48,10 +48,21 @@ import rp1.rossum.request.RsMotionRequest;
   wheelBase are defined in an Ackerman steering system, wheelBase will be zero
   in a differential steering system.  I'm not yet sure about an omni drive
 
+
+  Acceleration limits ---  by default, a wheel system reaches the requested
+  velocity instantly (and stops just as quickly).  If acceleration limits
+  are given, computeMotion() produces motions with a trapezoidal profile
+  (see RsMotionProfile):  the body accelerates up to the requested
+  velocity, cruises, and slows to a stop at the end of the requested
+  displacement.  The displacement (or turn angle) of the request is
+  preserved, so the motion takes longer than the requested duration.
+  The linear limits apply to the velocity of the body's center; the
+  rotational limits apply to its turn rate.   For an arc, the profile
+  satisfies whichever limits are the more restrictive.  Each motion starts
+  and ends at rest.
+
 */
 
-import java.awt.Color;
-import java.awt.Graphics;
 import java.util.ArrayList;
 
 
@@ -103,6 +114,9 @@ public abstract class RsWheelSystem extends RsActuator {
 
    protected RsPoint    center;
 
+   protected RsAccelerationParameter linearLimit;
+   protected RsAccelerationParameter rotationalLimit;
+
    static final double MAX_ALLOWABLE_TURN_RADIUS = 1000.0;
 
    public RsWheelSystem(){
@@ -140,6 +154,32 @@ public abstract class RsWheelSystem extends RsActuator {
        return driveWheelRadius;
    }
 
+   /**
+    * Sets the limits on the linear velocity (meters/sec) and acceleration
+    * (meters/sec/sec) of the body.  A null value indicates that there
+    * is no limit.
+    */
+   public void setLinearAccelerationLimit(RsAccelerationParameter limit){
+      linearLimit = limit;
+   }
+
+   public RsAccelerationParameter getLinearAccelerationLimit(){
+      return linearLimit;
+   }
+
+   /**
+    * Sets the limits on the turn rate (radians/sec) and rotational
+    * acceleration (radians/sec/sec) of the body.  A null value indicates
+    * that there is no limit.
+    */
+   public void setRotationalAccelerationLimit(RsAccelerationParameter limit){
+      rotationalLimit = limit;
+   }
+
+   public RsAccelerationParameter getRotationalAccelerationLimit(){
+      return rotationalLimit;
+   }
+
    protected void computeBounds(){
       if(wheels==null)
          return;
@@ -164,7 +204,7 @@ public abstract class RsWheelSystem extends RsActuator {
     */
 
    @Override
-public void setFillColor(Color fillColor){
+public void setFillColor(RsColor fillColor){
       if(wheels==null)
          return;
       this.fillColor = fillColor;
@@ -177,7 +217,7 @@ public void setFillColor(Color fillColor){
     * for all wheel objects that were added to the wheel system prior to its invocation.
     */
    @Override
-public void setLineColor(Color lineColor){
+public void setLineColor(RsColor lineColor){
       if(wheels==null)
          return;
       this.lineColor = lineColor;
@@ -186,15 +226,6 @@ public void setLineColor(Color lineColor){
    }
 
 
-   @Override
-public void paint(Graphics g, RsTransform gt){
-
-      if(wheels==null)
-          return;
-      for(int iWheel=0; iWheel<wheels.length; iWheel++)
-         wheels[iWheel].paint(g, gt);
-   }
-
 
    public void applyMotion(RsMotion motion){
      if(wheels==null)
@@ -230,6 +261,9 @@ public void paint(Graphics g, RsTransform gt){
          RsVector vector = new RsVector(Math.cos(theta), Math.sin(theta));
          double displacement= Math.abs(durationSec*request.linearVelocity);
          displacement=Math.abs(displacement);
+         RsMotionProfile profile = computeProfile(durationSec, displacement, 0);
+         if(profile!=null)
+            return new RsMotionLine(start, startTime, profile, vector, displacement);
          return new RsMotionLine(start, startTime, request.duration, vector, displacement);
       }else{
          // circular motion
@@ -241,6 +275,10 @@ public void paint(Graphics g, RsTransform gt){
              delta = -delta;
          RsPoint pivot = start.transform.getOffset();
          pivot.translate(-turnRadius*Math.sin(theta), turnRadius*Math.cos(theta));
+         RsMotionProfile profile = computeProfile(
+               durationSec, Math.abs(turnRadius*delta), Math.abs(delta));
+         if(profile!=null)
+            return new RsMotionCircle(start, startTime, profile, pivot, delta);
          return new RsMotionCircle(start, startTime, request.duration, pivot, delta);
       }
    }
@@ -250,6 +288,55 @@ public void paint(Graphics g, RsTransform gt){
 
 
 
+   /**
+    * Computes the profile for a motion covering the specified linear
+    * distance and turn angle, with the requested duration giving the
+    * cruising rate.  Returns null if the motion should proceed at a
+    * constant rate (there are no acceleration limits), in which case the
+    * requested duration applies.
+    */
+   protected RsMotionProfile computeProfile(double duration, double distance, double angle)
+   {
+      double rate         = 1/duration;    // in paths per second
+      double acceleration = 0;             // zero means no limit yet
+      double a;
+
+      if(linearLimit!=null && distance>1.0e-9){
+         if(linearLimit.velocity>0)
+            rate = Math.min(rate, linearLimit.velocity/distance);
+         if(linearLimit.acceleration>0){
+            a = linearLimit.acceleration/distance;
+            if(acceleration==0 || a<acceleration)
+               acceleration = a;
+         }
+      }
+      if(rotationalLimit!=null && angle>1.0e-9){
+         if(rotationalLimit.velocity>0)
+            rate = Math.min(rate, rotationalLimit.velocity/angle);
+         if(rotationalLimit.acceleration>0){
+            a = rotationalLimit.acceleration/angle;
+            if(acceleration==0 || a<acceleration)
+               acceleration = a;
+         }
+      }
+
+      if(acceleration==0){
+         if(rate<1/duration){
+            // the velocity is capped, but there is no ramp.  the same
+            // path is covered at a constant (slower) rate.  A profile with
+            // an acceleration high enough to reach the rate in a
+            // microsecond does the job without a special case.
+            return new RsMotionProfile(rate, rate*1.0e+6);
+         }
+         return null;
+      }
+      return new RsMotionProfile(rate, acceleration);
+   }
+
+
+
+
+
    /** Given a goal position defined in x/y coordinates in the robots frame of
     *  reference, getMotionRequest computes a motion request that will cause
     *  the robot to move from its current position to the goal. If the goal
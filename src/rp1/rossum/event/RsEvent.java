@@ -52,8 +52,8 @@ import java.io.Serializable;
 public abstract class RsEvent implements Serializable, Cloneable  {
 
    // event identification codes
-   public static final int EVT_MAX_CODE             = 13;
-   public static final int EVT_ARRAY_SIZE           = 14;
+   public static final int EVT_MAX_CODE             = 16;
+   public static final int EVT_ARRAY_SIZE           = 17;
    public static final int EVT_CONTACT_SENSOR       = 0;
    public static final int EVT_MOUSE_CLICK          = 1;
    public static final int EVT_POSITION             = 2;
@@ -68,6 +68,9 @@ public abstract class RsEvent implements Serializable, Cloneable  {
    public static final int EVT_PAINT_SENSOR         = 11;
    public static final int EVT_HEARTBEAT            = 12;
    public static final int EVT_ENCODER_STATUS       = 13;
+   public static final int EVT_SCANNING_RANGE_SENSOR = 14;
+   public static final int EVT_PLAN_CHANGE          = 15;
+   public static final int EVT_ROUTE                = 16;
 
 
 
@@ -0,0 +1,70 @@
+/*  -------------------------------------------------------------
+
+    Rossum's Playhouse  --  a client/server based robot simulator
+    Rossum's Playhouse is also known under the name "RP1".
+    Copyright (C) 1999  G.W. Lucas
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+----------------------------------------------------------------- */
+
+
+package rp1.rossum.event;
+
+/*
+
+   RsPlanChangeEvent.java
+
+   This event is issued when an object is added to, moved within, or
+   removed from the floor plan while the simulation is running (see
+   RsPlanChangeRequest).  It is sent to all clients that subscribe to it.
+   Rather than sending the whole plan again, the event describes just
+   the change, so that a client holding a copy of the plan can bring
+   it up to date (see RsPlan.applyPlanChangeEvent()).
+
+   For additions and moves, the object element gives the object as it
+   is after the change.  For removals, it is null.  As in RsPlanEvent,
+   the object is defined as belonging to class java.lang.Object
+   rather than RsObject to avoid a circular dependency.
+
+*/
+
+
+
+/**
+ * An event issued when an object in the floor plan is added,
+ * moved, or removed.
+ *
+ */
+
+public class RsPlanChangeEvent extends RsEvent {
+
+   private static final long serialVersionUID = 1L;
+
+   public RsPlanChangeEvent(double simTime, int change, String objectName, Object object){
+      super(EVT_PLAN_CHANGE, simTime);
+      this.change     = change;
+      this.objectName = objectName;
+      this.object     = object;
+   }
+
+   public final int    change;
+   public final String objectName;
+   public final Object object;
+
+   public static final int OBJECT_ADDED   = 0;
+   public static final int OBJECT_MOVED   = 1;
+   public static final int OBJECT_REMOVED = 2;
+}
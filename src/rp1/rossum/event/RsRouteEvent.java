@@ -0,0 +1,93 @@
+/*  -------------------------------------------------------------
+
+    Rossum's Playhouse  --  a client/server based robot simulator
+    Rossum's Playhouse is also known under the name "RP1".
+    Copyright (C) 1999  G.W. Lucas
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+----------------------------------------------------------------- */
+
+
+package rp1.rossum.event;
+
+/*
+   RsRouteEvent.java
+
+   The route event is generated in response to an RsRouteRequest.
+   If a route was found, it is given as a list of waypoints from the
+   start of the route to its end.  The name of the navigation node
+   from which each waypoint was taken is also given (or an empty string
+   if the waypoint doesn't come from a node).
+
+*/
+
+
+
+/**
+ * An event issued in response to a client's request for a route.
+ *
+ */
+
+public class RsRouteEvent extends RsEvent {
+
+   private static final long serialVersionUID = 1L;
+
+   public RsRouteEvent(
+      double    simTime,
+      int       routeIndex,
+      boolean   valid,
+      double [] x,
+      double [] y,
+      String [] nodeName)
+   {
+      super(EVT_ROUTE, simTime);
+      this.routeIndex = routeIndex;
+      this.valid      = valid;
+      this.x          = x;
+      this.y          = y;
+      this.nodeName   = nodeName;
+   }
+
+   /**
+    * The routeIndex value will correspond to the return value from
+    * the call to the RsClient.sendRouteRequest method that was used
+    * to trigger the route event.
+    */
+   public final int routeIndex;
+
+   /**
+    * A flag indicating that a route was found.  If it is false,
+    * the waypoint arrays are empty.
+    */
+   public final boolean valid;
+
+   public int getWaypointCount(){
+      return x.length;
+   }
+
+   /**
+    * Gets the total length of the route, in meters.
+    */
+   public double getLength(){
+      double s = 0;
+      for(int i=1; i<x.length; i++)
+         s += Math.sqrt((x[i]-x[i-1])*(x[i]-x[i-1])+(y[i]-y[i-1])*(y[i]-y[i-1]));
+      return s;
+   }
+
+   public final double [] x, y;       // in meters
+   public final String [] nodeName;
+}
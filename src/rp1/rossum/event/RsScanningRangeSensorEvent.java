@@ -0,0 +1,108 @@
+/*  -------------------------------------------------------------
+
+    Rossum's Playhouse  --  a client/server based robot simulator
+    Rossum's Playhouse is also known under the name "RP1".
+    Copyright (C) 1999  G.W. Lucas
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+----------------------------------------------------------------- */
+
+
+package rp1.rossum.event;
+
+/*
+
+The ScanningRangeSensorEvent is generated when the status of a scanning
+range sensor changes, which is to say that the range bin of at least one
+beam has changed (including going from a detection to no-detection or
+visa versa).   The event carries the complete scan, one range value per
+beam, rather than just the beams that changed.
+
+The range array gives the range along each beam.  A value of -1
+indicates that there was no detection along that beam.  Beams are
+spread evenly across the field of view starting at
+heading-fieldOfView/2 (see getBeamAngle()).
+
+Like the RangeSensorEvent, this event includes a few fields which would
+not be available from a real sensor:  the absolute position (x, y)
+of the sensor and the absolute heading of the center of the scan.  These
+are for diagnostic or human-interface purposes.  Using these in a client's
+navigation logic is cheating.
+
+*/
+
+
+
+/**
+ * An event generated by the simulator when a scanning range sensor
+ * undergoes a change in state.
+ *
+ */
+
+public class RsScanningRangeSensorEvent extends RsSensorEvent{
+
+   private static final long serialVersionUID = 1L;
+
+   public final double    x, y;
+   public final double    heading;
+   public final double    fieldOfView;
+   public final double    maxRange;
+   public final boolean   status;   // true if any beam has a detection
+   public final double [] range;    // -1 for beams with no detection
+
+
+   public RsScanningRangeSensorEvent(
+      double    simTime,
+      int       sensorID,
+      double    x,
+      double    y,
+      double    heading,
+      double    fieldOfView,
+      double    maxRange,
+      boolean   status,
+      double [] range)
+  {
+         super(EVT_SCANNING_RANGE_SENSOR, simTime, sensorID);
+         this.x           = x;
+         this.y           = y;
+         this.heading     = heading;
+         this.fieldOfView = fieldOfView;
+         this.maxRange    = maxRange;
+         this.status      = status;
+         this.range       = range;
+  }
+
+   public int getBeamCount(){
+      return range.length;
+   }
+
+   /**
+    * Gets the absolute direction of the specified beam.
+    */
+   public double getBeamAngle(int index){
+      int nBeam = range.length;
+      if(nBeam<2)
+         return heading;
+      double spacing;
+      if(fieldOfView>=2*Math.PI-1.0e-9)
+         spacing = fieldOfView/nBeam;
+      else
+         spacing = fieldOfView/(nBeam-1);
+      return heading-fieldOfView/2+index*spacing;
+   }
+
+}
+
@@ -26,7 +26,8 @@
 
 package rp1.rossum.request;
 
-import java.awt.Color;
+import rp1.rossum.RsColor;
+
 
 
 
@@ -48,7 +49,7 @@ public final int      painterID;
    public final double   xTrailer;
    public final double   yTrailer;
    public final double   wTrailer;
-   public final Color [] color;
+   public final RsColor [] color;
 
    public RsPainterChangeRequest(
       int        painterID,
@@ -58,7 +59,7 @@ public final int      painterID;
       double     xTrailer,
       double     yTrailer,
       double     wTrailer,
-      Color []   color)
+      RsColor [] color)
    {
       super(REQ_PAINTER_CHANGE);
       this.painterID  = painterID;
@@ -0,0 +1,82 @@
+/*  -------------------------------------------------------------
+
+    Rossum's Playhouse  --  a client/server based robot simulator
+    Rossum's Playhouse is also known under the name "RP1".
+    Copyright (C) 1999  G.W. Lucas
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+----------------------------------------------------------------- */
+
+
+package rp1.rossum.request;
+
+/*
+
+   RsPlanChangeRequest.java
+
+   A request to change the floor plan while the simulation is running.
+   The kinds of change are
+
+      ADD_OBJECT:    the object (a wall, target, placement, or paint
+                     region) is added to the plan.  Its name must not
+                     already be in use.
+
+      MOVE_OBJECT:   the geometry of the named object is replaced by the
+                     specified geometry (in the same form as that given
+                     in the floor-plan file).  A "move" may also reshape
+                     the object.
+
+      REMOVE_OBJECT: the named object is removed from the plan.
+
+   The navigation network (nodes and links) may not be changed.
+
+   Note that the object is defined as belonging to class java.lang.Object
+   rather than RsObject, for the same reasons given in RsPlanEvent.
+
+   If the request is valid, the simulator sends an RsPlanChangeEvent to
+   all clients that have subscribed to plan changes.  Invalid requests
+   are ignored.
+
+*/
+
+
+
+/**
+ * A client request to add, move, or remove a floor-plan object.
+ *
+ */
+
+public class RsPlanChangeRequest extends RsRequest {
+
+   private static final long serialVersionUID = 1L;
+
+   public RsPlanChangeRequest(int change, String name, Object object, double [] geometry){
+      super(REQ_PLAN_CHANGE);
+      this.change   = change;
+      this.name     = name;
+      this.object   = object;
+      this.geometry = geometry;
+   }
+
+   public final int       change;
+   public final String    name;
+   public final Object    object;     // for ADD_OBJECT only
+   public final double [] geometry;   // for MOVE_OBJECT only
+
+   public static final int ADD_OBJECT    = 0;
+   public static final int MOVE_OBJECT   = 1;
+   public static final int REMOVE_OBJECT = 2;
+}
@@ -37,8 +37,8 @@ import java.io.Serializable;
 public abstract class RsRequest implements Serializable, Cloneable {
 
 
-   public static final int REQ_MAX_CODE         = 13;
-   public static final int REQ_ARRAY_SIZE       = 14;
+   public static final int REQ_MAX_CODE         = 16;
+   public static final int REQ_ARRAY_SIZE       = 17;
    public static final int REQ_TIMEOUT          = 0;
    public static final int REQ_SUBSCRIPTION     = 1;
    public static final int REQ_SENSOR_STATUS    = 2;
@@ -53,6 +53,9 @@ public abstract class RsRequest implements Serializable, Cloneable {
    public static final int REQ_PAINTER_CHANGE   = 11;
    public static final int REQ_ACTUATOR_CONTROL = 12;
    public static final int REQ_ENCODER_STATUS   = 13;
+   public static final int REQ_PLAN_CHANGE      = 14;
+   public static final int REQ_TRAJECTORY       = 15;
+   public static final int REQ_ROUTE            = 16;
 
 
 
@@ -0,0 +1,73 @@
+/*  -------------------------------------------------------------
+
+    Rossum's Playhouse  --  a client/server based robot simulator
+    Rossum's Playhouse is also known under the name "RP1".
+    Copyright (C) 1999  G.W. Lucas
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+----------------------------------------------------------------- */
+
+
+package rp1.rossum.request;
+
+/*
+
+   RsRouteRequest.java
+
+   A request for the simulator to plan a route from a start point to
+   a goal point.  The route is planned over the floor plan's navigation
+   network (see rp1.rossum.RsNavPlanner), from the node nearest the start
+   to the node nearest the goal.  The result is returned in an RsRouteEvent
+   carrying the same route index, so a client may have several requests
+   outstanding at once.
+
+   If the plan has no navigation network, the route is planned over
+   the free space around the walls instead (see rp1.rossum.RsGridPlanner),
+   allowing for the footprint of the client's body.  Such a route begins
+   at the start point itself and ends at the goal point.
+
+   A client running in the same process as the plan (or one that has
+   obtained the plan with a plan request) can also call the planner
+   directly through RsPlan.getNavPlanner() or an RsGridPlanner.
+
+*/
+
+
+
+/**
+ * A client request for a planned route; note that route requests are
+ * all marked with a unique serial number that is returned to the client
+ * in the corresponding route event.
+ *
+ */
+
+public class RsRouteRequest extends RsRequest {
+
+   private static final long serialVersionUID = 1L;
+
+   public RsRouteRequest(int routeIndex, double x0, double y0, double x1, double y1){
+      super(REQ_ROUTE);
+      this.routeIndex = routeIndex;
+      this.x0         = x0;
+      this.y0         = y0;
+      this.x1         = x1;
+      this.y1         = y1;
+   }
+
+   public final int    routeIndex;
+   public final double x0, y0;   // start point, in meters
+   public final double x1, y1;   // goal point, in meters
+}
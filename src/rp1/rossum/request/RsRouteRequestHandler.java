@@ -21,29 +21,18 @@
 ----------------------------------------------------------------- */
 
 
+package rp1.rossum.request;
 
-package rp1.simulator;
-import java.awt.*;
 
 
 
 /**
- * A custom AWT event sent to SimCanvas when it is time
- * to render a new animation frame.
+ * A server-side handler for route requests.
+ *
  */
 
-public class SimAnimationEvent extends AWTEvent {
+public interface RsRouteRequestHandler extends RsRequestHandler {
 
-   /**
-	 * 
-	 */
-	private static final long serialVersionUID = -3456164907213189258L;
+   public void process(RsRouteRequest request);
 
-public SimAnimationEvent(SimCanvas canvas){
-      super(canvas, SIM_ANIMATION_EVENT);
-   }
-
-   public static final int SIM_ANIMATION_EVENT = AWTEvent.RESERVED_ID_MAX+7758;
 }
-
-
@@ -0,0 +1,84 @@
+/*  -------------------------------------------------------------
+
+    Rossum's Playhouse  --  a client/server based robot simulator
+    Rossum's Playhouse is also known under the name "RP1".
+    Copyright (C) 1999  G.W. Lucas
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+----------------------------------------------------------------- */
+
+
+package rp1.rossum.request;
+
+/*
+
+   RsTrajectoryRequest.java
+
+   A request for a series of motions to be executed one after the other.
+   Each segment is specified just like an RsMotionRequest (a line if
+   the rotational velocity is zero, otherwise an arc) and is interpreted
+   by the RsWheelSystem in the same way.
+
+   Without this request, a client following a path has to send
+   a motion request, wait for the RsMotionHaltedEvent, and then send
+   the next one, which costs a round trip over the network (and, if
+   enabled, an interlock) for every segment.   Instead, the simulator
+   starts each segment at the instant the previous one ends.  If any
+   segment ends in a collision, the rest of the trajectory is discarded.
+
+   The client receives one RsMotionStartedEvent when the first segment
+   starts and one RsMotionHaltedEvent when the trajectory is complete
+   (or is halted early).   The duration given in the halted event
+   covers the entire trajectory.
+
+   A motion request, a halt request, or a new trajectory request cancels
+   any trajectory which is in progress.   A trajectory with no segments
+   does nothing more than that;  it is complete as soon as it starts,
+   and its RsMotionHaltedEvent (with a duration of zero) is sent at once.
+   A trajectory may have at most MAX_SEGMENT_COUNT segments.
+
+*/
+
+
+
+/**
+ * A request for a series of consecutive motions.
+ *
+ */
+
+public class RsTrajectoryRequest extends RsRequest {
+
+   private static final long serialVersionUID = 1L;
+
+   public static final int MAX_SEGMENT_COUNT = 4096;
+
+   public RsTrajectoryRequest(RsMotionRequest [] segment){
+      super(REQ_TRAJECTORY);
+      if(segment.length>MAX_SEGMENT_COUNT)
+         throw new IllegalArgumentException("Trajectory has too many segments "+segment.length);
+      this.segment = segment.clone();
+   }
+
+   public int getSegmentCount(){
+      return segment.length;
+   }
+
+   public RsMotionRequest getSegment(int index){
+      return segment[index];
+   }
+
+   private final RsMotionRequest [] segment;
+}
@@ -0,0 +1,452 @@
+/*  -------------------------------------------------------------
+
+    Rossum's Playhouse  --  a client/server based robot simulator
+    Rossum's Playhouse is also known under the name "RP1".
+    Copyright (C) 1999  G.W. Lucas
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+----------------------------------------------------------------- */
+
+
+
+package rp1.simulator;
+import rp1.rossum.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+
+
+/*
+   SimBodyCollisionDetector.java   collisions between robots
+
+   Collisions with walls are computed when a motion begins (see
+   SimClient.processCollision) because the walls never move.  That
+   approach doesn't work for collisions between robots:  when one
+   robot starts a motion, the others may start, stop, or change
+   their motions before it completes.  So robot-to-robot collisions
+   are checked by the motion task, once per modeling frame, over the
+   interval of time since the previous frame.
+
+   Broad phase (sweep and prune)
+
+      Each placed body gets a bounding rectangle.  For a body that is
+      in motion, it is the swept bounds of its interactive shapes over
+      the whole motion (see RsMotion.getSweptBounds);  for a body at
+      rest, it is the bounds of its shapes at its current position.
+      Either way, it only changes when the motion changes, so it is
+      cached.  The bodies are kept in a list sorted by the left edge
+      of their rectangles.  Since the rectangles change little from
+      one frame to the next, an insertion sort of the list from the
+      previous frame is nearly linear.  A single sweep over the sorted
+      list then finds the pairs whose rectangles overlap.  Only pairs
+      in which at least one body is moving are considered.
+
+   Narrow phase
+
+      For each candidate pair, the interval is divided into steps short
+      enough that no point on either body can move more than half the
+      footprint radius of the smaller body in one step, and the bodies
+      are tested for overlap at each step (RsBodyOverlapChecker).  When
+      an overlap is found, the time of first contact is refined by
+      bisection to within CONTACT_RESOLUTION seconds.  As with the
+      collisions with walls, bodies are stopped just shy of contact
+      (the last time at which they were found to be clear), so that they
+      never end up overlapping.  A pair that already overlaps at the
+      start of the interval (for example, after a placement on top of
+      another robot) is ignored, since stopping them would leave them
+      stuck together.
+
+   Reporting
+
+      Both bodies in a collision are given the same contact time.
+      A body that was moving is halted at that time and its client
+      receives a motion-halted event (HALTED_ON_COLLISION).  For both
+      bodies, any contact sensor touching the other body goes hot
+      and, if the client is subscribed, an event is sent with the
+      same time.  If a body is involved in more than one collision in
+      the same frame, the collisions are processed in order of time,
+      and pairs involving a body that has already been halted are
+      re-tested with its truncated motion.
+
+   This class is used only from the scheduler thread and is not
+   synchronized.
+*/
+
+
+/**
+ * Detects collisions between the bodies of the clients in a session.
+ */
+
+public class SimBodyCollisionDetector {
+
+   private static final double CONTACT_RESOLUTION = 1.0e-4;
+   private static final int    MAX_STEPS          = 1000;
+
+   private SimSession        session;
+   private boolean           started;
+   private double            lastTime;
+
+   private SimClient      [] clients;
+   private Entry          [] entry;
+   private int               nEntry;
+   private ArrayList<Contact> contactList;
+
+
+   public SimBodyCollisionDetector(SimSession session){
+      this.session = session;
+      started      = false;
+      entry        = new Entry[0];
+      contactList  = new ArrayList<Contact>();
+   }
+
+
+   /**
+    * Checks for collisions between bodies over the interval from the
+    * time of the previous call to the specified time.  This should be
+    * called before the motions are advanced to the time.
+    */
+   public void process(double time){
+
+      double t0 = lastTime;
+      double t1 = time;
+      if(!started || t1<=t0){
+         started  = true;
+         lastTime = time;
+         return;
+      }
+      lastTime = time;
+
+      if(session.clients==null || session.clients.length<2)
+         return;
+      updateEntries(session.clients);
+
+      int i, j, nActive;
+      Entry a, b;
+
+      // broad phase
+      for(i=0; i<nEntry; i++)
+         entry[i].setBounds(t0, t1);
+      sortEntries();
+
+      contactList.clear();
+      for(i=0; i<nEntry; i++){
+         a = entry[i];
+         if(!a.active)
+            continue;
+         for(j=i+1; j<nEntry; j++){
+            b = entry[j];
+            if(b.bounds.x > a.bounds.x+a.bounds.width)
+               break;
+            if(!b.active || !(a.moving || b.moving))
+               continue;
+            if(b.bounds.y > a.bounds.y+a.bounds.height
+            || a.bounds.y > b.bounds.y+b.bounds.height)
+               continue;
+            Contact c = findContact(a, b, t0, t1);
+            if(c!=null)
+               contactList.add(c);
+         }
+      }
+
+      if(contactList.isEmpty())
+         return;
+
+      // process the contacts in order of time
+      if(contactList.size()>1){
+         Collections.sort(contactList, new Comparator<Contact>(){
+            @Override
+public int compare(Contact c1, Contact c2){
+               return Double.compare(c1.time, c2.time);
+            }
+         });
+      }
+
+      nActive = contactList.size();
+      for(i=0; i<nActive; i++){
+         Contact c = contactList.get(i);
+         if(c.a.halted || c.b.halted){
+            c = findContact(c.a, c.b, t0, t1);
+            if(c==null)
+               continue;
+         }
+         reportContact(c);
+      }
+   }
+
+
+   private void reportContact(Contact c){
+      String nameA = c.a.body.getName();
+      String nameB = c.b.body.getName();
+
+      session.verbose("Collision between bodies "+nameA+" and "+nameB
+         +" at sim time "+c.time);
+
+      c.a.setContactSensors(c.b, c.hitTime);
+      c.b.setContactSensors(c.a, c.hitTime);
+
+      if(c.a.client.processBodyContact(c.time))
+         c.a.halted = true;
+      if(c.b.client.processBodyContact(c.time))
+         c.b.halted = true;
+   }
+
+
+   // the narrow phase test for a pair of bodies, returns null if
+   // they do not come into contact during the interval.
+   private Contact findContact(Entry a, Entry b, double t0, double t1){
+
+      if(a.checkForOverlap(t0, b))
+         return null;  // they were already in contact
+
+      double travel = (a.getSpeedBound()+b.getSpeedBound())*(t1-t0);
+      double step   = 0.5*Math.min(a.footprint, b.footprint);
+      if(step<1.0e-3)
+         step=1.0e-3;
+      int nStep = (int)Math.ceil(travel/step);
+      if(nStep<1)
+         nStep=1;
+      else if(nStep>MAX_STEPS)
+         nStep=MAX_STEPS;
+
+      double tLo = t0;
+      double tHi = t0;
+      boolean hit = false;
+      for(int k=1; k<=nStep; k++){
+         tHi = (k==nStep) ? t1 : t0+(t1-t0)*k/nStep;
+         if(a.checkForOverlap(tHi, b)){
+            hit=true;
+            break;
+         }
+         tLo = tHi;
+      }
+      if(!hit)
+         return null;
+
+      double tMid;
+      while(tHi-tLo>CONTACT_RESOLUTION){
+         tMid = 0.5*(tLo+tHi);
+         if(a.checkForOverlap(tMid, b))
+            tHi = tMid;
+         else
+            tLo = tMid;
+      }
+
+      Contact c = new Contact();
+      c.a       = a;
+      c.b       = b;
+      c.time    = tLo;
+      c.hitTime = tHi;
+      return c;
+   }
+
+
+   // keeps an entry for each client with a placed body.  entries are
+   // re-used from frame to frame (preserving the sort order) and are
+   // rebuilt only when the set of clients changes.
+   private void updateEntries(SimClient [] c){
+      int i, j;
+      if(c!=clients){
+         Entry [] e = new Entry[c.length];
+         int n = 0;
+         for(i=0; i<c.length; i++){
+            if(c[i].body==null)
+               continue;
+            Entry match = null;
+            for(j=0; j<nEntry; j++){
+               if(entry[j].client==c[i] && entry[j].body==c[i].body){
+                  match = entry[j];
+                  break;
+               }
+            }
+            e[n++] = (match!=null) ? match : new Entry(c[i]);
+         }
+         entry   = e;
+         nEntry  = n;
+         clients = c;
+      }
+
+      for(i=0; i<nEntry; i++){
+         if(entry[i].body!=entry[i].client.body)
+            entry[i] = new Entry(entry[i].client);
+         entry[i].active = entry[i].body!=null && entry[i].body.getPlacement();
+         entry[i].halted = false;
+      }
+   }
+
+   // insertion sort on the left edge of the bounds
+   private void sortEntries(){
+      Entry e;
+      int   i, j;
+      for(i=1; i<nEntry; i++){
+         e = entry[i];
+         j = i-1;
+         while(j>=0 && entry[j].bounds.x>e.bounds.x){
+            entry[j+1] = entry[j];
+            j--;
+         }
+         entry[j+1] = e;
+      }
+   }
+
+
+   private static class Contact {
+      Entry  a, b;
+      double time;      // the last time at which the bodies were clear
+      double hitTime;   // the first time at which they were found in contact
+   }
+
+
+   private static class Entry {
+
+      SimClient              client;
+      RsBody                 body;
+      RsBodyOverlapChecker   checker;
+      RsBodyContactSensor [] contact;
+      RsBodyOverlapChecker[] contactChecker;
+      double                 footprint;
+
+      boolean                active;
+      boolean                moving;
+      boolean                halted;
+      RsRectangle            bounds;
+      RsMotion               boundsMotion;
+      double                 boundsTime1;
+      boolean                boundsMoving;
+      RsRectangle            scratch;
+      RsTransform            transform;
+      RsPoint                point;
+
+      Entry(SimClient client){
+         this.client = client;
+         body        = client.body;
+         bounds      = new RsRectangle();
+         scratch     = new RsRectangle();
+         transform   = new RsTransform();
+         point       = new RsPoint();
+         if(body==null){
+            contact = new RsBodyContactSensor[0];
+            return;
+         }
+
+         // the body gets its own checkers, separate from the one
+         // the body uses for placements
+         checker   = new RsBodyOverlapChecker(body.getInteractiveBodyShapeArray());
+         footprint = body.getFootprintRadius();
+
+         int i, n = 0;
+         RsBodyPart [] part = body.getBodyPartArray();
+         if(part==null)
+            part = new RsBodyPart[0];
+         for(i=0; i<part.length; i++)
+            if(part[i] instanceof RsBodyContactSensor)
+               n++;
+         contact        = new RsBodyContactSensor[n];
+         contactChecker = new RsBodyOverlapChecker[n];
+         n = 0;
+         for(i=0; i<part.length; i++){
+            if(part[i] instanceof RsBodyContactSensor){
+               contact[n]        = (RsBodyContactSensor)part[i];
+               contactChecker[n] = new RsBodyOverlapChecker(new RsBodyShape[] {contact[n]});
+               n++;
+            }
+         }
+      }
+
+      double getSpeedBound(){
+         if(!moving)
+            return 0;
+         RsMotion m = body.getMotion();
+         return m.getPeakVelocity()+m.getPeakTurnRate()*footprint;
+      }
+
+      // the transform is overwritten by the next call, but
+      // each entry has its own so two bodies can be compared
+      RsTransform getTransform(double time){
+         return body.getMotion().getTransformAtTime(time, transform);
+      }
+
+      boolean checkForOverlap(double time, Entry other){
+         return checker.checkForOverlap(getTransform(time), other.checker, other.getTransform(time));
+      }
+
+      void setContactSensors(Entry other, double time){
+         RsTransform t  = getTransform(time);
+         RsTransform to = other.getTransform(time);
+         for(int i=0; i<contact.length; i++){
+            if(contactChecker[i].checkForOverlap(t, other.checker, to))
+               contact[i].setCollision(true, other.body.getName());
+         }
+      }
+
+      void setBounds(double t0, double t1){
+         if(!active){
+            moving       = false;
+            boundsMotion = null;
+            bounds.setBounds(Double.MAX_VALUE, Double.MAX_VALUE, 0, 0);
+            return;
+         }
+
+         RsMotion m = body.getMotion();
+         moving = client.isMotionEngaged()
+               && !(m instanceof RsMotionNull)
+               && m.time0<t1 && m.time1>t0;
+
+         if(m==boundsMotion && m.time1==boundsTime1 && moving==boundsMoving)
+            return;  // the cached bounds are still good
+         boundsMotion = m;
+         boundsTime1  = m.time1;
+         boundsMoving = moving;
+
+         RsBodyShape [] shape = body.getInteractiveBodyShapeArray();
+         RsTransform    t     = getTransform(m.time1);
+         RsSegment   [] s;
+         RsPoint        p     = point;
+         boolean        first = true;
+         bounds.setBounds(t.m13, t.m23, 0, 0);
+         if(shape==null)
+            return;
+
+         for(int i=0; i<shape.length; i++){
+            s = shape[i].getSegmentArray();
+            if(moving){
+               if(!m.getSweptBounds(s, s.length, scratch)){
+                  // the motion can't supply swept bounds, so the body
+                  // has to be tested against everything
+                  bounds.setBounds(
+                     -Double.MAX_VALUE/4, -Double.MAX_VALUE/4,
+                      Double.MAX_VALUE/2,  Double.MAX_VALUE/2);
+                  return;
+               }
+               if(first)
+                  bounds.copy(scratch);
+               else
+                  bounds.union(scratch);
+               first = false;
+            }else{
+               for(int j=0; j<s.length; j++){
+                  t.map(s[j].x, s[j].y, p);
+                  if(first)
+                     bounds.setBounds(p.x, p.y, 0, 0);
+                  else
+                     bounds.insert(p);
+                  first = false;
+               }
+            }
+         }
+      }
+   }
+}
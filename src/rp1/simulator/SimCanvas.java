@@ -38,11 +38,16 @@ import rp1.rossum.*;
       in the list...  in such a case, it is used to clear the
       display and remove any left-over robot images from view.
 
+      The drawing itself is done by a SimRenderer (which can also draw
+      into off-screen images), this class manages the double buffering
+      and the AWT events.
+
 
 */
 
 
 import java.awt.*;
+import java.util.ArrayList;
 
 
 
@@ -58,43 +63,49 @@ public class SimCanvas extends Canvas implements SimStateDataInterface
 	 * 
 	 */
 	private static final long serialVersionUID = -6461208230953041167L;
-// elements used for converting coordinate systems
-   private double   x0,  y0,  x1,  y1;
-   private double  px0, py0, px1, py1;
-   private int     ix0, iy0, ix1, iy1;
 
    private SimSession    session;
    private RsPlan        plan;
-   private Font   font;
+   private SimRenderer   renderer;
+   private double        frameInterval;
+   private double        lastFrameTime;
+   private double        zoom;
+   private double        xCenter, yCenter;
+   private boolean       following;
 
    protected RsBody      [] bodyArray;
    protected SimPaintBox [] paintBoxArray;
 
 
-   private EventQueue eventQueue;
-
-
    private Image        bgBuffer;
    private Image        fgBuffer;
-   private RsRectangle  footPrint;
-   private boolean      navNetPaintingOption;
    private RsTransform  graphicsTransform;
-   private RsTransform  scratchTransform;
+
+   // what is currently drawn on the fgBuffer, by body
+   private int         [] drawnID;
+   private int         [] drawnVersion;
+   private RsRectangle [] drawnBounds;
+   private ArrayList<RsRectangle> dirty;
 
 
    public SimCanvas(SimSession session){
       this.session = session;
       plan      = session.getPlan();
-      font      = null;
-      footPrint = null;
-      navNetPaintingOption = true;
+      renderer  = new SimRenderer(plan);
+      renderer.setPlanImageCache(session.views.getPlanImageCache());
+      frameInterval = session.animationFrameInterval;
+      lastFrameTime = 0;
+      zoom          = 1;
+      following     = false;
+      RsRectangle r = plan.getBounds();
+      if(r!=null){
+         xCenter = r.x+r.width/2;
+         yCenter = r.y+r.height/2;
+      }
+      dirty     = new ArrayList<RsRectangle>();
       setBackground(Color.white);
 
       graphicsTransform = null;
-      scratchTransform = new RsTransform();
-
-      eventQueue = Toolkit.getDefaultToolkit().getSystemEventQueue();
-      enableEvents(0);
 
       bodyArray = null;
       bgBuffer  = null;
@@ -104,39 +115,125 @@ public class SimCanvas extends Canvas implements SimStateDataInterface
 
 
 
-   public void queueAnimationEvent(){
-      SimAnimationEvent m = new SimAnimationEvent(this);
-      eventQueue.postEvent(m);
+   /**
+    * Draws an animation frame from the latest state data, if this view's
+    * frame interval has elapsed since it drew the last one.  Called
+    * by SimViewSet in the event dispatch thread.
+    * @return zero if a frame was drawn (or none could be), otherwise the time in
+    *         seconds until this view will be ready to draw the next frame.
+    */
+   public double animate(){
+
+      if(graphicsTransform==null)
+         return 0;
+
+      double now  = System.currentTimeMillis()/1000.0;
+      double wait = lastFrameTime+frameInterval-now;
+      if(wait>0)
+         return wait;
+      lastFrameTime = now;
+
+      session.stateDataExchange.retrieveStateData(this);
+
+      if(following && recenterOnFollowedBody()){
+         repaint();   // the whole view has moved
+         return 0;
+      }
+
+      Graphics  g  = getGraphics();
+      if(g!=null){
+         paintBodies(g, bodyArray);
+         g.dispose();
+      }
+      return 0;
+   }
+
+
+   public void setFrameInterval(double seconds){
+      frameInterval = seconds;
+   }
+
+   public double getFrameInterval(){
+      return frameInterval;
    }
 
-   @Override
-public void processEvent(AWTEvent event){
-      if(event.getID()==SimAnimationEvent.SIM_ANIMATION_EVENT){
-         SimAnimationEvent sme = (SimAnimationEvent)event;
-         processSimAnimationEvent(sme);
-      }else{
-         super.processEvent(event);
+
+   /**
+    * Sets the magnification of the view relative to the whole plan
+    * (values less than one are treated as one).
+    */
+   public void setZoom(double zoom){
+      this.zoom = zoom<1 ? 1 : zoom;
+      if(this.zoom==1){
+         RsRectangle r = plan.getBounds();
+         xCenter = r.x+r.width/2;
+         yCenter = r.y+r.height/2;
       }
+      updateViewRegion();
+      repaint();
    }
 
-   private void processSimAnimationEvent(SimAnimationEvent sme){
+   public double getZoom(){
+      return zoom;
+   }
 
-      if(graphicsTransform==null)
-         return;
 
-      session.stateDataExchange.retrieveStateData(this);
+   /**
+    * Sets whether the view follows the first robot that has a placement.
+    * The view is re-centered on the robot whenever it leaves the middle of
+    * the view, so it is mainly of use when the view is zoomed in.
+    */
+   public void setFollowing(boolean following){
+      this.following = following;
+      if(following && recenterOnFollowedBody())
+         repaint();
+   }
+
+   public boolean isFollowing(){
+      return following;
+   }
+
+
+   private boolean recenterOnFollowedBody(){
+      if(bodyArray==null || zoom==1)
+         return false;
+      for(int i=0; i<bodyArray.length; i++){
+         RsBody body = bodyArray[i];
+         if(!body.getPlacement())
+            continue;
+         double x = body.motion.transform.m13;
+         double y = body.motion.transform.m23;
+         RsRectangle r = plan.getBounds();
+         double halfWidth  = r.width/zoom/2;
+         double halfHeight = r.height/zoom/2;
+         if(Math.abs(x-xCenter)<halfWidth/2 && Math.abs(y-yCenter)<halfHeight/2)
+            return false;   // still comfortably inside the view
+         xCenter = x;
+         yCenter = y;
+         updateViewRegion();
+         return true;
+      }
+      return false;
+   }
+
+   private void updateViewRegion(){
+      if(zoom==1){
+         renderer.setViewRegion(null);
+      }else{
+         RsRectangle r = plan.getBounds();
+         double w = r.width/zoom;
+         double h = r.height/zoom;
+         renderer.setViewRegion(new RsRectangle(xCenter-w/2, yCenter-h/2, w, h));
+      }
+   }
 
-      Graphics  g  = getGraphics();
-      paintBodies(g, bodyArray);
-      g.dispose();
-  }
 
    public void setNavNetPaintingOption(boolean value){
-      navNetPaintingOption = value;
+      renderer.setNavNetPaintingOption(value);
    }
 
    public boolean getNavNetPaintingOption(){
-      return navNetPaintingOption;
+      return renderer.getNavNetPaintingOption();
    }
 
    @Override
@@ -146,9 +243,6 @@ public void update(Graphics g){
 
    @Override
 public void paint(Graphics gp){
-      double rAspect, sAspect, a;
-      double width, height;
-
       Graphics   g;
       Dimension  size;
 
@@ -173,94 +267,24 @@ public void paint(Graphics gp){
       session.stateDataExchange.retrieveStateData(this);
 
       // clear out state values used for double buffering
-      footPrint = null;
+      drawnID      = null;
+      drawnVersion = null;
+      drawnBounds  = null;
       bgBuffer  = null;
       fgBuffer  = null;
 
-
-      RsRectangle r   = plan.getBounds();
-      if(r.width<=0 || r.height<=0 || size.width<4 || size.height<4)
+      boolean drawable  = renderer.setSize(size.width, size.height);
+      graphicsTransform = renderer.getGraphicsTransform();
+      if(!drawable)
          return;   // trivial image, do nothing.
 
       bgBuffer=createImage(size.width, size.height);
       fgBuffer=createImage(size.width, size.height);
 
-      rAspect=r.width/r.height;
-      sAspect=(double)size.width/(double)size.height;
-      a=rAspect/sAspect;
-      if(a<1.0){
-         /* it's height limited */
-         height=size.height;
-         if(height>30)
-            height-=15;   // allow a little breathing room for the graphic
-         width=rAspect*height;
-      }else{
-         width=size.width;
-         if(width>30)
-            width-=15;    // breathing room
-         height=width/rAspect;
-      }
-
-      px0 = (size.width-width)/2;
-      px1 = px0 + width;
-      ix0 = (int)Math.floor(px0);
-      ix1 = (int)Math.floor(px1);
-
-      py1 = (size.height-height)/2;
-      py0 = py1 + height;
-      iy0 = (int)Math.floor(py0);
-      iy1 = (int)Math.floor(py1);
-
-      x0=r.x;
-      y0=r.y;
-      x1=r.x+r.width;
-      y1=r.y+r.height;
-
-      graphicsTransform = new RsTransform();
-      double sx = (px1-px0)/(x1-x0);
-      double sy = (py1-py0)/(y1-y0);
-      graphicsTransform.m11 = sx;
-      graphicsTransform.m12 = 0;
-      graphicsTransform.m13 = -sx*x0+px0;
-      graphicsTransform.m21 = 0;
-      graphicsTransform.m22 = sy;
-      graphicsTransform.m23 = -sy*y0+py0;
-
-
       g = bgBuffer.getGraphics();
-      if(font==null){
-         font=new Font("SansSerif", Font.BOLD, 14);
-      }
-
-      g.setFont(font);
-      g.setColor(Color.white);
-      g.fillRect(0, 0, size.width, size.height);
-
-      // Loop through the objects, plot them
-
-      RsObject [] object;
-
-      scratchTransform.copy(graphicsTransform);
-      scratchTransform.m13 = Math.floor(scratchTransform.m13+0.5);
-      scratchTransform.m23 = Math.floor(scratchTransform.m23+0.5);
-      object = plan.getObjectArray();
-      if(object!=null && object.length>0){
-         for(int iObject=0; iObject<object.length; iObject++){
-            if(!object[iObject].getSelected())
-               continue;
-            if(!navNetPaintingOption){
-               if(object[iObject] instanceof RsNavNode ||
-                  object[iObject] instanceof RsNavLink)
-                     continue;
-            }
-            object[iObject].paint(g, scratchTransform);
-         }
-      }
-
-      repaintPainters(g, graphicsTransform);
-
-
+      renderer.paintBackground(g, paintBoxArray);
       g.dispose();
+
       gp.drawImage(bgBuffer, 0, 0, null);
       g = fgBuffer.getGraphics();
       g.drawImage(bgBuffer, 0, 0, null);
@@ -269,14 +293,6 @@ public void paint(Graphics gp){
       paintBodies(gp, bodyArray);
    }
 
-   int xMap(double x){
-      return (int)Math.floor((ix1-ix0)*(x-x0)/(x1-x0)+ix0+0.5);
-   }
-
-   int yMap(double y){
-      return (int)Math.floor((iy1-iy0)*(y-y0)/(y1-y0)+iy0+0.5);
-   }
-
    public RsPoint inverseMap(int ix, int iy){
       RsPoint p = new RsPoint();
       inverseMap(ix, iy, p);
@@ -284,133 +300,146 @@ public void paint(Graphics gp){
    }
 
    public void inverseMap(int ix, int iy, RsPoint p){
-      p.x = (x1-x0)*(ix-ix0)/(ix1-ix0)+x0;
-      p.y = (y1-y0)*(iy-iy0)/(iy1-iy0)+y0;
+      renderer.inverseMap(ix, iy, p);
    }
 
 
 
 
    private RsRectangle paintPainters(){
-
-      SimPaintBox [] paintBox = session.getPaintBoxArray();
-      if(paintBox==null)
+      if(bgBuffer==null)
+         return null;
+      if(!renderer.isBackgroundCurrent(paintBoxArray)){
+         // something was erased, the whole picture needs to be redone
+         repaint();
          return null;
+      }
 
-      RsRectangle r = null;
       Graphics    g = bgBuffer.getGraphics();
-
-      for(int i=0; i<paintBox.length; i++)
-         r = paintBox[i].paintAtTime(g, graphicsTransform, r, 0);
-
+      RsRectangle r = renderer.paintNewTrails(g, paintBoxArray);
       g.dispose();
       return r;
    }
 
-   private void repaintPainters(Graphics g, RsTransform graphicsTransform){
-      SimPaintBox [] paintBox = session.getPaintBoxArray();
-      if(paintBox!=null){
-         for(int i=0; i<paintBox.length; i++)
-            paintBox[i].repaint(g, graphicsTransform);
-      }
-   }
-
 
 
+   /**
+    * Brings the picture up to date.  Only the regions that have changed
+    * are redrawn:  the old and new positions of each body whose
+    * state has changed (or which has come or gone) and any new trail points.
+    * In those regions the background is restored from bgBuffer, then any
+    * bodies that touch them are drawn again.  So the cost of a frame depends
+    * on the area that changes rather than the size of the canvas or the
+    * number of bodies.
+    */
    public synchronized void paintBodies(Graphics gp, RsBody [] bodies){
 
-      if(bodies==null && footPrint==null)
+      if(fgBuffer==null || (bodies==null && drawnBounds==null))
          return;
 
-      int         fx0, fy0, fx1, fy1;
+      int         i, j, k;
       Graphics    g;
-      RsRectangle oldFootPrint=null;
-      RsBody      body;
-      Dimension   size = getSize();
+      Dimension   size  = getSize();
+      int         nBody = bodies==null ? 0 : bodies.length;
 
+      dirty.clear();
       RsRectangle  rpb = paintPainters();
-
-
-      if(rpb!=null){
-         if(footPrint==null)
-            footPrint=rpb;
-         else
-            footPrint.union(rpb);
+      if(rpb!=null)
+         dirty.add(rpb);
+
+      int         [] id      = new int[nBody];
+      int         [] version = new int[nBody];
+      RsRectangle [] bounds  = new RsRectangle[nBody];
+      boolean     [] matched = drawnID==null ? null : new boolean[drawnID.length];
+
+      for(i=0; i<nBody; i++){
+         id[i]      = bodies[i].getID();
+         version[i] = bodies[i].getStateVersion();
+         bounds[i]  = padAndClip(renderer.getBodyBounds(bodies[i]), size);
+
+         j = drawnID==null ? -1 : drawnID.length;
+         while(--j>=0){
+            if(drawnID[j]==id[i])
+               break;
+         }
+         if(j>=0)
+            matched[j] = true;
+         if(j<0 || drawnVersion[j]!=version[i]){
+            if(j>=0 && drawnBounds[j]!=null)
+               dirty.add(drawnBounds[j]);
+            if(bounds[i]!=null)
+               dirty.add(bounds[i]);
+         }
       }
 
+      if(drawnID!=null){
+         // bodies that have gone away must be erased
+         for(j=0; j<drawnID.length; j++){
+            if(!matched[j] && drawnBounds[j]!=null)
+               dirty.add(drawnBounds[j]);
+         }
+      }
 
-      g = fgBuffer.getGraphics();
-
+      drawnID      = id;
+      drawnVersion = version;
+      drawnBounds  = bounds;
 
-      // the footPrint reference indicates whether we expect that there is
-      // already one or more robots drawn to the fgBuffer.   If there is, we must
-      // blit the background on top of it to obliterate the old robot rendering.
-      // note that the paint() method sets the footPrint to null.
-      // note also that if there is no placement, the footPrint is set
-      // to null.
-
-      if(footPrint!=null && footPrint.width>0){
-         footPrint.x-=2;
-         footPrint.y-=2;
-         footPrint.width+=5;
-         footPrint.height+=5;
-         footPrint.clip(0, 0, size.width, size.height);
-         fx0 = (int)footPrint.x;
-         fy0 = (int)footPrint.y;
-         fx1 = (int)(footPrint.x+footPrint.width);
-         fy1 = (int)(footPrint.y+footPrint.height);
-         g.drawImage(bgBuffer, fx0, fy0, fx1, fy1, fx0, fy0, fx1, fy1, null);
-      }
+      if(dirty.isEmpty())
+         return;
 
-      if(bodies!=null){
-         oldFootPrint = footPrint;
-         footPrint    = new RsRectangle();
-         for(int iBody=0; iBody<bodies.length; iBody++){
-            body = bodies[iBody];
-            if(!body.getPlacement())
-               continue;
-
-            scratchTransform.concat(graphicsTransform, body.motion.transform);
-            scratchTransform.m13 = Math.floor(scratchTransform.m13+0.5);
-            scratchTransform.m23 = Math.floor(scratchTransform.m23+0.5);
-            body.paint(g, scratchTransform);
-            RsRectangle rx = new RsRectangle(body.refBounds);
-            rx.transform(scratchTransform);
-            footPrint.union(rx);
+      // restore the background in the dirty regions, then redraw any
+      // body that touches them.  redrawing a body may overwrite parts of
+      // bodies drawn after it, so those are redrawn too.
+      int nDirty = dirty.size();
+      g = fgBuffer.getGraphics();
+      for(k=0; k<nDirty; k++)
+         blit(g, bgBuffer, dirty.get(k));
+
+      for(i=0; i<nBody; i++){
+         if(bounds[i]==null)
+            continue;
+         for(k=0; k<dirty.size(); k++){
+            if(bounds[i].intersects(dirty.get(k))){
+               renderer.paintBody(g, bodies[i]);
+               if(!dirty.contains(bounds[i]))
+                  dirty.add(bounds[i]);
+               break;
+            }
          }
       }
-
       g.dispose();
 
-      if(oldFootPrint==null)
-         oldFootPrint=footPrint;
-      else
-         oldFootPrint.union(footPrint);
+      for(k=0; k<dirty.size(); k++)
+         blit(gp, fgBuffer, dirty.get(k));
+   }
 
 
-      // add a little breathing room around footprint, and also clip
-      // it to the display.   if the robot has wandered off the display,
+   private RsRectangle padAndClip(RsRectangle r, Dimension size){
+      // add a little breathing room around the bounds, and also clip
+      // them to the display.   if the robot has wandered off the display,
       // then clipping may produce a zero-dimensioned rectangle.
       // note that in the AWT, drawImage does NOT like image dimensions
       // that were off the display...  strangeness might ensue if we didn't
       // prevent that from happening.
+      if(r==null)
+         return null;
+      r.x-=2;
+      r.y-=2;
+      r.width+=5;
+      r.height+=5;
+      r.clip(0, 0, size.width, size.height);
+      if(r.width<=0 || r.height<=0)
+         return null;
+      return r;
+   }
 
-      oldFootPrint.x-=2;
-      oldFootPrint.y-=2;
-      oldFootPrint.width+=4;
-      oldFootPrint.height+=4;
-      oldFootPrint.clip(0, 0, size.width, size.height);
 
-      if(oldFootPrint.width==0 && oldFootPrint.height==0){
-         // for whatever reason, there's nothing to draw */
-         footPrint=null;
-      }else{
-         fx0 = (int)oldFootPrint.x;
-         fy0 = (int)oldFootPrint.y;
-         fx1 = (int)(oldFootPrint.x+oldFootPrint.width);
-         fy1 = (int)(oldFootPrint.y+oldFootPrint.height);
-         gp.drawImage(fgBuffer, fx0, fy0, fx1, fy1, fx0, fy0, fx1, fy1, null);
-      }
+   private void blit(Graphics g, Image source, RsRectangle r){
+      int fx0 = (int)r.x;
+      int fy0 = (int)r.y;
+      int fx1 = (int)(r.x+r.width);
+      int fy1 = (int)(r.y+r.height);
+      g.drawImage(source, fx0, fy0, fx1, fy1, fx0, fy0, fx1, fy1, null);
    }
 
 
@@ -33,6 +33,7 @@ public class SimClient extends RsConnection {
       protected SimSession         session;
       protected RsBody             body;
       protected SimPaintBox []     paintBox;
+      protected RsFreeSpaceMap     freeSpaceMap;
 
       private   SimHeartbeatTask   heartbeatTask;
 
@@ -43,11 +44,24 @@ public class SimClient extends RsConnection {
       private   int                motionWaypoint;
       private   double             motionTime0;
       private   double             motionTime1;
+      private   double             motionStartTime;  // sim time, for the halted event
+
+      private   RsTrajectoryRequest trajectory;      // segments still to come
+      private   int                trajectoryIndex;
 
       private   boolean            collision;  // the motion ends in a collision;
       private   RsWall             collisionWall;
       private   RsBodyPart         collisionPart;
 
+      private   RsTransform        sensorTransform = new RsTransform();
+
+      // scratch space for the swept-bounds broad phase in
+      // processCollision() and processWallChange(), reused from
+      // one check to the next.
+      private   RsRectangle        swept = new RsRectangle();
+      private   RsRectangle     [] shapeSwept;
+      private   boolean         [] shapeSweptOK;
+
 
    public SimClient(SimSession session){
       super();
@@ -62,6 +76,10 @@ public class SimClient extends RsConnection {
 
       this.body = body;
 
+      // the free-space map is used for random placements,
+      // it is built now so that the first placement doesn't have to wait.
+      freeSpaceMap = session.getFreeSpaceMap(body.getFootprintRadius());
+
       RsBodyPainter [] painter = body.getBodyPainterArray();
       if(painter==null){
          paintBox = null;
@@ -69,6 +87,10 @@ public class SimClient extends RsConnection {
          paintBox = new SimPaintBox[painter.length];
          for(int i=0; i<painter.length; i++){
             paintBox[i] = new SimPaintBox(painter[i].getID());
+            paintBox[i].setRetention(
+               session.properties.getTrailMaximumAge(),
+               session.properties.getTrailMaximumPoints(),
+               session.properties.getTrailSimplificationTolerance());
             session.addPaintBox(paintBox[i]);
          }
       }
@@ -78,6 +100,10 @@ public class SimClient extends RsConnection {
       return paintBox;
    }
 
+   public RsFreeSpaceMap getFreeSpaceMap(){
+      return freeSpaceMap;
+   }
+
 
 
    public synchronized void queueStopMotionTask(){
@@ -110,6 +136,12 @@ public void  sendMotionStartedEvent(RsMotionStartedEvent event){
          super.sendMotionStartedEvent(event);
    }
 
+   @Override
+public void  sendPlanChangeEvent(RsPlanChangeEvent event){
+      if(isClientSubscribedToEvent(RsEvent.EVT_PLAN_CHANGE, 0))
+         super.sendPlanChangeEvent(event);
+   }
+
    public void startHeartbeat(double interval){
        if(interval==0){
           // an interval of zero stops the heartbeat
@@ -144,6 +176,15 @@ public void  sendMotionStartedEvent(RsMotionStartedEvent event){
       }
    }
 
+   // the body index gives the other clients' sensors the current
+   // position of this body.  the index only does work if the body
+   // has actually moved.
+   private void updateBodyIndex(RsMotion motion){
+      RsBodyIndex bodyIndex = session.getBodyIndex();
+      if(bodyIndex!=null && body.getPlacement())
+         bodyIndex.update(body, motion.transform);
+   }
+
    public double processMotion(double taskTime) {
 
       RsMotion            motion;
@@ -157,18 +198,36 @@ public void  sendMotionStartedEvent(RsMotionStartedEvent event){
 
       motion.setTimeForward(taskTime);
       body.applyMotion(); // see "TO DO" in RsBody
+      body.markStateChanged();
 
       applyMotionToPaintBoxes(motion);
+      updateBodyIndex(motion);
 
 
       bodyPart = body.getBodyPartArray();
 
 
+      // when one segment of a trajectory is complete, the next one
+      // starts at the same instant (the motion task is always scheduled
+      // for the end of a motion, see below).   a segment that ended in a
+      // collision ends the trajectory.
+
+      boolean continuation = false;
+      if(motionRequest==null && motionEngaged && trajectory!=null
+            && motion.time>=motion.time1 && !motion.collision
+            && trajectoryIndex<trajectory.getSegmentCount())
+      {
+         motionRequest = trajectory.getSegment(trajectoryIndex++);
+         continuation  = true;
+      }
+
+
       // if there's a request, set up the motion.  remember that
       // one motion flows into another.
 
       if(motionRequest!=null){
-         motionWaypoint=0;
+         if(!continuation)
+            motionWaypoint=0;
          body.computeMotion(taskTime, motionRequest);
          body.setCollision(false);
          motion = body.getMotion();
@@ -177,6 +236,7 @@ public void  sendMotionStartedEvent(RsMotionStartedEvent event){
          session.verbose("processed collision ");
          if(motion.collision){
             body.setCollision(true);
+            trajectory = null;
             session.verbose("Crash in "+motion.collisionTime+" sec.\n\t\tPart :"
                  + collisionPart.getName()+ ",  Wall: "+collisionWall.getName());
             if(motion.collisionTime==0){
@@ -186,13 +246,17 @@ public void  sendMotionStartedEvent(RsMotionStartedEvent event){
                motion.truncateForCollision();
          }else{
             session.verbose("Initiating motion (v,omega,time): "
-                                  +motion.getVelocity()+", "
-                                  +motion.getTurnRate()+", "
+                                  +motion.getPeakVelocity()+", "
+                                  +motion.getPeakTurnRate()+", "
                                   +(motion.time1-motion.time0));
          }
 
+         // the client is told only about the start of a trajectory,
+         // not about the start of each of its segments
+         if(!continuation)
+            motionStartTime = motion.time0;
          duration = motion.time1-motion.time0;
-         if(duration>0){
+         if(duration>0 && !continuation){
             sendMotionStartedEvent(
                new RsMotionStartedEvent(
                   motion.time0,
@@ -208,7 +272,8 @@ public void  sendMotionStartedEvent(RsMotionStartedEvent event){
 
          motionRequest=null;   // we're done with it, null the reference to enable collection.
          motionEngaged=true;
-         motionTime0 = System.currentTimeMillis()/1000.0;
+         if(!continuation)
+            motionTime0 = System.currentTimeMillis()/1000.0;
 
 
          // go through the RsBodyContact sensors.  if we have
@@ -239,7 +304,8 @@ public void  sendMotionStartedEvent(RsMotionStartedEvent event){
          the only time that they SHOULD change).   */
 
       boolean  sChange;
-      sChange = body.processSensors(taskTime, session.getPlan(), motion.transform);
+      updateSensorSampling();
+      sChange = body.processSensors(taskTime, session.getPlan(), motion.transform, session.getBodyIndex());
       if(sChange){
          RsBodyPart  [] part = body.getBodyPartArray();
          RsBodySensor   sensor;
@@ -262,6 +328,13 @@ public void  sendMotionStartedEvent(RsMotionStartedEvent event){
                      sEvent = sensor.getSensorEvent(taskTime);
                      sendRangeSensorEvent((RsRangeSensorEvent)sEvent);
                   }
+               }else if(sensor instanceof RsBodyScanningRangeSensor){
+                  if(isClientSubscribedToEvent(
+                     RsEvent.EVT_SCANNING_RANGE_SENSOR, sensor.getID()))
+                  {
+                     sEvent = sensor.getSensorEvent(taskTime);
+                     sendScanningRangeSensorEvent((RsScanningRangeSensorEvent)sEvent);
+                  }
                }else if(sensor instanceof RsBodyPaintSensor){
                   if(isClientSubscribedToEvent(
                      RsEvent.EVT_PAINT_SENSOR, sensor.getID()))
@@ -286,7 +359,7 @@ public void  sendMotionStartedEvent(RsMotionStartedEvent event){
          have the sensors in the correct state when we post. */
 
 
-      if(motion.time<motion.time1){
+      if(motion.time<motion.time1 || isTrajectoryContinuing(motion)){
          //  schedule next time we evaluate the motion.
          //  TO DO:
          //  right now, we always use the modelingFrameInterval
@@ -298,11 +371,18 @@ public void  sendMotionStartedEvent(RsMotionStartedEvent event){
          //  motion more often.
 
          double nextTime=motion.time+session.modelingFrameInterval;
+         // sensors with a sampling rate faster than the modeling frames
+         // (or out of step with them) get frames of their own
+         double sampleTime=body.getTimeOfNextSensorSample(motion.time);
+         if(sampleTime>0 && sampleTime<nextTime)
+            nextTime=sampleTime;
          if(nextTime >motion.time1)
             nextTime=motion.time1;
          return nextTime;
       }
 
+      trajectory = null;
+
       // if we get here, we've finished the movement.
 
       motionTime1 = System.currentTimeMillis()/1000.0;
@@ -327,7 +407,7 @@ public void  sendMotionStartedEvent(RsMotionStartedEvent event){
 
       if(!placementRequested){
         // a placement would have resulted in a null motion
-         duration = motion.time1-motion.time0;
+         duration = motion.time1-motionStartTime;
          if(motion.collision){
             session.verbose("Motion truncated by collision in "
                   +motionWaypoint+" segments, real sec: "+(motionTime1-motionTime0)+
@@ -368,6 +448,62 @@ public void  sendMotionStartedEvent(RsMotionStartedEvent event){
 
 
 
+   // a trajectory segment which ran to completion is followed
+   // by the next one (see processMotion)
+   private boolean isTrajectoryContinuing(RsMotion motion){
+      return trajectory!=null && !motion.collision
+          && trajectoryIndex<trajectory.getSegmentCount();
+   }
+
+
+   /**
+    * Gets the event code for the sensor events issued by the specified
+    * sensor, or -1 if its events are not handled in processMotion.
+    */
+   private static int getSensorEventCode(RsBodySensor sensor){
+      if(sensor instanceof RsBodyTargetSensor)
+         return RsEvent.EVT_TARGET_SENSOR;
+      else if(sensor instanceof RsBodyRangeSensor)
+         return RsEvent.EVT_RANGE_SENSOR;
+      else if(sensor instanceof RsBodyScanningRangeSensor)
+         return RsEvent.EVT_SCANNING_RANGE_SENSOR;
+      else if(sensor instanceof RsBodyPaintSensor)
+         return RsEvent.EVT_PAINT_SENSOR;
+      return -1;
+   }
+
+   // a sensor whose events nobody is subscribed to is not evaluated
+   // during the motion at all.  if it is polled, updateSensorState()
+   // brings it up to date.
+   private void updateSensorSampling(){
+      RsBodyPart  [] part = body.getBodyPartArray();
+      RsBodySensor   sensor;
+      int            code;
+      for(int i=0; i<part.length; i++){
+         if(part[i] instanceof RsBodySensor){
+            sensor = (RsBodySensor)part[i];
+            code   = getSensorEventCode(sensor);
+            if(code>=0)
+               sensor.setSamplingEnabled(isClientSubscribedToEvent(code, sensor.getID()));
+         }
+      }
+   }
+
+   /**
+    * Brings the state of a sensor up to date for the specified time.
+    * Because sensors are evaluated during a motion only when a sample
+    * is due and a client is subscribed to them, the state of a sensor
+    * which is polled (see SimSensorTask) may be out of date.  If the
+    * body hasn't moved and nothing else has changed, the sensor keeps
+    * its cached state (see RsBodySensor.updateState).
+    */
+   public void updateSensorState(RsBodySensor sensor, double simTime){
+      RsTransform t = body.getMotion().getTransformAtTime(simTime, sensorTransform);
+      sensor.updateState(simTime, session.getPlan(), t, session.getBodyIndex(), body);
+   }
+
+
+
    private void
    processCollision(RsPlan plan, RsBody body, RsMotion motion){
 
@@ -378,23 +514,31 @@ public void  sendMotionStartedEvent(RsMotionStartedEvent event){
       RsBodyShape [] bodyShape;
       RsBodyContactSensor contact;
       RsSegment[] sa;
-      RsSegment[] wa;
 
       bodyPart  = body.getBodyPartArray();
       bodyShape = body.getInteractiveBodyShapeArray();
-     /** An unresolved issue
-
-        we have the bounding box of the robot and we know that
-        if the box doesn't collide with anything, then the
-        robot won't either and we can complete the entire motion
-        without futher testing.  The box consists of only 4 segments, so we
-        can process it faster than the robot, which contains many
-        segments.  Simple enough.
-
-        Except that it doesn't seem to work.  Testing the
-        idea with the random walk (drunk) application, the
-        robot eventually ends up "in the wall."   I haven't
-        yet figured out why.  */
+     /* The swept-bounds broad phase
+
+        An earlier version of this method tried to speed things up
+        by first running the collision test on the robot's bounding box
+        (4 segments instead of many).  It didn't work:  testing with the
+        random walk (drunk) application, the robot eventually ended up
+        "in the wall."  The trouble is that the segment-based collision
+        logic only detects a crossing of the box's edges by walls (and
+        vice versa), it says nothing about a wall that ends up entirely
+        inside the box or a corner that slips between the tests
+        at the wrong moment.  So "the box didn't collide" never
+        really meant "the robot can't collide."
+
+        Instead, we now ask the motion for a rectangle that conservatively
+        contains everything the body part will sweep through during the
+        motion (see RsMotion.getSweptBounds).  If a wall's bounds don't
+        intersect that rectangle, no point on the wall can ever be touched
+        by the part and the exact tests are skipped.  This is a comparison
+        of areas, not of edges, so it can't miss anything the exact test
+        would find.  If the motion can't supply swept bounds, everything
+        is tested as before.
+      */
 
       collision=false;
 
@@ -407,11 +551,13 @@ public void  sendMotionStartedEvent(RsMotionStartedEvent event){
             contact = (RsBodyContactSensor)bodyPart[j];
             contact.setCollision(false);
             sa = contact.getSegmentArray();
+            boolean sweptOK = motion.getSweptBounds(sa, sa.length, swept);
             for(i=0; i<objectArray.length; i++){
                if(objectArray[i] instanceof RsWall){
                   wall = (RsWall)objectArray[i];
-                  wa = wall.getSegmentArray();
-                  if(motion.processCollision(sa, sa.length, wa, wa.length)){
+                  if(sweptOK && isOutsideSweep(swept, wall))
+                     continue;
+                  if(motion.processCollision(sa, sa.length, wall)){
                        collision=true;
                        collisionWall=wall;
                        collisionPart=bodyPart[j];
@@ -442,13 +588,25 @@ public void  sendMotionStartedEvent(RsMotionStartedEvent event){
       //         when there's time,  see if we can skip
       //         any body shapes that are contact sensors.
 
+      if(shapeSwept==null || shapeSwept.length<bodyShape.length){
+         shapeSwept   = new RsRectangle[bodyShape.length];
+         shapeSweptOK = new boolean[bodyShape.length];
+         for(j=0; j<bodyShape.length; j++)
+            shapeSwept[j] = new RsRectangle();
+      }
+      for(j=0; j<bodyShape.length; j++){
+         sa = bodyShape[j].getSegmentArray();
+         shapeSweptOK[j] = motion.getSweptBounds(sa, sa.length, shapeSwept[j]);
+      }
+
       for(i=0; i<objectArray.length; i++){
          if(objectArray[i] instanceof RsWall){
             wall = (RsWall)objectArray[i];
-            wa = wall.getSegmentArray();
             for(j=0; j<bodyShape.length; j++){
+               if(shapeSweptOK[j] && isOutsideSweep(shapeSwept[j], wall))
+                  continue;
                sa = bodyShape[j].getSegmentArray();
-               if(motion.processCollision(sa, sa.length, wa, wa.length)){
+               if(motion.processCollision(sa, sa.length, wall)){
                     collision=true;
                     collisionWall=wall;
                     collisionPart=bodyPart[j];
@@ -460,17 +618,300 @@ public void  sendMotionStartedEvent(RsMotionStartedEvent event){
       }
    }
 
+   /**
+    * Processes a collision with another body (see SimBodyCollisionDetector).
+    * The contact sensors touching the other body must already have been
+    * marked by setCollision().  If the body is in motion, the motion
+    * is halted at the contact time and a motion-halted event is sent.
+    * Contact sensors which have become hot are reported with the same time.
+    * Returns true if the motion was halted.
+    */
+   public boolean processBodyContact(double contactTime){
+
+      RsMotion            motion   = body.getMotion();
+      RsBodyPart       [] bodyPart = body.getBodyPartArray();
+      RsBodyContactSensor contact;
+      boolean             halted   = motionEngaged && contactTime<motion.time1;
+
+      body.markStateChanged();
+      if(halted){
+         motion.stopMotionAtTime(contactTime);
+         motion.collision     = true;
+         motion.collisionTime = motion.time1-motion.time0;
+         body.applyMotion();
+         applyMotionToPaintBoxes(motion);
+         updateBodyIndex(motion);
+         body.setCollision(true);
+         trajectory = null;
+      }
+
+      for(int j=0; j<bodyPart.length; j++){
+         if(bodyPart[j] instanceof RsBodyContactSensor){
+            contact = (RsBodyContactSensor)bodyPart[j];
+            if(contact.getCollision() && !contact.getHot()){
+               contact.setHot(true);
+               contact.setCollisionTime(0);
+               if(isClientSubscribedToEvent(
+                    RsEvent.EVT_CONTACT_SENSOR,
+                    contact.getID()))
+               {
+                  contact.sendSensorEvent(this, contactTime);
+               }
+            }
+         }
+      }
+
+      if(halted){
+         motionEngaged      = false;
+         placementRequested = false;
+         motionTime1        = System.currentTimeMillis()/1000.0;
+         session.verbose("Motion truncated by collision with another body, sim sec. "
+               +(motion.time1-motionStartTime));
+
+         RsMotionHaltedEvent event = new RsMotionHaltedEvent(
+            contactTime,
+            RsMotionHaltedEvent.HALTED_ON_COLLISION,
+            motion.transform.m13,
+            motion.transform.m23,
+            motion.getOrientation(),
+            motion.time1-motionStartTime
+         );
+
+         sendMotionHaltedEvent(event);
+      }
+
+      return halted;
+   }
+
+   /**
+    * Checks a placed body against a wall which has just been added to
+    * the plan or moved.  If the wall now overlaps the body where it
+    * stands, the body is treated as having collided with it (see
+    * processWallOverlap()).  Otherwise, the rest of the current
+    * motion (if any) is checked and, if the body would now run into the
+    * wall, the motion is truncated just as though the wall had been in
+    * place when the motion started.
+    */
+   public void processWallChange(RsWall wall, double simTime){
+
+      if(body==null || !body.getPlacement())
+         return;
+
+      RsMotion motion = body.getMotion();
+      if(motionEngaged)
+         motion.setTimeForward(simTime);
+      if(body.getOverlapChecker().checkForOverlap(wall, motion.transform)){
+         processWallOverlap(wall, simTime);
+         return;
+      }
+      if(!motionEngaged)
+         return;
+
+      RsMotion remainder = motion.getRemainingMotion();
+      if(remainder==null)
+         return;
+
+      RsBodyPart       [] bodyPart  = body.getBodyPartArray();
+      RsBodyShape      [] bodyShape = body.getInteractiveBodyShapeArray();
+      RsBodyContactSensor contact;
+      RsSegment        [] sa;
+      RsBodyPart          part      = null;
+      double           [] contactTime = new double[bodyPart.length];
+      int                 j;
+
+      for(j=0; j<bodyPart.length; j++){
+         contactTime[j] = -1;
+         if(bodyPart[j] instanceof RsBodyContactSensor){
+            sa = ((RsBodyContactSensor)bodyPart[j]).getSegmentArray();
+            if(remainder.getSweptBounds(sa, sa.length, swept) && isOutsideSweep(swept, wall))
+               continue;
+            if(remainder.processCollision(sa, sa.length, wall)){
+               contactTime[j] = remainder.collisionTime;
+               part = bodyPart[j];
+            }
+         }
+      }
+      for(j=0; j<bodyShape.length; j++){
+         sa = bodyShape[j].getSegmentArray();
+         if(remainder.getSweptBounds(sa, sa.length, swept) && isOutsideSweep(swept, wall))
+            continue;
+         if(remainder.processCollision(sa, sa.length, wall))
+            part = bodyShape[j];
+      }
+
+      // the collision time for the remainder is relative to the current
+      // time, so it must be adjusted to the start of the whole motion.
+      // if the motion already stops sooner, there's nothing to do.
+      if(!remainder.collision)
+         return;
+      double elapsed       = remainder.time0-motion.time0;
+      double collisionTime = elapsed+remainder.collisionTime;
+      if(collisionTime>=motion.time1-motion.time0)
+         return;
+
+      for(j=0; j<bodyPart.length; j++){
+         if(bodyPart[j] instanceof RsBodyContactSensor){
+            contact = (RsBodyContactSensor)bodyPart[j];
+            if(contactTime[j]>=0 && contactTime[j]<=remainder.collisionTime){
+               contact.setCollision(true, wall.getName());
+               contact.setCollisionTime(elapsed+contactTime[j]);
+            }else{
+               contact.setCollision(false);
+            }
+         }
+      }
+
+      motion.collision     = true;
+      motion.collisionTime = collisionTime;
+      motion.truncateForCollision();
+      body.markStateChanged();
+      collision     = true;
+      collisionWall = wall;
+      collisionPart = part;
+      session.verbose("Motion truncated by change to wall "+wall.getName()
+         +", collision in "+collisionTime+" sec.");
+   }
+
+   /**
+    * Handles a wall which has been placed on top of the body.  If the
+    * body is moving, it is halted where it stands, as for a collision.
+    * In either case, the body and those contact sensors which touch the
+    * wall are marked as colliding and the client gets its contact
+    * sensor events, just as it would for a collision in the course of
+    * a motion.
+    */
+   private void processWallOverlap(RsWall wall, double simTime){
+
+      RsMotion            motion   = body.getMotion();
+      RsBodyPart       [] bodyPart = body.getBodyPartArray();
+      RsBodyContactSensor contact;
+      RsBodyOverlapChecker contactChecker;
+      RsBodyPart          part     = null;
+      boolean             halted   = motionEngaged && simTime<motion.time1;
+
+      body.markStateChanged();
+      if(halted){
+         motion.stopMotionAtTime(simTime);
+         motion.collision     = true;
+         motion.collisionTime = motion.time1-motion.time0;
+      }
+
+      // wall changes are rare, so the contact sensors' checkers
+      // are simply made as they are needed.
+      for(int j=0; j<bodyPart.length; j++){
+         if(bodyPart[j] instanceof RsBodyContactSensor){
+            contact        = (RsBodyContactSensor)bodyPart[j];
+            contactChecker = new RsBodyOverlapChecker(new RsBodyShape[] {contact});
+            if(contactChecker.checkForOverlap(wall, motion.transform)){
+               contact.setCollision(true, wall.getName());
+               part = contact;
+               if(!contact.getHot()){
+                  contact.setHot(true);
+                  contact.setCollisionTime(0);
+                  if(isClientSubscribedToEvent(
+                       RsEvent.EVT_CONTACT_SENSOR,
+                       contact.getID()))
+                  {
+                     contact.sendSensorEvent(this, simTime);
+                  }
+               }
+            }
+         }
+      }
+
+      body.setCollision(true);
+      collision     = true;
+      collisionWall = wall;
+      collisionPart = part;
+
+      if(halted){
+         body.applyMotion();
+         applyMotionToPaintBoxes(motion);
+         updateBodyIndex(motion);
+         trajectory         = null;
+         motionEngaged      = false;
+         placementRequested = false;
+         motionTime1        = System.currentTimeMillis()/1000.0;
+         session.verbose("Motion halted by change to wall "+wall.getName()
+               +", sim sec. "+(motion.time1-motionStartTime));
+
+         RsMotionHaltedEvent event = new RsMotionHaltedEvent(
+            simTime,
+            RsMotionHaltedEvent.HALTED_ON_COLLISION,
+            motion.transform.m13,
+            motion.transform.m23,
+            motion.getOrientation(),
+            motion.time1-motionStartTime
+         );
+
+         sendMotionHaltedEvent(event);
+      }else{
+         session.verbose("Wall "+wall.getName()+" placed on top of body");
+      }
+   }
+
+   private static boolean isOutsideSweep(RsRectangle swept, RsWall wall){
+      RsRectangle r = wall.getBounds();
+      return r!=null && !swept.intersects(r);
+   }
+
+   /**
+    * Notes that the state of the body may have changed,
+    * so the renderer needs a fresh copy of it.
+    */
+   public void markBodyStateChanged(){
+      if(body!=null)
+         body.markStateChanged();
+   }
+
    public boolean isMotionProcessingRequired(){
       return motionEngaged || (motionRequest!=null) || placementRequested;
    }
 
    public void setMotionRequest(RsMotionRequest motionRequest){
       this.motionRequest = motionRequest;
+      trajectory         = null;
+   }
+
+   /**
+    * Sets up a trajectory;  its first segment is started just like
+    * a motion request and the rest follow it without a gap.
+    */
+   public void setTrajectoryRequest(RsTrajectoryRequest trajectory){
+      this.motionRequest   = trajectory.getSegment(0);
+      this.trajectory      = trajectory;
+      this.trajectoryIndex = 1;
+   }
+
+
+   /**
+    * Handles a trajectory with no segments.  Like any other trajectory,
+    * it cancels the motion in progress;  having nothing to do, it is
+    * complete at once, and the client is sent the motion-halted event
+    * it is waiting for.
+    */
+   public void endEmptyTrajectory(){
+      stopMotionFromTask();
+
+      RsMotion motion = body.getMotion();
+      if(motion==null || motion.transform==null)
+         return;
+      double simTime = session.scheduler.getUpdatedSimTime();
+      RsMotionHaltedEvent event = new RsMotionHaltedEvent(
+         simTime,
+         RsMotionHaltedEvent.HALTED_ON_COMPLETION,
+         motion.transform.m13,
+         motion.transform.m23,
+         motion.getOrientation(),
+         0.0
+      );
+      sendMotionHaltedEvent(event);
    }
 
 
    public void setPlacementRequested(boolean status){
       placementRequested=status;  // probably always true?
+      trajectory=null;            // a placement ends any trajectory
    }
 
    public boolean isMotionEngaged(){
@@ -492,12 +933,15 @@ public void  sendMotionStartedEvent(RsMotionStartedEvent event){
          startMotionTask=null;
       }
       motionRequest=null;
+      trajectory=null;
 
       if(motionEngaged){
          motionEngaged=false;
          double startTime = session.scheduler.getUpdatedSimTime();
          RsMotion motion = body.getMotion();
          motion.stopMotionAtTime(startTime);
+         updateBodyIndex(motion);
+         body.markStateChanged();
 
          RsPoint p = motion.getPosition();
          RsMotionHaltedEvent event = new RsMotionHaltedEvent(
@@ -506,7 +950,7 @@ public void  sendMotionStartedEvent(RsMotionStartedEvent event){
                p.x,
                p.y,
                motion.getOrientation(),
-               startTime-motion.time0
+               startTime-motionStartTime
             );
 
          sendMotionHaltedEvent(event);
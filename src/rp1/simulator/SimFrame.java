@@ -42,16 +42,33 @@ public class SimFrame extends Frame {
     public SimCanvas canvas;
     public SimPanel panel;
     public RsPlan plan;
+    public boolean primary;
 
     public SimFrame(SimSession sessionReference) {
+        this(sessionReference, true);
+    }
+
+    /**
+     * Creates a frame with a view of the simulation.  Closing the primary
+     * frame ends the session, closing any other frame just closes that view.
+     */
+    public SimFrame(SimSession sessionReference, boolean primaryFrame) {
 
         session = sessionReference;
         plan = session.getPlan();
+        primary = primaryFrame;
 
         addWindowListener(new WindowAdapter() {
             @Override
             public void windowClosing(WindowEvent e) {
-                session.terminate();
+                if (primary) {
+                    session.terminate();
+                } else {
+                    if (canvas != null) {
+                        session.views.remove(canvas);
+                    }
+                    dispose();
+                }
             }
         });
 
@@ -69,17 +86,19 @@ public class SimFrame extends Frame {
 
         String s = plan.getCaption();
         if (s == null) {
-            setTitle("Rossum's Playhouse -- Untitled Plan");
-        } else {
-            setTitle(s);
+            s = "Rossum's Playhouse -- Untitled Plan";
         }
+        if (!primary) {
+            s = s + " (view)";
+        }
+        setTitle(s);
 
         setBackground(Color.lightGray);
 
 
         // build components for inclusion -----------------------
-        menuBar = new SimMenuBar(this);
         canvas = new SimCanvas(session);
+        menuBar = new SimMenuBar(this);
         panel = new SimPanel(plan);
 
         // add components to frame -------------------------
@@ -108,6 +127,8 @@ public class SimFrame extends Frame {
 
         canvas.addMouseListener(new SimMouseListener(this));
         canvas.addMouseMotionListener(new SimMouseListener(this));
+
+        session.views.add(canvas);
     }
 
     protected void setUnits(String s) {
@@ -79,9 +79,80 @@ public SimMenuBar(SimFrame frame){
       unitsMenu.add(feetItem   = createUnitsItem("Feet",   c));
       unitsMenu.add(metersItem = createUnitsItem("Meters", c));
       viewMenu.add(unitsMenu);
+
+      viewMenu.addSeparator();
+      MenuItem zoomInItem  = new MenuItem("Zoom In");
+      MenuItem zoomOutItem = new MenuItem("Zoom Out");
+      MenuItem zoomFitItem = new MenuItem("Show Whole Plan");
+      viewMenu.add(zoomInItem);
+      viewMenu.add(zoomOutItem);
+      viewMenu.add(zoomFitItem);
+      zoomInItem.addActionListener(
+         new ActionListener(){
+            public void actionPerformed(ActionEvent event){
+               frame.canvas.setZoom(frame.canvas.getZoom()*2);
+            }
+         }
+      );
+      zoomOutItem.addActionListener(
+         new ActionListener(){
+            public void actionPerformed(ActionEvent event){
+               frame.canvas.setZoom(frame.canvas.getZoom()/2);
+            }
+         }
+      );
+      zoomFitItem.addActionListener(
+         new ActionListener(){
+            public void actionPerformed(ActionEvent event){
+               frame.canvas.setZoom(1);
+            }
+         }
+      );
+
+      followItem = new CheckboxMenuItem("Follow Robot");
+      followItem.setState(false);
+      followItem.addItemListener(
+         new ItemListener(){
+            public void itemStateChanged(ItemEvent event){
+               frame.canvas.setFollowing(followItem.getState());
+            }
+         }
+      );
+      viewMenu.add(followItem);
+
+      Menu rateMenu = new Menu("Frame Rate");
+      int  rates[]  = {2, 5, 10, 20, 30};
+      for(int i=0; i<rates.length; i++)
+         rateMenu.add(createFrameRateItem(rates[i]));
+      viewMenu.add(rateMenu);
+
+      viewMenu.addSeparator();
+      MenuItem newViewItem = new MenuItem("New View");
+      viewMenu.add(newViewItem);
+      newViewItem.addActionListener(
+         new ActionListener(){
+            public void actionPerformed(ActionEvent event){
+               frame.session.openView();
+            }
+         }
+      );
       return viewMenu;
    }
 
+   private CheckboxMenuItem createFrameRateItem(final int rate){
+      final CheckboxMenuItem item = new CheckboxMenuItem(rate+" per second");
+      item.setState(Math.abs(1.0/frame.canvas.getFrameInterval()-rate)<0.5);
+      item.addItemListener(
+         new ItemListener(){
+            public void itemStateChanged(ItemEvent event){
+               radioMenuSelectItem(item);
+               frame.canvas.setFrameInterval(1.0/rate);
+            }
+         }
+      );
+      return item;
+   }
+
    private CheckboxMenuItem createUnitsItem(String s, CheckboxItemListener c){
       CheckboxMenuItem item = new CheckboxMenuItem(s);
       item.setState(false);
@@ -143,6 +214,7 @@ public SimMenuBar(SimFrame frame){
    protected CheckboxMenuItem inchesItem;
    protected CheckboxMenuItem feetItem;
    protected CheckboxMenuItem metersItem;
+   protected CheckboxMenuItem followItem;
 
 }
 
@@ -38,6 +38,7 @@ public class SimMotionTask extends SimTask {
    private boolean    enableAnimation;
    private double     timeOfLastAnimationFrame;
    private double     simSpeed;
+   private SimBodyCollisionDetector bodyCollisionDetector;
 
    public SimMotionTask(SimSession session){
       super();
@@ -46,6 +47,7 @@ public class SimMotionTask extends SimTask {
       enableAnimation          = false;
       timeOfLastAnimationFrame = 0;
       simSpeed = 1.0;
+      bodyCollisionDetector = new SimBodyCollisionDetector(session);
    }
 
    public void setSimSpeed(double simSpeed){
@@ -68,6 +70,10 @@ public void process() {
       // we have to ensure that the newly placed robot is there
       // already so that the collision is detected.
 
+      // collisions between bodies are checked over the interval since
+      // the previous frame, before any of the motions are advanced.
+      bodyCollisionDetector.process(startTime);
+
       minNextTime=0;
       for(int i=0; i<session.clients.length; i++){
          if(session.clients[i].isMotionProcessingRequired()){
@@ -80,7 +86,7 @@ public void process() {
          }
       }
 
-      if(enableAnimation && session.simFrame!=null){
+      if(enableAnimation && !session.views.isEmpty()){
          double realTime         = System.currentTimeMillis()/1000.0;
          double deltaFrameInterval = realTime - timeOfLastAnimationFrame;
          if(deltaFrameInterval >= session.animationFrameInterval){
@@ -69,13 +69,14 @@
        are sure that a) it's not going to change and b) there's data
        in it.
 
-   3.  In the present implementation, it is possible to remove all nodes
-       from an original object. However, there is never a case where
-       we truncate nodes from the end of the list (we never truncate newer
-       nodes, leaving older nodes in place). We do not truncate nodes from the
-       end of the list.  In future implementations, we may remove nodes
-       from the beginning of the list (i.e. remove the oldest nodes)
-       due to time-out criteria. This feature is not handled at this time.
+   3.  It is possible to remove all nodes from an original object, and
+       the retention limits (see setRetention) remove nodes from the
+       beginning of the list (the oldest nodes).  However, there is never
+       a case where we truncate nodes from the end of the list (we never
+       truncate newer nodes, leaving older nodes in place).  Since node
+       ID's are assigned in increasing order, any copy node with an ID
+       less than that of the first original node has been dropped
+       and is removed from the copy.
 
    4.  Special case 1:  The original is empty...  If the original
        paint box is empty (has no PaintBoxNode), simply call .clear()
@@ -88,13 +89,10 @@
    6.  Unless the entire list in the original was cleared out and
        restarted, the PaintBoxNode ID's at the beginning of the
        list should match.  If they don't we clear out the copy
-       list and go to step 8.  Note: in future implementation
-       when we implement the ability to drop the oldest nodes,
-       there may be a mis-match at the beginning of the lists.
-       In that case, we try to match the oldest node on the
-       original list with a node somewhere in the copy list.
-       If we find one, we just drop any copy nodes that are
-       older than the first node in the original list.
+       list and go to step 8.  Because the oldest nodes may have
+       been dropped, there may be a mis-match at the beginning of
+       the lists.  So before matching, we drop any copy nodes that are
+       older than the first node in the original list (step 3).
 
 
    7.  We loop through the nodes while the ID's match...  unless
@@ -133,9 +131,9 @@
 package rp1.simulator;
 
 import rp1.rossum.*;
-import java.awt.Color;
 import java.awt.Graphics;
 import java.lang.Math;
+import java.util.ArrayList;
 
 
 
@@ -161,9 +159,10 @@ private class PaintBoxNode {
       // buffer-related elements for single node
       int    nPointsInBuffer;
       int    nPointsAllocated;
-      int    firstUnpaintedPoint;
+      int    firstPaintPoint;   // points before this one were painted with the prior node
       float  x[], y[];
-      double time[];
+      float  dt[];              // time of each point, relative to baseTime
+      double baseTime;
 
       // scratch resources
       RsPoint     workPoint;
@@ -172,7 +171,7 @@ private class PaintBoxNode {
       // settings related to properties
       double  xTrailer, yTrailer;
       double  wTrailer;
-      Color   color[];
+      RsColor color[];
       boolean activationStatus;
       int     transitionInterval;
       double  minTrailerSegmentLength, minTrailerSegmentLength2;
@@ -192,21 +191,56 @@ private class PaintBoxNode {
       public void allocateGeometry(){
         nPointsAllocated    = 1024; // nPointsInitiallyAllocated;
         nPointsInBuffer     = 0;
-        firstUnpaintedPoint = 0;
+        firstPaintPoint     = 0;
 
         x    = new float[ nPointsAllocated];
         y    = new float[ nPointsAllocated];
-        time = new double[nPointsAllocated];
+        dt   = new float[ nPointsAllocated];
       }
 
       public void copyGeometry(PaintBoxNode source){
          this.nPointsAllocated    = source.nPointsAllocated;
          this.nPointsInBuffer     = source.nPointsInBuffer;
-         this.firstUnpaintedPoint = source.firstUnpaintedPoint;
+         this.firstPaintPoint     = source.firstPaintPoint;
 
-         this.x    = source.x;
-         this.y    = source.y;
-         this.time = source.time;
+         this.x        = source.x;
+         this.y        = source.y;
+         this.dt       = source.dt;
+         this.baseTime = source.baseTime;
+      }
+
+      public double getTime(int index){
+         return baseTime+dt[index];
+      }
+
+      public double getLastTime(){
+         if(nPointsInBuffer==0)
+            return baseTime;
+         return baseTime+dt[nPointsInBuffer-1];
+      }
+
+      /**
+       * Gets the index of the first point following the point at the
+       * given time.  When a node is closed it is simplified, which removes
+       * points and so changes their indices, but not their times.  The
+       * index is used if it still follows the point at that time (as it
+       * will unless the node has been simplified since it was obtained).
+       */
+      public int getIndexAfter(double time, int index){
+         if(index<=0)
+            return 0;
+         if(index<=nPointsInBuffer && getTime(index-1)==time)
+            return index;
+         int i0 = 0;
+         int i1 = nPointsInBuffer;
+         while(i0<i1){
+            int i = (i0+i1)>>>1;
+            if(getTime(i)<=time)
+               i0 = i+1;
+            else
+               i1 = i;
+         }
+         return i0;
       }
 
       public void copyProperties(PaintBoxNode source){
@@ -233,15 +267,18 @@ private class PaintBoxNode {
 
          if(nPointsInBuffer==nPointsAllocated){
             PaintBoxNode nextNode = addNode();
-            // copy last two points from current node to next node;
+            // copy last three points from current node to next node
+            // so that the fat-line joins carry across
             int k = nPointsInBuffer-3;
+            nextNode.baseTime = this.getTime(k);
             for(int i=0; i<3; i++){
-               nextNode.x[i]    = this.x[k+i];
-               nextNode.y[i]    = this.y[k+i];
-               nextNode.time[i] = this.time[k+i];
+               nextNode.x[i]  = this.x[k+i];
+               nextNode.y[i]  = this.y[k+i];
+               nextNode.dt[i] = (float)(this.getTime(k+i)-nextNode.baseTime);
             }
+            nextNode.nPointsInBuffer = 3;
             nextNode.addPoint(x, y, time);
-            nextNode.firstUnpaintedPoint = 2;
+            nextNode.firstPaintPoint     = 2;
             nextNode.xTrailer            = this.xTrailer;
             nextNode.yTrailer            = this.yTrailer;
             nextNode.wTrailer            = this.wTrailer;
@@ -251,9 +288,11 @@ private class PaintBoxNode {
             nextNode.minTrailerSegmentLength    = this.minTrailerSegmentLength;
             nextNode.minTrailerSegmentLength2   = this.minTrailerSegmentLength2;
          }else{
-            this.x[   nPointsInBuffer] = (float)x;
-            this.y[   nPointsInBuffer] = (float)y;
-            this.time[nPointsInBuffer] = time;
+            if(nPointsInBuffer==0)
+               baseTime = time;
+            this.x[ nPointsInBuffer] = (float)x;
+            this.y[ nPointsInBuffer] = (float)y;
+            this.dt[nPointsInBuffer] = (float)(time-baseTime);
             nPointsInBuffer++;
          }
       }
@@ -263,8 +302,7 @@ private class PaintBoxNode {
          // a very small amount of storage, we only trim if the buffer
          // has a non-trivial block of empty space.
          if(nPointsInBuffer>0 && nPointsAllocated-nPointsInBuffer>=32){
-             float   px[], py[];
-             double  t[];
+             float   px[], py[], t[];
              int     i;
 
              nPointsAllocated = nPointsInBuffer;
@@ -281,46 +319,133 @@ private class PaintBoxNode {
              y  = py;
              py = null;
 
-             t = new double[nPointsInBuffer];
+             t = new float[nPointsInBuffer];
              for(i=0; i<nPointsInBuffer; i++)
-                t[i] = time[i];
-             time = t;
+                t[i] = dt[i];
+             dt = t;
              t = null;
           }
        }
 
 
-       public void setColor(Color color[]){
+       /**
+        * Replaces the points of the node with a simplified version
+        * (Douglas-Peucker) that stays within the tolerance of the original.
+        * The last three points are left alone, since the following node
+        * starts with copies of them.  New arrays are allocated, so
+        * copies of this node that share the old geometry are not disturbed
+        * (see The Geometry Contract).  Points keep their times, but not
+        * their indices, so consumers that keep their place in a node
+        * find it by time (see getIndexAfter).
+        */
+       public void simplify(double tolerance){
+          int n = nPointsInBuffer-2;   // simplify points 0 through n-1
+          if(tolerance<=0 || n<8)
+             return;
+
+          boolean keep[] = new boolean[n];
+          keep[n-1] = true;
+          for(int i=0; i<=firstPaintPoint; i++)
+             keep[i] = true;   // the points shared with the prior node
+
+          int    stack[] = new int[2*n];
+          int    nStack  = 0;
+          double tol2    = tolerance*tolerance;
+          stack[nStack++] = 0;
+          stack[nStack++] = n-1;
+          while(nStack>0){
+             int i1 = stack[--nStack];
+             int i0 = stack[--nStack];
+             if(i1-i0<2)
+                continue;
+             double ax = x[i0];
+             double ay = y[i0];
+             double vx = x[i1]-ax;
+             double vy = y[i1]-ay;
+             double vv = vx*vx+vy*vy;
+             double dMax = -1;
+             int    iMax = i0;
+             for(int i=i0+1; i<i1; i++){
+                double px = x[i]-ax;
+                double py = y[i]-ay;
+                double d;
+                if(vv==0){
+                   d = px*px+py*py;
+                }else{
+                   double c = px*vy-py*vx;
+                   d = c*c/vv;
+                }
+                if(d>dMax){
+                   dMax = d;
+                   iMax = i;
+                }
+             }
+             if(dMax>tol2){
+                keep[iMax] = true;
+                stack[nStack++] = i0;
+                stack[nStack++] = iMax;
+                stack[nStack++] = iMax;
+                stack[nStack++] = i1;
+             }
+          }
+
+          int nKeep = 2;   // the two points beyond n
+          for(int i=0; i<n; i++)
+             if(keep[i])
+                nKeep++;
+          if(nKeep>=nPointsInBuffer)
+             return;
+
+          float px[] = new float[nKeep];
+          float py[] = new float[nKeep];
+          float pt[] = new float[nKeep];
+          int   k    = 0;
+          for(int i=0; i<nPointsInBuffer; i++){
+             if(i>=n || keep[i]){
+                px[k] = x[i];
+                py[k] = y[i];
+                pt[k] = dt[i];
+                k++;
+             }
+          }
+          x  = px;
+          y  = py;
+          dt = pt;
+          nPointsInBuffer  = nKeep;
+          nPointsAllocated = nKeep;
+       }
+
+
+       public void setColor(RsColor color[]){
           this.color = RsColor.copyColorList(color);
        }
 
 
-       public RsRectangle paintAtTime(Graphics g, RsTransform graphicsTransform, RsRectangle r, double time){
-         int i, iFirst;
+       /**
+        * Paints the segments ending at points iFirst and beyond (iFirst must be at least one).
+        */
+       public RsRectangle paintSegments(
+             Graphics g, RsTransform graphicsTransform, RsRectangle r, int iFirst, SimTrailLayer scratch)
+       {
+         int i;
          int ix1, iy1, ix2, iy2;
          double x0, y0, x1, y1, x2, y2, px, py, ps, z;
-         double sx[], sy[];
-         int    iS, nS, ix[], iy[];
+         int    iS, nS;
          double w;
 
 
-         w = wTrailer*graphicsTransform.getScale();
-
+         double sx[] = scratch.sx;
+         double sy[] = scratch.sy;
+         int    ix[] = scratch.ix;
+         int    iy[] = scratch.iy;
+         RsPoint workPoint = scratch.workPoint;
 
-         sx = new double[7];
-         sy = new double[7];
-         ix = new int[7];
-         iy = new int[7];
+         w = wTrailer*graphicsTransform.getScale();
 
-         if(nPointsInBuffer<2 || firstUnpaintedPoint>=nPointsInBuffer)
+         if(nPointsInBuffer<2 || iFirst>=nPointsInBuffer)
              return r;
 
-         if(firstUnpaintedPoint==0)
-             iFirst = 1;
-         else
-             iFirst = firstUnpaintedPoint;
-
-         g.setColor(color[0]);
+         g.setColor(RsRenderer.getColor(color[0]));
 
          x0 = 0;
          y0 = 0;
@@ -341,7 +466,7 @@ private class PaintBoxNode {
             r.insert(x1, y1);
 
 
-         if(wTrailer>1 && iFirst>1 && nPointsInBuffer>2){
+         if(w>=2 && iFirst>1 && nPointsInBuffer>2){
             graphicsTransform.map(x[iFirst-2], y[iFirst-2], workPoint);
             x0 = workPoint.x;
             y0 = workPoint.y;
@@ -411,8 +536,6 @@ private class PaintBoxNode {
             x1 = x2;
             y1 = y2;
          }
-         firstUnpaintedPoint = i;
-
          return r;
       }
 
@@ -428,6 +551,13 @@ private class PaintBoxNode {
    private int        paintBoxID;
    private static int paintBoxSequencer;
    private int        nodeIDSequencer;
+   private int        generation;   // incremented when trails are erased
+
+   // retention limits, zero for none
+   private double     maximumAge;
+   private int        maximumPoints;
+   private double     simplificationTolerance;
+   private int        nPointsRetired;  // points in all nodes but the last
 
 
    public SimPaintBox(int bodyPartID){
@@ -454,10 +584,67 @@ private class PaintBoxNode {
       return paintBoxID;
    }
 
+   /**
+    * Gets a number that changes whenever trail data that may already
+    * have been painted is removed (as when the paint box is cleared).
+    * Views use it to tell when they must repaint the trails from scratch.
+    */
+   public int getGeneration(){
+      return generation;
+   }
+
+   /**
+    * Sets limits on how much trail data is retained.  Nodes (blocks of up to
+    * 1024 points) are dropped from the start of the trail when all
+    * their points are older than maximumAge seconds of simulation time or
+    * when the trail has more than maximumPoints points.  When a node is
+    * filled, it is simplified so that no point is moved by more than the
+    * tolerance (in meters).   Zero values disable the corresponding limit.
+    */
+   public void setRetention(double maximumAge, int maximumPoints, double tolerance){
+      this.maximumAge              = maximumAge;
+      this.maximumPoints           = maximumPoints;
+      this.simplificationTolerance = tolerance;
+   }
+
+   /**
+    * Drops the trail data which the retention limits no longer allow at
+    * the given simulation time.  This is done as points are added, but
+    * a body which has stopped adds no points, so the session also calls
+    * it whenever it hands the paint boxes over for rendering.  When all
+    * the points have expired, the last node is replaced by an empty one
+    * which keeps its properties.
+    */
+   public void applyRetention(double simTime){
+      boolean dropped = false;
+      if(maximumAge>0 && lastNode!=null && lastNode.nPointsInBuffer>0
+      && lastNode.getLastTime()<simTime-maximumAge){
+         addNode();
+      }
+      while(firstNode!=lastNode){
+         if(maximumAge>0 && firstNode.getLastTime()<simTime-maximumAge){
+            // all points in the node have expired
+         }else if(maximumPoints>0 && nPointsRetired+lastNode.nPointsInBuffer>maximumPoints){
+            // over the limit
+         }else{
+            break;
+         }
+         nPointsRetired -= firstNode.nPointsInBuffer;
+         removeNode(firstNode);
+         dropped = true;
+      }
+      if(dropped)
+         generation++;
+   }
+
 
    private PaintBoxNode addNode(){
-     if(lastNode!=null)
+     if(lastNode!=null){
+        // the last node is now closed to further points
         lastNode.trim();
+        lastNode.simplify(simplificationTolerance);
+        nPointsRetired += lastNode.nPointsInBuffer;
+     }
 
      PaintBoxNode node = new PaintBoxNode(nodeIDSequencer++);
      node.allocateGeometry();
@@ -491,25 +678,13 @@ private class PaintBoxNode {
    }
 
 
-   private PaintBoxNode getNextNodeForPainting(PaintBoxNode node){
-      if(node==null)
-         node = firstNode;
-      while(node!=null){
-         if(node.nPointsInBuffer>node.firstUnpaintedPoint && node.nPointsInBuffer>2){
-            return node;
-         }
-         node = node.nextNode;
-      }
-      return null;
-   }
-
    private void removeNode(PaintBoxNode node){
      if(node==null)
         return;
 
      node.x    = null;
      node.y    = null;
-     node.time = null;
+     node.dt   = null;
 
      if(node.priorNode==null){
         firstNode = node.nextNode;
@@ -574,7 +749,7 @@ private class PaintBoxNode {
       node.wTrailer                = wTrailer;
    }
 
-   public void setColorProperties(Color [] color){
+   public void setColorProperties(RsColor [] color){
       PaintBoxNode node = getUnusedNodeIfAvailable();
       if(node==null){
          node = lastNode;
@@ -656,30 +831,104 @@ private class PaintBoxNode {
 
       motion.transform.map(node.xTrailer, node.yTrailer, node.workPoint);
       node.addPoint(node.workPoint.x, node.workPoint.y, motion.getTime());
+      applyRetention(motion.getTime());
     }
 
 
 
 
-   public RsRectangle paintAtTime(Graphics g, RsTransform graphicsTransform, RsRectangle r, double time){
-      PaintBoxNode node=null;
-      while((node=getNextNodeForPainting(node))!=null){
-          r    = node.paintAtTime(g, graphicsTransform, r, time);
+   /**
+    * Paints the points that have been added since the cursor was last
+    * advanced and advances it.  Used by SimTrailLayer.
+    */
+   RsRectangle paintTrail(
+         Graphics g, RsTransform graphicsTransform, RsRectangle r,
+         SimTrailLayer.Cursor cursor, SimTrailLayer scratch)
+   {
+      PaintBoxNode node = firstNode;
+      if(cursor.nodeID>=0){
+         while(node!=null && node.nodeID!=cursor.nodeID)
+            node = node.nextNode;
+         if(node==null)
+            node = firstNode;   // the cursor node has gone away, should not happen
+      }
+
+      while(node!=null){
+         int iFirst;
+         if(node.nodeID==cursor.nodeID)
+            iFirst = node.getIndexAfter(cursor.time, cursor.point);
+         else
+            iFirst = node.firstPaintPoint;
+         if(node.nPointsInBuffer>2 && node.nPointsInBuffer>iFirst){
+            r = node.paintSegments(g, graphicsTransform, r, iFirst<1 ? 1 : iFirst, scratch);
+            iFirst = node.nPointsInBuffer;
+         }
+         advanceCursor(cursor, node, iFirst);
+         node = node.nextNode;
       }
       return r;
    }
 
-   public void repaint(Graphics g, RsTransform graphicsTransform){
-      PaintBoxNode node;
-      node = firstNode;
-      RsRectangle r=null;
+   /**
+    * A run of consecutive trail points, as returned by getNewTrailRuns().
+    * The coordinate arrays are the paint box's own (see The Geometry
+    * Contract) and must not be modified.
+    */
+   static class TrailRun {
+      boolean  newLine;      // true if the run does not continue the prior one
+      RsColor  color;
+      double   width;
+      float    x[], y[];
+      int      first, count;
+   }
+
+   /**
+    * Gets the points added since the cursor was last advanced, as runs
+    * of connected points, and advances the cursor.  The first points
+    * of a node that continues the one before it (copies of that node's
+    * last points) are not repeated.  Used by SimTelemetryPublisher.
+    */
+   void getNewTrailRuns(SimTrailLayer.Cursor cursor, ArrayList<TrailRun> runs){
+      runs.clear();
+      PaintBoxNode node = firstNode;
+      if(cursor.nodeID>=0){
+         while(node!=null && node.nodeID!=cursor.nodeID)
+            node = node.nextNode;
+         if(node==null)
+            node = firstNode;
+      }
+
       while(node!=null){
-         node.firstUnpaintedPoint = 0;
-         r    = node.paintAtTime(g, graphicsTransform, r, 0.0);
+         int iFirst;
+         if(node.nodeID==cursor.nodeID)
+            iFirst = node.getIndexAfter(cursor.time, cursor.point);
+         else
+            iFirst = node.firstPaintPoint>0 ? node.firstPaintPoint+1 : 0;
+         if(node.nPointsInBuffer>iFirst && node.color!=null){
+            TrailRun run = new TrailRun();
+            run.newLine = iFirst==0;
+            run.color   = node.color[0];
+            run.width   = node.wTrailer;
+            run.x       = node.x;
+            run.y       = node.y;
+            run.first   = iFirst;
+            run.count   = node.nPointsInBuffer-iFirst;
+            runs.add(run);
+            iFirst = node.nPointsInBuffer;
+         }
+         advanceCursor(cursor, node, iFirst);
          node = node.nextNode;
       }
    }
 
+   private static void advanceCursor(SimTrailLayer.Cursor cursor, PaintBoxNode node, int point){
+      cursor.nodeID = node.nodeID;
+      cursor.point  = point;
+      if(point>0)
+         cursor.time = node.getTime(point-1);
+   }
+
+
    public void clear(){
       if(firstNode!=null){
          // remove all but the last node
@@ -688,12 +937,16 @@ private class PaintBoxNode {
          }
          // clear the data in the first node
          firstNode.nPointsInBuffer     = 0;
-         firstNode.firstUnpaintedPoint = 0;
+         firstNode.firstPaintPoint     = 0;
       }
+      nPointsRetired = 0;
+      generation++;
    }
 
 
    public void copyStateData(SimPaintBox source){
+      if(source!=null)
+         generation = source.generation;
       if(source==null || source.firstNode==null){
          while(firstNode!=null)
             removeNode(firstNode);
@@ -25,14 +25,15 @@
 
     Recall that all placements must position the robot
     so that it does not touch or overlap any walls.
-    the isPlacementClear() method is intended to decide
-    if a placement if valid.  It is not implemented
-    at this time.
+    the isPlacementClear() method decides if a
+    placement is valid (see RsBodyOverlapChecker).
 
     Selecting a placement:
 
       If the user supplies the special name "$random",
       select a random X/Y coordinate and create a placement.
+      When the body has a free-space map (see RsFreeSpaceMap),
+      the coordinate is drawn from the cells known to be clear.
       Test the placement to see if it is valid.  If not
       repeat the randomization up to 50 times to
       attempt to find a good placement.
@@ -109,11 +110,24 @@ public void process() {
          // the user requested a random x/y/orientation
          // we will try a maximum of 50 times to find one
          // that works.
+         // if the body has a free-space map, we draw only from
+         // positions known to be clear (so the first try should
+         // succeed), otherwise we sample the whole plan.
+         RsFreeSpaceMap freeSpace = client.getFreeSpaceMap();
+         if(freeSpace!=null && freeSpace.getFreeCellCount()==0)
+            freeSpace = null;
          RsRectangle rect = client.session.getPlan().getBounds();
+         RsPoint     p    = new RsPoint();
          double      x, y, theta;
          for(int i=0; i<50; i++){
-            x     = rect.x+Math.random()*rect.width;
-            y     = rect.y+Math.random()*rect.height;
+            if(freeSpace!=null){
+               freeSpace.selectRandomPosition(p);
+               x  = p.x;
+               y  = p.y;
+            }else{
+               x  = rect.x+Math.random()*rect.width;
+               y  = rect.y+Math.random()*rect.height;
+            }
             theta = Math.random()*2*Math.PI;
             if(isPlacementClear(x, y, theta)){
                pm = new RsPlacementEvent(
@@ -207,8 +221,12 @@ public void process() {
 
    private boolean isPlacementClear(double x, double y, double theta){
 
-      RsTransform transform = new RsTransform(theta, x, y);
+      // the body's overlap checker is reused from call to call,
+      // so repeated tests (as in a random placement) don't allocate.
+      RsFreeSpaceMap freeSpace = client.getFreeSpaceMap();
+      if(freeSpace!=null && freeSpace.isPositionClear(x, y))
+         return true;  // known to be clear at any orientation
       RsPlan plan = client.session.getPlan();
-      return !client.body.checkForOverlap(plan, transform);
+      return !client.body.getOverlapChecker().checkForOverlap(plan, x, y, theta);
    }
 }
@@ -0,0 +1,72 @@
+/*  -------------------------------------------------------------
+
+    Rossum's Playhouse  --  a client/server based robot simulator
+    Rossum's Playhouse is also known under the name "RP1".
+    Copyright (C) 1999  G.W. Lucas
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+----------------------------------------------------------------- */
+
+
+
+package rp1.simulator;
+import rp1.rossum.*;
+import rp1.rossum.event.*;
+import rp1.rossum.request.*;
+
+
+
+
+/**
+ * A task queued when a SimClient requests a change to the plan.
+ */
+
+public class SimPlanChangeTask extends SimTask {
+
+   public SimPlanChangeTask(SimClient clientRef, RsPlanChangeRequest requestRef){
+      super();
+      client     = clientRef;
+      request    = requestRef;
+      originator = client;
+   }
+
+   @Override
+public void process() {
+      SimSession session = client.session;
+      RsPlan     plan    = session.getPlan();
+      RsObject   object;
+      RsRectangle oldBounds = null;
+
+      if(request.change==RsPlanChangeRequest.ADD_OBJECT){
+         object = (RsObject)request.object;
+      }else{
+         object = plan.getObjectByName(request.name);
+         if(object!=null && object.getBounds()!=null)
+            oldBounds = new RsRectangle(object.getBounds());
+      }
+
+      RsPlanChangeEvent event = plan.processPlanChangeRequest(startTime, request);
+      if(event==null){
+         session.verbose("Invalid plan change request for "+request.name+" ignored");
+         return;
+      }
+
+      session.processPlanChange(event, object, oldBounds);
+   }
+
+   private SimClient            client;
+   private RsPlanChangeRequest  request;
+}
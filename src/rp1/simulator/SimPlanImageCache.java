@@ -0,0 +1,124 @@
+/*  -------------------------------------------------------------
+
+    Rossum's Playhouse  --  a client/server based robot simulator
+    Rossum's Playhouse is also known under the name "RP1".
+    Copyright (C) 1999  G.W. Lucas
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+----------------------------------------------------------------- */
+
+
+package rp1.simulator;
+import rp1.rossum.*;
+
+
+/*
+
+   SimPlanImageCache.java    floor plan images shared between views
+
+
+   The floor plan does not change from frame to frame, but each view
+   used to draw it from scratch whenever it needed a full repaint.  The
+   cache keeps the drawn plan (without trails or bodies) for each
+   combination of size, transform, and painting options it has been asked
+   for, so views that look at the plan the same way share one image and
+   a view that is repainted (say, after being uncovered) just copies it.
+
+   The cache is cleared when something about the plan changes (a target
+   selection or a plan change, anything that leads to a repaint request
+   from the session).  It holds only a few images; when it is full the
+   one least recently used is dropped.
+
+   Like SimRenderer, the cache must only be used from one thread.
+
+*/
+
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+
+
+
+
+/**
+ * A cache of rendered floor plan images, shared by the views of a session.
+ */
+
+public class SimPlanImageCache {
+
+   private static class Entry {
+      int           width, height;
+      double        m11, m12, m13, m21, m22, m23;
+      boolean       navNet;
+      BufferedImage image;
+   }
+
+   private static final int     maxEntries = 6;
+   private ArrayList<Entry>     entries;
+
+
+   public SimPlanImageCache(){
+      entries = new ArrayList<Entry>();
+   }
+
+
+   public void invalidate(){
+      entries.clear();
+   }
+
+
+   /**
+    * Gets an image of the plan as the renderer would draw it,
+    * drawing it if it is not already in the cache.
+    */
+   public BufferedImage getImage(SimRenderer renderer){
+      int         width  = renderer.getWidth();
+      int         height = renderer.getHeight();
+      boolean     navNet = renderer.getNavNetPaintingOption();
+      RsTransform t      = renderer.getGraphicsTransform();
+
+      for(int i=0; i<entries.size(); i++){
+         Entry e = entries.get(i);
+         if(e.width==width && e.height==height && e.navNet==navNet &&
+            e.m11==t.m11 && e.m12==t.m12 && e.m13==t.m13 &&
+            e.m21==t.m21 && e.m22==t.m22 && e.m23==t.m23)
+         {
+            if(i>0){
+               entries.remove(i);
+               entries.add(0, e);   // most recently used first
+            }
+            return e.image;
+         }
+      }
+
+      Entry e  = new Entry();
+      e.width  = width;
+      e.height = height;
+      e.navNet = navNet;
+      e.m11 = t.m11;  e.m12 = t.m12;  e.m13 = t.m13;
+      e.m21 = t.m21;  e.m22 = t.m22;  e.m23 = t.m23;
+      e.image  = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+      Graphics g = e.image.getGraphics();
+      renderer.paintPlan(g);
+      g.dispose();
+
+      if(entries.size()>=maxEntries)
+         entries.remove(entries.size()-1);
+      entries.add(0, e);
+      return e.image;
+   }
+}
@@ -100,6 +100,22 @@ public class SimProperties {
 
    protected boolean  interlockEnabled;
 
+   protected double   trailMaximumAge;
+   protected int      trailMaximumPoints;
+   protected double   trailSimplificationTolerance;
+
+   protected boolean  recordFrames;
+   protected String   recordDirectory;
+   protected String   recordFormat;
+   protected double   recordFrameRate;
+   protected int      recordWidth;
+   protected int      recordHeight;
+
+   protected boolean  telemetryEnabled;
+   protected int      telemetryPort;
+   protected double   telemetryRate;
+   protected double   telemetryQuantum;
+
    protected Class   mainClass;
 
 
@@ -198,6 +214,26 @@ public class SimProperties {
       return simulationSpeed;
    }
 
+   public boolean isRecordingEnabled(){
+      return recordFrames;
+   }
+
+   public boolean isTelemetryEnabled(){
+      return telemetryEnabled;
+   }
+
+   public double getTrailMaximumAge(){
+      return trailMaximumAge;
+   }
+
+   public int getTrailMaximumPoints(){
+      return trailMaximumPoints;
+   }
+
+   public double getTrailSimplificationTolerance(){
+      return trailSimplificationTolerance;
+   }
+
 
    // ------------  private methods -------------------
 
@@ -248,6 +284,17 @@ public class SimProperties {
       return (new Double(s)).doubleValue();
    }
 
+   private int extractInt(String name, int _default) throws SimPropertiesException {
+      String s = extractString(name);
+      if(s==null)
+         return _default;
+      try {
+         return Integer.parseInt(s);
+      } catch (NumberFormatException e){
+         throw new SimPropertiesException("Bad number format for integer "+name+" specification: \""+s+"\"");
+      }
+   }
+
 
    /******************************************************************
    private void loadFromFilePath(String fileName) throws SimPropertiesException {
@@ -337,6 +384,39 @@ public class SimProperties {
 
       interlockEnabled = extractBoolean("interlockEnabled", false);
 
+      // paint-trail retention, zero values mean no limit
+      trailMaximumAge              = extractDouble("trailMaximumAge",              0.0);
+      trailMaximumPoints           = extractInt(   "trailMaximumPoints",           250000);
+      trailSimplificationTolerance = extractDouble("trailSimplificationTolerance", 0.002);
+      if(trailMaximumAge<0 || trailMaximumPoints<0 || trailSimplificationTolerance<0)
+         throw new SimPropertiesException("Paint-trail retention settings may not be negative");
+
+      // off-screen recording of frames (works with or without the GUI)
+      recordFrames    = extractBoolean("recordFrames",    false);
+      recordDirectory = extractString( "recordDirectory", "frames");
+      recordFormat    = extractString( "recordFormat",    "png");
+      recordFrameRate = extractDouble( "recordFrameRate", 10.0);
+      recordWidth     = extractInt(    "recordWidth",     640);
+      recordHeight    = extractInt(    "recordHeight",    480);
+      if(!recordFormat.equalsIgnoreCase("png") && !recordFormat.equalsIgnoreCase("raw"))
+         throw new SimPropertiesException("Invalid recordFormat \""+recordFormat+"\", expected png or raw");
+      if(recordFrameRate<=0 || recordFrameRate>1000)
+         throw new SimPropertiesException("Record frame rate "+recordFrameRate+" is out of range (0, 1000]");
+      if(recordWidth<16 || recordHeight<16)
+         throw new SimPropertiesException("Record width and height must be at least 16 pixels");
+
+      // telemetry stream for local subscribers
+      telemetryEnabled = extractBoolean("telemetryEnabled", false);
+      telemetryPort    = extractInt(    "telemetryPort",    7759);
+      telemetryRate    = extractDouble( "telemetryRate",    10.0);
+      telemetryQuantum = extractDouble( "telemetryQuantum", 0.001);
+      if(telemetryPort<1 || telemetryPort>65535)
+         throw new SimPropertiesException("Telemetry port "+telemetryPort+" is out of range [1, 65535]");
+      if(telemetryRate<=0 || telemetryRate>1000)
+         throw new SimPropertiesException("Telemetry rate "+telemetryRate+" is out of range (0, 1000]");
+      if(telemetryQuantum<=0)
+         throw new SimPropertiesException("Telemetry quantum must be greater than zero");
+
    }
 
 
@@ -0,0 +1,331 @@
+/*  -------------------------------------------------------------
+
+    Rossum's Playhouse  --  a client/server based robot simulator
+    Rossum's Playhouse is also known under the name "RP1".
+    Copyright (C) 1999  G.W. Lucas
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+----------------------------------------------------------------- */
+
+
+package rp1.simulator;
+import rp1.rossum.*;
+
+
+/*
+
+   SimRecorder.java     renders the simulation to image files
+
+
+   The recorder draws the same picture as the on-screen canvas (using a
+   SimRenderer) into an off-screen BufferedImage and writes the frames
+   to files.   It does not need a display, so it can be used to review
+   batch runs on machines where the GUI is disabled.
+
+   Frames are taken at a fixed rate in simulation time (not real time),
+   so a recording of a run made at high simulation speed plays back at
+   the same pace as one made in real time.  A SimRecordingTask in the
+   scheduler thread calls captureFrame() once per frame interval.
+   That method does only the (inexpensive) transfer of state data into
+   the recorder's own SimStateDataExchange and wakes the recorder
+   thread, which does the rendering and the encoding.  If the recorder
+   thread falls behind, the scheduler is not held up; the recorder thread
+   simply takes the most recent state when it gets to it.  It still
+   writes one frame for every interval, though, repeating the image it
+   rendered for the intervals it missed (they are counted as repeated),
+   so the output keeps its fixed rate and a recording plays back at the
+   right speed even if the simulation ran faster than frames could be
+   made.  A repeated frame is encoded only once, so catching up costs
+   little more than the file writes.
+
+   Two output formats are supported:
+
+      png    a sequence of files frame000000.png, frame000001.png, ...
+      raw    a single file, frames.rgb, holding the frames one after the
+             other as 24-bit RGB pixels (no header).  Most video tools
+             can read it given the size and frame rate, for example
+                ffmpeg -f rawvideo -pix_fmt rgb24 -s 640x480 -r 10 -i frames.rgb out.mp4
+
+*/
+
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import javax.imageio.ImageIO;
+
+
+
+
+/**
+ * Renders the simulation into off-screen images at a fixed
+ * simulation-time frame rate and writes them as a PNG sequence or
+ * a raw video stream.
+ */
+
+public class SimRecorder implements SimStateDataInterface, Runnable {
+
+   private SimSession            session;
+   private SimRenderer           renderer;
+   private SimStateDataExchange  exchange;
+   private File                  directory;
+   private boolean               rawFormat;
+   private double                frameInterval;
+   private Thread                thread;
+
+   private RsPlan                plan;
+   private BufferedImage         background;
+   private BufferedImage         image;
+   private int                   backgroundPlanVersion;
+   private int                   backgroundSelectionVersion;
+   private OutputStream          rawOutput;
+   private byte                  rawFrame[];
+   private ByteArrayOutputStream pngBytes;
+
+   private RsBody       [] bodyArray;
+   private SimPaintBox  [] paintBoxArray;
+
+   // guarded by this
+   private int      nFramesPending;
+   private int      nFramesCaptured;
+   private int      nFramesRepeated;
+   private int      nFramesWritten;
+   private boolean  closed;
+
+
+   public SimRecorder(
+         SimSession session, File directory, String format,
+         int width, int height, double frameRate) throws IOException
+   {
+      this.session       = session;
+      this.directory     = directory;
+      this.rawFormat     = format.equalsIgnoreCase("raw");
+      this.frameInterval = 1.0/frameRate;
+
+      if(!directory.isDirectory() && !directory.mkdirs())
+         throw new IOException("Unable to create directory "+directory);
+
+      plan     = session.getPlan();
+      renderer = new SimRenderer(plan);
+      renderer.setSize(width, height);
+      exchange = new SimStateDataExchange();
+
+      background = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+      image      = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+
+      if(rawFormat){
+         rawOutput = new BufferedOutputStream(
+                        new FileOutputStream(new File(directory, "frames.rgb")), 1<<16);
+         rawFrame  = new byte[3*width*height];
+      }else{
+         pngBytes  = new ByteArrayOutputStream(1<<16);
+      }
+   }
+
+
+   public double getFrameInterval(){
+      return frameInterval;
+   }
+
+
+   /**
+    * Starts the recorder thread and queues the task that
+    * captures the frames.
+    */
+   public void start(){
+      thread = new Thread(this, "SimRecorder");
+      thread.setDaemon(true);
+      thread.start();
+      session.scheduler.add(new SimRecordingTask(session, this));
+      session.log("Recording "+(rawFormat ? "raw video" : "PNG")+" frames "
+                  +renderer.getWidth()+"x"+renderer.getHeight()
+                  +" at "+(1.0/frameInterval)+" per simulated second to "+directory);
+   }
+
+
+   /**
+    * Called from the scheduler thread, takes the state data for a frame.
+    */
+   public void captureFrame(){
+      exchange.storeStateData(session);
+      synchronized(this){
+         nFramesCaptured++;
+         nFramesPending++;
+         notifyAll();
+      }
+   }
+
+
+   /**
+    * Stops recording, waiting for the recorder thread to write the frames
+    * still pending (if any) and closing the output.
+    */
+   public void close(){
+      synchronized(this){
+         closed = true;
+         notifyAll();
+      }
+      if(thread!=null){
+         try{
+            thread.join(5000);
+         }catch(InterruptedException ie){
+            // we're shutting down anyway
+         }
+      }
+      session.log("Recorder: "+nFramesWritten+" frames written, "+nFramesRepeated+" repeated");
+   }
+
+
+   @Override
+public void run(){
+      while(true){
+         int nFrames;
+         synchronized(this){
+            while(nFramesPending==0 && !closed){
+               try{
+                  wait();
+               }catch(InterruptedException ie){
+                  return;
+               }
+            }
+            if(nFramesPending==0)
+               break;    // closed
+            nFrames        = nFramesPending;
+            nFramesPending = 0;
+         }
+
+         // the intervals missed while the last frame was being written
+         // get the same image as the newest, one frame for each
+         exchange.retrieveStateData(this);
+         try{
+            byte [] encoded = encodeFrame(renderFrame());
+            for(int i=0; i<nFrames; i++){
+               writeFrame(encoded);
+               synchronized(this){
+                  nFramesWritten++;
+                  if(i>0)
+                     nFramesRepeated++;
+               }
+            }
+         }catch(IOException eio){
+            session.log("Recorder stopped, unable to write frame: "+eio.toString());
+            synchronized(this){
+               nFramesPending = 0;
+               closed         = true;
+               notifyAll();
+            }
+            break;
+         }
+
+         synchronized(this){
+            notifyAll();
+         }
+      }
+
+      if(rawOutput!=null){
+         try{
+            rawOutput.close();
+         }catch(IOException eio){
+            session.log("Recorder: error closing output "+eio.toString());
+         }
+      }
+   }
+
+
+   private BufferedImage renderFrame(){
+      if(renderer.getGraphicsTransform()==null)
+         return image;
+
+      // the background holds the plan as well as the trails, so it is
+      // repainted when walls are changed or targets selected (the
+      // on-screen views learn of those through repaint events instead)
+      int planVersion      = plan.getVersion();
+      int selectionVersion = plan.getSelectionVersion();
+      Graphics g = background.getGraphics();
+      if(planVersion!=backgroundPlanVersion
+            || selectionVersion!=backgroundSelectionVersion
+            || !renderer.isBackgroundCurrent(paintBoxArray))
+      {
+         renderer.paintBackground(g, paintBoxArray);
+         backgroundPlanVersion      = planVersion;
+         backgroundSelectionVersion = selectionVersion;
+      }else{
+         renderer.paintNewTrails(g, paintBoxArray);
+      }
+      g.dispose();
+
+      g = image.getGraphics();
+      g.drawImage(background, 0, 0, null);
+      renderer.paintBodies(g, bodyArray);
+      g.dispose();
+      return image;
+   }
+
+
+   private byte [] encodeFrame(BufferedImage frame) throws IOException {
+      if(rawFormat){
+         int width  = frame.getWidth();
+         int height = frame.getHeight();
+         int rgb[]  = new int[width];
+         for(int y=0, k=0; y<height; y++){
+            frame.getRGB(0, y, width, 1, rgb, 0, width);
+            for(int x=0; x<width; x++){
+               rawFrame[k++] = (byte)(rgb[x]>>16);
+               rawFrame[k++] = (byte)(rgb[x]>>8);
+               rawFrame[k++] = (byte)(rgb[x]);
+            }
+         }
+         return rawFrame;
+      }else{
+         pngBytes.reset();
+         ImageIO.write(frame, "png", pngBytes);
+         return pngBytes.toByteArray();
+      }
+   }
+
+
+   private void writeFrame(byte [] encoded) throws IOException {
+      if(rawFormat){
+         rawOutput.write(encoded);
+      }else{
+         String name = "frame"+String.format("%06d", nFramesWritten)+".png";
+         OutputStream output = new FileOutputStream(new File(directory, name));
+         try{
+            output.write(encoded);
+         }finally{
+            output.close();
+         }
+      }
+   }
+
+
+   // methods in support of SimStateDataInterface
+   public RsBody [] getBodyArray(){
+      return bodyArray;
+   }
+
+   public void setBodyArray(RsBody [] bodyArray){
+      this.bodyArray = bodyArray;
+   }
+
+   public SimPaintBox [] getPaintBoxArray(){
+      return paintBoxArray;
+   }
+
+   public void setPaintBoxArray(SimPaintBox [] paintBoxArray){
+      this.paintBoxArray = paintBoxArray;
+   }
+}
@@ -0,0 +1,342 @@
+/*  -------------------------------------------------------------
+
+    Rossum's Playhouse  --  a client/server based robot simulator
+    Rossum's Playhouse is also known under the name "RP1".
+    Copyright (C) 1999  G.W. Lucas
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+----------------------------------------------------------------- */
+
+
+package rp1.simulator;
+import rp1.rossum.*;
+
+
+/*
+
+   SimRenderer.java    draws the simulation picture on any Graphics
+
+
+   The drawing code used to live in SimCanvas, which tied it to an
+   on-screen AWT component.  It has been moved here so that it can also
+   be used to draw into off-screen images (see SimRecorder), where there
+   is no display at all.   A renderer knows nothing about components or
+   event queues; it is given a size, the bodies and the paint boxes,
+   and a Graphics to draw on.
+
+   The picture is drawn in two layers:
+
+      the background   the floor plan with the paint trails on top of it
+      the bodies       drawn over the background at each frame
+
+   The floor plan (or the region of it set with setViewRegion, for zoomed
+   views) is scaled to fit the drawing area with a little breathing room
+   around it, and the paint trails are kept in a SimTrailLayer that is
+   brought up to date incrementally.  Renderers in the same thread may
+   share a SimPlanImageCache so the floor plan is drawn only once for
+   all of them.
+
+   A renderer (and its trail layer) must only be used by one thread.
+
+*/
+
+
+import java.awt.*;
+
+
+
+
+/**
+ * Renders the floor plan, paint trails, and bodies of a simulation
+ * onto a Graphics object of a given size.
+ */
+
+public class SimRenderer {
+
+   // elements used for converting coordinate systems
+   private double   x0,  y0,  x1,  y1;
+   private double  px0, py0, px1, py1;
+   private int     ix0, iy0, ix1, iy1;
+
+   private RsPlan         plan;
+   private Font           font;
+   private boolean        navNetPaintingOption;
+   private int            width, height;
+   private RsTransform    graphicsTransform;
+   private RsTransform    scratchTransform;
+   private SimTrailLayer  trailLayer;
+   private RsRectangle    viewRegion;
+   private SimPlanImageCache planImageCache;
+
+
+   public SimRenderer(RsPlan plan){
+      this.plan            = plan;
+      font                 = null;
+      navNetPaintingOption = true;
+      graphicsTransform    = null;
+      scratchTransform     = new RsTransform();
+      trailLayer           = new SimTrailLayer();
+      viewRegion           = null;
+      planImageCache       = null;
+   }
+
+
+   /**
+    * Sets the part of the plan to be shown (in plan coordinates), null for
+    * the whole plan.  Takes effect at the next call to setSize().
+    */
+   public void setViewRegion(RsRectangle region){
+      viewRegion = region==null ? null : new RsRectangle(region);
+   }
+
+   /**
+    * Sets a cache of floor plan images to be used (and shared with other
+    * renderers in the same thread) when painting the background.
+    */
+   public void setPlanImageCache(SimPlanImageCache cache){
+      planImageCache = cache;
+   }
+
+
+   public void setNavNetPaintingOption(boolean value){
+      navNetPaintingOption = value;
+   }
+
+   public boolean getNavNetPaintingOption(){
+      return navNetPaintingOption;
+   }
+
+
+   /**
+    * Sets the size of the drawing area and computes the graphics transform
+    * which fits the floor plan into it.
+    * @return false if the picture would be trivial (nothing can be drawn).
+    */
+   public boolean setSize(int width, int height){
+      double rAspect, sAspect, a;
+      double w, h;
+
+      this.width  = width;
+      this.height = height;
+
+      RsRectangle r = viewRegion!=null ? viewRegion : plan.getBounds();
+      if(r==null || r.width<=0 || r.height<=0 || width<4 || height<4){
+         graphicsTransform = null;
+         return false;   // trivial image, do nothing.
+      }
+
+      rAspect=r.width/r.height;
+      sAspect=(double)width/(double)height;
+      a=rAspect/sAspect;
+      if(a<1.0){
+         /* it's height limited */
+         h=height;
+         if(h>30)
+            h-=15;   // allow a little breathing room for the graphic
+         w=rAspect*h;
+      }else{
+         w=width;
+         if(w>30)
+            w-=15;    // breathing room
+         h=w/rAspect;
+      }
+
+      px0 = (width-w)/2;
+      px1 = px0 + w;
+      ix0 = (int)Math.floor(px0);
+      ix1 = (int)Math.floor(px1);
+
+      py1 = (height-h)/2;
+      py0 = py1 + h;
+      iy0 = (int)Math.floor(py0);
+      iy1 = (int)Math.floor(py1);
+
+      x0=r.x;
+      y0=r.y;
+      x1=r.x+r.width;
+      y1=r.y+r.height;
+
+      graphicsTransform = new RsTransform();
+      double sx = (px1-px0)/(x1-x0);
+      double sy = (py1-py0)/(y1-y0);
+      graphicsTransform.m11 = sx;
+      graphicsTransform.m12 = 0;
+      graphicsTransform.m13 = -sx*x0+px0;
+      graphicsTransform.m21 = 0;
+      graphicsTransform.m22 = sy;
+      graphicsTransform.m23 = -sy*y0+py0;
+      return true;
+   }
+
+   public int getWidth(){
+      return width;
+   }
+
+   public int getHeight(){
+      return height;
+   }
+
+   /**
+    * Gets the transform from plan coordinates to pixels,
+    * null if setSize() has not been called or the picture is trivial.
+    */
+   public RsTransform getGraphicsTransform(){
+      return graphicsTransform;
+   }
+
+   public void inverseMap(int ix, int iy, RsPoint p){
+      p.x = (x1-x0)*(ix-ix0)/(ix1-ix0)+x0;
+      p.y = (y1-y0)*(iy-iy0)/(iy1-iy0)+y0;
+   }
+
+
+   /**
+    * Paints the full background (floor plan and paint trails).
+    */
+   public void paintBackground(Graphics g, SimPaintBox [] paintBox){
+      if(planImageCache!=null)
+         g.drawImage(planImageCache.getImage(this), 0, 0, null);
+      else
+         paintPlan(g);
+
+      trailLayer.update(width, height, graphicsTransform, paintBox);
+      trailLayer.drawOnto(g, null);
+   }
+
+
+   /**
+    * Paints the floor plan alone.
+    */
+   public void paintPlan(Graphics g){
+      if(font==null){
+         font=new Font("SansSerif", Font.BOLD, 14);
+      }
+
+      g.setFont(font);
+      g.setColor(Color.white);
+      g.fillRect(0, 0, width, height);
+
+      // Loop through the objects, plot them
+
+      RsObject [] object;
+
+      scratchTransform.copy(graphicsTransform);
+      scratchTransform.m13 = Math.floor(scratchTransform.m13+0.5);
+      scratchTransform.m23 = Math.floor(scratchTransform.m23+0.5);
+      object = plan.getObjectArray();
+      if(object!=null && object.length>0){
+         for(int iObject=0; iObject<object.length; iObject++){
+            if(!object[iObject].getSelected())
+               continue;
+            if(!navNetPaintingOption){
+               if(object[iObject] instanceof RsNavNode ||
+                  object[iObject] instanceof RsNavLink)
+                     continue;
+            }
+            RsRenderer.paintObject(g, object[iObject], scratchTransform);
+         }
+      }
+   }
+
+
+   /**
+    * Indicates whether new trail points can be added to the background
+    * incrementally.  If not, the whole background must be repainted.
+    */
+   public boolean isBackgroundCurrent(SimPaintBox [] paintBox){
+      return trailLayer.isCurrent(width, height, graphicsTransform, paintBox);
+   }
+
+
+   /**
+    * Adds any new trail points to a background painted by paintBackground().
+    * @return the area of the background that was changed, or null if none.
+    */
+   public RsRectangle paintNewTrails(Graphics background, SimPaintBox [] paintBox){
+      RsRectangle r = trailLayer.update(width, height, graphicsTransform, paintBox);
+      if(r==null)
+         return null;
+
+      // copy the newly painted part of the trail layer into the background
+      r.x-=2;
+      r.y-=2;
+      r.width+=5;
+      r.height+=5;
+      r.clip(0, 0, width, height);
+      if(r.width<=0 || r.height<=0)
+         return null;
+
+      int fx0 = (int)r.x;
+      int fy0 = (int)r.y;
+      trailLayer.drawOnto(background, new Rectangle(fx0, fy0, (int)(r.x+r.width)-fx0, (int)(r.y+r.height)-fy0));
+      return r;
+   }
+
+
+   /**
+    * Paints the bodies that have a placement.
+    * @return the screen bounds of the bodies painted (an unpopulated
+    *         rectangle if there were none).
+    */
+   public RsRectangle paintBodies(Graphics g, RsBody [] bodies){
+      RsRectangle footPrint = new RsRectangle();
+      if(bodies==null)
+         return footPrint;
+
+      for(int iBody=0; iBody<bodies.length; iBody++){
+         RsRectangle rx = paintBody(g, bodies[iBody]);
+         if(rx!=null)
+            footPrint.union(rx);
+      }
+      return footPrint;
+   }
+
+
+   /**
+    * Paints a single body, if it has a placement.
+    * @return the screen bounds of the body, null if it was not painted.
+    */
+   public RsRectangle paintBody(Graphics g, RsBody body){
+      if(!body.getPlacement())
+         return null;
+      setBodyTransform(body);
+      RsRenderer.paintBody(g, body, scratchTransform);
+      RsRectangle rx = new RsRectangle(body.refBounds);
+      rx.transform(scratchTransform);
+      return rx;
+   }
+
+
+   /**
+    * Gets the screen bounds a body would have if it were painted,
+    * null if it has no placement.
+    */
+   public RsRectangle getBodyBounds(RsBody body){
+      if(!body.getPlacement())
+         return null;
+      setBodyTransform(body);
+      RsRectangle rx = new RsRectangle(body.refBounds);
+      rx.transform(scratchTransform);
+      return rx;
+   }
+
+
+   private void setBodyTransform(RsBody body){
+      scratchTransform.concat(graphicsTransform, body.motion.transform);
+      scratchTransform.m13 = Math.floor(scratchTransform.m13+0.5);
+      scratchTransform.m23 = Math.floor(scratchTransform.m23+0.5);
+   }
+}
@@ -0,0 +1,89 @@
+/*  -------------------------------------------------------------
+
+    Rossum's Playhouse  --  a client/server based robot simulator
+    Rossum's Playhouse is also known under the name "RP1".
+    Copyright (C) 1999  G.W. Lucas
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+----------------------------------------------------------------- */
+
+
+
+package rp1.simulator;
+import rp1.rossum.RsFreeSpaceMap;
+import rp1.rossum.RsGridPlanner;
+import rp1.rossum.RsNavPlanner;
+import rp1.rossum.RsNavRoute;
+import rp1.rossum.RsNavNode;
+import rp1.rossum.event.RsRouteEvent;
+import rp1.rossum.request.RsRouteRequest;
+
+
+
+
+/**
+ * A task queued by SimClient in response to a RsRouteRequest.
+ */
+
+public class SimRouteTask extends SimTask {
+
+   public SimRouteTask(SimClient clientRef, RsRouteRequest requestRef){
+      super();
+      client     = clientRef;
+      request    = requestRef;
+      originator = client;
+   }
+
+   @Override
+public void process() {
+
+      // plans without a navigation network are planned over the
+      // free-space map for the client's footprint, which is shared
+      // with any other clients of the same size.
+      RsNavRoute   route   = null;
+      RsNavPlanner planner = client.session.getPlan().getNavPlanner();
+      if(planner!=null){
+         route = planner.findRoute(request.x0, request.y0, request.x1, request.y1);
+      }else{
+         RsFreeSpaceMap map = client.getFreeSpaceMap();
+         if(map!=null)
+            route = new RsGridPlanner(map).findRoute(request.x0, request.y0, request.x1, request.y1);
+      }
+
+      RsRouteEvent event;
+      if(route==null){
+         event = new RsRouteEvent(startTime, request.routeIndex, false,
+                    new double[0], new double[0], new String[0]);
+      }else{
+         int       n    = route.getWaypointCount();
+         double [] x    = new double[n];
+         double [] y    = new double[n];
+         String [] name = new String[n];
+         RsNavNode node;
+         for(int i=0; i<n; i++){
+            x[i]    = route.getX(i);
+            y[i]    = route.getY(i);
+            node    = route.getNode(i);
+            name[i] = node==null ? "" : node.getName();
+         }
+         event = new RsRouteEvent(startTime, request.routeIndex, true, x, y, name);
+      }
+      client.sendRouteEvent(event);
+   }
+
+   private SimClient       client;
+   private RsRouteRequest  request;
+}
@@ -49,6 +49,7 @@ public void process() {
       // is undefined...   even if we could obtain a sensor status event,
       // it wouldn't help us.    so if body.getPlacement() is false, do nothing.
       if(client.body.getPlacement()){
+         client.updateSensorState(sensor, startTime);
          RsSensorEvent sEvent = sensor.getSensorEvent(startTime);
          // when sensors are fully implemented, sEvent will never be null.
          // but until then, we need to check on its status before sending
@@ -65,7 +65,12 @@ public class SimSession extends Thread implements RsLogInterface, RsInterlock, S
     protected SimPaintBox[] paintBoxArray;
     private SimMotionTask motionTask;
     protected SimStateDataExchange stateDataExchange;
+    protected SimRecorder recorder;
+    protected SimTelemetryPublisher telemetry;
+    protected SimViewSet views;
     private int interlock;
+    private HashMap<Double, RsFreeSpaceMap> freeSpaceMaps;
+    private RsBodyIndex bodyIndex;
 
     public SimSession(SimProperties properties) {
 
@@ -77,6 +82,7 @@ public class SimSession extends Thread implements RsLogInterface, RsInterlock, S
         clients = null;
         motionTask = new SimMotionTask(this);
         stateDataExchange = new SimStateDataExchange();
+        views = new SimViewSet();
 
         paintBoxArrayList = new ArrayList<>();
 
@@ -161,6 +167,14 @@ public class SimSession extends Thread implements RsLogInterface, RsInterlock, S
             logIt("X", "Fatal Error attempting to read plan\n" + eParse.toString());
             System.exit(-1);
         }
+
+        // the route planner's distance tables are built now, so that the
+        // first route request doesn't have to wait for them.
+        RsNavPlanner planner = plan.getNavPlanner();
+        if (planner != null) {
+            log("Navigation network: " + planner.getNodeCount() + " nodes, "
+                    + planner.getLandmarkCount() + " landmarks");
+        }
     }
 
     @Override
@@ -174,6 +188,38 @@ public class SimSession extends Thread implements RsLogInterface, RsInterlock, S
             log("GUI is disabled (in response to configuration option)");
         }
 
+        if (properties.isRecordingEnabled()) {
+            if (!properties.isGuiEnabled() && System.getProperty("java.awt.headless") == null) {
+                // the recorder draws off-screen, no display is needed
+                System.setProperty("java.awt.headless", "true");
+            }
+            try {
+                recorder = new SimRecorder(this,
+                        new File(properties.recordDirectory),
+                        properties.recordFormat,
+                        properties.recordWidth,
+                        properties.recordHeight,
+                        properties.recordFrameRate);
+                recorder.start();
+            } catch (IOException eio) {
+                logIt("X", "Unable to start recorder: " + eio.toString());
+                recorder = null;
+            }
+        }
+
+        if (properties.isTelemetryEnabled()) {
+            try {
+                telemetry = new SimTelemetryPublisher(this,
+                        properties.telemetryPort,
+                        properties.telemetryRate,
+                        properties.telemetryQuantum);
+                telemetry.start();
+            } catch (IOException eio) {
+                logIt("X", "Unable to start telemetry publisher: " + eio.toString());
+                telemetry = null;
+            }
+        }
+
 
         if (properties.isSocketEnabled()) {
             scheduler.add(new SimClientListenerTask(this));
@@ -215,6 +261,12 @@ public class SimSession extends Thread implements RsLogInterface, RsInterlock, S
         long freeMemory = runtime.freeMemory();
         long totalMemory = runtime.totalMemory();
         log("Shutting down simulator");
+        if (recorder != null) {
+            recorder.close();
+        }
+        if (telemetry != null) {
+            telemetry.close();
+        }
         logPrintln("  Total Memory used by JVM: " + totalMemory);
         logPrintln("  Free  Memory:             " + freeMemory);
         System.exit(0);
@@ -248,6 +300,9 @@ public class SimSession extends Thread implements RsLogInterface, RsInterlock, S
         client.setPainterChangeRequestHandler(new SimPainterChangeRequestHandler(client));
         client.setActuatorControlRequestHandler(new SimActuatorControlRequestHandler(client));
         client.setEncoderStatusRequestHandler(new SimEncoderStatusRequestHandler(client));
+        client.setPlanChangeRequestHandler(new SimPlanChangeRequestHandler(client));
+        client.setTrajectoryRequestHandler(new SimTrajectoryRequestHandler(client));
+        client.setRouteRequestHandler(new SimRouteRequestHandler(client));
     }
 
     public void queueMotionTask() {
@@ -269,24 +324,30 @@ public class SimSession extends Thread implements RsLogInterface, RsInterlock, S
         // Note that this method is NOT synchronized.
         // ALL requests to queue animation events must go through SimSession.
         //
-        // It would be easy to implement multiple
-        // graphics frames (containing multiple views of the same
-        // simulation at different scales, zooms, or whatever)
-        // Just change this module to access an array of SimFrames
-        // rather than just one.
-        if (simFrame != null) {
+        // The state data is stored once for all views, which pick it
+        // up in the event dispatch thread (see SimViewSet).
+        if (!views.isEmpty()) {
             stateDataExchange.storeStateData(this);
-            simFrame.canvas.queueAnimationEvent();
+            views.frameAvailable();
         }
     }
 
     public void queueRepaintEvent() {
-        if (simFrame != null) {
+        if (!views.isEmpty()) {
             stateDataExchange.storeStateData(this);
-            simFrame.canvas.repaint();
+            views.repaintAll();
         }
     }
 
+    /**
+     * Opens an additional view of the simulation in a window of its own.
+     */
+    public SimFrame openView() {
+        SimFrame frame = new SimFrame(this, false);
+        frame.setVisible(true);
+        return frame;
+    }
+
     public synchronized void addClient(SimClient client) {
         paintBoxArray = null;
         bodyArray = null;
@@ -335,6 +396,9 @@ public class SimSession extends Thread implements RsLogInterface, RsInterlock, S
             }
             clients = c;
         }
+        if (bodyIndex != null && client.body != null) {
+            bodyIndex.remove(client.body);
+        }
         queueAnimationEvent();
 
         int maxInterlockSent;
@@ -449,6 +513,105 @@ public class SimSession extends Thread implements RsLogInterface, RsInterlock, S
         return plan;
     }
 
+    /**
+     * Gets the free-space map for bodies with the specified footprint
+     * radius, building it the first time it is requested. Maps are
+     * read-only once built, so bodies with the same footprint share one.
+     */
+    public synchronized RsFreeSpaceMap getFreeSpaceMap(double footprintRadius) {
+        if (plan == null) {
+            return null;
+        }
+        if (freeSpaceMaps == null) {
+            freeSpaceMaps = new HashMap<>();
+        }
+        Double key = Double.valueOf(footprintRadius);
+        RsFreeSpaceMap map = freeSpaceMaps.get(key);
+        if (map == null) {
+            map = new RsFreeSpaceMap(plan, footprintRadius);
+            freeSpaceMaps.put(key, map);
+            if (properties.logVerbose) {
+                logIt("v", "free-space map for footprint radius " + footprintRadius
+                        + ", " + map.getFreeCellCount() + " free cells");
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Gets the index of the current positions of the client bodies,
+     * used by the sensors to detect other robots. Clients update
+     * their entries as their motions are advanced.
+     */
+    public synchronized RsBodyIndex getBodyIndex() {
+        if (bodyIndex == null && plan != null) {
+            // cells of about 1/32 of the plan are a reasonable match
+            // for the size of a robot in a typical plan.
+            RsRectangle r = plan.getBounds();
+            double cellSize = (r == null) ? 0 : Math.max(r.width, r.height) / 32.0;
+            bodyIndex = new RsBodyIndex(r, cellSize);
+        }
+        return bodyIndex;
+    }
+
+    /**
+     * Brings the session up to date after an object in the plan was
+     * added, moved, or removed (the plan itself has already been changed),
+     * then sends the event to the clients. If a wall was changed, the
+     * free-space maps are updated around its old and new positions and
+     * any motions in progress are checked against it. This method must
+     * only be called by the scheduler thread.
+     *
+     * @param event the event describing the change
+     * @param object the object that was changed
+     * @param oldBounds the bounds of the object before the change, or null
+     */
+    public void processPlanChange(RsPlanChangeEvent event, RsObject object, RsRectangle oldBounds) {
+        SimClient[] c;
+
+        if (object instanceof RsWall) {
+            RsRectangle region = null;
+            if (oldBounds != null) {
+                region = new RsRectangle(oldBounds);
+            }
+            RsRectangle r = object.getBounds();
+            if (event.change != RsPlanChangeEvent.OBJECT_REMOVED && r != null) {
+                if (region == null) {
+                    region = new RsRectangle(r);
+                } else {
+                    region.union(r);
+                }
+            }
+            if (region != null) {
+                synchronized (this) {
+                    if (freeSpaceMaps != null) {
+                        for (RsFreeSpaceMap map : freeSpaceMaps.values()) {
+                            map.update(plan, region);
+                        }
+                    }
+                }
+            }
+        }
+
+        synchronized (this) {
+            c = clients;
+        }
+        if (c != null) {
+            for (int i = 0; i < c.length; i++) {
+                if (object instanceof RsWall && event.change != RsPlanChangeEvent.OBJECT_REMOVED) {
+                    c[i].processWallChange((RsWall) object, event.simTime);
+                }
+                c[i].sendPlanChangeEvent(event);
+            }
+        }
+
+        if (properties.logVerbose) {
+            logIt("v", "plan change " + event.change + " for " + event.objectName
+                    + ", plan version " + plan.getVersion());
+        }
+        queueRepaintEvent();
+    }
+
     public void sendMouseClickEvent(RsMouseClickEvent mce) {
         if (clients == null) {
             return;
@@ -502,6 +665,15 @@ public class SimSession extends Thread implements RsLogInterface, RsInterlock, S
                         (SimPaintBox[]) paintBoxArrayList.toArray(new SimPaintBox[paintBoxArrayList.size()]);
             }
         }
+        // the trails are aged here, when the state data is taken for the
+        // views, because a body which has stopped adds no points and its
+        // trail would otherwise never expire.
+        if (paintBoxArray != null) {
+            double simTime = scheduler.getSimTime();
+            for (int i = 0; i < paintBoxArray.length; i++) {
+                paintBoxArray[i].applyRetention(simTime);
+            }
+        }
         return paintBoxArray;
     }
 
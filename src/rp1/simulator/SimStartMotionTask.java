@@ -24,18 +24,20 @@
 
 package rp1.simulator;
 import rp1.rossum.request.RsMotionRequest;
+import rp1.rossum.request.RsTrajectoryRequest;
 
 
 
 /**
- * A task queued by SimClient to in response to a RsMotionRequest
- * or other client-initiated motion control requests.
+ * A task queued by SimClient to in response to a RsMotionRequest,
+ * RsTrajectoryRequest, or other client-initiated motion control requests.
  */
 
 public class SimStartMotionTask extends SimTask {
 
    private SimClient       client;
    private RsMotionRequest request;
+   private RsTrajectoryRequest trajectory;
    public SimStartMotionTask(SimClient client, RsMotionRequest request){
       super();
       this.client  = client;
@@ -43,11 +45,27 @@ public class SimStartMotionTask extends SimTask {
       originator  = client;
    }
 
+   public SimStartMotionTask(SimClient client, RsTrajectoryRequest trajectory){
+      super();
+      this.client     = client;
+      this.trajectory = trajectory;
+      originator      = client;
+   }
+
    @Override
 public void process() {
-      client.session.verbose("sim start motion task, request: "+request);
       client.setStartMotionTask(null);
-      client.setMotionRequest(request);
+      if(trajectory!=null){
+         client.session.verbose("sim start motion task, trajectory: "+trajectory);
+         if(trajectory.getSegmentCount()==0){
+            client.endEmptyTrajectory();
+            return;
+         }
+         client.setTrajectoryRequest(trajectory);
+      }else{
+         client.session.verbose("sim start motion task, request: "+request);
+         client.setMotionRequest(request);
+      }
       client.session.queueMotionTask();
    }
 }
@@ -40,26 +40,56 @@ The general pattern of use is:
    to transfer data to its own corresponding objects. It then does whatever
    rendering it needs to do.
 
-   The key here is that the transfer methods storeStateData() and
-   extractStateData() are synchronized. The StateDataExchange object
-   serves as the monitor for the synchronization.  The transfer methods
-   attempt to execute as quickly as possible so that there is a minimum
-   period of time during which one thread holds the lock on the object.
-   Thus reducing, if the not the probability, at least the duration of
-   one thread being locked in a wait for the synchronized call to execute.
-
-   Another consequence of this approach is that there are generally three
-   copies of objects:
-
-        the bodies owned by the simulator thread
-        the bodies owned by the StateDataExchange object
-        the bodies owned by a rendering object (the graphics thread).
-
-   Finally, the nice thing about this approach is that during the
-   copy we can be sure that only one thread is accessing the contents.
-   Our copy logic can work on the assumption that the contents of the
-   RsBody or SimPaintBox is not changing underneath it.
 
+About Triple Buffering
+
+   In earlier versions, storeStateData() and retrieveStateData() were
+   both synchronized and each made a full copy of every body, so the
+   simulator thread could be held up at every animation frame while the
+   graphics thread finished its copy (and vice versa).  Now the two threads
+   never wait on each other.  The exchange keeps three "frames," each with
+   its own copy of the bodies and paint boxes:
+
+        the back frame,   owned by the thread storing the state data
+        the ready frame,  the most recently stored state
+        the front frame,  owned by the graphics thread
+
+   storeStateData() copies the current state into the back frame and then
+   swaps it with the ready frame.  retrieveStateData() swaps the front
+   frame with the ready frame (if the ready frame is newer) and gives the
+   receiver the contents of the front frame.  Both swaps are a single
+   atomic operation, so neither thread ever sees a frame that the other
+   is working on.  If the simulator stores several frames before the
+   graphics thread gets around to one, the graphics thread simply picks
+   up the most recent and the others are never looked at.
+
+   The receiver does not get a copy of its own.  It shares the bodies
+   of the front frame, which is safe only as long as the receiver uses
+   them in the graphics thread, and only until its next call to
+   retrieveStateData().   More than one receiver may share the exchange
+   provided that they are all in the same thread.
+
+About Body Snapshots
+
+   The frames do not hold copies of the bodies themselves.  Each frame
+   holds a flat snapshot (RsBodyState) of each body: its transform,
+   motion parameters, and the hot flags and wheel orientations of its
+   parts, a few hundred bytes at most.  The geometry lives in a single
+   "template" clone of each body which is shared by all three frames.
+   The template is cloned when the body first appears and never
+   touched by the storing thread after that.  retrieveStateData() applies
+   the front frame's snapshots to the templates (in the graphics thread)
+   before handing them to the receiver.
+
+   Storing is normally done by the scheduler thread, but a few requests
+   call for a repaint from their own threads, so stores are synchronized
+   with each other (on a lock the graphics thread never takes).
+
+   Each snapshot records the state version of its body (see
+   RsBody.markStateChanged), and only the snapshots of bodies whose state
+   has changed since the frame last held them are filled in again.  Likewise,
+   a snapshot is applied to its template only if the template does not
+   already show that version.
 
 
    Note: in doing the SimPaintBox copies, we need to make sure that
@@ -76,6 +106,8 @@ The general pattern of use is:
 package rp1.simulator;
 import  rp1.rossum.*;
 
+import java.util.concurrent.atomic.AtomicReference;
+
 
 
 
@@ -89,32 +121,44 @@ import  rp1.rossum.*;
  * in state data each time data is transferred.
  */
 
-public class SimStateDataExchange implements SimStateDataInterface {
+public class SimStateDataExchange {
 
-   private RsBody      []    bodyArray;
-   private SimPaintBox []  paintBoxArray;
+   private static class Frame implements SimStateDataInterface {
+      RsBody      [] bodyArray;
+      RsBodyState [] bodyState;
+      SimPaintBox [] paintBoxArray;
+      long           sequence;
 
+      public RsBody [] getBodyArray(){
+         return bodyArray;
+      }
 
+      public void setBodyArray(RsBody [] bodyArray){
+         this.bodyArray = bodyArray;
+      }
 
-   public SimStateDataExchange(){
+      public SimPaintBox [] getPaintBoxArray(){
+         return paintBoxArray;
+      }
 
+      public void setPaintBoxArray(SimPaintBox [] paintBoxArray){
+         this.paintBoxArray = paintBoxArray;
+      }
    }
 
-   // methods in support of SimStateDataInterface
-   public RsBody [] getBodyArray(){
-      return bodyArray;
-   }
+   private final Object                 storeLock = new Object();
+   private final AtomicReference<Frame> ready;
+   private Frame                        back;      // guarded by storeLock
+   private Frame                        front;     // graphics thread only
+   private long                         sequence;  // guarded by storeLock
+   private RsBody                    [] templates; // guarded by storeLock
 
-   public void setBodyArray(RsBody [] bodyArray){
-       this.bodyArray = bodyArray;
-   }
 
-   public SimPaintBox [] getPaintBoxArray(){
-       return paintBoxArray;
-   }
 
-   public void setPaintBoxArray(SimPaintBox [] paintBoxArray){
-      this.paintBoxArray = paintBoxArray;
+   public SimStateDataExchange(){
+      back  = new Frame();
+      front = new Frame();
+      ready = new AtomicReference<Frame>(new Frame());
    }
 
 
@@ -122,45 +166,58 @@ public class SimStateDataExchange implements SimStateDataInterface {
    // the following methods are called something other than "get" and "set"
    // because they act a bit differently than the conventional usage...
 
-   public synchronized void storeStateData(SimStateDataInterface source){
-      transferBodyStateData(    this, source);
-      transferPaintBoxStateData(this, source);
+   public void storeStateData(SimStateDataInterface source){
+      synchronized(storeLock){
+         transferBodyStateData(back, source);
+         transferPaintBoxStateData(back, source);
+         back.sequence = ++sequence;
+         back = ready.getAndSet(back);
+      }
+   }
+
+   public void retrieveStateData(SimStateDataInterface receiver){
+      if(ready.get().sequence>front.sequence)
+         front = ready.getAndSet(front);
+      RsBody      [] body  = front.bodyArray;
+      RsBodyState [] state = front.bodyState;
+      if(body!=null){
+         for(int i=0; i<body.length; i++){
+            if(body[i].getStateVersion()!=state[i].stateVersion)
+               body[i].applyState(state[i]);
+         }
+      }
+      receiver.setBodyArray(body);
+      receiver.setPaintBoxArray(front.paintBoxArray);
    }
 
-   public synchronized void retrieveStateData(SimStateDataInterface receiver){
-      transferBodyStateData(    receiver, this);
-      transferPaintBoxStateData(receiver, this);
+   /**
+    * Gets the body snapshots of the frame given out by the last call to
+    * retrieveStateData(), in the same order as its body array.  The same
+    * rules apply as for the bodies: they may be used only in the thread
+    * that retrieved them, and only until its next call to retrieveStateData().
+    */
+   public RsBodyState [] getRetrievedBodyStates(){
+      return front.bodyState;
    }
 
 
 
 
 
-   private void transferBodyStateData(SimStateDataInterface rcv, SimStateDataInterface src){
+   private void transferBodyStateData(Frame rcv, SimStateDataInterface src){
       int i, j;
       RsBody [] source = src.getBodyArray();
       if(source == null){
-        rcv.setBodyArray(null);
+        rcv.bodyArray = null;
+        rcv.bodyState = null;
+        templates     = null;
         return;
       }
 
-      RsBody [] receiver = rcv.getBodyArray();
-      if(receiver==null){
-        receiver = new RsBody[source.length];
-        for(i=0; i<source.length; i++){
-          try{
-             receiver[i] = (RsBody)source[i].clone();
-          }catch (CloneNotSupportedException cse){
-             // this would be a very serious error and things are failing all around
-             System.err.println("Serious problem: "+cse.toString());
-             return;
-          }
-        }
-        rcv.setBodyArray(receiver);
-        return;
-      }
+      RsBody      [] receiver = rcv.bodyArray;
+      RsBodyState [] state    = rcv.bodyState;
 
-      if(source.length==receiver.length){
+      if(receiver!=null && source.length==receiver.length){
          for(i=0; i<source.length; i++){
             if(source[i].getID()!=receiver[i].getID()){
                break;
@@ -169,30 +226,32 @@ public class SimStateDataExchange implements SimStateDataInterface {
 
          if(i==source.length){
             // all sources and receivers matched
-            for(i=0; i<source.length; i++)
-               receiver[i].copyStateData(source[i]);
+            for(i=0; i<source.length; i++){
+               if(state[i].stateVersion!=source[i].getStateVersion())
+                  source[i].getState(state[i]);
+            }
             return;
          }
       }
 
 
-      // the two lists differ, though there might be some overlap.
-      // for all elements on the source list that are matched by the
-      // receiver list, we simply copy over the state data. for all
-      // elements on the source list that are not on the receiver
-      // list, we clone the bodies.  any items on the receiver list
-      // that were not on the source list are simply dropped.
+      // the body list has changed since this frame was last filled in.
+      // bodies that we already have templates for (from any frame) keep
+      // their template, new bodies are cloned.  templates for bodies that are no
+      // longer on the source list are dropped (frames that still hold them
+      // will let them go the next time they are filled in).
 
-      RsBody [] newList = new RsBody[source.length];
+      RsBody      [] newList  = new RsBody[source.length];
+      RsBodyState [] newState = new RsBodyState[source.length];
       for(i=0; i<source.length; i++){
-         for(j=0; j<receiver.length; j++){
-            if(source[i].getID()==receiver[j].getID()){
-               newList[i] = receiver[j];
-               newList[i].copyStateData(source[i]);
+         j = templates==null ? 0 : templates.length;
+         while(--j>=0){
+            if(source[i].getID()==templates[j].getID()){
+               newList[i] = templates[j];
                break;
             }
          }
-         if(j==receiver.length){
+         if(j<0){
             // we searched the whole existing list without finding a match
             try{
                newList[i] = (RsBody)source[i].clone();
@@ -202,17 +261,16 @@ public class SimStateDataExchange implements SimStateDataInterface {
                return;
             }
          }
+         newState[i] = source[i].getState(null);
       }
-      for(i=0; i<receiver.length; i++)
-         receiver[i] = null;  // just for housekeeping/debugging
-
-      rcv.setBodyArray(newList);
 
+      templates     = newList;
+      rcv.bodyArray = newList;
+      rcv.bodyState = newState;
    }
 
 
    private void transferPaintBoxStateData(SimStateDataInterface rcv, SimStateDataInterface src){
-
       SimPaintBox [] source = src.getPaintBoxArray();
       SimPaintBox [] receiver = rcv.getPaintBoxArray();
       int i;
@@ -196,6 +196,10 @@ public void run(){
        while(true){
          task=waitForNextTask();
          task.process();
+         // a task run on behalf of a client may have changed the
+         // state of its body (see SimStateDataExchange)
+         if(task.originator instanceof SimClient)
+            ((SimClient)task.originator).markBodyStateChanged();
       }
    }
 
@@ -0,0 +1,687 @@
+/*  -------------------------------------------------------------
+
+    Rossum's Playhouse  --  a client/server based robot simulator
+    Rossum's Playhouse is also known under the name "RP1".
+    Copyright (C) 1999  G.W. Lucas
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+----------------------------------------------------------------- */
+
+
+package rp1.simulator;
+import rp1.rossum.*;
+
+
+/*
+
+   SimTelemetryPublisher.java     streams the simulation state to local subscribers
+
+
+   The publisher lets other programs on the same host (loggers, dashboards,
+   analysis tools) follow a run without a display and without the overhead
+   of a full client connection.  It listens on a loopback socket (the
+   telemetryPort property) and sends each subscriber a stream of frames
+   holding the poses of the bodies, the states of their parts, and the
+   trail points painted since the frame before.
+
+   It takes its data the same way the canvas and the recorder do.  A
+   SimTelemetryTask in the scheduler thread calls captureFrame() at a fixed
+   simulation-time rate; that method only stores the state in the
+   publisher's own SimStateDataExchange and wakes the publisher thread,
+   which does the encoding.  When nobody is subscribed, nothing is stored.
+
+   The socket writes are not done by the publisher thread.  Each
+   subscriber has a writer thread of its own, fed through a short queue
+   of encoded messages, so a subscriber that stops reading can hold up
+   only itself.  While a subscriber's queue is full the publisher does
+   not encode frames for it at all; it simply misses those frames (they
+   are counted as skipped), and the next frame it does get is encoded
+   against the last one it was given, so the deltas stay correct.  A
+   subscriber whose queue stays full for STALL_LIMIT milliseconds is
+   taken to be hung and is disconnected, which also frees its writer.
+   Frames captured while the publisher thread itself is still busy are
+   counted as dropped.
+
+   To keep the stream small, each frame is encoded against what was sent
+   to the same subscriber in the frame before:
+
+      positions are quantized to telemetryQuantum meters and orientations
+      to 1/65536 of a turn, and are sent as differences from the last values
+
+      bodies whose quantized pose, flags and part states have not changed
+      are left out altogether
+
+      only the trail points added since the last frame are sent
+
+   A new subscriber starts with no history, so its first frame carries
+   the absolute pose of every body and all the trail data still held.
+
+The Stream Format
+
+   Fixed-size values are big-endian (as written by DataOutputStream).
+   A "varint" is an unsigned value written 7 bits per byte, low-order
+   bits first, with the high bit set on all but the last byte.  An
+   "svarint" is a signed value zig-zag mapped ((n<<1)^(n>>63)) to a varint.
+
+   On connecting, the subscriber receives a header
+
+        int      magic        0x52503154 ("RP1T")
+        short    version      1
+        double   quantum      meters per position unit
+        int      turnSteps    orientation units per turn (65536)
+
+   followed by messages, each of which is
+
+        byte     type         1 for a frame (the only type so far)
+        varint   length       number of bytes that follow
+
+   so that a reader can skip messages it does not understand.  A frame is
+
+        varint   sequence     counted from 0 for each subscriber
+        double   simTime      simulation time in seconds
+        varint   nBody        bodies changed, then for each:
+           varint   bodyID
+           byte     flags     1 placement, 2 collision, 4 absolute pose,
+                              8 pose follows, 16 parts follow
+           svarint  x, y, theta                 (if pose follows)
+           varint   nPart                       (if parts follow)
+           bytes    hot flags, one bit per part, low bit first
+           svarint  range-sensor bin of each part, -1 if none
+        varint   nRemoved     then varint bodyID of each body that is gone
+        varint   nBox         paint boxes with new points, then for each:
+           varint   paintBoxID
+           varint   bodyPartID
+           byte     reset     1 if the trails were erased since the last frame
+           varint   nRun      then for each run of connected points:
+              byte     newLine   1 if the run does not continue the one before
+              3 bytes  color     red, green, blue
+              float    width     trailer width in meters
+              varint   nPoint    then svarint dx, dy for each point, relative
+                                 to the last point sent for the paint box
+                                 (to 0,0 for its first point or after a reset)
+        varint   nRemovedBox  then varint paintBoxID of each paint box that is gone
+
+   A pose is absolute the first time a body is sent and relative to the
+   last pose sent after that.  Relative orientations are wrapped to
+   [-32768, 32767].
+
+*/
+
+
+import java.io.*;
+import java.net.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+
+
+
+
+/**
+ * Streams compact, delta-encoded frames of the simulation state
+ * (body poses, sensor states and new trail points) to subscribers
+ * on the local host.
+ */
+
+public class SimTelemetryPublisher implements SimStateDataInterface, Runnable {
+
+   static final int  MAGIC          = 0x52503154;
+   static final int  VERSION        = 1;
+   static final int  TURN_STEPS     = 65536;
+   static final int  MESSAGE_FRAME  = 1;
+
+   static final int  QUEUE_FRAMES   = 4;       // messages held for a subscriber
+   static final long STALL_LIMIT    = 10000;   // milliseconds with a full queue
+
+   static final int  FLAG_PLACEMENT = 1;
+   static final int  FLAG_COLLISION = 2;
+   static final int  FLAG_ABSOLUTE  = 4;
+   static final int  FLAG_POSE      = 8;
+   static final int  FLAG_PARTS     = 16;
+
+
+   // what was last sent to a subscriber for one body
+   private static class BodyRecord {
+      long      qx, qy;
+      int       qTheta;
+      int       flags;
+      boolean   hot[];
+      int       bin[];
+      boolean   seen;
+   }
+
+   // what was last sent to a subscriber for one paint box
+   private static class BoxRecord {
+      SimTrailLayer.Cursor  cursor;
+      long      qx, qy;
+      boolean   seen;
+   }
+
+   private static class Subscriber {
+      Socket            socket;
+      DataOutputStream  output;
+      Thread            writer;
+      ArrayBlockingQueue<byte[]>  queue = new ArrayBlockingQueue<byte[]>(QUEUE_FRAMES);
+      long              sequence;
+      long              stalledSince;     // when the queue was found full, 0 if not
+      int               nFramesSkipped;
+      volatile boolean  disconnected;
+      HashMap<Integer, BodyRecord>  bodies = new HashMap<Integer, BodyRecord>();
+      HashMap<Integer, BoxRecord>   boxes  = new HashMap<Integer, BoxRecord>();
+   }
+
+
+   private SimSession            session;
+   private SimStateDataExchange  exchange;
+   private ServerSocket          serverSocket;
+   private double                quantum;
+   private double                frameInterval;
+   private Thread                thread;
+   private Thread                acceptThread;
+
+   private RsBody       [] bodyArray;
+   private SimPaintBox  [] paintBoxArray;
+
+   // scratch resources for the publisher thread
+   private ByteArrayOutputStream  frameBytes   = new ByteArrayOutputStream(4096);
+   private DataOutputStream       frame        = new DataOutputStream(frameBytes);
+   private ByteArrayOutputStream  messageBytes = new ByteArrayOutputStream(4096);
+   private DataOutputStream       message      = new DataOutputStream(messageBytes);
+   private ByteArrayOutputStream  sectionBytes = new ByteArrayOutputStream(4096);
+   private DataOutputStream       section      = new DataOutputStream(sectionBytes);
+   private ArrayList<SimPaintBox.TrailRun>  runs = new ArrayList<SimPaintBox.TrailRun>();
+   private ArrayList<Integer>     removed      = new ArrayList<Integer>();
+
+   // guarded by this
+   private Subscriber []  subscribers = new Subscriber[0];
+   private boolean  framePending;
+   private double   frameTime;
+   private int      nFramesCaptured;
+   private int      nFramesDropped;
+   private int      nFramesSkipped;
+   private int      nFramesSent;
+   private boolean  closed;
+
+
+   public SimTelemetryPublisher(
+         SimSession session, int port, double frameRate, double quantum) throws IOException
+   {
+      this.session       = session;
+      this.quantum       = quantum;
+      this.frameInterval = 1.0/frameRate;
+
+      // loopback only, the stream is not meant for other hosts
+      serverSocket = new ServerSocket(port, 4, InetAddress.getByName(null));
+      exchange     = new SimStateDataExchange();
+   }
+
+
+   public double getFrameInterval(){
+      return frameInterval;
+   }
+
+
+   /**
+    * Starts the publisher thread, the thread that accepts subscribers,
+    * and the task that captures the frames.
+    */
+   public void start(){
+      thread = new Thread(this, "SimTelemetryPublisher");
+      thread.setDaemon(true);
+      thread.start();
+
+      acceptThread = new Thread(
+         new Runnable(){
+            public void run(){
+               acceptSubscribers();
+            }
+         },
+         "SimTelemetryAccept");
+      acceptThread.setDaemon(true);
+      acceptThread.start();
+
+      session.scheduler.add(new SimTelemetryTask(session, this));
+      session.log("Publishing telemetry on local port "+serverSocket.getLocalPort()
+                  +" at "+(1.0/frameInterval)+" frames per simulated second");
+   }
+
+
+   /**
+    * Called from the scheduler thread, takes the state data for a frame
+    * (unless there is nobody to send it to).
+    */
+   public void captureFrame(double simTime){
+      synchronized(this){
+         if(subscribers.length==0 || closed)
+            return;
+      }
+      exchange.storeStateData(session);
+      synchronized(this){
+         nFramesCaptured++;
+         if(framePending)
+            nFramesDropped++;
+         framePending = true;
+         frameTime    = simTime;
+         notifyAll();
+      }
+   }
+
+
+   /**
+    * Stops publishing and disconnects the subscribers.
+    */
+   public void close(){
+      synchronized(this){
+         closed = true;
+         notifyAll();
+      }
+      try{
+         serverSocket.close();
+      }catch(IOException eio){
+         // we're shutting down anyway
+      }
+      if(thread!=null){
+         try{
+            thread.join(5000);
+         }catch(InterruptedException ie){
+            // we're shutting down anyway
+         }
+      }
+      session.log("Telemetry: "+nFramesSent+" frames sent, "+nFramesDropped+" dropped, "
+                  +nFramesSkipped+" skipped for slow subscribers");
+   }
+
+
+   private void acceptSubscribers(){
+      while(true){
+         Socket socket;
+         try{
+            socket = serverSocket.accept();
+         }catch(IOException eio){
+            break;    // the server socket was closed
+         }
+
+         final Subscriber s = new Subscriber();
+         try{
+            socket.setTcpNoDelay(true);
+            s.socket = socket;
+            s.output = new DataOutputStream(
+                          new BufferedOutputStream(socket.getOutputStream(), 1<<14));
+            s.output.writeInt(MAGIC);
+            s.output.writeShort(VERSION);
+            s.output.writeDouble(quantum);
+            s.output.writeInt(TURN_STEPS);
+            s.output.flush();
+         }catch(IOException eio){
+            session.log("Telemetry: unable to start subscriber "+eio.toString());
+            disconnect(s);
+            continue;
+         }
+
+         synchronized(this){
+            if(closed){
+               disconnect(s);
+               break;
+            }
+            Subscriber [] list = Arrays.copyOf(subscribers, subscribers.length+1);
+            list[subscribers.length] = s;
+            subscribers = list;
+
+            s.writer = new Thread(
+               new Runnable(){
+                  public void run(){
+                     writeMessages(s);
+                  }
+               },
+               "SimTelemetryWriter");
+            s.writer.setDaemon(true);
+            s.writer.start();
+         }
+         session.log("Telemetry subscriber connected from "+socket.getRemoteSocketAddress());
+      }
+   }
+
+
+   private void disconnect(Subscriber s){
+      s.disconnected = true;
+      synchronized(this){
+         for(int i=0; i<subscribers.length; i++){
+            if(subscribers[i]==s){
+               Subscriber [] list = new Subscriber[subscribers.length-1];
+               System.arraycopy(subscribers, 0, list, 0, i);
+               System.arraycopy(subscribers, i+1, list, i, list.length-i);
+               subscribers = list;
+               break;
+            }
+         }
+      }
+      try{
+         if(s.socket!=null)
+            s.socket.close();
+      }catch(IOException eio){
+         // nothing more we can do with it
+      }
+      if(s.writer!=null && s.writer!=Thread.currentThread())
+         s.writer.interrupt();
+   }
+
+
+   /**
+    * The body of a subscriber's writer thread, sends the messages
+    * queued for it until it is disconnected.
+    */
+   private void writeMessages(Subscriber s){
+      while(true){
+         byte [] m;
+         try{
+            m = s.queue.take();
+         }catch(InterruptedException ie){
+            break;    // disconnected
+         }
+         try{
+            s.output.write(m);
+            s.output.flush();
+         }catch(IOException eio){
+            if(!s.disconnected)
+               session.log("Telemetry subscriber disconnected: "+eio.toString());
+            disconnect(s);
+            break;
+         }
+      }
+   }
+
+
+   @Override
+public void run(){
+      while(true){
+         double       simTime;
+         Subscriber[] list;
+         synchronized(this){
+            while(!framePending && !closed){
+               try{
+                  wait();
+               }catch(InterruptedException ie){
+                  return;
+               }
+            }
+            if(closed)
+               break;
+            simTime = frameTime;
+            list    = subscribers;
+         }
+
+         exchange.retrieveStateData(this);
+         int nSkipped = 0;
+         for(int i=0; i<list.length; i++){
+            Subscriber s = list[i];
+            if(s.queue.remainingCapacity()==0){
+               // its writer is still busy, the subscriber misses this
+               // frame (and the delta state is left as it was)
+               s.nFramesSkipped++;
+               nSkipped++;
+               long now = System.currentTimeMillis();
+               if(s.stalledSince==0){
+                  s.stalledSince = now;
+               }else if(now-s.stalledSince>STALL_LIMIT){
+                  session.log("Telemetry subscriber stopped reading, disconnecting "
+                              +"(it missed "+s.nFramesSkipped+" frames)");
+                  disconnect(s);
+               }
+               continue;
+            }
+            s.stalledSince = 0;
+            try{
+               s.queue.offer(encodeFrame(s, simTime));
+            }catch(IOException eio){
+               // the encoding writes only to memory, this should not happen
+               session.log("Telemetry: unable to encode frame "+eio.toString());
+               disconnect(s);
+            }
+         }
+
+         synchronized(this){
+            framePending = false;
+            nFramesSent++;
+            nFramesSkipped += nSkipped;
+         }
+      }
+
+      Subscriber [] list;
+      synchronized(this){
+         list = subscribers;
+      }
+      for(int i=0; i<list.length; i++)
+         disconnect(list[i]);
+   }
+
+
+   /**
+    * Encodes a frame for a subscriber, as the complete message to be
+    * queued for its writer.  The subscriber's records are updated as if
+    * the frame were already sent, so a frame must never be encoded
+    * unless there is room in the queue for it.
+    */
+   private byte [] encodeFrame(Subscriber s, double simTime) throws IOException {
+      frameBytes.reset();
+      writeVarint(frame, s.sequence++);
+      frame.writeDouble(simTime);
+      encodeBodies(s);
+      encodeTrails(s);
+      frame.flush();
+
+      messageBytes.reset();
+      message.writeByte(MESSAGE_FRAME);
+      writeVarint(message, frameBytes.size());
+      frameBytes.writeTo(message);
+      message.flush();
+      return messageBytes.toByteArray();
+   }
+
+
+   private void encodeBodies(Subscriber s) throws IOException {
+      RsBodyState [] state = exchange.getRetrievedBodyStates();
+      int nBody = 0;
+
+      sectionBytes.reset();
+      for(BodyRecord r: s.bodies.values())
+         r.seen = false;
+
+      for(int i=0; state!=null && i<state.length; i++){
+         RsBodyState b = state[i];
+         long qx     = Math.round(b.getX()/quantum);
+         long qy     = Math.round(b.getY()/quantum);
+         int  qTheta = (int)Math.round(b.getOrientation()*TURN_STEPS/(2*Math.PI)) & (TURN_STEPS-1);
+         int  flags  = (b.placement ? FLAG_PLACEMENT : 0) | (b.collision ? FLAG_COLLISION : 0);
+
+         BodyRecord r = s.bodies.get(b.bodyID);
+         boolean absolute = r==null;
+         if(absolute){
+            r = new BodyRecord();
+            s.bodies.put(b.bodyID, r);
+         }
+         r.seen = true;
+
+         boolean pose  = absolute || qx!=r.qx || qy!=r.qy || qTheta!=r.qTheta;
+         boolean parts = absolute || !Arrays.equals(b.hot, r.hot) || !Arrays.equals(b.bin, r.bin);
+         if(!pose && !parts && flags==r.flags)
+            continue;   // nothing the subscriber can see has changed
+
+         writeVarint(section, b.bodyID);
+         section.writeByte(flags
+                           | (absolute ? FLAG_ABSOLUTE : 0)
+                           | (pose     ? FLAG_POSE     : 0)
+                           | (parts    ? FLAG_PARTS    : 0));
+         if(absolute){
+            writeSignedVarint(section, qx);
+            writeSignedVarint(section, qy);
+            writeSignedVarint(section, qTheta);
+         }else if(pose){
+            int dTheta = (qTheta-r.qTheta) & (TURN_STEPS-1);
+            if(dTheta>=TURN_STEPS/2)
+               dTheta -= TURN_STEPS;
+            writeSignedVarint(section, qx-r.qx);
+            writeSignedVarint(section, qy-r.qy);
+            writeSignedVarint(section, dTheta);
+         }
+         if(parts){
+            int nPart = b.hot==null ? 0 : b.hot.length;
+            writeVarint(section, nPart);
+            for(int j=0; j<nPart; j+=8){
+               int bits = 0;
+               for(int k=0; k<8 && j+k<nPart; k++){
+                  if(b.hot[j+k])
+                     bits |= 1<<k;
+               }
+               section.writeByte(bits);
+            }
+            for(int j=0; j<nPart; j++)
+               writeSignedVarint(section, b.bin[j]);
+            r.hot = b.hot==null ? null : b.hot.clone();
+            r.bin = b.bin==null ? null : b.bin.clone();
+         }
+
+         r.qx     = qx;
+         r.qy     = qy;
+         r.qTheta = qTheta;
+         r.flags  = flags;
+         nBody++;
+      }
+
+      section.flush();
+      writeVarint(frame, nBody);
+      sectionBytes.writeTo(frame);
+
+      removed.clear();
+      Iterator<Map.Entry<Integer, BodyRecord>> it = s.bodies.entrySet().iterator();
+      while(it.hasNext()){
+         Map.Entry<Integer, BodyRecord> e = it.next();
+         if(!e.getValue().seen){
+            removed.add(e.getKey());
+            it.remove();
+         }
+      }
+      writeVarint(frame, removed.size());
+      for(int i=0; i<removed.size(); i++)
+         writeVarint(frame, removed.get(i));
+   }
+
+
+   private void encodeTrails(Subscriber s) throws IOException {
+      SimPaintBox [] box = paintBoxArray;
+      int nBox = 0;
+
+      sectionBytes.reset();
+      for(BoxRecord r: s.boxes.values())
+         r.seen = false;
+
+      for(int i=0; box!=null && i<box.length; i++){
+         BoxRecord r = s.boxes.get(box[i].getPaintBoxID());
+         boolean reset = false;
+         if(r==null){
+            r = new BoxRecord();
+            r.cursor = new SimTrailLayer.Cursor();
+            r.cursor.generation = box[i].getGeneration();
+            s.boxes.put(box[i].getPaintBoxID(), r);
+         }else if(r.cursor.generation!=box[i].getGeneration()){
+            r.cursor = new SimTrailLayer.Cursor();
+            r.cursor.generation = box[i].getGeneration();
+            r.qx  = 0;
+            r.qy  = 0;
+            reset = true;
+         }
+         r.seen = true;
+
+         box[i].getNewTrailRuns(r.cursor, runs);
+         if(runs.isEmpty() && !reset)
+            continue;
+
+         writeVarint(section, box[i].getPaintBoxID());
+         writeVarint(section, box[i].getBodyPartID());
+         section.writeByte(reset ? 1 : 0);
+         writeVarint(section, runs.size());
+         for(int j=0; j<runs.size(); j++){
+            SimPaintBox.TrailRun run = runs.get(j);
+            section.writeByte(run.newLine ? 1 : 0);
+            section.writeByte(run.color.getRed());
+            section.writeByte(run.color.getGreen());
+            section.writeByte(run.color.getBlue());
+            section.writeFloat((float)run.width);
+            writeVarint(section, run.count);
+            for(int k=run.first; k<run.first+run.count; k++){
+               long qx = Math.round(run.x[k]/quantum);
+               long qy = Math.round(run.y[k]/quantum);
+               writeSignedVarint(section, qx-r.qx);
+               writeSignedVarint(section, qy-r.qy);
+               r.qx = qx;
+               r.qy = qy;
+            }
+         }
+         nBox++;
+      }
+      runs.clear();   // don't hold on to the geometry
+
+      section.flush();
+      writeVarint(frame, nBox);
+      sectionBytes.writeTo(frame);
+
+      removed.clear();
+      Iterator<Map.Entry<Integer, BoxRecord>> it = s.boxes.entrySet().iterator();
+      while(it.hasNext()){
+         Map.Entry<Integer, BoxRecord> e = it.next();
+         if(!e.getValue().seen){
+            removed.add(e.getKey());
+            it.remove();
+         }
+      }
+      writeVarint(frame, removed.size());
+      for(int i=0; i<removed.size(); i++)
+         writeVarint(frame, removed.get(i));
+   }
+
+
+   static void writeVarint(DataOutput output, long n) throws IOException {
+      while((n & ~0x7FL)!=0){
+         output.writeByte((int)((n & 0x7F) | 0x80));
+         n >>>= 7;
+      }
+      output.writeByte((int)n);
+   }
+
+   static void writeSignedVarint(DataOutput output, long n) throws IOException {
+      writeVarint(output, (n<<1) ^ (n>>63));
+   }
+
+
+   // methods in support of SimStateDataInterface
+   public RsBody [] getBodyArray(){
+      return bodyArray;
+   }
+
+   public void setBodyArray(RsBody [] bodyArray){
+      this.bodyArray = bodyArray;
+   }
+
+   public SimPaintBox [] getPaintBoxArray(){
+      return paintBoxArray;
+   }
+
+   public void setPaintBoxArray(SimPaintBox [] paintBoxArray){
+      this.paintBoxArray = paintBoxArray;
+   }
+}
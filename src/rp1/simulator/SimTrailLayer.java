@@ -0,0 +1,212 @@
+/*  -------------------------------------------------------------
+
+    Rossum's Playhouse  --  a client/server based robot simulator
+    Rossum's Playhouse is also known under the name "RP1".
+    Copyright (C) 1999  G.W. Lucas
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+----------------------------------------------------------------- */
+
+
+package rp1.simulator;
+import rp1.rossum.*;
+
+
+/*
+
+   SimTrailLayer.java     an off-screen raster holding the paint trails
+
+
+   Paint trails only ever grow (until they are cleared), so there is no
+   reason to draw the whole history of every trail each time a view is
+   repainted.   Each view keeps one of these layers.  The layer is a
+   transparent image the size of the view into which the trail segments
+   are drawn as they arrive.  A full repaint of the view draws the floor
+   plan and then simply drops the layer on top of it.
+
+   The layer keeps a "cursor" for each paint box telling it which node
+   and point it has painted up to.  The paint boxes themselves no longer
+   keep track of what has been painted (which would not work if there were
+   more than one view).   At each animation frame, only the points beyond
+   the cursors are drawn.
+
+   The cursor records the time of the last point painted as well as its
+   index, because a node is simplified when it is closed (see
+   SimPaintBox.setRetention) and its points renumbered.  After that,
+   the painting resumes with the first point later than that time.
+
+   The layer has to be rebuilt from scratch (by drawing the full history
+   of every trail) only when
+
+       the size of the view or its graphics transform changes
+       a paint box was cleared (its generation number changes)
+       a paint box goes away
+
+   so the cost of a repaint no longer grows with the length of the session.
+
+   The layer also holds the scratch arrays used for computing the
+   outlines of fat lines, so the paint boxes do not need to allocate them.
+
+*/
+
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+
+
+
+
+/**
+ * An off-screen raster of paint trails, maintained incrementally
+ * for a single view.
+ */
+
+public class SimTrailLayer {
+
+   static class Cursor {
+      int     generation;
+      int     nodeID = -1;   // node being painted, -1 if none yet
+      int     point;         // first point in that node not yet painted
+      double  time;          // time of the point before it (if point>0)
+   }
+
+   private BufferedImage               image;
+   private RsTransform                 transform;
+   private HashMap<Integer, Cursor>    cursors;
+   private boolean                     valid;
+
+   // scratch resources used by SimPaintBox when painting
+   final RsPoint  workPoint = new RsPoint(0.0, 0.0);
+   final double   sx[]      = new double[7];
+   final double   sy[]      = new double[7];   // corners of a fat line segment
+   final int      ix[]      = new int[7];
+   final int      iy[]      = new int[7];
+
+
+   public SimTrailLayer(){
+      cursors   = new HashMap<Integer, Cursor>();
+      transform = new RsTransform();
+      valid     = false;
+   }
+
+
+   /**
+    * Notes that the layer must be rebuilt at the next call to update().
+    */
+   public void invalidate(){
+      valid = false;
+   }
+
+
+   /**
+    * Indicates whether the layer can be brought up to date just by
+    * painting new points.  If not, the next update() will rebuild it.
+    */
+   public boolean isCurrent(int width, int height, RsTransform graphicsTransform, SimPaintBox [] paintBox){
+      if(!valid || image==null || image.getWidth()!=width || image.getHeight()!=height)
+         return false;
+
+      if(transform.m11!=graphicsTransform.m11 || transform.m12!=graphicsTransform.m12 ||
+         transform.m13!=graphicsTransform.m13 || transform.m21!=graphicsTransform.m21 ||
+         transform.m22!=graphicsTransform.m22 || transform.m23!=graphicsTransform.m23)
+         return false;
+
+      int nMatched = 0;
+      if(paintBox!=null){
+         for(int i=0; i<paintBox.length; i++){
+            Cursor c = cursors.get(paintBox[i].getPaintBoxID());
+            if(c==null)
+               continue;   // a new paint box, it will get a cursor when painted
+            if(c.generation!=paintBox[i].getGeneration())
+               return false;
+            nMatched++;
+         }
+      }
+
+      // if we have cursors for boxes that are not on the list,
+      // they have gone away and so must their trails
+      return nMatched==cursors.size();
+   }
+
+
+   /**
+    * Brings the layer up to date with the paint boxes, rebuilding it if
+    * necessary.
+    * @return the screen-coordinate bounds of whatever was drawn, null if nothing
+    *         was drawn; if the layer was rebuilt, the bounds are the entire layer.
+    */
+   public RsRectangle update(int width, int height, RsTransform graphicsTransform, SimPaintBox [] paintBox){
+      RsRectangle r = null;
+      boolean rebuild = !isCurrent(width, height, graphicsTransform, paintBox);
+
+      if(rebuild){
+         if(image==null || image.getWidth()!=width || image.getHeight()!=height)
+            image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+         else
+            clearImage();
+         transform.copy(graphicsTransform);
+         cursors.clear();
+         valid = true;
+      }
+
+      if(paintBox!=null){
+         Graphics g = image.getGraphics();
+         for(int i=0; i<paintBox.length; i++){
+            Integer key = paintBox[i].getPaintBoxID();
+            Cursor  c   = cursors.get(key);
+            if(c==null){
+               c = new Cursor();
+               c.generation = paintBox[i].getGeneration();
+               cursors.put(key, c);
+            }
+            r = paintBox[i].paintTrail(g, transform, r, c, this);
+         }
+         g.dispose();
+      }
+
+      if(rebuild)
+         return new RsRectangle(0, 0, width, height);
+      return r;
+   }
+
+
+   /**
+    * Draws the specified area of the layer over the target.
+    */
+   public void drawOnto(Graphics g, Rectangle area){
+      if(image==null)
+         return;
+      if(area==null){
+         g.drawImage(image, 0, 0, null);
+      }else{
+         int x1 = area.x+area.width;
+         int y1 = area.y+area.height;
+         g.drawImage(image, area.x, area.y, x1, y1, area.x, area.y, x1, y1, null);
+      }
+   }
+
+
+   private void clearImage(){
+      Graphics2D g = image.createGraphics();
+      g.setComposite(AlphaComposite.Clear);
+      g.fillRect(0, 0, image.getWidth(), image.getHeight());
+      g.dispose();
+   }
+}
@@ -0,0 +1,176 @@
+/*  -------------------------------------------------------------
+
+    Rossum's Playhouse  --  a client/server based robot simulator
+    Rossum's Playhouse is also known under the name "RP1".
+    Copyright (C) 1999  G.W. Lucas
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+----------------------------------------------------------------- */
+
+
+package rp1.simulator;
+
+
+/*
+
+   SimViewSet.java      the views of a simulation
+
+
+   A session may have any number of views (SimCanvas objects, each in its
+   own SimFrame): the main window, zoomed-in windows, windows that
+   follow a robot around, and so on.  All of them get their state data
+   from the one SimStateDataExchange in the session, so the scheduler thread
+   stores the state once per frame no matter how many views there are.
+   It then calls frameAvailable(), which does nothing more than post
+   a single runnable to the AWT event queue (and not even that if one
+   is already waiting).  All the per-view work happens in the event
+   dispatch thread, where the views share the exchange's front frame
+   and the plan images in a SimPlanImageCache.
+
+   Each view has its own frame interval.  When the runnable is
+   dispatched, a view that drew a frame too recently to draw another
+   skips it, and the view set arranges (with a timer) for another
+   dispatch when the earliest of the skipped views is due.  So a slow
+   view still ends up showing the latest state even if the simulation
+   goes quiet.
+
+*/
+
+
+import java.awt.EventQueue;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+
+
+
+/**
+ * Dispatches animation frames and repaints to the views of a session.
+ */
+
+public class SimViewSet implements Runnable {
+
+   private SimCanvas  []     views;        // copy on write, guarded by this
+   private SimPlanImageCache planImageCache;
+   private AtomicBoolean     dispatchPending;
+   private AtomicBoolean     repaintPending;
+   private Timer             timer;
+   private long              timerDue;     // when the timer will next go off (ms)
+
+
+   public SimViewSet(){
+      views           = new SimCanvas[0];
+      planImageCache  = new SimPlanImageCache();
+      dispatchPending = new AtomicBoolean(false);
+      repaintPending  = new AtomicBoolean(false);
+      timer           = null;
+   }
+
+
+   public synchronized void add(SimCanvas view){
+      SimCanvas [] v = new SimCanvas[views.length+1];
+      System.arraycopy(views, 0, v, 0, views.length);
+      v[views.length] = view;
+      views = v;
+   }
+
+   public synchronized void remove(SimCanvas view){
+      int n = 0;
+      SimCanvas [] v = new SimCanvas[views.length];
+      for(int i=0; i<views.length; i++){
+         if(views[i]!=view)
+            v[n++] = views[i];
+      }
+      if(n<views.length){
+         views = new SimCanvas[n];
+         System.arraycopy(v, 0, views, 0, n);
+      }
+   }
+
+   public synchronized SimCanvas [] getViews(){
+      return views;
+   }
+
+   public synchronized boolean isEmpty(){
+      return views.length==0;
+   }
+
+
+   /**
+    * Gets the plan images shared by the views (to be used only in
+    * the event dispatch thread).
+    */
+   public SimPlanImageCache getPlanImageCache(){
+      return planImageCache;
+   }
+
+
+   /**
+    * Notes that a new frame of state data has been stored in the session's
+    * exchange.  May be called from any thread.
+    */
+   public void frameAvailable(){
+      if(dispatchPending.compareAndSet(false, true))
+         EventQueue.invokeLater(this);
+   }
+
+   /**
+    * Notes that the views need to be repainted in full.  May be called from any thread.
+    */
+   public void repaintAll(){
+      repaintPending.set(true);
+      frameAvailable();
+   }
+
+
+   @Override
+public void run(){
+      dispatchPending.set(false);
+
+      SimCanvas [] v = getViews();
+      if(repaintPending.getAndSet(false)){
+         planImageCache.invalidate();
+         for(int i=0; i<v.length; i++)
+            v[i].repaint();
+         return;
+      }
+
+      double delay = 0;
+      for(int i=0; i<v.length; i++){
+         double d = v[i].animate();
+         if(d>0 && (delay==0 || d<delay))
+            delay = d;
+      }
+
+      if(delay>0){
+         long now = System.currentTimeMillis();
+         long due = now+(long)Math.ceil(delay*1000.0);
+         if(timerDue>now && timerDue<=due)
+            return;   // there's already a dispatch coming soon enough
+         timerDue = due;
+         if(timer==null)
+            timer = new Timer("SimViewSet", true);
+         timer.schedule(
+            new TimerTask(){
+               public void run(){
+                  frameAvailable();
+               }
+            },
+            due-now);
+      }
+   }
+}
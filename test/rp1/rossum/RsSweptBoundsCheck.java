@@ -0,0 +1,191 @@
+/*  -------------------------------------------------------------
+
+    Rossum's Playhouse  --  a client/server based robot simulator
+    Rossum's Playhouse is also known under the name "RP1".
+    Copyright (C) 1999  G.W. Lucas
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+----------------------------------------------------------------- */
+
+
+package rp1.rossum;
+
+
+/*
+
+   RsSweptBoundsCheck.java     randomized check of the collision broad phase
+
+
+   SimClient skips the exact collision tests for any wall whose bounds
+   do not meet the swept bounds of a body part (see getSweptBounds() in
+   RsMotion and its derived classes).  That is safe only if the swept
+   bounds really are conservative.  This program generates random
+   bodies, walls and motions (both straight lines and arcs) and checks
+   two things:
+
+      every vertex of the body, at each of a number of times sampled
+      over the motion, lies inside the swept bounds
+
+      no wall that the broad phase would skip is found to collide by
+      the exhaustive path
+
+   It takes no test framework, it is run from the command line with
+   the compiled classes on the class path:
+
+        java -cp build/classes:build/test/classes rp1.rossum.RsSweptBoundsCheck [nTrial [seed]]
+
+   and exits with a non-zero status if any check fails.  Run it whenever
+   getSweptBounds() or the motion classes are changed.
+
+*/
+
+
+import java.util.Random;
+
+
+public class RsSweptBoundsCheck {
+
+   private static final double DURATION = 2.0;
+   private static final int    N_SAMPLE = 64;
+
+   private Random  random;
+   private RsPlan  plan;
+
+   private int  nTrial;
+   private int  nSkipped;
+   private int  nCollided;
+   private int  nOutside;
+   private int  nMissed;
+
+
+   public RsSweptBoundsCheck(long seed){
+      random = new Random(seed);
+      plan   = new RsPlan();
+   }
+
+
+   public static void main(String [] args){
+      int  n    = args.length>0 ? Integer.parseInt(args[0]) : 200000;
+      long seed = args.length>1 ? Long.parseLong(args[1])  : 12345L;
+
+      RsSweptBoundsCheck check = new RsSweptBoundsCheck(seed);
+      for(int i=0; i<n; i++)
+         check.runTrial(i%2==0);
+
+      System.out.println(check.nTrial+" motions, "+check.nCollided+" collisions, "
+                         +check.nSkipped+" walls skipped by the broad phase");
+      System.out.println(check.nOutside+" body positions outside the swept bounds, "
+                         +check.nMissed+" collisions missed by the broad phase");
+      if(check.nOutside!=0 || check.nMissed!=0){
+         System.out.println("FAILED");
+         System.exit(1);
+      }
+      System.out.println("passed");
+   }
+
+
+   private void runTrial(boolean line){
+      RsSegment [] body = makeBody(0.3, 3+random.nextInt(8));
+      RsWall       wall = makeWall();
+
+      double theta = random.nextDouble()*2*Math.PI;
+      double x     = random.nextDouble()*4-2;
+      double y     = random.nextDouble()*4-2;
+      double p1, p2, p3;
+      if(line){
+         p1 = random.nextDouble()*2*Math.PI;     // direction
+         p2 = random.nextDouble()*3;             // speed
+         p3 = 0;
+      }else{
+         p1 = random.nextDouble()*16-8;          // turn rate
+         p2 = random.nextDouble()*2-1;           // pivot offset
+         p3 = random.nextDouble()*2-1;
+      }
+
+      nTrial++;
+      RsMotion     motion = makeMotion(line, theta, x, y, p1, p2, p3);
+      RsRectangle  bounds = new RsRectangle();
+      if(!motion.getSweptBounds(body, body.length, bounds))
+         return;    // no broad phase for this motion, nothing to check
+
+      RsPoint p = new RsPoint();
+      for(int i=0; i<=N_SAMPLE; i++){
+         motion.setTime(DURATION*i/N_SAMPLE);
+         for(int j=0; j<body.length; j++){
+            motion.transform.map(body[j].x, body[j].y, p);
+            if(!bounds.contains(p.x, p.y))
+               nOutside++;
+         }
+      }
+
+      // the collision test truncates the motion, so it gets a fresh one
+      RsSegment [] w = wall.getSegmentArray();
+      motion = makeMotion(line, theta, x, y, p1, p2, p3);
+      boolean collided = motion.processCollision(body, body.length, w, w.length);
+      if(collided)
+         nCollided++;
+      if(!bounds.intersects(wall.getBounds())){
+         nSkipped++;
+         if(collided)
+            nMissed++;
+      }
+   }
+
+
+   private RsMotion makeMotion(
+      boolean line, double theta, double x, double y, double p1, double p2, double p3)
+   {
+      RsMotionNull start = new RsMotionNull(0.0, theta, x, y);
+      if(line)
+         return new RsMotionLine(start, 0.0, DURATION, new RsVector(Math.cos(p1), Math.sin(p1)), p2);
+      return new RsMotionCircle(start, 0.0, DURATION, new RsPoint(x+p2, y+p3), p1);
+   }
+
+
+   // a closed, roughly round polygon about the body origin
+   private RsSegment [] makeBody(double radius, int n){
+      double [] a = new double[2*n];
+      for(int i=0; i<n; i++){
+         double theta = 2*Math.PI*i/n + random.nextDouble()*0.3;
+         double r     = radius*(0.5+random.nextDouble()*0.5);
+         a[2*i]   = r*Math.cos(theta);
+         a[2*i+1] = r*Math.sin(theta);
+      }
+      RsSegment [] s = new RsSegment[n];
+      for(int i=0; i<n; i++){
+         int j = (i+1)%n;
+         s[i]  = new RsSegment(a[2*i], a[2*i+1], a[2*j], a[2*j+1]);
+      }
+      return s;
+   }
+
+
+   private RsWall makeWall(){
+      int    n  = 3+random.nextInt(5);
+      double cx = random.nextDouble()*4-2;
+      double cy = random.nextDouble()*4-2;
+      double [] a = new double[2*n];
+      for(int i=0; i<n; i++){
+         double theta = 2*Math.PI*i/n;
+         double r     = 0.05+random.nextDouble()*0.6;
+         a[2*i]   = cx+r*Math.cos(theta);
+         a[2*i+1] = cy+r*Math.sin(theta);
+      }
+      RsWall wall = new RsWall(plan.synthesizeName(), plan);
+      wall.setGeometry(a);
+      return wall;
+   }
+}